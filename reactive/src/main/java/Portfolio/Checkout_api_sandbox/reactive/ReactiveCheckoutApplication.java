@@ -0,0 +1,17 @@
+package Portfolio.Checkout_api_sandbox.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Variante no bloqueante de la API (WebFlux + R2DBC) con los mismos endpoints de órdenes, checkout y webhooks.
+ * Comparte con la variante servlet los DTOs, las excepciones, las reglas del checkout y la validación de webhooks.
+ */
+@SpringBootApplication
+public class ReactiveCheckoutApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveCheckoutApplication.class, args);
+	}
+
+}
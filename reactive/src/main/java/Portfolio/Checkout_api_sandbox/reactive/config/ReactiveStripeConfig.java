@@ -0,0 +1,39 @@
+package Portfolio.Checkout_api_sandbox.reactive.config;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeWebhookValidator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Path;
+
+/**
+ * Beans de Stripe compartidos con la variante servlet: credenciales por tenant (con recarga programada
+ * del archivo de tenants) y validación de la firma de los webhooks.
+ */
+@Configuration
+@EnableScheduling
+public class ReactiveStripeConfig {
+
+    @Value("${stripe.apiKey}")
+    private String apiKey;
+
+    @Value("${stripe.webhookSecret:}")
+    private String webhookSecret;
+
+    @Value("${stripe.tenants.file:}")
+    private String tenantsFile;
+
+    @Bean
+    public StripeTenantRegistry stripeTenantRegistry() {
+        return new StripeTenantRegistry(apiKey, webhookSecret,
+                tenantsFile == null || tenantsFile.isBlank() ? null : Path.of(tenantsFile));
+    }
+
+    @Bean
+    public StripeWebhookValidator stripeWebhookValidator() {
+        return new StripeWebhookValidator();
+    }
+}
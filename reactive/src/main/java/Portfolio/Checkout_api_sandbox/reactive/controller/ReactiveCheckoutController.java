@@ -0,0 +1,51 @@
+package Portfolio.Checkout_api_sandbox.reactive.controller;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CheckoutRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
+import Portfolio.Checkout_api_sandbox.reactive.service.ReactiveCheckoutService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller REST reactivo para el checkout.
+ * Requiere el header Idempotency-Key para prevenir pagos duplicados.
+ */
+@RestController
+@RequestMapping("/api/checkout")
+public class ReactiveCheckoutController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCheckoutController.class);
+
+    @Autowired
+    private ReactiveCheckoutService checkoutService;
+
+    /**
+     * Inicia el proceso de checkout para una orden.
+     * Crea un Payment Intent en Stripe y retorna el client_secret; ningún hilo queda esperando a Stripe.
+     *
+     * @param request Datos del checkout (orderId y provider)
+     * @param idempotencyKey Clave única para idempotencia (header obligatorio)
+     * @return CheckoutResponse con el client_secret para el frontend (HTTP 200)
+     */
+    @PostMapping
+    public Mono<CheckoutResponse> initiateCheckout(
+            @Valid @RequestBody CheckoutRequest request,
+            @RequestHeader("Idempotency-Key") String idempotencyKey) {
+
+        logger.info("POST /api/checkout - Order: {}, Idempotency-Key: {}",
+                    request.getOrderId(), idempotencyKey);
+
+        // Validar que la clave de idempotencia no esté vacía
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Mono.error(new IllegalArgumentException("El header 'Idempotency-Key' es obligatorio"));
+        }
+
+        return checkoutService.initiateCheckout(request, idempotencyKey)
+                .doOnNext(checkout -> logger.info("Checkout initiated successfully - Payment ID: {}, Order: {}",
+                                                  checkout.getPaymentId(), checkout.getOrderId()));
+    }
+}
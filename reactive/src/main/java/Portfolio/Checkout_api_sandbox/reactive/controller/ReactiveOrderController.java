@@ -0,0 +1,121 @@
+package Portfolio.Checkout_api_sandbox.reactive.controller;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkOrderResult;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemPageResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.reactive.service.ReactiveBulkOrderService;
+import Portfolio.Checkout_api_sandbox.reactive.service.ReactiveOrderService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Controller REST reactivo para gestionar órdenes.
+ * Mismas rutas y contratos que OrderController (salvo /large y el modo write-behind).
+ */
+@RestController
+@RequestMapping("/api/orders")
+public class ReactiveOrderController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderController.class);
+
+    private static final String SUMMARY_VIEW = "summary";
+
+    @Autowired
+    private ReactiveOrderService orderService;
+
+    @Autowired
+    private ReactiveBulkOrderService bulkOrderService;
+
+    /**
+     * Crea una nueva orden con items.
+     * Si se envía el header "Idempotency-Key", los reintentos devuelven la orden original.
+     *
+     * @param request Datos de la orden (moneda e items)
+     * @param idempotencyKey Clave única para idempotencia (header opcional)
+     * @return OrderResponse con la orden creada (HTTP 201)
+     */
+    @PostMapping
+    public Mono<ResponseEntity<OrderResponse>> createOrder(
+            @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        logger.info("POST /api/orders - Creating order with {} items, Idempotency-Key: {}",
+                    request.getItems().size(), idempotencyKey);
+
+        if (idempotencyKey != null && idempotencyKey.isBlank()) {
+            return Mono.error(new IllegalArgumentException("El header 'Idempotency-Key' no puede estar vacío"));
+        }
+
+        return orderService.createOrder(request, idempotencyKey)
+                .map(response -> {
+                    logger.info("Order created successfully - ID: {}", response.getOrderId());
+                    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                });
+    }
+
+    /**
+     * Crea órdenes de forma masiva a partir de un stream NDJSON.
+     * La respuesta contiene un resultado por línea y se envía a medida que se confirma cada bloque.
+     *
+     * @param lines Stream NDJSON con una orden por línea
+     * @return Stream NDJSON con un BulkOrderResult por línea (HTTP 200)
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkOrderResult> createOrdersBulk(@RequestBody Flux<String> lines) {
+
+        logger.info("POST /api/orders/bulk - Starting bulk import");
+
+        return bulkOrderService.importOrders(lines);
+    }
+
+    /**
+     * Obtiene una orden por su ID.
+     * Con view=summary se omiten los items y solo se informa su cantidad.
+     *
+     * @param orderId UUID de la orden
+     * @param view Vista de la respuesta ("full" o "summary")
+     * @return OrderResponse con los datos de la orden (HTTP 200)
+     */
+    @GetMapping("/{orderId}")
+    public Mono<OrderResponse> getOrder(
+            @PathVariable UUID orderId,
+            @RequestParam(defaultValue = "full") String view) {
+
+        logger.info("GET /api/orders/{} - Fetching order (view: {})", orderId, view);
+
+        return SUMMARY_VIEW.equalsIgnoreCase(view)
+                ? orderService.getOrderSummary(orderId)
+                : orderService.getOrder(orderId);
+    }
+
+    /**
+     * Obtiene los items de una orden paginados por keyset.
+     *
+     * @param orderId UUID de la orden
+     * @param after Cursor: lineNumber del último item recibido (0 para la primera página)
+     * @param limit Tamaño de página (máximo 500)
+     * @return OrderItemPageResponse con los items y nextCursor (HTTP 200)
+     */
+    @GetMapping("/{orderId}/items")
+    public Mono<OrderItemPageResponse> getOrderItems(
+            @PathVariable UUID orderId,
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        logger.info("GET /api/orders/{}/items - after: {}, limit: {}", orderId, after, limit);
+
+        return orderService.getOrderItems(orderId, after, limit);
+    }
+}
@@ -0,0 +1,50 @@
+package Portfolio.Checkout_api_sandbox.reactive.controller;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.reactive.service.ReactiveWebhookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller REST reactivo para recibir webhooks de Stripe.
+ *
+ * SEGURIDAD CRÍTICA: Valida la firma del webhook antes de procesar.
+ */
+@RestController
+@RequestMapping("/api/webhooks")
+public class ReactiveStripeWebhookController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveStripeWebhookController.class);
+
+    @Autowired
+    private ReactiveWebhookService webhookService;
+
+    /**
+     * Recibe y procesa webhooks de Stripe (mismas rutas que StripeWebhookController).
+     *
+     * @param tenantId Tenant cuya cuenta envía el evento (opcional)
+     * @param payload Cuerpo raw del webhook (JSON sin deserializar)
+     * @param signatureHeader Firma HMAC del webhook (header "Stripe-Signature")
+     * @return HTTP 200 si procesado correctamente, 401 si firma inválida
+     */
+    @PostMapping({"/stripe", "/stripe/{tenantId}"})
+    public Mono<ResponseEntity<Void>> handleStripeWebhook(
+            @PathVariable(required = false) String tenantId,
+            @RequestBody String payload,
+            @RequestHeader("Stripe-Signature") String signatureHeader) {
+
+        String tenant = tenantId != null ? tenantId : StripeTenantRegistry.DEFAULT_TENANT;
+        logger.info("POST /api/webhooks/stripe - Receiving webhook for tenant {}", tenant);
+
+        // Stripe espera HTTP 200 para confirmar recepción
+        return webhookService.processStripeWebhook(tenant, payload, signatureHeader)
+                .then(Mono.fromSupplier(() -> {
+                    logger.info("Webhook processed successfully");
+                    return ResponseEntity.ok().<Void>build();
+                }));
+    }
+}
@@ -0,0 +1,200 @@
+package Portfolio.Checkout_api_sandbox.reactive.exception;
+
+import Portfolio.Checkout_api_sandbox.dto.response.ErrorResponse;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
+import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
+import Portfolio.Checkout_api_sandbox.exception.InvalidWebhookSignatureException;
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.exception.PaymentNotFoundException;
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Manejador de excepciones de la variante reactiva.
+ * Devuelve las mismas respuestas (códigos y formato ErrorResponse) que GlobalExceptionHandler,
+ * con los mismos niveles de log: DEBUG para resultados esperados, ERROR con stack solo para lo inesperado.
+ */
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    /**
+     * Maneja errores de validación de Bean Validation (@Valid).
+     * Retorna HTTP 400 con detalles de los campos inválidos.
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, Object>> handleValidationErrors(
+            WebExchangeBindException ex,
+            ServerWebExchange exchange) {
+
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            String fieldName = ((FieldError) error).getField();
+            String errorMessage = error.getDefaultMessage();
+            errors.put(fieldName, errorMessage);
+        });
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Error de validación");
+        response.put("status", HttpStatus.BAD_REQUEST.value());
+        response.put("errors", errors);
+        response.put("path", path(exchange));
+
+        logger.warn("Validation error on {}: {}", path(exchange), errors);
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Maneja OrderNotFoundException.
+     * Retorna HTTP 404 Not Found.
+     */
+    @ExceptionHandler(OrderNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleOrderNotFound(
+            OrderNotFoundException ex,
+            ServerWebExchange exchange) {
+
+        String message = ex.getMessage();
+        logger.debug("Order not found: {}", message);
+
+        return error(HttpStatus.NOT_FOUND, message, exchange);
+    }
+
+    /**
+     * Maneja PaymentNotFoundException.
+     * Retorna HTTP 404 Not Found.
+     */
+    @ExceptionHandler(PaymentNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentNotFound(
+            PaymentNotFoundException ex,
+            ServerWebExchange exchange) {
+
+        String message = ex.getMessage();
+        logger.debug("Payment not found: {}", message);
+
+        return error(HttpStatus.NOT_FOUND, message, exchange);
+    }
+
+    /**
+     * Maneja IdempotencyConflictException.
+     * Retorna HTTP 409 Conflict.
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflict(
+            IdempotencyConflictException ex,
+            ServerWebExchange exchange) {
+
+        String message = ex.getMessage();
+        logger.debug("Idempotency conflict: {}", message);
+
+        return error(HttpStatus.CONFLICT, message, exchange);
+    }
+
+    /**
+     * Maneja InvalidWebhookSignatureException.
+     * Retorna HTTP 401 Unauthorized.
+     */
+    @ExceptionHandler(InvalidWebhookSignatureException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidWebhookSignature(
+            InvalidWebhookSignatureException ex,
+            ServerWebExchange exchange) {
+
+        logger.warn("Invalid webhook signature on {}: {}", path(exchange), ex.getMessage());
+
+        return error(HttpStatus.UNAUTHORIZED, "Firma de webhook inválida", exchange);
+    }
+
+    /**
+     * Maneja InvalidOrderStateException.
+     * Retorna HTTP 400 Bad Request.
+     */
+    @ExceptionHandler(InvalidOrderStateException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidOrderState(
+            InvalidOrderStateException ex,
+            ServerWebExchange exchange) {
+
+        String message = ex.getMessage();
+        logger.debug("Invalid order state: {}", message);
+
+        return error(HttpStatus.BAD_REQUEST, message, exchange);
+    }
+
+    /**
+     * Maneja StripeApiException.
+     * Retorna HTTP 502 Bad Gateway, o HTTP 503 con Retry-After si Stripe limitó la tasa.
+     */
+    @ExceptionHandler(StripeApiException.class)
+    public ResponseEntity<ErrorResponse> handleStripeApiError(
+            StripeApiException ex,
+            ServerWebExchange exchange) {
+
+        if (ex.getRetryAfterSeconds() != null) {
+            logger.warn("Stripe call rejected on {}: {}", path(exchange), ex.getMessage());
+
+            ErrorResponse error = new ErrorResponse(
+                    "El proveedor de pagos no está disponible temporalmente: " + ex.getMessage(),
+                    HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    path(exchange)
+            );
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                    .body(error);
+        }
+
+        // ReactiveStripeClient ya logueó la causa donde ocurrió; acá basta el resumen
+        logger.error("Stripe API error on {}: {}", path(exchange), ex.getMessage());
+
+        return error(HttpStatus.BAD_GATEWAY,
+                "Error al comunicarse con el proveedor de pagos: " + ex.getMessage(), exchange);
+    }
+
+    /**
+     * Maneja IllegalArgumentException (errores de validación de argumentos).
+     * Retorna HTTP 400 Bad Request.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(
+            IllegalArgumentException ex,
+            ServerWebExchange exchange) {
+
+        logger.warn("Illegal argument on {}: {}", path(exchange), ex.getMessage());
+
+        return error(HttpStatus.BAD_REQUEST, ex.getMessage(), exchange);
+    }
+
+    /**
+     * Maneja cualquier otra excepción no controlada.
+     * Retorna HTTP 500 Internal Server Error.
+     */
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGenericError(
+            Exception ex,
+            ServerWebExchange exchange) {
+
+        logger.error("Unexpected error on {}: {}", path(exchange), ex.getMessage(), ex);
+
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error interno del servidor", exchange);
+    }
+
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, String message,
+                                                       ServerWebExchange exchange) {
+        return ResponseEntity.status(status).body(new ErrorResponse(message, status.value(), path(exchange)));
+    }
+
+    private static String path(ServerWebExchange exchange) {
+        return exchange.getRequest().getPath().value();
+    }
+}
@@ -0,0 +1,174 @@
+package Portfolio.Checkout_api_sandbox.reactive.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cliente no bloqueante de la API de Payment Intents de Stripe (WebClient sobre Reactor Netty).
+ *
+ * Envía los mismos parámetros que StripePaymentClient, pero sin stripe-java: ningún hilo queda esperando
+ * la respuesta. La clave de cada request es la del tenant de la orden (StripeTenantRegistry, compartido).
+ * Un 429 de Stripe se traduce en StripeApiException con Retry-After (HTTP 503 para el cliente).
+ */
+@Component
+public class ReactiveStripeClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveStripeClient.class);
+
+    private static final String PAYMENT_INTENTS = "/v1/payment_intents";
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Value("${stripe.apiKey}")
+    private String apiKey;
+
+    @Value("${stripe.apiBase:https://api.stripe.com}")
+    private String apiBase;
+
+    @Value("${stripe.http.create-timeout-ms:15000}")
+    private long createTimeoutMs;
+
+    @Value("${stripe.http.cancel-timeout-ms:5000}")
+    private long cancelTimeoutMs;
+
+    private WebClient webClient;
+
+    @PostConstruct
+    public void init() {
+        webClient = WebClient.builder().baseUrl(apiBase).build();
+    }
+
+    /**
+     * Crea un Payment Intent en Stripe.
+     *
+     * @param tenantId Tenant dueño de la orden (decide la cuenta de Stripe)
+     * @param amountMinor Monto en unidades menores (centavos)
+     * @param currency Código de moneda ISO 4217
+     * @param orderId ID de la orden asociada (se guarda en metadata)
+     * @param idempotencyKey Clave de idempotencia para Stripe: un reintento devuelve el mismo intent
+     * @return El Payment Intent creado, o error StripeApiException
+     */
+    public Mono<PaymentIntentResult> createPaymentIntent(String tenantId, long amountMinor, String currency,
+                                                         UUID orderId, String idempotencyKey) {
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("amount", String.valueOf(amountMinor));
+        form.add("currency", currency.toLowerCase(Locale.ROOT));
+        form.add("metadata[orderId]", orderId.toString());
+        // Métodos de pago automáticos basados en la moneda
+        form.add("automatic_payment_methods[enabled]", "true");
+
+        logger.info("Creating Payment Intent for order {} - Amount: {} {}",
+                    orderId, amountMinor, currency.toUpperCase(Locale.ROOT));
+
+        return Mono.defer(() -> webClient.post()
+                        .uri(PAYMENT_INTENTS)
+                        .headers(headers -> authenticate(headers, tenantId))
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(BodyInserters.fromFormData(form))
+                        .exchangeToMono(response -> toResult(response, "crear")))
+                .timeout(Duration.ofMillis(createTimeoutMs))
+                .onErrorMap(error -> toStripeApiException(error, "crear", orderId))
+                .doOnNext(intent -> logger.info("Payment Intent created successfully - ID: {}, Status: {}",
+                                                intent.id(), intent.status()));
+    }
+
+    /**
+     * Cancela un Payment Intent (compensación cuando la orden cambió durante el checkout).
+     *
+     * @param tenantId Tenant dueño del Payment Intent
+     * @param paymentIntentId ID del Payment Intent en Stripe (pi_xxx)
+     */
+    public Mono<PaymentIntentResult> cancelPaymentIntent(String tenantId, String paymentIntentId) {
+        return Mono.defer(() -> webClient.post()
+                        .uri(PAYMENT_INTENTS + "/{id}/cancel", paymentIntentId)
+                        .headers(headers -> authenticate(headers, tenantId))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(BodyInserters.fromFormData("cancellation_reason", "abandoned"))
+                        .exchangeToMono(response -> toResult(response, "cancelar")))
+                .timeout(Duration.ofMillis(cancelTimeoutMs))
+                .onErrorMap(error -> toStripeApiException(error, "cancelar", paymentIntentId))
+                .doOnNext(intent -> logger.info("Payment Intent {} canceled", intent.id()));
+    }
+
+    private void authenticate(HttpHeaders headers, String tenantId) {
+        String tenantKey = tenantRegistry.get(tenantId).getApiKey();
+        headers.setBearerAuth(tenantKey != null ? tenantKey : apiKey);
+    }
+
+    private Mono<PaymentIntentResult> toResult(ClientResponse response, String operation) {
+        if (response.statusCode().is2xxSuccessful()) {
+            return response.bodyToMono(PaymentIntentResult.class);
+        }
+        if (response.statusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            String retryAfter = response.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            long seconds = retryAfter != null ? Long.parseLong(retryAfter.trim()) : 1;
+            return response.releaseBody().then(Mono.<PaymentIntentResult>error(new StripeApiException(
+                    "Stripe limitó la tasa de requests al " + operation + " el Payment Intent", seconds)));
+        }
+        return response.bodyToMono(StripeErrorBody.class)
+                .map(body -> body.error() != null && body.error().message() != null
+                        ? body.error().message()
+                        : "HTTP " + response.statusCode().value())
+                .defaultIfEmpty("HTTP " + response.statusCode().value())
+                .flatMap(message -> Mono.<PaymentIntentResult>error(new StripeApiException(
+                        "Error al " + operation + " Payment Intent: " + message)));
+    }
+
+    private static Throwable toStripeApiException(Throwable error, String operation, Object target) {
+        if (error instanceof StripeApiException) {
+            return error;
+        }
+        if (error instanceof TimeoutException) {
+            logger.error("Timeout from Stripe while trying to {} Payment Intent for {}", operation, target);
+            return new StripeApiException("Timeout al " + operation + " Payment Intent", error);
+        }
+        if (error instanceof WebClientRequestException) {
+            logger.error("Network error calling Stripe for {}: {}", target, error.getMessage());
+            return new StripeApiException("Error de red al " + operation + " Payment Intent", error);
+        }
+        logger.error("Unexpected error calling Stripe for {}: {}", target, error.getMessage(), error);
+        return new StripeApiException("Error inesperado al " + operation + " Payment Intent", error);
+    }
+
+    /**
+     * Campos del Payment Intent que usa el checkout.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PaymentIntentResult(String id,
+                                      @JsonProperty("client_secret") String clientSecret,
+                                      String status) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record StripeErrorBody(StripeError error) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record StripeError(String type, String code, String message) {
+    }
+}
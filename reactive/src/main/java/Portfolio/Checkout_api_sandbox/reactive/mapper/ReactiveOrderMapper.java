@@ -0,0 +1,106 @@
+package Portfolio.Checkout_api_sandbox.reactive.mapper;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.request.OrderItemRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.TimeOrderedIds;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderItemRow;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import Portfolio.Checkout_api_sandbox.reactive.model.PaymentRow;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mapper entre las filas R2DBC y los DTOs compartidos con la variante servlet.
+ * Calcula subtotales y total igual que OrderMapper.
+ */
+@Component
+public class ReactiveOrderMapper {
+
+    /**
+     * Convierte CreateOrderRequest en la orden y sus items, con IDs asignados y totales calculados.
+     */
+    public NewOrder toNewOrder(CreateOrderRequest request) {
+        UUID orderId = TimeOrderedIds.next();
+        OrderRow order = OrderRow.create(orderId, request.getCurrency(), request.getTenantId(), LocalDateTime.now());
+
+        List<OrderItemRow> items = new ArrayList<>(request.getItems().size());
+        long totalAmount = 0L;
+        int lineNumber = 0;
+        for (OrderItemRequest itemRequest : request.getItems()) {
+            OrderItemRow item = OrderItemRow.create(TimeOrderedIds.next(), orderId, ++lineNumber,
+                    itemRequest.getName(), itemRequest.getUnitPriceMinor(), itemRequest.getQuantity());
+            items.add(item);
+            totalAmount += item.getSubtotalMinor();
+        }
+
+        order.setTotalAmountMinor(totalAmount);
+        return new NewOrder(order, items);
+    }
+
+    /**
+     * Convierte la orden y sus items en OrderResponse.
+     */
+    public OrderResponse toResponse(OrderRow order, List<OrderItemRow> items) {
+        return new OrderResponse(
+                order.getId(),
+                order.getStatus(),
+                order.getCurrency(),
+                order.getTotalAmountMinor(),
+                items.stream().map(this::toItemResponse).toList(),
+                order.getCreatedAt()
+        );
+    }
+
+    /**
+     * Convierte la orden en OrderResponse en modo resumen (sin items, solo la cantidad).
+     */
+    public OrderResponse toSummaryResponse(OrderRow order, long itemCount) {
+        OrderResponse response = new OrderResponse(
+                order.getId(),
+                order.getStatus(),
+                order.getCurrency(),
+                order.getTotalAmountMinor(),
+                null,
+                order.getCreatedAt()
+        );
+        response.setItemCount((int) itemCount);
+        return response;
+    }
+
+    public OrderItemResponse toItemResponse(OrderItemRow item) {
+        return new OrderItemResponse(
+                item.getLineNumber(),
+                item.getName(),
+                item.getUnitPriceMinor(),
+                item.getQuantity(),
+                item.getSubtotalMinor()
+        );
+    }
+
+    /**
+     * Convierte el pago en CheckoutResponse con el estado de la orden indicado.
+     */
+    public CheckoutResponse toCheckoutResponse(PaymentRow payment, OrderStatus orderStatus) {
+        return new CheckoutResponse(
+                payment.getOrderId(),
+                payment.getId(),
+                payment.getProvider().name(),
+                payment.getClientSecret(),
+                orderStatus
+        );
+    }
+
+    /**
+     * Orden lista para insertar junto con sus items.
+     */
+    public record NewOrder(OrderRow order, List<OrderItemRow> items) {
+    }
+}
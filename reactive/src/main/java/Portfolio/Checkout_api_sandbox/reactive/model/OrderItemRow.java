@@ -0,0 +1,114 @@
+package Portfolio.Checkout_api_sandbox.reactive.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Fila de la tabla order_items (la misma que OrderItemEntity), referenciando la orden por ID.
+ */
+@Table("order_items")
+public class OrderItemRow implements Persistable<UUID> {
+
+    @Id
+    private UUID id;
+
+    private UUID orderId;
+
+    // Posición del item dentro de la orden (1..n), usada para paginar por keyset
+    private Integer lineNumber;
+
+    private String name;
+
+    private Long unitPriceMinor;
+
+    private Integer quantity;
+
+    private Long subtotalMinor;
+
+    @Transient
+    private boolean newRow;
+
+    /**
+     * Item nuevo de la orden, con el subtotal ya calculado.
+     */
+    public static OrderItemRow create(UUID id, UUID orderId, int lineNumber, String name,
+                                      Long unitPriceMinor, Integer quantity) {
+        OrderItemRow item = new OrderItemRow();
+        item.id = id;
+        item.orderId = orderId;
+        item.lineNumber = lineNumber;
+        item.name = name;
+        item.unitPriceMinor = unitPriceMinor;
+        item.quantity = quantity;
+        item.subtotalMinor = unitPriceMinor * quantity;
+        item.newRow = true;
+        return item;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRow;
+    }
+
+    // Getters y Setters
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getUnitPriceMinor() {
+        return unitPriceMinor;
+    }
+
+    public void setUnitPriceMinor(Long unitPriceMinor) {
+        this.unitPriceMinor = unitPriceMinor;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Long getSubtotalMinor() {
+        return subtotalMinor;
+    }
+
+    public void setSubtotalMinor(Long subtotalMinor) {
+        this.subtotalMinor = subtotalMinor;
+    }
+}
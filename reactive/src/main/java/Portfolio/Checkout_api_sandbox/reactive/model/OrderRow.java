@@ -0,0 +1,119 @@
+package Portfolio.Checkout_api_sandbox.reactive.model;
+
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fila de la tabla orders (la misma que OrderEntity). Sin relaciones: los items se leen aparte.
+ * El ID se asigna antes de insertar, así que la fila indica si es nueva (Persistable).
+ */
+@Table("orders")
+public class OrderRow implements Persistable<UUID> {
+
+    // Tenant de las órdenes creadas sin tenant (igual que OrderEntity.DEFAULT_TENANT_ID)
+    public static final String DEFAULT_TENANT_ID = "default";
+
+    @Id
+    private UUID id;
+
+    private OrderStatus status;
+
+    private String currency;
+
+    private String tenantId = DEFAULT_TENANT_ID;
+
+    private Long totalAmountMinor;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    @Transient
+    private boolean newRow;
+
+    /**
+     * Orden nueva en estado CREATED, lista para insertar.
+     */
+    public static OrderRow create(UUID id, String currency, String tenantId, LocalDateTime now) {
+        OrderRow order = new OrderRow();
+        order.id = id;
+        order.status = OrderStatus.CREATED;
+        order.currency = currency;
+        if (tenantId != null) {
+            order.tenantId = tenantId;
+        }
+        order.createdAt = now;
+        order.updatedAt = now;
+        order.newRow = true;
+        return order;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRow;
+    }
+
+    // Getters y Setters
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public Long getTotalAmountMinor() {
+        return totalAmountMinor;
+    }
+
+    public void setTotalAmountMinor(Long totalAmountMinor) {
+        this.totalAmountMinor = totalAmountMinor;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,161 @@
+package Portfolio.Checkout_api_sandbox.reactive.model;
+
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Fila de la tabla payments (la misma que PaymentEntity), referenciando la orden por ID.
+ */
+@Table("payments")
+public class PaymentRow implements Persistable<UUID> {
+
+    @Id
+    private UUID id;
+
+    private UUID orderId;
+
+    private PaymentProvider provider;
+
+    private String externalPaymentId; // ID del Payment Intent de Stripe
+
+    private String clientSecret;
+
+    private PaymentStatus status;
+
+    private Long amountMinor;
+
+    private String currency;
+
+    private String idempotencyKey;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    @Transient
+    private boolean newRow;
+
+    /**
+     * Pago nuevo en estado INITIATED, listo para insertar.
+     */
+    public static PaymentRow initiated(UUID id, UUID orderId, PaymentProvider provider, String externalPaymentId,
+                                       String clientSecret, Long amountMinor, String currency,
+                                       String idempotencyKey, LocalDateTime now) {
+        PaymentRow payment = new PaymentRow();
+        payment.id = id;
+        payment.orderId = orderId;
+        payment.provider = provider;
+        payment.externalPaymentId = externalPaymentId;
+        payment.clientSecret = clientSecret;
+        payment.status = PaymentStatus.INITIATED;
+        payment.amountMinor = amountMinor;
+        payment.currency = currency;
+        payment.idempotencyKey = idempotencyKey;
+        payment.createdAt = now;
+        payment.updatedAt = now;
+        payment.newRow = true;
+        return payment;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newRow;
+    }
+
+    // Getters y Setters
+    @Override
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public PaymentProvider getProvider() {
+        return provider;
+    }
+
+    public void setProvider(PaymentProvider provider) {
+        this.provider = provider;
+    }
+
+    public String getExternalPaymentId() {
+        return externalPaymentId;
+    }
+
+    public void setExternalPaymentId(String externalPaymentId) {
+        this.externalPaymentId = externalPaymentId;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public void setClientSecret(String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PaymentStatus status) {
+        this.status = status;
+    }
+
+    public Long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public void setAmountMinor(Long amountMinor) {
+        this.amountMinor = amountMinor;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package Portfolio.Checkout_api_sandbox.reactive.repository;
+
+import Portfolio.Checkout_api_sandbox.reactive.model.IdempotencyRecordRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Equivalente R2DBC de IdempotencyRecordRepository.
+ */
+@Repository
+public interface ReactiveIdempotencyRecordRepository extends ReactiveCrudRepository<IdempotencyRecordRow, UUID> {
+
+    /**
+     * Reserva la clave de forma atómica. Devuelve 1 si la reserva es nueva y 0 si la clave ya existía.
+     * Una clave vencida (expires_at pasado) se vuelve a reservar como nueva.
+     * Si otra transacción tiene la misma clave sin confirmar, el INSERT espera a que termine.
+     */
+    @Modifying
+    @Query("INSERT INTO idempotency_records (id, scope, idempotency_key, request_hash, created_at, expires_at) " +
+           "VALUES (:id, :scope, :key, :requestHash, now(), now() + make_interval(secs => :ttlSeconds)) " +
+           "ON CONFLICT (scope, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+           "resource_id = NULL, response_body = NULL, created_at = EXCLUDED.created_at, " +
+           "expires_at = EXCLUDED.expires_at " +
+           "WHERE idempotency_records.expires_at < now()")
+    Mono<Integer> reserve(UUID id, String scope, String key, String requestHash, long ttlSeconds);
+
+    /**
+     * Asocia la reserva con la orden creada y guarda la respuesta original (JSON).
+     */
+    @Modifying
+    @Query("UPDATE idempotency_records SET resource_id = :resourceId, response_body = :responseBody " +
+           "WHERE scope = :scope AND idempotency_key = :key")
+    Mono<Integer> complete(String scope, String key, UUID resourceId, String responseBody);
+
+    Mono<IdempotencyRecordRow> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+}
@@ -0,0 +1,28 @@
+package Portfolio.Checkout_api_sandbox.reactive.repository;
+
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderItemRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Equivalente R2DBC de OrderItemRepository.
+ */
+@Repository
+public interface ReactiveOrderItemRepository extends ReactiveCrudRepository<OrderItemRow, UUID> {
+
+    Flux<OrderItemRow> findByOrderIdOrderByLineNumber(UUID orderId);
+
+    /**
+     * Página de items por keyset: los items con lineNumber mayor al cursor, en orden.
+     */
+    @Query("SELECT * FROM order_items WHERE order_id = :orderId AND line_number > :afterLine " +
+           "ORDER BY line_number LIMIT :limit")
+    Flux<OrderItemRow> findPage(UUID orderId, int afterLine, int limit);
+
+    Mono<Long> countByOrderId(UUID orderId);
+}
@@ -0,0 +1,33 @@
+package Portfolio.Checkout_api_sandbox.reactive.repository;
+
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Equivalente R2DBC de OrderRepository.
+ * Los estados se pasan por nombre (String), igual que los guarda @Enumerated(EnumType.STRING).
+ */
+@Repository
+public interface ReactiveOrderRepository extends ReactiveCrudRepository<OrderRow, UUID> {
+
+    /**
+     * Lee la orden bloqueando su fila hasta el fin de la transacción. Reemplaza al lock por orden
+     * de la variante servlet (OrderLockManager) y además serializa entre nodos.
+     */
+    @Query("SELECT * FROM orders WHERE id = :id FOR UPDATE")
+    Mono<OrderRow> findByIdForUpdate(UUID id);
+
+    /**
+     * Cambia el estado de la orden solo si sigue en el estado esperado.
+     */
+    @Modifying
+    @Query("UPDATE orders SET status = :status, updated_at = :now WHERE id = :id AND status = :expected")
+    Mono<Integer> updateStatus(UUID id, String expected, String status, LocalDateTime now);
+}
@@ -0,0 +1,29 @@
+package Portfolio.Checkout_api_sandbox.reactive.repository;
+
+import Portfolio.Checkout_api_sandbox.reactive.model.PaymentRow;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Equivalente R2DBC de PaymentRepository (las consultas de la API; el barrido y la conciliación
+ * siguen en la variante servlet).
+ */
+@Repository
+public interface ReactivePaymentRepository extends ReactiveCrudRepository<PaymentRow, UUID> {
+
+    Mono<PaymentRow> findByIdempotencyKey(String idempotencyKey);
+
+    Mono<PaymentRow> findByExternalPaymentId(String externalPaymentId);
+
+    Mono<PaymentRow> findByOrderId(UUID orderId);
+
+    @Modifying
+    @Query("UPDATE payments SET status = :status, updated_at = :now WHERE id = :id")
+    Mono<Integer> updateStatus(UUID id, String status, LocalDateTime now);
+}
@@ -0,0 +1,141 @@
+package Portfolio.Checkout_api_sandbox.reactive.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkOrderResult;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper.NewOrder;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Equivalente reactivo de BulkOrderService: carga masiva de órdenes en formato NDJSON.
+ * Valida cada línea y persiste en bloques (una transacción por bloque); los resultados de un bloque
+ * se emiten cuando se confirma. La demanda del cliente regula la lectura: no se lee el siguiente
+ * bloque hasta haber escrito los resultados del anterior.
+ */
+@Service
+public class ReactiveBulkOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBulkOrderService.class);
+
+    @Autowired
+    private ReactiveOrderService orderService;
+
+    @Autowired
+    private ReactiveOrderMapper orderMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Value("${orders.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Importa órdenes a partir de las líneas de un body NDJSON.
+     *
+     * @param lines Una CreateOrderRequest en JSON por línea
+     * @return Un BulkOrderResult por línea no vacía, en orden
+     */
+    public Flux<BulkOrderResult> importOrders(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .map(line -> parse(line.getT1() + 1, line.getT2()))
+                .buffer(chunkSize)
+                .concatMap(this::flushChunk);
+    }
+
+    /**
+     * Lee y valida una línea. La orden queda lista para insertar, o la línea se reporta como INVALID.
+     */
+    private PendingLine parse(long lineNumber, String line) {
+        try {
+            CreateOrderRequest request = objectMapper.readValue(line, CreateOrderRequest.class);
+            Map<String, String> errors = validate(request);
+            if (errors.isEmpty()) {
+                return new PendingLine(lineNumber, orderMapper.toNewOrder(request), null);
+            }
+            return new PendingLine(lineNumber, null, BulkOrderResult.invalid(lineNumber, "Error de validación", errors));
+        } catch (JacksonException e) {
+            return new PendingLine(lineNumber, null,
+                    BulkOrderResult.invalid(lineNumber, "JSON inválido: " + e.getOriginalMessage(), null));
+        }
+    }
+
+    /**
+     * Persiste las órdenes válidas del bloque en una sola transacción y emite sus resultados.
+     * Si el bloque falla, todas sus órdenes se reportan como FAILED.
+     */
+    private Flux<BulkOrderResult> flushChunk(List<PendingLine> pending) {
+        List<NewOrder> chunk = pending.stream()
+                .map(PendingLine::order)
+                .filter(Objects::nonNull)
+                .toList();
+
+        Mono<Boolean> persisted = chunk.isEmpty()
+                ? Mono.just(true)
+                : transactionalOperator.transactional(Flux.fromIterable(chunk).concatMap(orderService::insert).then())
+                        .doOnSuccess(ignored -> logger.debug("Bulk chunk persisted - Orders: {}", chunk.size()))
+                        .thenReturn(true)
+                        .onErrorResume(e -> {
+                            logger.error("Error persisting bulk chunk of {} orders: {}", chunk.size(), e.getMessage(), e);
+                            return Mono.just(false);
+                        });
+
+        return persisted.flatMapMany(ok -> Flux.fromIterable(pending).map(line -> {
+            if (line.invalid() != null) {
+                return line.invalid();
+            }
+            return ok
+                    ? BulkOrderResult.created(line.number(), line.order().order().getId(),
+                            line.order().order().getTotalAmountMinor())
+                    : BulkOrderResult.failed(line.number(), "Error al persistir el bloque de órdenes");
+        }));
+    }
+
+    /**
+     * Valida la orden con Bean Validation y devuelve los errores por campo.
+     */
+    private Map<String, String> validate(CreateOrderRequest request) {
+        Set<ConstraintViolation<CreateOrderRequest>> violations = validator.validate(request);
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (ConstraintViolation<CreateOrderRequest> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (!errors.containsKey("tenantId") && !tenantRegistry.contains(request.getTenantId())) {
+            errors.put("tenantId", StripeTenantRegistry.UNKNOWN_TENANT + request.getTenantId());
+        }
+        return errors;
+    }
+
+    /**
+     * Línea leída pendiente de confirmar junto con su bloque.
+     */
+    private record PendingLine(long number, NewOrder order, BulkOrderResult invalid) {
+    }
+}
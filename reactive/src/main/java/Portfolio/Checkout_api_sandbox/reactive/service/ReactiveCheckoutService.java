@@ -0,0 +1,192 @@
+package Portfolio.Checkout_api_sandbox.reactive.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CheckoutRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
+import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeIdempotencyKeys;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.model.TimeOrderedIds;
+import Portfolio.Checkout_api_sandbox.reactive.integration.stripe.ReactiveStripeClient;
+import Portfolio.Checkout_api_sandbox.reactive.integration.stripe.ReactiveStripeClient.PaymentIntentResult;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import Portfolio.Checkout_api_sandbox.reactive.model.PaymentRow;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderItemRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactivePaymentRepository;
+import Portfolio.Checkout_api_sandbox.service.CheckoutRules;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Equivalente reactivo del checkout asíncrono de CheckoutService.
+ *
+ * La orden se valida sin transacción, el Payment Intent se crea sin bloquear ningún hilo y el pago
+ * se registra en una transacción corta. En lugar del lock por orden de la variante servlet,
+ * el paso a PAYMENT_PENDING es un UPDATE condicional: si otro checkout ganó, este cancela su intent.
+ */
+@Service
+public class ReactiveCheckoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCheckoutService.class);
+
+    private static final String AUTO = "AUTO";
+
+    /**
+     * Reintentos de la consulta que decide si cancelar el intent de un checkout que perdió la orden.
+     */
+    private static final int LOOKUP_RETRIES = 3;
+    private static final Duration LOOKUP_BACKOFF = Duration.ofMillis(100);
+
+    @Autowired
+    private ReactiveOrderRepository orderRepository;
+
+    @Autowired
+    private ReactiveOrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ReactivePaymentRepository paymentRepository;
+
+    @Autowired
+    private ReactiveStripeClient stripeClient;
+
+    @Autowired
+    private ReactiveOrderMapper orderMapper;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    /**
+     * Inicia el proceso de checkout para una orden.
+     *
+     * @param request Datos del checkout (orderId y provider)
+     * @param idempotencyKey Clave única para prevenir pagos duplicados
+     * @return CheckoutResponse con el client_secret para el frontend, o error
+     *         OrderNotFoundException, InvalidOrderStateException o IdempotencyConflictException
+     */
+    public Mono<CheckoutResponse> initiateCheckout(CheckoutRequest request, String idempotencyKey) {
+        logger.info("Initiating reactive checkout for order {} with idempotency key: {}",
+                    request.getOrderId(), idempotencyKey);
+
+        return Mono.fromRunnable(() -> checkProvider(request.getProvider()))
+                .then(Mono.defer(() -> loadOrderForCheckout(request, idempotencyKey)))
+                .flatMap(order -> stripeClient.createPaymentIntent(order.getTenantId(), order.getTotalAmountMinor(),
+                                order.getCurrency(), order.getId(),
+                                StripeIdempotencyKeys.forCheckout(order.getId(), idempotencyKey))
+                        .flatMap(intent -> recordPayment(order, idempotencyKey, intent)));
+    }
+
+    /**
+     * Solo Stripe tiene cliente reactivo; AUTO (o sin provider) equivale a Stripe.
+     */
+    private static void checkProvider(String provider) {
+        if (provider != null && !AUTO.equalsIgnoreCase(provider)
+                && !PaymentProvider.STRIPE.name().equalsIgnoreCase(provider)) {
+            throw new IllegalArgumentException("Proveedor de pago no soportado: " + provider);
+        }
+    }
+
+    /**
+     * Verifica la clave de idempotencia, busca la orden y valida que admita checkout.
+     */
+    private Mono<OrderRow> loadOrderForCheckout(CheckoutRequest request, String idempotencyKey) {
+        // 1. Verificar idempotencia
+        return paymentRepository.findByIdempotencyKey(idempotencyKey)
+                .flatMap(existing -> {
+                    logger.warn("Idempotency conflict detected for key: {}", idempotencyKey);
+                    return Mono.<OrderRow>error(new IdempotencyConflictException(idempotencyKey));
+                })
+                // 2. Buscar la orden
+                .switchIfEmpty(Mono.defer(() -> orderRepository.findById(request.getOrderId())))
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(request.getOrderId())))
+                // 3. Validar estado de la orden
+                .flatMap(order -> orderItemRepository.countByOrderId(order.getId()).flatMap(itemCount -> {
+                    String error = CheckoutRules.checkoutError(order.getStatus(), order.getTotalAmountMinor(),
+                            itemCount > 0);
+                    if (error != null) {
+                        logger.warn("Order {} cannot be checked out - Status: {}, Total: {}, Reason: {}",
+                                   order.getId(), order.getStatus(), order.getTotalAmountMinor(), error);
+                        return Mono.<OrderRow>error(new InvalidOrderStateException(error));
+                    }
+                    return Mono.just(order);
+                }));
+    }
+
+    /**
+     * Pasa la orden a PAYMENT_PENDING y registra el pago, en una transacción.
+     * Si la orden cambió mientras se esperaba a Stripe, se cancela el Payment Intent creado.
+     */
+    private Mono<CheckoutResponse> recordPayment(OrderRow order, String idempotencyKey, PaymentIntentResult intent) {
+        logger.info("Payment created in STRIPE - ID: {}, Status: {}", intent.id(), intent.status());
+
+        LocalDateTime now = LocalDateTime.now();
+        PaymentRow payment = PaymentRow.initiated(TimeOrderedIds.next(), order.getId(), PaymentProvider.STRIPE,
+                intent.id(), intent.clientSecret(), order.getTotalAmountMinor(), order.getCurrency(),
+                idempotencyKey, now);
+
+        Mono<CheckoutResponse> record = orderRepository
+                .updateStatus(order.getId(), OrderStatus.CREATED.name(), OrderStatus.PAYMENT_PENDING.name(), now)
+                .flatMap(updated -> updated == 0
+                        ? orderRepository.findById(order.getId()).flatMap(current -> Mono.<PaymentRow>error(
+                                new InvalidOrderStateException(CheckoutRules.invalidStateMessage(current.getStatus()))))
+                        : paymentRepository.save(payment))
+                .map(saved -> {
+                    logger.info("Payment record created - ID: {}", saved.getId());
+                    logger.info("Order {} status updated to PAYMENT_PENDING", order.getId());
+                    return orderMapper.toCheckoutResponse(saved, OrderStatus.PAYMENT_PENDING);
+                });
+
+        return transactionalOperator.transactional(record)
+                .onErrorResume(e -> e instanceof InvalidOrderStateException
+                                || e instanceof DataIntegrityViolationException,
+                        e -> compensate(order, intent).then(Mono.error(e instanceof InvalidOrderStateException
+                                ? e
+                                : new InvalidOrderStateException(
+                                        CheckoutRules.invalidStateMessage(OrderStatus.PAYMENT_PENDING)))));
+    }
+
+    /**
+     * Cancela el Payment Intent de un checkout que perdió la orden.
+     * Dos requests concurrentes con la misma clave reciben de Stripe el mismo intent: si el ganador
+     * ya lo registró, es el pago vigente de la orden y no se cancela.
+     *
+     * Si la consulta falla se reintenta con backoff. Si sigue fallando el intent no se cancela (podría ser
+     * el del ganador) y queda en el log para cancelarlo a mano: la conciliación solo recorre los pagos
+     * registrados, así que un intent sin fila en payments no lo cancela nadie.
+     */
+    private Mono<Void> compensate(OrderRow order, PaymentIntentResult intent) {
+        return Mono.defer(() -> paymentRepository.findByExternalPaymentId(intent.id()))
+                .hasElement()
+                .retryWhen(Retry.backoff(LOOKUP_RETRIES, LOOKUP_BACKOFF))
+                .onErrorResume(error -> {
+                    logger.error("Could not check whether Payment Intent {} of order {} is recorded, leaving it " +
+                                 "uncanceled for manual review: {}", intent.id(), order.getId(), error.getMessage());
+                    return Mono.just(true);
+                })
+                .doOnNext(recorded -> {
+                    if (recorded) {
+                        logger.info("Payment Intent {} is already recorded for order {}, keeping it",
+                                    intent.id(), order.getId());
+                        return;
+                    }
+                    logger.warn("Order {} changed during checkout, canceling payment {} in STRIPE",
+                                order.getId(), intent.id());
+                    stripeClient.cancelPaymentIntent(order.getTenantId(), intent.id())
+                            .subscribe(canceled -> { }, error -> logger.error(
+                                    "Failed to cancel Payment Intent {}: {}", intent.id(), error.getMessage()));
+                })
+                .then();
+    }
+}
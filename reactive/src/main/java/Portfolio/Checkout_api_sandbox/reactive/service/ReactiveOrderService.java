@@ -0,0 +1,228 @@
+package Portfolio.Checkout_api_sandbox.reactive.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemPageResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper.NewOrder;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveIdempotencyRecordRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderItemRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.ObjectMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Equivalente reactivo de OrderService: creación (con idempotencia) y consulta de órdenes.
+ * Usa las mismas tablas y el mismo scope de idempotencia, así ambas variantes pueden convivir
+ * sobre la misma base de datos.
+ */
+@Service
+public class ReactiveOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveOrderService.class);
+
+    private static final String IDEMPOTENCY_SCOPE = "ORDER_CREATE";
+
+    private static final int MAX_ITEMS_PAGE_SIZE = 500;
+
+    @Autowired
+    private ReactiveOrderRepository orderRepository;
+
+    @Autowired
+    private ReactiveOrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ReactiveIdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ReactiveOrderMapper orderMapper;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${orders.idempotency.retention-hours:24}")
+    private long idempotencyRetentionHours;
+
+    /**
+     * Crea una orden de forma idempotente.
+     * Si la clave ya fue usada con el mismo payload, devuelve la respuesta original guardada con la clave
+     * (la misma que devuelve OrderService), sin volver a escribir. La clave vence a las retention-hours.
+     * La reserva de la clave y la creación de la orden se confirman en la misma transacción.
+     *
+     * @param request Datos de la orden (moneda e items)
+     * @param idempotencyKey Clave de idempotencia enviada por el cliente (opcional)
+     * @return OrderResponse con la orden creada o la original si es un reintento,
+     *         o error IllegalArgumentException si el tenant no existe
+     */
+    @Transactional
+    public Mono<OrderResponse> createOrder(CreateOrderRequest request, String idempotencyKey) {
+        if (!tenantRegistry.contains(request.getTenantId())) {
+            return Mono.error(new IllegalArgumentException(
+                    StripeTenantRegistry.UNKNOWN_TENANT + request.getTenantId()));
+        }
+        if (idempotencyKey == null) {
+            return createOrder(request);
+        }
+
+        String requestHash = hashRequest(request);
+
+        return idempotencyRecordRepository.reserve(UUID.randomUUID(), IDEMPOTENCY_SCOPE, idempotencyKey, requestHash,
+                        TimeUnit.HOURS.toSeconds(idempotencyRetentionHours))
+                .flatMap(reserved -> reserved == 0
+                        ? replay(idempotencyKey, requestHash)
+                        : createOrder(request).flatMap(response -> idempotencyRecordRepository
+                                .complete(IDEMPOTENCY_SCOPE, idempotencyKey, response.getOrderId(),
+                                        objectMapper.writeValueAsString(response))
+                                .thenReturn(response)));
+    }
+
+    /**
+     * Inserta la orden y sus items y devuelve la respuesta.
+     */
+    private Mono<OrderResponse> createOrder(CreateOrderRequest request) {
+        logger.info("Creating new order - Currency: {}, Items count: {}",
+                    request.getCurrency(), request.getItems().size());
+
+        NewOrder order = orderMapper.toNewOrder(request);
+
+        return insert(order).then(Mono.fromSupplier(() -> {
+            logger.info("Order created successfully - ID: {}, Total: {} {}",
+                        order.order().getId(), order.order().getTotalAmountMinor(), order.order().getCurrency());
+            return orderMapper.toResponse(order.order(), order.items());
+        }));
+    }
+
+    /**
+     * Inserta la orden y luego sus items, dentro de la transacción del llamador.
+     */
+    Mono<Void> insert(NewOrder order) {
+        return orderRepository.save(order.order())
+                .thenMany(orderItemRepository.saveAll(order.items()))
+                .then();
+    }
+
+    /**
+     * Devuelve la orden original si el payload coincide; si no, es un conflicto.
+     */
+    private Mono<OrderResponse> replay(String idempotencyKey, String requestHash) {
+        return idempotencyRecordRepository.findByScopeAndIdempotencyKey(IDEMPOTENCY_SCOPE, idempotencyKey)
+                .switchIfEmpty(Mono.error(() -> new IdempotencyConflictException(idempotencyKey)))
+                .flatMap(record -> {
+                    if (record.getResourceId() == null) {
+                        logger.warn("Idempotency key {} is reserved but has no order yet", idempotencyKey);
+                        return Mono.error(new IdempotencyConflictException(idempotencyKey));
+                    }
+                    if (!record.getRequestHash().equals(requestHash)) {
+                        logger.warn("Idempotency key {} reused with a different payload", idempotencyKey);
+                        return Mono.error(new IdempotencyConflictException(idempotencyKey));
+                    }
+                    logger.info("Replaying order {} for idempotency key {}", record.getResourceId(), idempotencyKey);
+                    // Las reservas anteriores a response_body no la tienen: se arma con el estado actual
+                    return record.getResponseBody() != null
+                            ? Mono.fromCallable(() -> objectMapper.readValue(record.getResponseBody(),
+                                    OrderResponse.class))
+                            : getOrder(record.getResourceId());
+                });
+    }
+
+    /**
+     * Calcula el hash SHA-256 del payload para detectar reutilización de claves con otro contenido.
+     * Se serializa igual que en OrderService, así una clave usada en una variante se reconoce en la otra.
+     */
+    private String hashRequest(CreateOrderRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Obtiene una orden por su ID, con sus items.
+     *
+     * @param orderId UUID de la orden
+     * @return OrderResponse, o error OrderNotFoundException si la orden no existe
+     */
+    @Transactional(readOnly = true)
+    public Mono<OrderResponse> getOrder(UUID orderId) {
+        logger.debug("Fetching order with ID: {}", orderId);
+
+        return orderRepository.findById(orderId)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(orderId)))
+                .flatMap(order -> orderItemRepository.findByOrderIdOrderByLineNumber(orderId)
+                        .collectList()
+                        .map(items -> orderMapper.toResponse(order, items)));
+    }
+
+    /**
+     * Obtiene una orden en modo resumen: sin la lista de items, solo su cantidad.
+     *
+     * @param orderId UUID de la orden
+     * @return OrderResponse con itemCount y sin items, o error OrderNotFoundException
+     */
+    @Transactional(readOnly = true)
+    public Mono<OrderResponse> getOrderSummary(UUID orderId) {
+        logger.debug("Fetching order summary with ID: {}", orderId);
+
+        return orderRepository.findById(orderId)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(orderId)))
+                .flatMap(order -> orderItemRepository.countByOrderId(orderId)
+                        .map(count -> orderMapper.toSummaryResponse(order, count)));
+    }
+
+    /**
+     * Obtiene una página de items de una orden, paginando por keyset sobre lineNumber.
+     *
+     * @param orderId UUID de la orden
+     * @param afterLine Cursor: se devuelven los items con lineNumber mayor (0 para la primera página)
+     * @param limit Tamaño de página (máximo 500)
+     * @return OrderItemPageResponse con los items y el cursor de la siguiente página
+     */
+    @Transactional(readOnly = true)
+    public Mono<OrderItemPageResponse> getOrderItems(UUID orderId, int afterLine, int limit) {
+        if (afterLine < 0) {
+            return Mono.error(new IllegalArgumentException("El parámetro 'after' no puede ser negativo"));
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_ITEMS_PAGE_SIZE));
+
+        logger.debug("Fetching items of order {} after line {} (limit {})", orderId, afterLine, pageSize);
+
+        // Se pide un item extra para saber si hay siguiente página
+        return orderRepository.existsById(orderId)
+                .flatMap(exists -> exists
+                        ? orderItemRepository.findPage(orderId, afterLine, pageSize + 1)
+                                .map(orderMapper::toItemResponse)
+                                .collectList()
+                        : Mono.error(new OrderNotFoundException(orderId)))
+                .map(items -> toPage(orderId, items, pageSize));
+    }
+
+    private OrderItemPageResponse toPage(UUID orderId, List<OrderItemResponse> items, int pageSize) {
+        if (items.size() <= pageSize) {
+            return new OrderItemPageResponse(orderId, items, null);
+        }
+        List<OrderItemResponse> page = items.subList(0, pageSize);
+        return new OrderItemPageResponse(orderId, page, page.get(pageSize - 1).getLineNumber());
+    }
+}
@@ -0,0 +1,149 @@
+package Portfolio.Checkout_api_sandbox.reactive.service;
+
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.exception.PaymentNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeWebhookValidator;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactivePaymentRepository;
+import com.stripe.model.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Equivalente reactivo de WebhookService: procesa los eventos de Payment Intents de Stripe.
+ * La fila de la orden se bloquea (SELECT ... FOR UPDATE) mientras se aplica el evento,
+ * lo que ordena el webhook respecto de un checkout concurrente de la misma orden.
+ */
+@Service
+public class ReactiveWebhookService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveWebhookService.class);
+
+    @Autowired
+    private StripeWebhookValidator webhookValidator;
+
+    @Autowired
+    private ReactiveOrderRepository orderRepository;
+
+    @Autowired
+    private ReactivePaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    /**
+     * Procesa un webhook de Stripe.
+     * Valida la firma con el secret del tenant y actualiza el estado según el tipo de evento.
+     * Solo se actualizan órdenes de ese tenant.
+     *
+     * @param tenantId Tenant del endpoint que recibió el webhook
+     * @param payload Cuerpo raw del webhook (JSON)
+     * @param signatureHeader Valor del header "Stripe-Signature"
+     * @return Mono vacío, o error InvalidWebhookSignatureException si la firma es inválida
+     */
+    public Mono<Void> processStripeWebhook(String tenantId, String payload, String signatureHeader) {
+        logger.info("Processing Stripe webhook for tenant {}", tenantId);
+
+        // 1. Validar firma del webhook (CRÍTICO para seguridad)
+        return Mono.fromCallable(() -> webhookValidator.validateAndConstructEvent(tenantId, payload, signatureHeader))
+                .flatMap(event -> {
+                    logger.info("Webhook validated - Event type: {}, Event ID: {}", event.getType(), event.getId());
+
+                    // 2. Procesar según el tipo de evento
+                    Transition transition = transitionFor(event);
+                    if (transition == null) {
+                        logger.info("Webhook event type not handled: {}", event.getType());
+                        return Mono.empty();
+                    }
+                    return transactionalOperator.transactional(apply(tenantId, event, transition));
+                });
+    }
+
+    /**
+     * Estados a los que lleva cada tipo de evento soportado, o null si el evento no se procesa.
+     */
+    private Transition transitionFor(Event event) {
+        if (webhookValidator.isPaymentSucceeded(event)) {
+            return new Transition(PaymentStatus.SUCCEEDED, OrderStatus.PAID);
+        }
+        if (webhookValidator.isPaymentFailed(event)) {
+            return new Transition(PaymentStatus.FAILED, OrderStatus.FAILED);
+        }
+        if (webhookValidator.isPaymentCanceled(event)) {
+            return new Transition(PaymentStatus.CANCELED, OrderStatus.CANCELED);
+        }
+        return null;
+    }
+
+    /**
+     * Aplica el evento al pago y a la orden, con la fila de la orden bloqueada.
+     */
+    private Mono<Void> apply(String tenantId, Event event, Transition transition) {
+        String paymentIntentId = webhookValidator.extractPaymentIntentId(event);
+        UUID orderId = UUID.fromString(webhookValidator.extractOrderIdFromMetadata(event));
+
+        logger.info("Payment {} - PaymentIntent: {}, Order: {}", transition.order(), paymentIntentId, orderId);
+
+        return findTenantOrder(tenantId, orderId).flatMap(order -> {
+            // Intent pre-creado que venció sin checkout: la orden sigue disponible
+            if (transition.order() == OrderStatus.CANCELED && order.getStatus() == OrderStatus.CREATED) {
+                logger.info("Canceled Payment Intent {} was never claimed by order {}, skipping",
+                            paymentIntentId, orderId);
+                return Mono.<Void>empty();
+            }
+
+            return paymentRepository.findByExternalPaymentId(paymentIntentId)
+                    .switchIfEmpty(Mono.error(() -> new PaymentNotFoundException(
+                            "Pago no encontrado con external ID: " + paymentIntentId)))
+                    .flatMap(payment -> {
+                        // Verificar que no esté ya procesado (idempotencia de webhooks)
+                        if (order.getStatus() == transition.order()) {
+                            logger.warn("Order {} already marked as {}, skipping", orderId, transition.order());
+                            return Mono.<Void>empty();
+                        }
+
+                        LocalDateTime now = LocalDateTime.now();
+                        return paymentRepository.updateStatus(payment.getId(), transition.payment().name(), now)
+                                .then(orderRepository.updateStatus(orderId, order.getStatus().name(),
+                                        transition.order().name(), now))
+                                .doOnSuccess(updated -> logger.info("Order {} marked as {}", orderId,
+                                        transition.order()))
+                                .then();
+                    });
+        }).doOnError(e -> logger.error("Error handling webhook event {}: {}", event.getId(), e.getMessage()));
+    }
+
+    /**
+     * Busca y bloquea la orden del evento, verificando que sea del tenant cuyo secret firmó el webhook.
+     * Una orden de otro tenant se trata como inexistente.
+     */
+    private Mono<OrderRow> findTenantOrder(String tenantId, UUID orderId) {
+        String expected = tenantId != null ? tenantId : OrderRow.DEFAULT_TENANT_ID;
+        return orderRepository.findByIdForUpdate(orderId)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException(orderId)))
+                .flatMap(order -> {
+                    if (!expected.equals(order.getTenantId())) {
+                        logger.warn("Webhook for tenant {} references order {} of tenant {}, ignoring",
+                                    expected, orderId, order.getTenantId());
+                        return Mono.error(new OrderNotFoundException(orderId));
+                    }
+                    return Mono.just(order);
+                });
+    }
+
+    /**
+     * Estado final del pago y de la orden para un tipo de evento.
+     */
+    private record Transition(PaymentStatus payment, OrderStatus order) {
+    }
+}
@@ -0,0 +1,52 @@
+-- Mismo esquema que genera Hibernate (ddl-auto: update) en la variante servlet.
+CREATE TABLE IF NOT EXISTS orders (
+    id                 UUID PRIMARY KEY,
+    status             VARCHAR(20)  NOT NULL,
+    currency           VARCHAR(3)   NOT NULL,
+    tenant_id          VARCHAR(64)  NOT NULL DEFAULT 'default',
+    total_amount_minor BIGINT       NOT NULL,
+    created_at         TIMESTAMP(6) NOT NULL,
+    updated_at         TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_orders_status_updated_at ON orders (status, updated_at);
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id               UUID PRIMARY KEY,
+    order_id         UUID         NOT NULL REFERENCES orders (id),
+    line_number      INTEGER,
+    name             VARCHAR(255) NOT NULL,
+    unit_price_minor BIGINT       NOT NULL,
+    quantity         INTEGER      NOT NULL,
+    subtotal_minor   BIGINT       NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_order_items_order_line ON order_items (order_id, line_number);
+
+CREATE TABLE IF NOT EXISTS payments (
+    id                  UUID PRIMARY KEY,
+    order_id            UUID         NOT NULL UNIQUE REFERENCES orders (id),
+    provider            VARCHAR(20)  NOT NULL,
+    external_payment_id VARCHAR(255) NOT NULL UNIQUE,
+    client_secret       VARCHAR(500),
+    status              VARCHAR(20)  NOT NULL,
+    amount_minor        BIGINT       NOT NULL,
+    currency            VARCHAR(3)   NOT NULL,
+    idempotency_key     VARCHAR(255) UNIQUE,
+    created_at          TIMESTAMP(6) NOT NULL,
+    updated_at          TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_payments_status_created_at ON payments (status, created_at);
+
+CREATE TABLE IF NOT EXISTS idempotency_records (
+    id              UUID PRIMARY KEY,
+    scope           VARCHAR(30)  NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    resource_id     UUID,
+    response_body   TEXT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    expires_at      TIMESTAMP(6),
+    UNIQUE (scope, idempotency_key)
+);
+
+ALTER TABLE idempotency_records ADD COLUMN IF NOT EXISTS response_body TEXT;
+ALTER TABLE idempotency_records ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP(6);
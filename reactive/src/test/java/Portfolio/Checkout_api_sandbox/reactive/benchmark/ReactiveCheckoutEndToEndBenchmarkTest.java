@@ -0,0 +1,165 @@
+package Portfolio.Checkout_api_sandbox.reactive.benchmark;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.FakeStripeServer;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderRepository;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Mismo benchmark que CheckoutEndToEndBenchmarkTest, contra la variante WebFlux + R2DBC:
+ * crear orden → checkout → webhook payment_intent.succeeded → PAID, con FakeStripeServer como Stripe.
+ * Para comparar ambas variantes, correr los dos con el mismo -Dbenchmark.clients.
+ *
+ * Ejecutar con: mvn -f reactive/pom.xml test -Pbenchmark -Dbenchmark.clients=200
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReactiveCheckoutEndToEndBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCheckoutEndToEndBenchmarkTest.class);
+
+    private static final int CHECKOUTS = 1_000;
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 50);
+    private static final String WEBHOOK_SECRET = "whsec_benchmark";
+
+    private static final PostgreSQLContainer<?> postgres = startPostgres();
+
+    private static final FakeStripeServer fakeStripe = startFakeStripe();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveOrderRepository orderRepository;
+
+    private static PostgreSQLContainer<?> startPostgres() {
+        PostgreSQLContainer<?> container = new PostgreSQLContainer<>(DockerImageName.parse("postgres:latest"));
+        container.start();
+        return container;
+    }
+
+    private static FakeStripeServer startFakeStripe() {
+        try {
+            return new FakeStripeServer()
+                    .withLatency(FakeStripeServer.LatencyModel.logNormal(150, 0.5))
+                    .withAutoSucceedAfter(50)
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("stripe.apiBase", fakeStripe::getApiBase);
+        registry.add("stripe.apiKey", () -> "sk_test_benchmark");
+        registry.add("stripe.webhookSecret", () -> WEBHOOK_SECRET);
+    }
+
+    @AfterAll
+    static void stop() {
+        fakeStripe.close();
+        postgres.stop();
+    }
+
+    @Test
+    void checkoutToPaid() throws Exception {
+        fakeStripe.withWebhooks("http://localhost:" + port + "/api/webhooks/stripe", WEBHOOK_SECRET);
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+
+        List<Future<UUID>> results = new ArrayList<>(CHECKOUTS);
+        for (int i = 0; i < CHECKOUTS; i++) {
+            results.add(clients.submit(this::createAndCheckout));
+        }
+        List<UUID> orderIds = new ArrayList<>(CHECKOUTS);
+        for (Future<UUID> result : results) {
+            orderIds.add(result.get());
+        }
+        double checkoutSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        // Esperar a que lleguen y se procesen todos los webhooks
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        long paid = 0;
+        while (System.nanoTime() < deadline) {
+            paid = orderRepository.findAllById(orderIds)
+                    .map(OrderRow::getStatus)
+                    .filter(OrderStatus.PAID::equals)
+                    .count()
+                    .block();
+            if (paid == CHECKOUTS) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        double totalSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+
+        logger.info("Reactive checkout end-to-end benchmark - Checkouts: {}, Clients: {}, " +
+                    "Checkout throughput: {} req/s, Time to all PAID: {} s, Webhooks delivered: {}, failed: {}",
+                    CHECKOUTS, CLIENTS, String.format("%.0f", CHECKOUTS / checkoutSeconds),
+                    String.format("%.2f", totalSeconds), fakeStripe.getWebhooksDelivered(), fakeStripe.getWebhooksFailed());
+
+        assertEquals(CHECKOUTS, paid);
+    }
+
+    private UUID createAndCheckout() throws Exception {
+        HttpResponse<String> order = post("/api/orders", null,
+                "{\"currency\":\"USD\",\"items\":[{\"name\":\"T-shirt\",\"unitPriceMinor\":1999,\"quantity\":2}]}");
+        assertEquals(201, order.statusCode(), order.body());
+        String orderId = JsonParser.parseString(order.body()).getAsJsonObject().get("orderId").getAsString();
+
+        HttpResponse<String> checkout = post("/api/checkout", UUID.randomUUID().toString(),
+                "{\"orderId\":\"" + orderId + "\",\"provider\":\"STRIPE\"}");
+        assertEquals(200, checkout.statusCode(), checkout.body());
+        return UUID.fromString(orderId);
+    }
+
+    private HttpResponse<String> post(String path, String idempotencyKey, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
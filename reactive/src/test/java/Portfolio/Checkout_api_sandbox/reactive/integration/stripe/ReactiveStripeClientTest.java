@@ -0,0 +1,128 @@
+package Portfolio.Checkout_api_sandbox.reactive.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.FakeStripeServer;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del cliente WebClient de Stripe contra FakeStripeServer (HTTP real, sin red externa).
+ * Verifica los parámetros enviados, la idempotencia de la creación y el mapeo de errores.
+ */
+class ReactiveStripeClientTest {
+
+    private FakeStripeServer fakeStripe;
+
+    private ReactiveStripeClient stripeClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fakeStripe = new FakeStripeServer().start();
+
+        stripeClient = new ReactiveStripeClient();
+        ReflectionTestUtils.setField(stripeClient, "tenantRegistry",
+                new StripeTenantRegistry("sk_test", "whsec_test", null));
+        ReflectionTestUtils.setField(stripeClient, "apiKey", "sk_test");
+        ReflectionTestUtils.setField(stripeClient, "apiBase", fakeStripe.getApiBase());
+        ReflectionTestUtils.setField(stripeClient, "createTimeoutMs", 2_000L);
+        ReflectionTestUtils.setField(stripeClient, "cancelTimeoutMs", 2_000L);
+        stripeClient.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fakeStripe.close();
+    }
+
+    @Test
+    void createPaymentIntent_ShouldReturnIntentWithClientSecret() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+
+        // Act & Assert
+        StepVerifier.create(stripeClient.createPaymentIntent("default", 5297L, "USD", orderId, orderId + ":key-1"))
+                .assertNext(intent -> {
+                    assertTrue(intent.id().startsWith("pi_"));
+                    assertNotNull(intent.clientSecret());
+                    assertEquals("requires_payment_method", fakeStripe.getStatus(intent.id()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void createPaymentIntent_ShouldReturnSameIntentForSameIdempotencyKey() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        String key = orderId + ":key-1";
+
+        // Act
+        String first = stripeClient.createPaymentIntent("default", 1000L, "USD", orderId, key).block().id();
+        String second = stripeClient.createPaymentIntent("default", 1000L, "USD", orderId, key).block().id();
+
+        // Assert
+        assertEquals(first, second);
+        assertEquals(2, fakeStripe.getRequestCount("create"));
+    }
+
+    @Test
+    void createPaymentIntent_ShouldMapRateLimitToRetryAfter() {
+        // Arrange
+        fakeStripe.withRateLimitRate(1.0, 3);
+
+        // Act & Assert
+        StepVerifier.create(stripeClient.createPaymentIntent("default", 1000L, "USD", UUID.randomUUID(), "key-429"))
+                .expectErrorSatisfies(error -> {
+                    StripeApiException stripeError = assertInstanceOf(StripeApiException.class, error);
+                    assertEquals(3L, stripeError.getRetryAfterSeconds());
+                })
+                .verify();
+    }
+
+    @Test
+    void createPaymentIntent_ShouldMapApiErrorToStripeApiException() {
+        // Arrange
+        fakeStripe.withErrorRate(1.0);
+
+        // Act & Assert
+        StepVerifier.create(stripeClient.createPaymentIntent("default", 1000L, "USD", UUID.randomUUID(), "key-500"))
+                .expectErrorSatisfies(error -> {
+                    StripeApiException stripeError = assertInstanceOf(StripeApiException.class, error);
+                    assertNull(stripeError.getRetryAfterSeconds());
+                })
+                .verify();
+    }
+
+    @Test
+    void createPaymentIntent_ShouldFailOnTimeout() {
+        // Arrange
+        fakeStripe.withLatency(FakeStripeServer.LatencyModel.fixed(1_000));
+        ReflectionTestUtils.setField(stripeClient, "createTimeoutMs", 100L);
+
+        // Act & Assert
+        StepVerifier.create(stripeClient.createPaymentIntent("default", 1000L, "USD", UUID.randomUUID(), "key-slow"))
+                .expectErrorMessage("Timeout al crear Payment Intent")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void cancelPaymentIntent_ShouldCancelIntent() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        String id = stripeClient.createPaymentIntent("default", 1000L, "USD", orderId, "key-cancel").block().id();
+
+        // Act & Assert
+        StepVerifier.create(stripeClient.cancelPaymentIntent("default", id))
+                .assertNext(intent -> assertEquals("canceled", intent.status()))
+                .verifyComplete();
+        assertEquals("canceled", fakeStripe.getStatus(id));
+    }
+}
@@ -0,0 +1,288 @@
+package Portfolio.Checkout_api_sandbox.reactive.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CheckoutRequest;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
+import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeIdempotencyKeys;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.reactive.integration.stripe.ReactiveStripeClient;
+import Portfolio.Checkout_api_sandbox.reactive.integration.stripe.ReactiveStripeClient.PaymentIntentResult;
+import Portfolio.Checkout_api_sandbox.reactive.mapper.ReactiveOrderMapper;
+import Portfolio.Checkout_api_sandbox.reactive.model.OrderRow;
+import Portfolio.Checkout_api_sandbox.reactive.model.PaymentRow;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderItemRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactiveOrderRepository;
+import Portfolio.Checkout_api_sandbox.reactive.repository.ReactivePaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para ReactiveCheckoutService.
+ * Verifica idempotencia, validaciones y la compensación cuando otro checkout ganó la orden.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveCheckoutServiceTest {
+
+    @Mock
+    private ReactiveOrderRepository orderRepository;
+
+    @Mock
+    private ReactiveOrderItemRepository orderItemRepository;
+
+    @Mock
+    private ReactivePaymentRepository paymentRepository;
+
+    @Mock
+    private ReactiveStripeClient stripeClient;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @Spy
+    private ReactiveOrderMapper orderMapper = new ReactiveOrderMapper();
+
+    @InjectMocks
+    private ReactiveCheckoutService checkoutService;
+
+    private UUID orderId;
+    private String idempotencyKey;
+    private CheckoutRequest checkoutRequest;
+    private OrderRow order;
+    private PaymentIntentResult intent;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(transactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderId = UUID.randomUUID();
+        idempotencyKey = UUID.randomUUID().toString();
+        checkoutRequest = new CheckoutRequest(orderId, "STRIPE");
+
+        order = OrderRow.create(orderId, "USD", null, LocalDateTime.now());
+        order.setTotalAmountMinor(5297L);
+
+        intent = new PaymentIntentResult("pi_test_123", "pi_test_123_secret_456", "requires_payment_method");
+    }
+
+    @Test
+    void initiateCheckout_ShouldSucceedWithValidOrder() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent("default", 5297L, "USD", orderId,
+                StripeIdempotencyKeys.forCheckout(orderId, idempotencyKey)))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(1));
+        when(paymentRepository.save(any(PaymentRow.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .assertNext(response -> {
+                    assertEquals(orderId, response.getOrderId());
+                    assertEquals("pi_test_123_secret_456", response.getClientSecret());
+                    assertEquals(PaymentProvider.STRIPE.name(), response.getProvider());
+                    assertEquals(OrderStatus.PAYMENT_PENDING, response.getStatus());
+                })
+                .verifyComplete();
+
+        verify(paymentRepository).save(argThat(payment -> idempotencyKey.equals(payment.getIdempotencyKey())
+                && "pi_test_123".equals(payment.getExternalPaymentId())));
+        verify(stripeClient, never()).cancelPaymentIntent(anyString(), anyString());
+    }
+
+    @Test
+    void initiateCheckout_ShouldFailWhenIdempotencyKeyWasUsed() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.just(new PaymentRow()));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectError(IdempotencyConflictException.class)
+                .verify();
+
+        verify(stripeClient, never()).createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void initiateCheckout_ShouldFailWhenOrderDoesNotExist() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.empty());
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectError(OrderNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void initiateCheckout_ShouldFailWhenOrderIsAlreadyPaid() {
+        // Arrange
+        order.setStatus(OrderStatus.PAID);
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectErrorMessage("La orden ya fue pagada")
+                .verify();
+
+        verify(stripeClient, never()).createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString());
+    }
+
+    @Test
+    void initiateCheckout_ShouldRejectUnsupportedProvider() {
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(new CheckoutRequest(orderId, "PAYPAL"), idempotencyKey))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        verifyNoInteractions(paymentRepository, stripeClient);
+    }
+
+    @Test
+    void initiateCheckout_ShouldCancelIntentWhenOrderChangedDuringStripeCall() {
+        // Arrange
+        OrderRow pending = OrderRow.create(orderId, "USD", null, LocalDateTime.now());
+        pending.setStatus(OrderStatus.PAYMENT_PENDING);
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order), Mono.just(pending));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString()))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(0));
+        when(paymentRepository.findByExternalPaymentId("pi_test_123")).thenReturn(Mono.empty());
+        when(stripeClient.cancelPaymentIntent("default", "pi_test_123")).thenReturn(Mono.just(intent));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectErrorMessage("La orden ya tiene un pago en proceso")
+                .verify();
+
+        verify(paymentRepository, never()).save(any(PaymentRow.class));
+        verify(stripeClient).cancelPaymentIntent("default", "pi_test_123");
+    }
+
+    @Test
+    void initiateCheckout_ShouldCancelIntentWhenPaymentInsertConflicts() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString()))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(1));
+        when(paymentRepository.save(any(PaymentRow.class)))
+                .thenReturn(Mono.error(new DataIntegrityViolationException("duplicate key")));
+        when(paymentRepository.findByExternalPaymentId("pi_test_123")).thenReturn(Mono.empty());
+        when(stripeClient.cancelPaymentIntent("default", "pi_test_123")).thenReturn(Mono.just(intent));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectError(InvalidOrderStateException.class)
+                .verify();
+
+        verify(stripeClient).cancelPaymentIntent("default", "pi_test_123");
+    }
+
+    @Test
+    void initiateCheckout_ShouldRetryLookupBeforeCancelingIntent() {
+        // Arrange - la primera consulta del intent falla, el reintento confirma que no está registrado
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString()))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(1));
+        when(paymentRepository.save(any(PaymentRow.class)))
+                .thenReturn(Mono.error(new DataIntegrityViolationException("duplicate key")));
+        when(paymentRepository.findByExternalPaymentId("pi_test_123"))
+                .thenReturn(Mono.error(new IllegalStateException("Connection refused")))
+                .thenReturn(Mono.empty());
+        when(stripeClient.cancelPaymentIntent("default", "pi_test_123")).thenReturn(Mono.just(intent));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectError(InvalidOrderStateException.class)
+                .verify();
+
+        verify(paymentRepository, times(2)).findByExternalPaymentId("pi_test_123");
+        verify(stripeClient).cancelPaymentIntent("default", "pi_test_123");
+    }
+
+    @Test
+    void initiateCheckout_ShouldKeepIntentWhenLookupKeepsFailing() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString()))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(1));
+        when(paymentRepository.save(any(PaymentRow.class)))
+                .thenReturn(Mono.error(new DataIntegrityViolationException("duplicate key")));
+        when(paymentRepository.findByExternalPaymentId("pi_test_123"))
+                .thenReturn(Mono.error(new IllegalStateException("Connection refused")));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectError(InvalidOrderStateException.class)
+                .verify();
+
+        verify(paymentRepository, times(4)).findByExternalPaymentId("pi_test_123");
+        verify(stripeClient, never()).cancelPaymentIntent(anyString(), anyString());
+    }
+
+    @Test
+    void initiateCheckout_ShouldKeepIntentRecordedByConcurrentDuplicate() {
+        // Arrange - misma clave en dos requests concurrentes: Stripe devolvió el intent del ganador
+        OrderRow pending = OrderRow.create(orderId, "USD", null, LocalDateTime.now());
+        pending.setStatus(OrderStatus.PAYMENT_PENDING);
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Mono.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Mono.just(order), Mono.just(pending));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(Mono.just(1L));
+        when(stripeClient.createPaymentIntent(anyString(), anyLong(), anyString(), any(), anyString()))
+                .thenReturn(Mono.just(intent));
+        when(orderRepository.updateStatus(eq(orderId), eq("CREATED"), eq("PAYMENT_PENDING"), any()))
+                .thenReturn(Mono.just(0));
+        when(paymentRepository.findByExternalPaymentId("pi_test_123")).thenReturn(Mono.just(new PaymentRow()));
+
+        // Act & Assert
+        StepVerifier.create(checkoutService.initiateCheckout(checkoutRequest, idempotencyKey))
+                .expectErrorMessage("La orden ya tiene un pago en proceso")
+                .verify();
+
+        verify(stripeClient, never()).cancelPaymentIntent(anyString(), anyString());
+    }
+}
@@ -0,0 +1,92 @@
+package Portfolio.Checkout_api_sandbox.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché en memoria con expiración por entrada y tamaño máximo.
+ * Las entradas vencidas se descartan al leerlas y se purgan cuando la caché se llena.
+ * Si tras la purga sigue llena, se descarta la entrada más próxima a vencer que se encuentre.
+ *
+ * @param <K> Tipo de la clave
+ * @param <V> Tipo del valor
+ */
+public class TtlCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public TtlCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Obtiene el valor si existe y no ha vencido.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Guarda un valor con el TTL indicado en milisegundos. Un TTL ≤ 0 no guarda nada.
+     */
+    public void put(K key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlMillis * 1_000_000L));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Purga entradas vencidas; si no libera espacio, descarta la que vence antes
+     * entre las primeras encontradas.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        if (entries.size() < maxSize) {
+            return;
+        }
+
+        K oldestKey = null;
+        long oldestExpiry = 0L;
+        int scanned = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && scanned++ < 64) {
+            Map.Entry<K, Entry<V>> candidate = iterator.next();
+            if (oldestKey == null || candidate.getValue().expiresAtNanos() - oldestExpiry < 0) {
+                oldestExpiry = candidate.getValue().expiresAtNanos();
+                oldestKey = candidate.getKey();
+            }
+        }
+        if (oldestKey != null) {
+            entries.remove(oldestKey);
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package Portfolio.Checkout_api_sandbox.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas (@Scheduled), como el barrido de pagos abandonados.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
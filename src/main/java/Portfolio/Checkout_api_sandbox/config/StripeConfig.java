@@ -1,19 +1,145 @@
 package Portfolio.Checkout_api_sandbox.config;
 
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeHttpTransport;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeRateLimitScheduler;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
 import com.stripe.Stripe;
-import jakarta.annotation.PostConstruct;
+import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Configuration
 public class StripeConfig {
 
+    @Autowired
+    private StripeRateLimitScheduler rateLimitScheduler;
+
     @Value("${stripe.apiKey}")
     private String apiKey;
 
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = apiKey;
+    @Value("${stripe.webhookSecret:}")
+    private String webhookSecret;
+
+    @Value("${stripe.tenants.file:}")
+    private String tenantsFile;
+
+    @Value("${stripe.apiBase:" + Stripe.LIVE_API_BASE + "}")
+    private String apiBase;
+
+    @Value("${stripe.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${stripe.http.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    @Value("${stripe.http.max-network-retries:1}")
+    private int maxNetworkRetries;
+
+    @Value("${stripe.http.prewarm:true}")
+    private boolean prewarm;
+
+    /**
+     * Credenciales por tenant. No se usa el Stripe.apiKey global: cada request lleva la clave
+     * de su tenant en sus RequestOptions, así un mismo proceso atiende varias cuentas de Stripe.
+     */
+    @Bean
+    public StripeTenantRegistry stripeTenantRegistry() {
+        return new StripeTenantRegistry(apiKey, webhookSecret,
+                tenantsFile == null || tenantsFile.isBlank() ? null : Path.of(tenantsFile));
     }
-}
 
+    /**
+     * Transporte HTTP compartido (pool de conexiones keep-alive / HTTP/2).
+     * Un 429 de Stripe pausa las llamadas del tenant dueño de la clave que lo recibió.
+     */
+    @Bean
+    public StripeHttpTransport stripeHttpTransport() {
+        StripeHttpTransport transport = new StripeHttpTransport(Duration.ofMillis(connectTimeoutMs));
+        StripeTenantRegistry tenantRegistry = stripeTenantRegistry();
+        transport.setRateLimitListener((requestApiKey, retryAfterMillis) ->
+                rateLimitScheduler.onRateLimited(tenantRegistry.tenantForApiKey(requestApiKey), retryAfterMillis));
+        return transport;
+    }
+
+    /**
+     * Cliente de Stripe que usa el transporte compartido en lugar de HttpURLConnection.
+     * Su clave es la del tenant por defecto; los demás tenants la reemplazan por request.
+     */
+    @Bean
+    public StripeClient stripeClient(StripeHttpTransport stripeHttpTransport) {
+        StripeResponseGetterOptions options = new StripeResponseGetterOptions() {
+            @Override
+            public String getApiKey() {
+                return apiKey;
+            }
+
+            @Override
+            public String getClientId() {
+                return null;
+            }
+
+            @Override
+            public int getConnectTimeout() {
+                return connectTimeoutMs;
+            }
+
+            @Override
+            public Proxy getConnectionProxy() {
+                return null;
+            }
+
+            @Override
+            public int getMaxNetworkRetries() {
+                return maxNetworkRetries;
+            }
+
+            @Override
+            public PasswordAuthentication getProxyCredential() {
+                return null;
+            }
+
+            @Override
+            public String getApiBase() {
+                return apiBase;
+            }
+
+            @Override
+            public String getFilesBase() {
+                return Stripe.UPLOAD_API_BASE;
+            }
+
+            @Override
+            public String getConnectBase() {
+                return Stripe.CONNECT_API_BASE;
+            }
+
+            @Override
+            public int getReadTimeout() {
+                return readTimeoutMs;
+            }
+        };
+
+        return new StripeClient(new LiveStripeResponseGetter(options, stripeHttpTransport));
+    }
+
+    /**
+     * Abre la conexión con Stripe al arrancar para que el primer checkout no pague el handshake TLS.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmStripeConnection() {
+        if (prewarm && apiKey != null && !apiKey.isBlank()) {
+            stripeHttpTransport().prewarm(apiBase);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package Portfolio.Checkout_api_sandbox.controller;
 
+import Portfolio.Checkout_api_sandbox.dto.request.BulkCheckoutRequest;
 import Portfolio.Checkout_api_sandbox.dto.request.CheckoutRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkCheckoutResult;
 import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
+import Portfolio.Checkout_api_sandbox.service.BulkCheckoutService;
 import Portfolio.Checkout_api_sandbox.service.CheckoutService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -14,9 +18,13 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Controller REST para gestionar el proceso de checkout.
  * Requiere el header Idempotency-Key para prevenir pagos duplicados.
@@ -31,6 +39,13 @@ public class CheckoutController {
     @Autowired
     private CheckoutService checkoutService;
 
+    @Autowired
+    private BulkCheckoutService bulkCheckoutService;
+
+    // Con el modo asíncrono el hilo de Tomcat se libera mientras se espera a Stripe
+    @Value("${checkout.async.enabled:false}")
+    private boolean asyncEnabled;
+
     /**
      * Inicia el proceso de checkout para una orden.
      * Crea un Payment Intent en Stripe y retorna el client_secret.
@@ -39,7 +54,8 @@ public class CheckoutController {
      *
      * @param request Datos del checkout (orderId y provider)
      * @param idempotencyKey Clave única para idempotencia (header obligatorio)
-     * @return CheckoutResponse con el client_secret para el frontend (HTTP 200)
+     * @return CheckoutResponse con el client_secret para el frontend (HTTP 200);
+     *         en modo asíncrono la respuesta se completa cuando Stripe responde
      */
     @PostMapping
     @Operation(
@@ -71,7 +87,7 @@ public class CheckoutController {
             description = "Error al comunicarse con Stripe"
         )
     })
-    public ResponseEntity<CheckoutResponse> initiateCheckout(
+    public CompletableFuture<ResponseEntity<CheckoutResponse>> initiateCheckout(
             @Valid @RequestBody CheckoutRequest request,
             @Parameter(
                 description = "Clave única de idempotencia (UUID recomendado). Previene pagos duplicados si el cliente reintenta.",
@@ -88,12 +104,47 @@ public class CheckoutController {
             throw new IllegalArgumentException("El header 'Idempotency-Key' es obligatorio");
         }
 
-        CheckoutResponse response = checkoutService.initiateCheckout(request, idempotencyKey);
+        CompletableFuture<CheckoutResponse> response = asyncEnabled
+                ? checkoutService.initiateCheckoutAsync(request, idempotencyKey)
+                : CompletableFuture.completedFuture(checkoutService.initiateCheckout(request, idempotencyKey));
 
-        logger.info("Checkout initiated successfully - Payment ID: {}, Order: {}",
-                    response.getPaymentId(), response.getOrderId());
+        return response.thenApply(checkout -> {
+            logger.info("Checkout initiated successfully - Payment ID: {}, Order: {}",
+                        checkout.getPaymentId(), checkout.getOrderId());
+            return ResponseEntity.ok(checkout);
+        });
+    }
 
-        return ResponseEntity.ok(response);
+    /**
+     * Inicia el checkout de varias órdenes en un solo pedido (canal B2B).
+     * Cada orden lleva su propia clave de idempotencia en el cuerpo.
+     *
+     * @param request Proveedor común y órdenes con su clave de idempotencia
+     * @return Un resultado por orden, en el mismo orden (HTTP 200 aunque algunas fallen)
+     */
+    @PostMapping("/batch")
+    @Operation(
+        summary = "Iniciar checkout por lotes",
+        description = "Inicia el checkout de varias órdenes: valida el lote con consultas agrupadas, " +
+                      "crea los Payment Intents en paralelo y registra todos los pagos en una sola transacción. " +
+                      "Cada orden obtiene su propio resultado: INITIATED (con client_secret), REJECTED o FAILED."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Lote procesado; ver el estado de cada orden",
+            content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkCheckoutResult.class)))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Datos incorrectos, lote demasiado grande o proveedor no soportado"
+        )
+    })
+    public ResponseEntity<List<BulkCheckoutResult>> initiateCheckoutBatch(
+            @Valid @RequestBody BulkCheckoutRequest request) {
+
+        logger.info("POST /api/checkout/batch - Orders: {}", request.getOrders().size());
+
+        return ResponseEntity.ok(bulkCheckoutService.initiateCheckouts(request));
     }
 }
-
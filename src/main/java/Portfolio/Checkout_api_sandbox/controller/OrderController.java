@@ -1,7 +1,10 @@
 package Portfolio.Checkout_api_sandbox.controller;
 
 import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemPageResponse;
 import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.service.BulkOrderService;
+import Portfolio.Checkout_api_sandbox.service.LargeOrderService;
 import Portfolio.Checkout_api_sandbox.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,9 +18,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
 import java.util.UUID;
 
 /**
@@ -31,20 +38,33 @@ public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final String SUMMARY_VIEW = "summary";
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private BulkOrderService bulkOrderService;
+
+    @Autowired
+    private LargeOrderService largeOrderService;
+
     /**
      * Crea una nueva orden con items.
      * Calcula automáticamente subtotales y total.
+     * Si se envía el header "Idempotency-Key", los reintentos devuelven la orden original.
      *
      * @param request Datos de la orden (moneda e items)
+     * @param idempotencyKey Clave única para idempotencia (header opcional)
      * @return OrderResponse con la orden creada (HTTP 201)
      */
     @PostMapping
     @Operation(
         summary = "Crear una nueva orden",
-        description = "Crea una orden con items y calcula automáticamente los totales. El estado inicial es CREATED."
+        description = "Crea una orden con items y calcula automáticamente los totales. El estado inicial es CREATED. " +
+                      "Acepta el header opcional 'Idempotency-Key' para que los reintentos no dupliquen la orden."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -52,17 +72,57 @@ public class OrderController {
             description = "Orden creada exitosamente",
             content = @Content(schema = @Schema(implementation = OrderResponse.class))
         ),
+        @ApiResponse(
+            responseCode = "202",
+            description = "Orden aceptada en modo write-behind (se persiste en lote)",
+            content = @Content(schema = @Schema(implementation = OrderResponse.class))
+        ),
         @ApiResponse(
             responseCode = "400",
             description = "Datos de entrada inválidos (validación falló)"
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Conflicto de idempotencia - La clave ya se usó con otro payload"
+        ),
+        @ApiResponse(
+            responseCode = "503",
+            description = "Buffer de escritura lleno - Reintentar según Retry-After"
         )
     })
     public ResponseEntity<OrderResponse> createOrder(
-            @Valid @RequestBody CreateOrderRequest request) {
+            @Valid @RequestBody CreateOrderRequest request,
+            @Parameter(
+                description = "Clave única de idempotencia (UUID recomendado). Evita órdenes duplicadas si el cliente reintenta.",
+                example = "7f0f3f6b-2bce-4a2f-bb36-1234567890ab"
+            )
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(
+                description = "Con 'respond-async' y el modo write-behind habilitado, la orden se acepta con 202 y se persiste en lote.",
+                example = "respond-async"
+            )
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+
+        logger.info("POST /api/orders - Creating order with {} items, Idempotency-Key: {}",
+                    request.getItems().size(), idempotencyKey);
+
+        if (idempotencyKey != null && idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("El header 'Idempotency-Key' no puede estar vacío");
+        }
 
-        logger.info("POST /api/orders - Creating order with {} items", request.getItems().size());
+        // Modo write-behind (opt-in): no aplica a requests con clave de idempotencia
+        if (idempotencyKey == null && prefer != null && prefer.contains(RESPOND_ASYNC)
+                && orderService.isWriteBehindEnabled()) {
+            OrderResponse accepted = orderService.acceptOrder(request);
 
-        OrderResponse response = orderService.createOrder(request);
+            return ResponseEntity
+                    .accepted()
+                    .location(URI.create("/api/orders/" + accepted.getOrderId()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(accepted);
+        }
+
+        OrderResponse response = orderService.createOrder(request, idempotencyKey);
 
         logger.info("Order created successfully - ID: {}", response.getOrderId());
 
@@ -71,16 +131,86 @@ public class OrderController {
                 .body(response);
     }
 
+    /**
+     * Crea órdenes de forma masiva a partir de un stream NDJSON.
+     * Cada línea es una CreateOrderRequest; la respuesta contiene un resultado por línea
+     * y se va enviando a medida que se confirma cada bloque.
+     *
+     * @param body Stream NDJSON con una orden por línea
+     * @return Stream NDJSON con un BulkOrderResult por línea (HTTP 200)
+     */
+    @PostMapping(value = "/bulk", consumes = NDJSON, produces = NDJSON)
+    @Operation(
+        summary = "Crear órdenes de forma masiva",
+        description = "Recibe un stream NDJSON de órdenes, valida cada línea y persiste en bloques. " +
+                      "Devuelve un stream NDJSON con el resultado de cada línea (CREATED, INVALID o FAILED)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Importación procesada; ver el resultado de cada línea"
+        )
+    })
+    public ResponseEntity<StreamingResponseBody> createOrdersBulk(InputStream body) {
+
+        logger.info("POST /api/orders/bulk - Starting bulk import");
+
+        StreamingResponseBody stream = output -> bulkOrderService.importOrders(body, output);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(stream);
+    }
+
+    /**
+     * Crea una orden con muchos items (B2B) leyendo el body en streaming.
+     * Los items se persisten en bloques; la respuesta es el resumen de la orden (sin items).
+     *
+     * @param body JSON con el formato de CreateOrderRequest ("currency" antes de "items")
+     * @return OrderResponse en modo resumen (HTTP 201)
+     */
+    @PostMapping(value = "/large", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+        summary = "Crear una orden con muchos items",
+        description = "Mismo formato que POST /api/orders, pero el body se procesa en streaming y los items " +
+                      "se insertan en bloques. 'currency' debe enviarse antes de 'items'. " +
+                      "Devuelve el resumen de la orden (itemCount, sin items)."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Orden creada exitosamente",
+            content = @Content(schema = @Schema(implementation = OrderResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "JSON o items inválidos"
+        )
+    })
+    public ResponseEntity<OrderResponse> createLargeOrder(InputStream body) {
+
+        logger.info("POST /api/orders/large - Creating large order");
+
+        OrderResponse response = largeOrderService.createLargeOrder(body);
+
+        return ResponseEntity
+                .created(URI.create("/api/orders/" + response.getOrderId()))
+                .body(response);
+    }
+
     /**
      * Obtiene una orden por su ID.
+     * Con view=summary se omiten los items y solo se informa su cantidad.
      *
      * @param orderId UUID de la orden
+     * @param view Vista de la respuesta ("full" o "summary")
      * @return OrderResponse con los datos de la orden (HTTP 200)
      */
     @GetMapping("/{orderId}")
     @Operation(
         summary = "Consultar una orden",
-        description = "Obtiene los detalles de una orden existente por su ID."
+        description = "Obtiene los detalles de una orden existente por su ID. " +
+                      "Con view=summary devuelve solo itemCount; los items se consultan paginados en /items."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -95,13 +225,55 @@ public class OrderController {
     })
     public ResponseEntity<OrderResponse> getOrder(
             @Parameter(description = "UUID de la orden", required = true)
-            @PathVariable UUID orderId) {
+            @PathVariable UUID orderId,
+            @Parameter(description = "Vista de la respuesta: 'full' (por defecto) o 'summary'", example = "summary")
+            @RequestParam(defaultValue = "full") String view) {
 
-        logger.info("GET /api/orders/{} - Fetching order", orderId);
+        logger.info("GET /api/orders/{} - Fetching order (view: {})", orderId, view);
 
-        OrderResponse response = orderService.getOrder(orderId);
+        OrderResponse response = SUMMARY_VIEW.equalsIgnoreCase(view)
+                ? orderService.getOrderSummary(orderId)
+                : orderService.getOrder(orderId);
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Obtiene los items de una orden paginados por keyset.
+     *
+     * @param orderId UUID de la orden
+     * @param after Cursor: lineNumber del último item recibido (0 para la primera página)
+     * @param limit Tamaño de página (máximo 500)
+     * @return OrderItemPageResponse con los items y nextCursor (HTTP 200)
+     */
+    @GetMapping("/{orderId}/items")
+    @Operation(
+        summary = "Consultar los items de una orden",
+        description = "Devuelve los items ordenados por lineNumber. Para la siguiente página, " +
+                      "enviar nextCursor como 'after'; nextCursor es null en la última página."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Página de items",
+            content = @Content(schema = @Schema(implementation = OrderItemPageResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Orden no encontrada"
+        )
+    })
+    public ResponseEntity<OrderItemPageResponse> getOrderItems(
+            @Parameter(description = "UUID de la orden", required = true)
+            @PathVariable UUID orderId,
+            @Parameter(description = "lineNumber del último item recibido", example = "0")
+            @RequestParam(defaultValue = "0") int after,
+            @Parameter(description = "Tamaño de página (máximo 500)", example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+
+        logger.info("GET /api/orders/{}/items - after: {}, limit: {}", orderId, after, limit);
+
+        return ResponseEntity.ok(orderService.getOrderItems(orderId, after, limit));
+    }
 }
 
@@ -1,5 +1,6 @@
 package Portfolio.Checkout_api_sandbox.controller;
 
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
 import Portfolio.Checkout_api_sandbox.service.WebhookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -36,16 +37,20 @@ public class StripeWebhookController {
      * - La firma viene en el header "Stripe-Signature"
      * - La validación de firma es CRÍTICA para seguridad
      *
+     * Cada tenant (cuenta de Stripe) registra su endpoint como /api/webhooks/stripe/{tenantId};
+     * /api/webhooks/stripe corresponde al tenant por defecto.
+     *
      * Eventos soportados:
      * - payment_intent.succeeded → Marca orden como PAID
      * - payment_intent.payment_failed → Marca orden como FAILED
      * - payment_intent.canceled → Marca orden como CANCELED
      *
+     * @param tenantId Tenant cuya cuenta envía el evento (opcional)
      * @param payload Cuerpo raw del webhook (JSON sin deserializar)
      * @param signatureHeader Firma HMAC del webhook (header "Stripe-Signature")
      * @return HTTP 200 si procesado correctamente, 401 si firma inválida
      */
-    @PostMapping("/stripe")
+    @PostMapping({"/stripe", "/stripe/{tenantId}"})
     @Operation(
         summary = "Recibir webhook de Stripe",
         description = "Endpoint para recibir eventos de Stripe. Valida la firma HMAC para garantizar autenticidad. " +
@@ -66,6 +71,8 @@ public class StripeWebhookController {
         )
     })
     public ResponseEntity<Void> handleStripeWebhook(
+            @Parameter(description = "Tenant dueño de la cuenta de Stripe (por defecto: default)")
+            @PathVariable(required = false) String tenantId,
             @RequestBody String payload,
             @Parameter(
                 description = "Firma HMAC del webhook enviada por Stripe",
@@ -74,11 +81,12 @@ public class StripeWebhookController {
             )
             @RequestHeader("Stripe-Signature") String signatureHeader) {
 
-        logger.info("POST /api/webhooks/stripe - Receiving webhook");
+        String tenant = tenantId != null ? tenantId : StripeTenantRegistry.DEFAULT_TENANT;
+        logger.info("POST /api/webhooks/stripe - Receiving webhook for tenant {}", tenant);
 
-        // El WebhookService valida la firma y procesa el evento
+        // El WebhookService valida la firma con el secret del tenant y procesa el evento
         // Si la firma es inválida, lanza InvalidWebhookSignatureException (HTTP 401)
-        webhookService.processStripeWebhook(payload, signatureHeader);
+        webhookService.processStripeWebhook(tenant, payload, signatureHeader);
 
         logger.info("Webhook processed successfully");
 
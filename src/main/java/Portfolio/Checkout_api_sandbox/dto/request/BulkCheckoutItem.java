@@ -0,0 +1,46 @@
+package Portfolio.Checkout_api_sandbox.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.UUID;
+
+/**
+ * DTO con una orden del checkout por lotes y su clave de idempotencia.
+ */
+public class BulkCheckoutItem {
+
+    @NotNull(message = "El ID de la orden es obligatorio")
+    private UUID orderId;
+
+    @NotBlank(message = "La clave de idempotencia es obligatoria")
+    @Size(max = 255, message = "La clave de idempotencia admite como máximo 255 caracteres")
+    private String idempotencyKey;
+
+    // Constructores
+    public BulkCheckoutItem() {
+    }
+
+    public BulkCheckoutItem(UUID orderId, String idempotencyKey) {
+        this.orderId = orderId;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    // Getters y Setters
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+}
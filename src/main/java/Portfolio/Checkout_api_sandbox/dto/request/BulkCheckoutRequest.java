@@ -0,0 +1,48 @@
+package Portfolio.Checkout_api_sandbox.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * DTO para iniciar el checkout de varias órdenes en un solo pedido.
+ * Cada orden lleva su propia clave de idempotencia; el proveedor es común a todo el lote.
+ */
+public class BulkCheckoutRequest {
+
+    // Pasarela preferida (STRIPE) o AUTO para que elija el PaymentRouter
+    @NotBlank(message = "El proveedor de pago es obligatorio")
+    private String provider;
+
+    @NotEmpty(message = "Debe incluir al menos una orden")
+    @Valid
+    private List<BulkCheckoutItem> orders;
+
+    // Constructores
+    public BulkCheckoutRequest() {
+    }
+
+    public BulkCheckoutRequest(String provider, List<BulkCheckoutItem> orders) {
+        this.provider = provider;
+        this.orders = orders;
+    }
+
+    // Getters y Setters
+    public String getProvider() {
+        return provider;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public List<BulkCheckoutItem> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<BulkCheckoutItem> orders) {
+        this.orders = orders;
+    }
+}
@@ -14,6 +14,7 @@ public class CheckoutRequest {
     @NotNull(message = "El ID de la orden es obligatorio")
     private UUID orderId;
 
+    // Pasarela preferida (STRIPE) o AUTO para que elija el PaymentRouter
     @NotBlank(message = "El proveedor de pago es obligatorio")
     private String provider;
 
@@ -10,7 +10,7 @@ import java.util.List;
 
 /**
  * DTO para crear una nueva orden.
- * Contiene la moneda y la lista de items a comprar.
+ * Contiene la moneda y la lista de items a comprar, y opcionalmente el tenant (comercio) dueño de la orden.
  */
 public class CreateOrderRequest {
 
@@ -19,6 +19,10 @@ public class CreateOrderRequest {
     @Pattern(regexp = "^[A-Z]{3}$", message = "La moneda debe estar en mayúsculas (ej: USD, EUR, MXN)")
     private String currency;
 
+    @Pattern(regexp = "^[a-z0-9_-]{1,64}$",
+             message = "El tenant solo admite minúsculas, dígitos, '-' y '_' (máximo 64 caracteres)")
+    private String tenantId;
+
     @NotEmpty(message = "Debe incluir al menos un item")
     @Valid
     private List<OrderItemRequest> items;
@@ -41,6 +45,14 @@ public class CreateOrderRequest {
         this.currency = currency;
     }
 
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public List<OrderItemRequest> getItems() {
         return items;
     }
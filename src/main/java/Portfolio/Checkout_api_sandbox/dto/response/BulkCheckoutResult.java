@@ -0,0 +1,103 @@
+package Portfolio.Checkout_api_sandbox.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+/**
+ * DTO con el resultado del checkout de una orden dentro de un lote.
+ * Se emite un resultado por cada orden del pedido, en el mismo orden.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkCheckoutResult {
+
+    /**
+     * Resultado posible de una orden.
+     */
+    public enum Status {
+        INITIATED,
+        REJECTED,
+        FAILED
+    }
+
+    private int index;
+    private UUID orderId;
+    private Status status;
+    private CheckoutResponse checkout;
+    private String message;
+
+    // Constructores
+    public BulkCheckoutResult() {
+    }
+
+    public BulkCheckoutResult(int index, UUID orderId, Status status) {
+        this.index = index;
+        this.orderId = orderId;
+        this.status = status;
+    }
+
+    public static BulkCheckoutResult initiated(int index, CheckoutResponse checkout) {
+        BulkCheckoutResult result = new BulkCheckoutResult(index, checkout.getOrderId(), Status.INITIATED);
+        result.setCheckout(checkout);
+        return result;
+    }
+
+    /**
+     * La orden no admite checkout (no existe, estado inválido, clave ya usada); no se llamó a la pasarela.
+     */
+    public static BulkCheckoutResult rejected(int index, UUID orderId, String message) {
+        BulkCheckoutResult result = new BulkCheckoutResult(index, orderId, Status.REJECTED);
+        result.setMessage(message);
+        return result;
+    }
+
+    /**
+     * Falló la pasarela o el registro del pago; se puede reintentar con la misma clave.
+     */
+    public static BulkCheckoutResult failed(int index, UUID orderId, String message) {
+        BulkCheckoutResult result = new BulkCheckoutResult(index, orderId, Status.FAILED);
+        result.setMessage(message);
+        return result;
+    }
+
+    // Getters y Setters
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public CheckoutResponse getCheckout() {
+        return checkout;
+    }
+
+    public void setCheckout(CheckoutResponse checkout) {
+        this.checkout = checkout;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,108 @@
+package Portfolio.Checkout_api_sandbox.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * DTO con el resultado de una línea de la carga masiva de órdenes (NDJSON).
+ * Se emite una línea de resultado por cada línea de entrada, en el mismo orden.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOrderResult {
+
+    /**
+     * Resultado posible de una línea.
+     */
+    public enum Status {
+        CREATED,
+        INVALID,
+        FAILED
+    }
+
+    private long line;
+    private Status status;
+    private UUID orderId;
+    private Long totalAmountMinor;
+    private String message;
+    private Map<String, String> errors;
+
+    // Constructores
+    public BulkOrderResult() {
+    }
+
+    public BulkOrderResult(long line, Status status) {
+        this.line = line;
+        this.status = status;
+    }
+
+    public static BulkOrderResult created(long line, UUID orderId, Long totalAmountMinor) {
+        BulkOrderResult result = new BulkOrderResult(line, Status.CREATED);
+        result.setOrderId(orderId);
+        result.setTotalAmountMinor(totalAmountMinor);
+        return result;
+    }
+
+    public static BulkOrderResult invalid(long line, String message, Map<String, String> errors) {
+        BulkOrderResult result = new BulkOrderResult(line, Status.INVALID);
+        result.setMessage(message);
+        result.setErrors(errors);
+        return result;
+    }
+
+    public static BulkOrderResult failed(long line, String message) {
+        BulkOrderResult result = new BulkOrderResult(line, Status.FAILED);
+        result.setMessage(message);
+        return result;
+    }
+
+    // Getters y Setters
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getTotalAmountMinor() {
+        return totalAmountMinor;
+    }
+
+    public void setTotalAmountMinor(Long totalAmountMinor) {
+        this.totalAmountMinor = totalAmountMinor;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(Map<String, String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,50 @@
+package Portfolio.Checkout_api_sandbox.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO para una página de items de una orden (paginación por keyset).
+ * nextCursor es el lineNumber a enviar como "after" para la siguiente página, o null si no hay más.
+ */
+public class OrderItemPageResponse {
+
+    private UUID orderId;
+    private List<OrderItemResponse> items;
+    private Integer nextCursor;
+
+    // Constructores
+    public OrderItemPageResponse() {
+    }
+
+    public OrderItemPageResponse(UUID orderId, List<OrderItemResponse> items, Integer nextCursor) {
+        this.orderId = orderId;
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters y Setters
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(UUID orderId) {
+        this.orderId = orderId;
+    }
+
+    public List<OrderItemResponse> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderItemResponse> items) {
+        this.items = items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
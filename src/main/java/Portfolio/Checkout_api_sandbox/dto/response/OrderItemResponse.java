@@ -6,6 +6,7 @@ package Portfolio.Checkout_api_sandbox.dto.response;
  */
 public class OrderItemResponse {
 
+    private Integer lineNumber;
     private String name;
     private Long unitPriceMinor;
     private Integer quantity;
@@ -22,7 +23,20 @@ public class OrderItemResponse {
         this.subtotalMinor = subtotalMinor;
     }
 
+    public OrderItemResponse(Integer lineNumber, String name, Long unitPriceMinor, Integer quantity, Long subtotalMinor) {
+        this(name, unitPriceMinor, quantity, subtotalMinor);
+        this.lineNumber = lineNumber;
+    }
+
     // Getters y Setters
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
     public String getName() {
         return name;
     }
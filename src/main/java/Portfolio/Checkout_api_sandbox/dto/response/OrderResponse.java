@@ -1,6 +1,7 @@
 package Portfolio.Checkout_api_sandbox.dto.response;
 
 import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.UUID;
 /**
  * DTO para la respuesta al crear o consultar una orden.
  * Incluye el ID, estado, totales y lista de items.
+ * En modo resumen la lista de items se omite y solo se informa itemCount.
  */
 public class OrderResponse {
 
@@ -16,6 +18,8 @@ public class OrderResponse {
     private OrderStatus status;
     private String currency;
     private Long totalAmountMinor;
+    private Integer itemCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<OrderItemResponse> items;
     private LocalDateTime createdAt;
 
@@ -30,6 +34,7 @@ public class OrderResponse {
         this.currency = currency;
         this.totalAmountMinor = totalAmountMinor;
         this.items = items;
+        this.itemCount = items != null ? items.size() : null;
         this.createdAt = createdAt;
     }
 
@@ -66,6 +71,14 @@ public class OrderResponse {
         this.totalAmountMinor = totalAmountMinor;
     }
 
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public List<OrderItemResponse> getItems() {
         return items;
     }
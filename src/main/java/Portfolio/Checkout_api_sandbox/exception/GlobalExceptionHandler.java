@@ -4,6 +4,7 @@ import Portfolio.Checkout_api_sandbox.dto.response.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -17,6 +18,10 @@ import java.util.Map;
 /**
  * Manejador global de excepciones para toda la aplicación.
  * Convierte excepciones en respuestas HTTP con formato ErrorResponse.
+ *
+ * Los resultados esperados (orden o pago inexistente, conflicto de idempotencia, estado inválido)
+ * son excepciones sin stack trace y se loguean en DEBUG: un 404 por poll no escribe en el log.
+ * Solo los errores inesperados se loguean en ERROR con su stack trace.
  */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -59,13 +64,14 @@ public class GlobalExceptionHandler {
             OrderNotFoundException ex,
             HttpServletRequest request) {
 
+        String message = ex.getMessage();
         ErrorResponse error = new ErrorResponse(
-                ex.getMessage(),
+                message,
                 HttpStatus.NOT_FOUND.value(),
                 request.getRequestURI()
         );
 
-        logger.warn("Order not found: {}", ex.getMessage());
+        logger.debug("Order not found: {}", message);
 
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
@@ -79,13 +85,14 @@ public class GlobalExceptionHandler {
             PaymentNotFoundException ex,
             HttpServletRequest request) {
 
+        String message = ex.getMessage();
         ErrorResponse error = new ErrorResponse(
-                ex.getMessage(),
+                message,
                 HttpStatus.NOT_FOUND.value(),
                 request.getRequestURI()
         );
 
-        logger.warn("Payment not found: {}", ex.getMessage());
+        logger.debug("Payment not found: {}", message);
 
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
@@ -99,17 +106,40 @@ public class GlobalExceptionHandler {
             IdempotencyConflictException ex,
             HttpServletRequest request) {
 
+        String message = ex.getMessage();
         ErrorResponse error = new ErrorResponse(
-                ex.getMessage(),
+                message,
                 HttpStatus.CONFLICT.value(),
                 request.getRequestURI()
         );
 
-        logger.warn("Idempotency conflict: {}", ex.getMessage());
+        logger.debug("Idempotency conflict: {}", message);
 
         return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
     }
 
+    /**
+     * Maneja OrderBusyException.
+     * Retorna HTTP 409 Conflict con el header Retry-After.
+     */
+    @ExceptionHandler(OrderBusyException.class)
+    public ResponseEntity<ErrorResponse> handleOrderBusy(
+            OrderBusyException ex,
+            HttpServletRequest request) {
+
+        ErrorResponse error = new ErrorResponse(
+                ex.getMessage(),
+                HttpStatus.CONFLICT.value(),
+                request.getRequestURI()
+        );
+
+        logger.debug("Order busy on {}: {}", request.getRequestURI(), ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     /**
      * Maneja InvalidWebhookSignatureException.
      * Retorna HTTP 401 Unauthorized.
@@ -125,7 +155,7 @@ public class GlobalExceptionHandler {
                 request.getRequestURI()
         );
 
-        logger.error("Invalid webhook signature on {}: {}", request.getRequestURI(), ex.getMessage());
+        logger.warn("Invalid webhook signature on {}: {}", request.getRequestURI(), ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
     }
@@ -139,37 +169,76 @@ public class GlobalExceptionHandler {
             InvalidOrderStateException ex,
             HttpServletRequest request) {
 
+        String message = ex.getMessage();
         ErrorResponse error = new ErrorResponse(
-                ex.getMessage(),
+                message,
                 HttpStatus.BAD_REQUEST.value(),
                 request.getRequestURI()
         );
 
-        logger.warn("Invalid order state: {}", ex.getMessage());
+        logger.debug("Invalid order state: {}", message);
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
     /**
      * Maneja StripeApiException.
-     * Retorna HTTP 502 Bad Gateway (error del servicio externo).
+     * Retorna HTTP 502 Bad Gateway (error del servicio externo), o HTTP 503 con
+     * Retry-After si la llamada se rechazó sin llegar a Stripe.
      */
     @ExceptionHandler(StripeApiException.class)
     public ResponseEntity<ErrorResponse> handleStripeApiError(
             StripeApiException ex,
             HttpServletRequest request) {
 
+        if (ex.getRetryAfterSeconds() != null) {
+            ErrorResponse error = new ErrorResponse(
+                    "El proveedor de pagos no está disponible temporalmente: " + ex.getMessage(),
+                    HttpStatus.SERVICE_UNAVAILABLE.value(),
+                    request.getRequestURI()
+            );
+
+            logger.warn("Stripe call rejected on {}: {}", request.getRequestURI(), ex.getMessage());
+
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                    .body(error);
+        }
+
         ErrorResponse error = new ErrorResponse(
                 "Error al comunicarse con el proveedor de pagos: " + ex.getMessage(),
                 HttpStatus.BAD_GATEWAY.value(),
                 request.getRequestURI()
         );
 
-        logger.error("Stripe API error on {}: {}", request.getRequestURI(), ex.getMessage(), ex);
+        // El cliente de Stripe ya logueó la causa donde ocurrió; acá basta el resumen
+        logger.error("Stripe API error on {}: {}", request.getRequestURI(), ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(error);
     }
 
+    /**
+     * Maneja OrderBufferFullException.
+     * Retorna HTTP 503 Service Unavailable con el header Retry-After.
+     */
+    @ExceptionHandler(OrderBufferFullException.class)
+    public ResponseEntity<ErrorResponse> handleOrderBufferFull(
+            OrderBufferFullException ex,
+            HttpServletRequest request) {
+
+        ErrorResponse error = new ErrorResponse(
+                ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                request.getRequestURI()
+        );
+
+        logger.warn("Order write-behind buffer full on {}", request.getRequestURI());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
     /**
      * Maneja IllegalArgumentException (errores de validación de argumentos).
      * Retorna HTTP 400 Bad Request.
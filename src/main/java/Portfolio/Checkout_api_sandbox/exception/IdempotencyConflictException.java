@@ -4,15 +4,38 @@ package Portfolio.Checkout_api_sandbox.exception;
  * Excepción lanzada cuando se detecta un conflicto de idempotencia.
  * Ocurre cuando se intenta procesar una solicitud con una clave de idempotencia ya usada.
  * Retorna HTTP 409 Conflict.
+ *
+ * Los reintentos de clientes la provocan de forma habitual: no captura stack trace
+ * y el mensaje se arma a partir de la clave solo cuando se pide.
  */
 public class IdempotencyConflictException extends RuntimeException {
 
+    private static final String MESSAGE_PREFIX = "Ya existe una solicitud procesada con la clave de idempotencia: ";
+
+    private final String idempotencyKey;
+
+    private String message;
+
     public IdempotencyConflictException(String idempotencyKey) {
-        super("Ya existe una solicitud procesada con la clave de idempotencia: " + idempotencyKey);
+        super(null, null, false, false);
+        this.idempotencyKey = idempotencyKey;
     }
 
     public IdempotencyConflictException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
+        this.idempotencyKey = null;
+        this.message = message;
     }
-}
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = MESSAGE_PREFIX + idempotencyKey;
+        }
+        return message;
+    }
+}
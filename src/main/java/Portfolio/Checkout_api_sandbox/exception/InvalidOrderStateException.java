@@ -4,11 +4,13 @@ package Portfolio.Checkout_api_sandbox.exception;
  * Excepción lanzada cuando una orden no puede ser procesada por estar en un estado inválido.
  * Por ejemplo, intentar hacer checkout de una orden ya pagada o cancelada.
  * Retorna HTTP 400 Bad Request.
+ *
+ * Es un resultado esperado del negocio: no captura stack trace. Los mensajes son constantes
+ * (CheckoutRules), así que construirla no aloca más que la propia excepción.
  */
 public class InvalidOrderStateException extends RuntimeException {
 
     public InvalidOrderStateException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
-
@@ -0,0 +1,20 @@
+package Portfolio.Checkout_api_sandbox.exception;
+
+/**
+ * Excepción lanzada cuando el buffer de escritura diferida de órdenes está lleno
+ * y tampoco hay espacio para derramar a disco.
+ * Retorna HTTP 503 Service Unavailable con Retry-After.
+ */
+public class OrderBufferFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OrderBufferFullException(long retryAfterSeconds) {
+        super("El sistema está recibiendo demasiadas órdenes, reintente en " + retryAfterSeconds + " segundos");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,22 @@
+package Portfolio.Checkout_api_sandbox.exception;
+
+/**
+ * Excepción lanzada cuando la orden sigue ocupada por otra operación (o un pedido idéntico)
+ * después del tiempo de espera de OrderLockManager.
+ * Retorna HTTP 409 Conflict con Retry-After: el pedido es válido y puede reintentarse.
+ *
+ * Como InvalidOrderStateException, es un resultado esperado bajo contención: no captura stack trace.
+ */
+public class OrderBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OrderBusyException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -5,15 +5,38 @@ import java.util.UUID;
 /**
  * Excepción lanzada cuando no se encuentra una orden por su ID.
  * Retorna HTTP 404 Not Found.
+ *
+ * Es un resultado esperado (polls de órdenes inexistentes), no un error del servidor:
+ * no captura stack trace y el mensaje se arma a partir del ID solo cuando se pide.
  */
 public class OrderNotFoundException extends RuntimeException {
 
+    private static final String MESSAGE_PREFIX = "Orden no encontrada con ID: ";
+
+    private final UUID orderId;
+
+    private String message;
+
     public OrderNotFoundException(UUID orderId) {
-        super("Orden no encontrada con ID: " + orderId);
+        super(null, null, false, false);
+        this.orderId = orderId;
     }
 
     public OrderNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+        this.orderId = null;
+        this.message = message;
     }
-}
 
+    public UUID getOrderId() {
+        return orderId;
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = MESSAGE_PREFIX + orderId;
+        }
+        return message;
+    }
+}
@@ -4,15 +4,39 @@ package Portfolio.Checkout_api_sandbox.exception;
  * Excepción lanzada cuando ocurre un error al comunicarse con la API de Stripe.
  * Encapsula errores de red, errores de la API de Stripe, etc.
  * Retorna HTTP 500 Internal Server Error o HTTP 502 Bad Gateway.
+ * Si la llamada se rechazó localmente para proteger al proveedor (circuito abierto,
+ * límite de concurrencia) o Stripe respondió 429 (la causa es el RateLimitException),
+ * lleva retryAfterSeconds y retorna HTTP 503 con Retry-After.
  */
 public class StripeApiException extends RuntimeException {
 
+    private final Long retryAfterSeconds;
+
     public StripeApiException(String message) {
         super(message);
+        this.retryAfterSeconds = null;
     }
 
     public StripeApiException(String message, Throwable cause) {
         super(message, cause);
+        this.retryAfterSeconds = null;
+    }
+
+    public StripeApiException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public StripeApiException(String message, Throwable cause, long retryAfterSeconds) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Segundos sugeridos antes de reintentar, o null si no es un rechazo local.
+     */
+    public Long getRetryAfterSeconds() {
+        return retryAfterSeconds;
     }
 }
 
@@ -0,0 +1,50 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import Portfolio.Checkout_api_sandbox.web.AdmissionControlFilter;
+import Portfolio.Checkout_api_sandbox.web.PriorityAdmissionScheduler;
+import Portfolio.Checkout_api_sandbox.web.TrafficClass;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Saturación del control de admisión ("admission"), parte del grupo readiness.
+ * Con toda la capacidad en uso y requests esperando en cola el pod responde OUT_OF_SERVICE
+ * y el balanceador deja de enviarle tráfico nuevo hasta que se descargue. Solo lee contadores
+ * en memoria, así que no necesita foto.
+ */
+@Component
+public class AdmissionHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private AdmissionControlFilter admissionControlFilter;
+
+    // Requests en cola (con la capacidad llena) a partir de los cuales el pod deja de estar listo
+    @Value("${health.admission.saturation-waiting:1}")
+    private int saturationWaiting;
+
+    @Override
+    public Health health() {
+        PriorityAdmissionScheduler scheduler = admissionControlFilter.getScheduler();
+        if (scheduler == null) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+
+        int inUse = scheduler.getInUse();
+        int waiting = 0;
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            if (scheduler.handles(trafficClass)) {
+                waiting += scheduler.getWaiting(trafficClass);
+            }
+        }
+
+        boolean saturated = inUse >= scheduler.getCapacity() && waiting >= saturationWaiting;
+        Health.Builder builder = saturated ? Health.outOfService() : Health.up();
+        return builder.withDetail("inUse", inUse)
+                .withDetail("capacity", scheduler.getCapacity())
+                .withDetail("waiting", waiting)
+                .build();
+    }
+}
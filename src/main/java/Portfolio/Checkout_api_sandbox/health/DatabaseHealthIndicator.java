@@ -0,0 +1,22 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Estado de la base de datos ("database"), servido desde la foto de HealthSnapshotRefresher.
+ * Reemplaza al indicador "db" de Spring Boot, que ejecuta una consulta en cada probe.
+ */
+@Component
+public class DatabaseHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private HealthSnapshotRefresher snapshots;
+
+    @Override
+    public Health health() {
+        return snapshots.getDatabase();
+    }
+}
@@ -0,0 +1,179 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.CircuitBreaker;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calcula en segundo plano el estado de la base de datos y de Stripe, y lo deja en una foto
+ * que los health indicators devuelven sin hacer I/O.
+ *
+ * Así los probes de Kubernetes (cada pocos segundos en cada pod) no consumen conexiones del pool
+ * ni fallan por esperar una conexión cuando el pod está ocupado. Si el pool está agotado no se
+ * pide conexión: se conserva el último resultado, porque el pool en uso ya indica que la base responde.
+ * Corre en su propio hilo para no quedar detrás de las tareas @Scheduled (barrido, conciliación).
+ *
+ * Si la foto no se actualiza en varios intervalos (el hilo quedó colgado en una validación o cada
+ * refresco falla) no se sigue sirviendo el último resultado: la base pasa a DOWN, para que el pod
+ * salga de readiness, y Stripe a UNKNOWN.
+ */
+@Component
+public class HealthSnapshotRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthSnapshotRefresher.class);
+
+    /**
+     * Stripe con el circuito abierto: el checkout responde 503, pero el resto de la API funciona.
+     */
+    public static final Status DEGRADED = new Status("DEGRADED");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StripePaymentClient stripePaymentClient;
+
+    @Value("${health.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    @Value("${health.db.validation-timeout-seconds:2}")
+    private int validationTimeoutSeconds;
+
+    @Value("${health.stale-after-intervals:3}")
+    private int staleAfterIntervals;
+
+    private ScheduledExecutorService refresher;
+
+    private volatile Health database = Health.unknown().withDetail("reason", "Sin verificar todavía").build();
+    private volatile long databaseCheckedAt;
+    private volatile boolean databaseReachable;
+    private volatile Health stripe = Health.unknown().withDetail("reason", "Sin verificar todavía").build();
+    private volatile long stripeCheckedAt;
+
+    @PostConstruct
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Recalcula las dos fotos. Un error en una no impide actualizar la otra.
+     */
+    void refresh() {
+        try {
+            database = checkDatabase();
+            databaseCheckedAt = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            logger.error("Database health refresh failed: {}", e.getMessage(), e);
+        }
+        try {
+            stripe = checkStripe();
+            stripeCheckedAt = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            logger.error("Stripe health refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public Health getDatabase() {
+        return isStale(databaseCheckedAt) ? stale(Health.down(), databaseCheckedAt) : database;
+    }
+
+    public Health getStripe() {
+        return isStale(stripeCheckedAt) ? stale(Health.unknown(), stripeCheckedAt) : stripe;
+    }
+
+    /**
+     * Una foto que nunca se calculó no está vencida: sigue en UNKNOWN hasta el primer refresco.
+     */
+    private boolean isStale(long checkedAt) {
+        return checkedAt > 0 && System.currentTimeMillis() - checkedAt > refreshIntervalMs * staleAfterIntervals;
+    }
+
+    private static Health stale(Health.Builder builder, long checkedAt) {
+        return builder.withDetail("reason", "Foto vencida: sin actualizar hace "
+                        + (System.currentTimeMillis() - checkedAt) + " ms")
+                .withDetail("checkedAt", checkedAt)
+                .build();
+    }
+
+    private Health checkDatabase() {
+        long checkedAt = System.currentTimeMillis();
+        HikariPoolMXBean pool = hikariPool();
+        Health.Builder builder;
+
+        if (pool != null && pool.getIdleConnections() == 0 && pool.getThreadsAwaitingConnection() > 0) {
+            // Pool agotado: no competir con el tráfico por una conexión
+            builder = databaseReachable ? Health.up() : Health.down();
+            builder.withDetail("validation", "omitida: pool agotado");
+        } else {
+            builder = validate();
+        }
+
+        if (pool != null) {
+            builder.withDetail("active", pool.getActiveConnections())
+                    .withDetail("idle", pool.getIdleConnections())
+                    .withDetail("total", pool.getTotalConnections())
+                    .withDetail("awaiting", pool.getThreadsAwaitingConnection());
+        }
+        return builder.withDetail("checkedAt", checkedAt).build();
+    }
+
+    private Health.Builder validate() {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            databaseReachable = connection.isValid(validationTimeoutSeconds);
+            Health.Builder builder = databaseReachable ? Health.up() : Health.down();
+            return builder.withDetail("validationMs", (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            databaseReachable = false;
+            logger.warn("Database health check failed: {}", e.getMessage());
+            return Health.down().withDetail("error", e.getMessage());
+        }
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private Health checkStripe() {
+        CircuitBreaker.State state = stripePaymentClient.getCircuitState();
+        Health.Builder builder = state == CircuitBreaker.State.OPEN ? Health.status(DEGRADED) : Health.up();
+        return builder.withDetail("circuit", state.name())
+                .withDetail("asyncActive", stripePaymentClient.getAsyncActiveCount())
+                .withDetail("asyncQueued", stripePaymentClient.getAsyncQueueSize())
+                .withDetail("checkedAt", System.currentTimeMillis())
+                .build();
+    }
+}
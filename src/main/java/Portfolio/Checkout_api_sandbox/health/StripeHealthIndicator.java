@@ -0,0 +1,23 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Estado de Stripe ("stripe") según el circuit breaker del cliente, servido desde la foto
+ * de HealthSnapshotRefresher. Con el circuito abierto es DEGRADED (HTTP 200): no saca el pod
+ * de servicio, porque órdenes, consultas y webhooks siguen funcionando.
+ */
+@Component
+public class StripeHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private HealthSnapshotRefresher snapshots;
+
+    @Override
+    public Health health() {
+        return snapshots.getStripe();
+    }
+}
@@ -0,0 +1,53 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+/**
+ * Tipo de error de un create, según lo clasifica cada pasarela. Decide si el router prueba
+ * la siguiente pasarela y cómo cuenta el intento en la salud de la pasarela.
+ */
+public enum GatewayFailure {
+
+    /**
+     * La request no salió (circuito abierto, límite local): no se creó nada, se prueba la siguiente.
+     * Cuenta como error pero sin muestra de latencia, que no se midió.
+     */
+    NOT_SENT(true, true),
+
+    /**
+     * La pasarela no está disponible (error de conexión, 5xx): se prueba la siguiente.
+     */
+    UNAVAILABLE(true, true),
+
+    /**
+     * La pasarela limita las solicitudes (429): se propaga con su Retry-After.
+     */
+    THROTTLED(false, true),
+
+    /**
+     * Se venció el tiempo de espera: el pago pudo haberse creado, se propaga para no duplicarlo en otra pasarela.
+     */
+    TIMED_OUT(false, true),
+
+    /**
+     * La pasarela rechazó la request (4xx, datos inválidos): se propaga y la pasarela sigue sana.
+     */
+    REJECTED(false, false);
+
+    private final boolean failover;
+    private final boolean gatewayError;
+
+    GatewayFailure(boolean failover, boolean gatewayError) {
+        this.failover = failover;
+        this.gatewayError = gatewayError;
+    }
+
+    public boolean isFailover() {
+        return failover;
+    }
+
+    /**
+     * Indica si el intento cuenta como error en la salud de la pasarela.
+     */
+    public boolean isGatewayError() {
+        return gatewayError;
+    }
+}
@@ -0,0 +1,55 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pasarela de pago que puede usar el checkout (SPI del PaymentRouter).
+ *
+ * Cada implementación es un bean de Spring; el router las descubre todas y elige una por
+ * pedido según la preferencia del cliente y la salud reciente de cada pasarela.
+ * Los errores de la pasarela se propagan como RuntimeException y la propia pasarela los clasifica
+ * (classify): el router solo prueba la siguiente cuando el pago seguro no se creó.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Nombre con el que el cliente la pide en CheckoutRequest.provider (en mayúsculas).
+     */
+    String getName();
+
+    /**
+     * Proveedor que se guarda en el registro de pago.
+     */
+    PaymentProvider getProvider();
+
+    /**
+     * Crea el pago en la pasarela.
+     *
+     * @param tenantId Tenant dueño de la orden
+     * @param amountMinor Monto en unidades menores (centavos)
+     * @param currency Código de moneda ISO 4217
+     * @param orderId ID de la orden asociada
+     * @param idempotencyKey Clave de idempotencia del checkout: un reintento no crea un segundo pago
+     * @return Pago creado con el client_secret para el frontend
+     */
+    PaymentResult create(String tenantId, Long amountMinor, String currency, UUID orderId, String idempotencyKey);
+
+    /**
+     * Variante asíncrona de create: no bloquea el hilo que llama.
+     */
+    CompletableFuture<PaymentResult> createAsync(String tenantId, Long amountMinor, String currency, UUID orderId,
+                                                 String idempotencyKey);
+
+    /**
+     * Cancela un pago creado que no se va a usar.
+     */
+    CompletableFuture<Void> cancelAsync(String tenantId, String externalPaymentId);
+
+    /**
+     * Clasifica un error de create o createAsync (ya sin el CompletionException que lo envuelve).
+     */
+    GatewayFailure classify(Throwable error);
+}
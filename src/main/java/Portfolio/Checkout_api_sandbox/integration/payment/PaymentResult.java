@@ -0,0 +1,16 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+
+/**
+ * Pago creado en una pasarela.
+ *
+ * @param gateway Nombre de la pasarela que lo creó (para cancelarlo en la misma)
+ * @param provider Proveedor que se guarda en el registro de pago
+ * @param externalPaymentId ID del pago en la pasarela
+ * @param clientSecret Secreto para completar el pago en el frontend
+ * @param status Estado informado por la pasarela
+ */
+public record PaymentResult(String gateway, PaymentProvider provider, String externalPaymentId,
+                            String clientSecret, String status) {
+}
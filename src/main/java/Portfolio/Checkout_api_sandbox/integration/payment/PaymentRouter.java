@@ -0,0 +1,236 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Elige la pasarela de pago de cada checkout y hace failover si falla.
+ *
+ * Orden de prueba: primero las pasarelas sanas (tasa de errores y latencia p95 de las últimas
+ * llamadas dentro de los umbrales), dentro de ellas la que pidió el cliente y luego la de menor p95;
+ * las degradadas quedan al final como último recurso. Con provider=AUTO no hay preferencia.
+ * Solo se prueba la siguiente cuando el pago seguro no se creó (conexión, 5xx, circuito abierto);
+ * los rechazos (4xx), los 429 y los timeouts (el pago pudo haberse creado) se propagan directamente.
+ * Si todas fallan se propaga el error de la última.
+ */
+@Component
+public class PaymentRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentRouter.class);
+
+    public static final String AUTO = "AUTO";
+
+    @Autowired
+    private List<PaymentGateway> gateways;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${payments.routing.failover:true}")
+    private boolean failover;
+
+    @Value("${payments.routing.window-size:100}")
+    private int windowSize;
+
+    @Value("${payments.routing.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${payments.routing.max-error-rate:0.5}")
+    private double maxErrorRate;
+
+    @Value("${payments.routing.max-p95-ms:5000}")
+    private long maxP95Millis;
+
+    private final Map<String, RoutedGateway> routes = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        for (PaymentGateway gateway : gateways) {
+            String name = gateway.getName().toUpperCase(Locale.ROOT);
+            ProviderHealth health = new ProviderHealth(windowSize, minimumCalls);
+            if (routes.putIfAbsent(name, new RoutedGateway(name, gateway, health)) != null) {
+                throw new IllegalStateException("Duplicate payment gateway: " + name);
+            }
+            registerMetrics(name, health);
+        }
+        logger.info("Payment gateways: {} - Failover: {}", routes.keySet(), failover);
+    }
+
+    /**
+     * Crea el pago en la mejor pasarela disponible, probando las siguientes si falla.
+     *
+     * @param providerHint Pasarela pedida por el cliente, o AUTO
+     * @param idempotencyKey Clave de idempotencia del checkout, que cada pasarela envía con el create
+     * @throws IllegalArgumentException si la pasarela pedida no existe
+     */
+    public PaymentResult create(String providerHint, String tenantId, Long amountMinor, String currency,
+                                UUID orderId, String idempotencyKey) {
+        RuntimeException lastError = null;
+        for (RoutedGateway route : candidates(providerHint)) {
+            long start = System.nanoTime();
+            try {
+                PaymentResult result = route.gateway().create(tenantId, amountMinor, currency, orderId,
+                        idempotencyKey);
+                route.health().record(elapsedMillis(start), true);
+                return result;
+            } catch (RuntimeException e) {
+                if (!failedOver(route, e, start, orderId)) {
+                    throw e;
+                }
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Variante asíncrona de create: el failover a la siguiente pasarela también es asíncrono.
+     */
+    public CompletableFuture<PaymentResult> createAsync(String providerHint, String tenantId, Long amountMinor,
+                                                        String currency, UUID orderId, String idempotencyKey) {
+        return attemptAsync(candidates(providerHint).iterator(), tenantId, amountMinor, currency, orderId,
+                idempotencyKey, null);
+    }
+
+    private CompletableFuture<PaymentResult> attemptAsync(Iterator<RoutedGateway> remaining, String tenantId,
+                                                          Long amountMinor, String currency, UUID orderId,
+                                                          String idempotencyKey, Throwable lastError) {
+        if (!remaining.hasNext()) {
+            return CompletableFuture.failedFuture(lastError);
+        }
+        RoutedGateway route = remaining.next();
+        long start = System.nanoTime();
+
+        CompletableFuture<PaymentResult> attempt;
+        try {
+            attempt = route.gateway().createAsync(tenantId, amountMinor, currency, orderId, idempotencyKey);
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+
+        return attempt.handle((result, error) -> {
+            if (error == null) {
+                route.health().record(elapsedMillis(start), true);
+                return CompletableFuture.completedFuture(result);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (!failedOver(route, cause, start, orderId)) {
+                return CompletableFuture.<PaymentResult>failedFuture(cause);
+            }
+            return attemptAsync(remaining, tenantId, amountMinor, currency, orderId, idempotencyKey, cause);
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * Registra el error en la salud de la pasarela.
+     *
+     * @return true si hay que probar la siguiente pasarela
+     */
+    private boolean failedOver(RoutedGateway route, Throwable error, long start, UUID orderId) {
+        GatewayFailure failure = route.gateway().classify(error);
+        if (failure == GatewayFailure.NOT_SENT) {
+            route.health().recordNotSent();
+        } else {
+            route.health().record(elapsedMillis(start), !failure.isGatewayError());
+        }
+        logger.warn("Payment gateway {} failed for order {} ({}): {}",
+                    route.name(), orderId, failure, error.getMessage());
+        return failure.isFailover();
+    }
+
+    /**
+     * Cancela un pago en la pasarela que lo creó.
+     */
+    public CompletableFuture<Void> cancelAsync(String gateway, String tenantId, String externalPaymentId) {
+        RoutedGateway route = routes.get(gateway.toUpperCase(Locale.ROOT));
+        if (route == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Proveedor de pago no soportado: " + gateway));
+        }
+        return route.gateway().cancelAsync(tenantId, externalPaymentId);
+    }
+
+    /**
+     * Verifica que la pasarela pedida exista (o sea AUTO).
+     *
+     * @throws IllegalArgumentException si la pasarela pedida no existe
+     */
+    public void checkProvider(String providerHint) {
+        if (providerHint != null && !AUTO.equalsIgnoreCase(providerHint)
+                && !routes.containsKey(providerHint.toUpperCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Proveedor de pago no soportado: " + providerHint);
+        }
+    }
+
+    /**
+     * Pasarelas a probar, en orden.
+     */
+    List<RoutedGateway> candidates(String providerHint) {
+        checkProvider(providerHint);
+        String preferred = providerHint == null ? AUTO : providerHint.toUpperCase(Locale.ROOT);
+
+        // El estado de salud se evalúa una vez por pedido para que el orden sea consistente
+        Map<RoutedGateway, Boolean> healthy = new LinkedHashMap<>();
+        Map<RoutedGateway, Long> p95 = new LinkedHashMap<>();
+        for (RoutedGateway route : routes.values()) {
+            healthy.put(route, route.health().isHealthy(maxErrorRate, maxP95Millis));
+            p95.put(route, route.health().getLatencyPercentile(0.95));
+        }
+
+        List<RoutedGateway> ordered = new ArrayList<>(routes.values());
+        ordered.sort(Comparator.<RoutedGateway, Boolean>comparing(route -> !healthy.get(route))
+                .thenComparing(route -> !route.name().equals(preferred))
+                .thenComparing(p95::get));
+
+        if (!failover) {
+            return ordered.subList(0, 1);
+        }
+        return ordered;
+    }
+
+    public ProviderHealth getHealth(String gateway) {
+        RoutedGateway route = routes.get(gateway.toUpperCase(Locale.ROOT));
+        return route != null ? route.health() : null;
+    }
+
+    private void registerMetrics(String name, ProviderHealth health) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("payments.gateway.latency.p95", health, h -> h.getLatencyPercentile(0.95))
+                .description("Latencia p95 de las últimas llamadas a la pasarela (ms)")
+                .tag("gateway", name)
+                .register(meterRegistry);
+        Gauge.builder("payments.gateway.error.rate", health, ProviderHealth::getErrorRate)
+                .description("Tasa de errores de las últimas llamadas a la pasarela")
+                .tag("gateway", name)
+                .register(meterRegistry);
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    record RoutedGateway(String name, PaymentGateway gateway, ProviderHealth health) {
+    }
+}
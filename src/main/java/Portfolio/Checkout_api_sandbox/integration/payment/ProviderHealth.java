@@ -0,0 +1,110 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import java.util.Arrays;
+
+/**
+ * Salud reciente de una pasarela: latencia y errores de las últimas N llamadas.
+ *
+ * Los percentiles se calculan sobre una copia ordenada de la ventana (N es chico, del orden de 100).
+ * Con menos llamadas que el mínimo la pasarela se considera sana: no hay datos para descartarla.
+ * Los intentos que no llegaron a salir cuentan como error pero no aportan latencia.
+ */
+public class ProviderHealth {
+
+    private static final long NO_SAMPLE = -1;
+
+    private final long[] latencies;
+    private final boolean[] failures;
+    private final int minimumCalls;
+
+    private int position;
+    private int calls;
+    private int failureCount;
+
+    /**
+     * @param windowSize Número de llamadas recientes que se tienen en cuenta
+     * @param minimumCalls Llamadas mínimas en la ventana antes de poder marcarla como degradada
+     */
+    public ProviderHealth(int windowSize, int minimumCalls) {
+        this.latencies = new long[windowSize];
+        this.failures = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+    }
+
+    /**
+     * Registra el resultado de una llamada.
+     *
+     * @param latencyMillis Duración de la llamada
+     * @param success false si la llamada falló
+     */
+    public synchronized void record(long latencyMillis, boolean success) {
+        add(latencyMillis, success);
+    }
+
+    /**
+     * Registra un intento fallido que no llegó a la pasarela (p. ej. circuito abierto), sin muestra de latencia.
+     */
+    public synchronized void recordNotSent() {
+        add(NO_SAMPLE, false);
+    }
+
+    private void add(long latencyMillis, boolean success) {
+        if (calls == latencies.length) {
+            if (failures[position]) {
+                failureCount--;
+            }
+        } else {
+            calls++;
+        }
+        latencies[position] = latencyMillis;
+        failures[position] = !success;
+        if (!success) {
+            failureCount++;
+        }
+        position = (position + 1) % latencies.length;
+    }
+
+    /**
+     * Tasa de errores (0..1) de la ventana.
+     */
+    public synchronized double getErrorRate() {
+        return calls == 0 ? 0.0 : (double) failureCount / calls;
+    }
+
+    /**
+     * Percentil de latencia de la ventana en milisegundos (0 si no hay llamadas con latencia).
+     *
+     * @param percentile Percentil entre 0 y 1 (p. ej. 0.95)
+     */
+    public long getLatencyPercentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.stream(latencies, 0, calls).filter(latency -> latency != NO_SAMPLE).toArray();
+        }
+        if (sorted.length == 0) {
+            return 0;
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * Indica si la pasarela está dentro de los umbrales de errores y de latencia p95.
+     */
+    public boolean isHealthy(double maxErrorRate, long maxP95Millis) {
+        synchronized (this) {
+            if (calls < minimumCalls) {
+                return true;
+            }
+            if ((double) failureCount / calls > maxErrorRate) {
+                return false;
+            }
+        }
+        return getLatencyPercentile(0.95) <= maxP95Millis;
+    }
+
+    public synchronized int getCalls() {
+        return calls;
+    }
+}
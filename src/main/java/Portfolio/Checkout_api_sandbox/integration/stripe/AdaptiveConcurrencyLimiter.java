@@ -0,0 +1,81 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+/**
+ * Límite de concurrencia adaptativo (AIMD) guiado por la latencia observada.
+ *
+ * Cada llamada rápida con el límite bien aprovechado lo sube en 1 (aumento aditivo);
+ * cada llamada lenta (latencia por encima del umbral) o fallida lo multiplica por el
+ * factor de retroceso (disminución multiplicativa). Las llamadas que exceden el límite
+ * se rechazan de inmediato en lugar de esperar.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    /**
+     * @param initialLimit Límite inicial de llamadas en vuelo
+     * @param minLimit Límite mínimo (nunca baja de aquí)
+     * @param maxLimit Límite máximo
+     * @param latencyThresholdMillis Latencia a partir de la cual una llamada cuenta como lenta
+     * @param backoffRatio Factor (0..1) aplicado al límite ante una llamada lenta o fallida
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * @return true si la llamada puede hacerse; en ese caso hay que llamar a onSuccess, onFailure o release
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight * 2 >= (int) limit) {
+            // Solo sube si el límite actual se está usando; si no, no hay evidencia de que haga falta más
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        inFlight--;
+    }
+
+    public synchronized void onFailure() {
+        decrease();
+        inFlight--;
+    }
+
+    /**
+     * Libera el permiso sin ajustar el límite (la llamada no llegó a hacerse).
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+}
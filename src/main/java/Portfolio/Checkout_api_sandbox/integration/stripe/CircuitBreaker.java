@@ -0,0 +1,162 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+/**
+ * Circuit breaker por tasa de fallos sobre una ventana de las últimas N llamadas.
+ *
+ * CLOSED: deja pasar todo y abre si la tasa de fallos supera el umbral (con un mínimo de llamadas).
+ * OPEN: rechaza todo hasta que vence el tiempo de apertura.
+ * HALF_OPEN: deja pasar unas pocas llamadas de prueba; si todas salen bien cierra, si una falla vuelve a abrir.
+ *
+ * Cada permiso lleva la generación (cambio de estado) en que se concedió; los resultados de
+ * llamadas concedidas antes del último cambio de estado se ignoran.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    /**
+     * @param windowSize Número de llamadas recientes que se tienen en cuenta
+     * @param minimumCalls Llamadas mínimas en la ventana antes de poder abrir
+     * @param failureRateThreshold Tasa de fallos (0..1) a partir de la cual abre
+     * @param openDurationMillis Tiempo que permanece abierto antes de probar
+     * @param halfOpenProbes Llamadas de prueba en HALF_OPEN
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openDurationMillis, int halfOpenProbes) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDurationMillis * 1_000_000L;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Intenta obtener permiso para una llamada. Si concede el permiso, el llamador debe
+     * informar el resultado con onSuccess u onFailure (o release si no llegó a llamar).
+     *
+     * @return Permiso (≥ 0) o -1 si el circuito rechaza la llamada
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return -1;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probesSucceeded >= halfOpenProbes) {
+                return -1;
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    public synchronized void onSuccess(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            probesSucceeded++;
+            if (probesSucceeded >= halfOpenProbes) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure(long permit) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCalls >= minimumCalls
+                && (double) windowFailures / windowCalls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Devuelve un permiso sin resultado (la llamada no llegó a hacerse).
+     */
+    public synchronized void release(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * Indica si las llamadas se rechazarían ahora mismo, sin consumir un permiso de prueba.
+     */
+    public synchronized boolean isRejecting() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openDurationNanos;
+    }
+
+    /**
+     * Segundos hasta que el circuito deje pasar llamadas de prueba (mínimo 1).
+     */
+    public synchronized long getRetryAfterSeconds() {
+        if (state != State.OPEN) {
+            return 1;
+        }
+        long remainingNanos = openDurationNanos - (System.nanoTime() - openedAt);
+        return Math.max(1, (remainingNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCalls == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        generation++;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+}
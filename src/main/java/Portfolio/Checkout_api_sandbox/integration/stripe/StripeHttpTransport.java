@@ -0,0 +1,156 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Transporte HTTP para stripe-java basado en java.net.http.HttpClient.
+ *
+ * Un único cliente compartido mantiene las conexiones abiertas (keep-alive) y, si el servidor
+ * lo soporta, multiplexa las requests sobre HTTP/2, evitando un handshake TLS por request.
+ * El timeout de conexión es del cliente; el de lectura se aplica por request
+ * (viene de RequestOptions, así cada operación puede tener el suyo).
+ * Las respuestas 429 se notifican al listener de rate limit con la clave de la request (identifica la
+ * cuenta de Stripe que limitó) y el Retry-After recibido.
+ */
+public class StripeHttpTransport extends HttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeHttpTransport.class);
+
+    // Headers que java.net.http gestiona por su cuenta y no permite fijar
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "host", "expect", "upgrade");
+
+    private static final String USER_AGENT = buildUserAgentString();
+    private static final String CLIENT_USER_AGENT = buildXStripeClientUserAgentString();
+
+    private final java.net.http.HttpClient client;
+
+    private volatile ObjLongConsumer<String> rateLimitListener = (apiKey, retryAfterMillis) -> { };
+
+    public StripeHttpTransport(Duration connectTimeout) {
+        this.client = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        try {
+            HttpResponse<String> response = client.send(toHttpRequest(request),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+            if (response.statusCode() == 429) {
+                rateLimitListener.accept(request.options().getApiKey(), retryAfterMillis(response));
+            }
+
+            return new StripeResponse(response.statusCode(),
+                    HttpHeaders.of(response.headers().map()), response.body());
+        } catch (IOException e) {
+            throw new ApiConnectionException(String.format(
+                    "IOException during API request to Stripe (%s): %s", request.url(), e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Request to Stripe interrupted: " + request.url(), e);
+        }
+    }
+
+    /**
+     * Registra quién debe enterarse de las respuestas 429.
+     *
+     * @param listener Recibe la clave de API de la request y el Retry-After en milisegundos,
+     *                 o -1 si Stripe no lo envió
+     */
+    public void setRateLimitListener(ObjLongConsumer<String> listener) {
+        this.rateLimitListener = listener;
+    }
+
+    /**
+     * Abre la conexión con la API (TLS + HTTP/2) antes de que llegue el primer checkout.
+     * La respuesta no importa: basta con que la conexión quede en el pool.
+     *
+     * @param apiBase URL base de la API (ej: https://api.stripe.com)
+     */
+    public CompletableFuture<Void> prewarm(String apiBase) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(apiBase + "/v1"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .header("User-Agent", USER_AGENT)
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> logger.info("Stripe connection prewarmed - {} ({}) in {} ms",
+                        apiBase, response.version(), (System.nanoTime() - start) / 1_000_000))
+                .exceptionally(e -> {
+                    logger.warn("Stripe connection prewarm failed - {}: {}", apiBase, e.getMessage());
+                    return null;
+                });
+    }
+
+    private long retryAfterMillis(HttpResponse<?> response) {
+        try {
+            return response.headers().firstValue("Retry-After")
+                    .map(value -> Long.parseLong(value.trim()) * 1000)
+                    .orElse(-1L);
+        } catch (NumberFormatException e) {
+            // Retry-After también puede venir como fecha HTTP; en ese caso se usa la pausa por defecto
+            return -1;
+        }
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL: " + request.url(), e);
+        }
+
+        Integer readTimeout = request.options().getReadTimeout();
+        if (readTimeout != null && readTimeout > 0) {
+            builder.timeout(Duration.ofMillis(readTimeout));
+        }
+
+        for (Map.Entry<String, List<String>> header : request.headers().map().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        builder.setHeader("User-Agent", USER_AGENT);
+        builder.setHeader("X-Stripe-Client-User-Agent", CLIENT_USER_AGENT);
+
+        HttpContent content = request.content();
+        if (content == null) {
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.setHeader("Content-Type", content.contentType());
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()));
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,30 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Clave de idempotencia que se envía a Stripe al crear el Payment Intent de un checkout.
+ *
+ * Es el SHA-256 en hex (64 caracteres) de orderId:clave. La clave del cliente puede tener hasta
+ * 255 caracteres y Stripe rechaza con 400 las claves más largas, así que orderId:clave no se envía tal cual.
+ * La misma orden y clave dan siempre el mismo valor: un reintento recibe el mismo Payment Intent.
+ */
+public final class StripeIdempotencyKeys {
+
+    private StripeIdempotencyKeys() {
+    }
+
+    public static String forCheckout(UUID orderId, String idempotencyKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(
+                    digest.digest((orderId + ":" + idempotencyKey).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -1,37 +1,225 @@
 package Portfolio.Checkout_api_sandbox.integration.stripe;
 
+import Portfolio.Checkout_api_sandbox.cache.TtlCache;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
 import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentListParams;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Cliente para interactuar con la API de Stripe.
  * Maneja la creación de Payment Intents y gestión de pagos.
+ * Usa el StripeClient compartido (ver StripeConfig) con un timeout de lectura por operación.
+ * Cada llamada usa la clave del tenant dueño de la orden (ver StripeTenantRegistry).
+ *
+ * Las variantes *Async ejecutan la llamada en un pool acotado propio y devuelven un
+ * CompletableFuture con deadline, para no bloquear los hilos de Tomcat mientras Stripe responde.
+ * Con spring.threads.virtual.enabled (Java 21+) los hilos del pool son virtuales: el pool sigue
+ * acotando la concurrencia y la cola, pero una llamada esperando a Stripe no ocupa un hilo del SO.
+ *
+ * Todas las llamadas pasan por un circuit breaker y un límite de concurrencia adaptativo
+ * (stripe.guard.*): si Stripe se degrada, las llamadas se rechazan de inmediato con
+ * StripeApiException + Retry-After en lugar de acumular hilos esperando el timeout.
+ * Antes de eso, cada llamada espera su turno en StripeRateLimitScheduler (límite de tasa de la cuenta).
+ * Stripe limita y falla por cuenta: el circuito y el límite de concurrencia son de cada tenant,
+ * así los 429 o errores de una cuenta no cortan las llamadas de las demás.
+ *
+ * createPaymentIntent envía la clave de idempotencia del checkout (hash de orderId:clave, ver
+ * StripeIdempotencyKeys): un reintento, de
+ * stripe-java o del cliente, recibe el mismo Payment Intent. Si la variante asíncrona vence su deadline
+ * y el intent se crea después, se cancela; un reintento con la misma clave recibe 409 (ver lateCanceled).
+ *
+ * retrievePaymentIntent agrupa las consultas concurrentes del mismo pi_ en una sola request
+ * (single-flight) y guarda el resultado unos segundos, más tiempo si el estado es final.
  */
 @Component
 public class StripePaymentClient {
 
     private static final Logger logger = LoggerFactory.getLogger(StripePaymentClient.class);
 
+    // Estados que ya no cambian: se pueden cachear más tiempo
+    private static final Set<String> TERMINAL_STATUSES = Set.of("succeeded", "canceled");
+
+    private static final long LATE_CANCELED_TTL_MS = TimeUnit.HOURS.toMillis(24);
+
+    @Autowired
+    private StripeClient stripeClient;
+
+    @Autowired
+    private StripeRateLimitScheduler rateLimitScheduler;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${stripe.http.create-timeout-ms:15000}")
+    private int createTimeoutMs;
+
+    @Value("${stripe.http.retrieve-timeout-ms:5000}")
+    private int retrieveTimeoutMs;
+
+    @Value("${stripe.http.cancel-timeout-ms:5000}")
+    private int cancelTimeoutMs;
+
+    @Value("${stripe.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Value("${stripe.async.queue-capacity:5000}")
+    private int asyncQueueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${stripe.async.create-deadline-ms:20000}")
+    private long createDeadlineMs;
+
+    @Value("${stripe.async.deadline-ms:8000}")
+    private long deadlineMs;
+
+    @Value("${stripe.guard.enabled:true}")
+    private boolean guardEnabled;
+
+    @Value("${stripe.guard.circuit.window-size:50}")
+    private int circuitWindowSize;
+
+    @Value("${stripe.guard.circuit.minimum-calls:20}")
+    private int circuitMinimumCalls;
+
+    @Value("${stripe.guard.circuit.failure-rate-threshold:0.5}")
+    private double circuitFailureRateThreshold;
+
+    @Value("${stripe.guard.circuit.open-duration-ms:10000}")
+    private long circuitOpenDurationMs;
+
+    @Value("${stripe.guard.circuit.half-open-probes:3}")
+    private int circuitHalfOpenProbes;
+
+    @Value("${stripe.guard.limiter.initial-limit:20}")
+    private int limiterInitialLimit;
+
+    @Value("${stripe.guard.limiter.min-limit:2}")
+    private int limiterMinLimit;
+
+    @Value("${stripe.guard.limiter.max-limit:200}")
+    private int limiterMaxLimit;
+
+    @Value("${stripe.guard.limiter.latency-threshold-ms:3000}")
+    private long limiterLatencyThresholdMs;
+
+    @Value("${stripe.guard.limiter.backoff-ratio:0.9}")
+    private double limiterBackoffRatio;
+
+    @Value("${stripe.guard.limiter.retry-after-seconds:1}")
+    private long limiterRetryAfterSeconds;
+
+    @Value("${stripe.retrieve-cache.ttl-ms:2000}")
+    private long retrieveCacheTtlMs;
+
+    @Value("${stripe.retrieve-cache.terminal-ttl-ms:60000}")
+    private long retrieveCacheTerminalTtlMs;
+
+    // Payment Intents consultados recientemente y consultas en curso por ID
+    private final TtlCache<String, PaymentIntent> retrieveCache = new TtlCache<>(10_000);
+
+    // Intents creados después del deadline y cancelados (tenant/pi_): Stripe devolvería el mismo
+    // a un reintento con la misma clave, que ya no sirve. Stripe guarda las claves 24 horas.
+    private final TtlCache<String, Boolean> lateCanceled = new TtlCache<>(10_000);
+    private final ConcurrentHashMap<String, CompletableFuture<PaymentIntent>> retrievalsInFlight = new ConcurrentHashMap<>();
+
+    // Circuit breaker y límite de concurrencia por tenant, creados en su primera llamada
+    private final ConcurrentHashMap<String, Guard> guards = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(asyncMaxConcurrency, asyncMaxConcurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(asyncQueueCapacity), threadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        registerMetrics();
+    }
+
+    private ThreadFactory threadFactory() {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("stripe-call-").getVirtualThreadFactory();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "stripe-call-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Crea un Payment Intent en la cuenta de Stripe del tenant por defecto.
+     */
+    public PaymentIntent createPaymentIntent(Long amountMinor, String currency, UUID orderId, String idempotencyKey) {
+        return createPaymentIntent(StripeTenantRegistry.DEFAULT_TENANT, amountMinor, currency, orderId,
+                idempotencyKey);
+    }
+
     /**
      * Crea un Payment Intent en Stripe.
      *
+     * @param tenantId Tenant dueño de la orden (decide la cuenta de Stripe)
      * @param amountMinor Monto en unidades menores (centavos)
      * @param currency Código de moneda ISO 4217 (USD, EUR, MXN, etc.)
      * @param orderId ID de la orden asociada (se guarda en metadata)
+     * @param idempotencyKey Clave de idempotencia del checkout (se envía a Stripe como hash de orderId:clave)
      * @return PaymentIntent creado con el client_secret
      * @throws StripeApiException si hay error al comunicarse con Stripe
+     * @throws IdempotencyConflictException si el intent de la clave se canceló por crearse tras el deadline
      */
-    public PaymentIntent createPaymentIntent(Long amountMinor, String currency, UUID orderId) {
+    public PaymentIntent createPaymentIntent(String tenantId, Long amountMinor, String currency, UUID orderId,
+                                             String idempotencyKey) {
         try {
+            RequestOptions options = tenantRegistry.get(tenantId).requestOptions(createTimeoutMs)
+                    .toBuilderFullCopy()
+                    .setIdempotencyKey(StripeIdempotencyKeys.forCheckout(orderId, idempotencyKey))
+                    .build();
             logger.info("Creating Payment Intent for order {} - Amount: {} {}",
                         orderId, amountMinor, currency.toUpperCase());
 
@@ -53,13 +241,23 @@ public class StripePaymentClient {
                     .build();
 
             // Crear el Payment Intent en Stripe
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            PaymentIntent paymentIntent = guarded(tenantId, "create",
+                    () -> stripeClient.paymentIntents().create(params, options));
+
+            if (lateCanceled.get(retrieveKey(tenantId, paymentIntent.getId())) != null) {
+                logger.warn("Payment Intent {} for order {} was canceled after its deadline, rejecting key reuse",
+                            paymentIntent.getId(), orderId);
+                throw new IdempotencyConflictException("La solicitud anterior con esta clave de idempotencia " +
+                        "no terminó a tiempo y su pago se canceló; reintentar con otra clave", null);
+            }
 
             logger.info("Payment Intent created successfully - ID: {}, Status: {}",
                         paymentIntent.getId(), paymentIntent.getStatus());
 
             return paymentIntent;
 
+        } catch (StripeApiException | IdempotencyConflictException e) {
+            throw e;
         } catch (StripeException e) {
             logger.error("Stripe API error while creating Payment Intent for order {}: {}",
                          orderId, e.getMessage(), e);
@@ -71,23 +269,72 @@ public class StripePaymentClient {
         }
     }
 
+    /**
+     * Recupera un Payment Intent de la cuenta de Stripe del tenant por defecto.
+     */
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) {
+        return retrievePaymentIntent(StripeTenantRegistry.DEFAULT_TENANT, paymentIntentId);
+    }
+
     /**
      * Recupera un Payment Intent existente desde Stripe.
+     * Si hay una copia reciente en caché la devuelve; si otra consulta del mismo ID ya está
+     * en curso, espera su resultado en lugar de hacer otra request.
      *
+     * La caché y las consultas en curso se indexan por tenant e ID: una consulta con las credenciales
+     * de un tenant nunca recibe el Payment Intent que otro tenant leyó con las suyas.
+     *
+     * @param tenantId Tenant dueño del Payment Intent
      * @param paymentIntentId ID del Payment Intent en Stripe (pi_xxx)
      * @return PaymentIntent recuperado
      * @throws StripeApiException si hay error al comunicarse con Stripe
      */
-    public PaymentIntent retrievePaymentIntent(String paymentIntentId) {
+    public PaymentIntent retrievePaymentIntent(String tenantId, String paymentIntentId) {
+        String key = retrieveKey(tenantId, paymentIntentId);
+        PaymentIntent cached = retrieveCache.get(key);
+        if (cached != null) {
+            logger.debug("Payment Intent served from cache: {}", paymentIntentId);
+            return cached;
+        }
+
+        CompletableFuture<PaymentIntent> flight = new CompletableFuture<>();
+        CompletableFuture<PaymentIntent> existing = retrievalsInFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            logger.debug("Joining in-flight retrieval of Payment Intent: {}", paymentIntentId);
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+
+        try {
+            PaymentIntent paymentIntent = fetchPaymentIntent(tenantId, paymentIntentId);
+            cachePaymentIntent(tenantId, paymentIntent);
+            flight.complete(paymentIntent);
+            return paymentIntent;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            retrievalsInFlight.remove(key, flight);
+        }
+    }
+
+    private PaymentIntent fetchPaymentIntent(String tenantId, String paymentIntentId) {
         try {
+            RequestOptions options = tenantRegistry.get(tenantId).requestOptions(retrieveTimeoutMs);
             logger.debug("Retrieving Payment Intent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
+            PaymentIntent paymentIntent = guarded(tenantId, "retrieve", () -> stripeClient.paymentIntents()
+                    .retrieve(paymentIntentId, options));
 
             logger.debug("Payment Intent retrieved - Status: {}", paymentIntent.getStatus());
 
             return paymentIntent;
 
+        } catch (StripeApiException e) {
+            throw e;
         } catch (StripeException e) {
             logger.error("Stripe API error while retrieving Payment Intent {}: {}",
                          paymentIntentId, e.getMessage(), e);
@@ -99,24 +346,37 @@ public class StripePaymentClient {
         }
     }
 
+    /**
+     * Cancela un Payment Intent de la cuenta de Stripe del tenant por defecto.
+     */
+    public PaymentIntent cancelPaymentIntent(String paymentIntentId) {
+        return cancelPaymentIntent(StripeTenantRegistry.DEFAULT_TENANT, paymentIntentId);
+    }
+
     /**
      * Cancela un Payment Intent en Stripe.
      *
+     * @param tenantId Tenant dueño del Payment Intent
      * @param paymentIntentId ID del Payment Intent a cancelar
      * @return PaymentIntent cancelado
      * @throws StripeApiException si hay error al comunicarse con Stripe
      */
-    public PaymentIntent cancelPaymentIntent(String paymentIntentId) {
+    public PaymentIntent cancelPaymentIntent(String tenantId, String paymentIntentId) {
         try {
+            RequestOptions options = tenantRegistry.get(tenantId).requestOptions(cancelTimeoutMs);
             logger.info("Canceling Payment Intent: {}", paymentIntentId);
 
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-            PaymentIntent canceledIntent = paymentIntent.cancel();
+            // Cancelación directa por ID: una sola request, sin recuperar antes el Payment Intent
+            PaymentIntent canceledIntent = guarded(tenantId, "cancel", () -> stripeClient.paymentIntents()
+                    .cancel(paymentIntentId, options));
 
             logger.info("Payment Intent canceled successfully: {}", paymentIntentId);
+            cachePaymentIntent(tenantId, canceledIntent);
 
             return canceledIntent;
 
+        } catch (StripeApiException e) {
+            throw e;
         } catch (StripeException e) {
             logger.error("Stripe API error while canceling Payment Intent {}: {}",
                          paymentIntentId, e.getMessage(), e);
@@ -127,5 +387,345 @@ public class StripePaymentClient {
             throw new StripeApiException("Error inesperado al cancelar Payment Intent", e);
         }
     }
-}
 
+    /**
+     * Lista una página de Payment Intents de la cuenta del tenant por defecto.
+     */
+    public StripeCollection<PaymentIntent> listPaymentIntents(long createdFrom, long createdTo,
+                                                              String startingAfter, long limit) {
+        return listPaymentIntents(StripeTenantRegistry.DEFAULT_TENANT, createdFrom, createdTo, startingAfter, limit);
+    }
+
+    /**
+     * Lista una página de Payment Intents creados en una ventana de tiempo, del más reciente al más antiguo.
+     *
+     * @param tenantId Tenant cuya cuenta de Stripe se lista
+     * @param createdFrom Inicio de la ventana (epoch en segundos, inclusive)
+     * @param createdTo Fin de la ventana (epoch en segundos, exclusive)
+     * @param startingAfter ID del último intent de la página anterior, o null para la primera
+     * @param limit Tamaño de página (máximo 100)
+     * @return Página de Payment Intents (hasMore indica si hay más)
+     * @throws StripeApiException si hay error al comunicarse con Stripe
+     */
+    public StripeCollection<PaymentIntent> listPaymentIntents(String tenantId, long createdFrom, long createdTo,
+                                                              String startingAfter, long limit) {
+        try {
+            RequestOptions options = tenantRegistry.get(tenantId).requestOptions(retrieveTimeoutMs);
+            PaymentIntentListParams.Builder params = PaymentIntentListParams.builder()
+                    .setCreated(PaymentIntentListParams.Created.builder()
+                            .setGte(createdFrom)
+                            .setLt(createdTo)
+                            .build())
+                    .setLimit(limit);
+            if (startingAfter != null) {
+                params.setStartingAfter(startingAfter);
+            }
+
+            return guarded(tenantId, "list", () -> stripeClient.paymentIntents()
+                    .list(params.build(), options));
+
+        } catch (StripeApiException e) {
+            throw e;
+        } catch (StripeException e) {
+            logger.error("Stripe API error while listing Payment Intents [{}, {}): {}",
+                         createdFrom, createdTo, e.getMessage(), e);
+            throw new StripeApiException("Error al listar Payment Intents: " + e.getUserMessage(), e);
+        } catch (Exception e) {
+            logger.error("Unexpected error while listing Payment Intents [{}, {}): {}",
+                         createdFrom, createdTo, e.getMessage(), e);
+            throw new StripeApiException("Error inesperado al listar Payment Intents", e);
+        }
+    }
+
+    /**
+     * Variante asíncrona de createPaymentIntent (tenant por defecto).
+     */
+    public CompletableFuture<PaymentIntent> createPaymentIntentAsync(Long amountMinor, String currency, UUID orderId,
+                                                                     String idempotencyKey) {
+        return createPaymentIntentAsync(StripeTenantRegistry.DEFAULT_TENANT, amountMinor, currency, orderId,
+                idempotencyKey);
+    }
+
+    /**
+     * Variante asíncrona de createPaymentIntent.
+     * Si el deadline vence y el intent se crea después, nadie lo va a registrar: se cancela.
+     *
+     * @return Future que falla con StripeApiException si Stripe falla o no responde antes del deadline
+     */
+    public CompletableFuture<PaymentIntent> createPaymentIntentAsync(String tenantId, Long amountMinor,
+                                                                     String currency, UUID orderId,
+                                                                     String idempotencyKey) {
+        return async(tenantId, "create",
+                () -> createPaymentIntent(tenantId, amountMinor, currency, orderId, idempotencyKey),
+                createDeadlineMs, intent -> cancelLate(tenantId, orderId, intent));
+    }
+
+    private void cancelLate(String tenantId, UUID orderId, PaymentIntent intent) {
+        logger.warn("Payment Intent {} for order {} was created after the deadline, canceling it",
+                    intent.getId(), orderId);
+        lateCanceled.put(retrieveKey(tenantId, intent.getId()), Boolean.TRUE, LATE_CANCELED_TTL_MS);
+        cancelPaymentIntentAsync(tenantId, intent.getId()).whenComplete((canceled, error) -> {
+            if (error != null) {
+                // Queda abierto: lo cancela Stripe al vencer o la conciliación
+                logger.error("Failed to cancel late Payment Intent {}: {}", intent.getId(), error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Variante asíncrona de retrievePaymentIntent (tenant por defecto).
+     */
+    public CompletableFuture<PaymentIntent> retrievePaymentIntentAsync(String paymentIntentId) {
+        return retrievePaymentIntentAsync(StripeTenantRegistry.DEFAULT_TENANT, paymentIntentId);
+    }
+
+    /**
+     * Variante asíncrona de retrievePaymentIntent.
+     */
+    public CompletableFuture<PaymentIntent> retrievePaymentIntentAsync(String tenantId, String paymentIntentId) {
+        return async(tenantId, "retrieve", () -> retrievePaymentIntent(tenantId, paymentIntentId), deadlineMs, null);
+    }
+
+    /**
+     * Variante asíncrona de cancelPaymentIntent (tenant por defecto).
+     */
+    public CompletableFuture<PaymentIntent> cancelPaymentIntentAsync(String paymentIntentId) {
+        return cancelPaymentIntentAsync(StripeTenantRegistry.DEFAULT_TENANT, paymentIntentId);
+    }
+
+    /**
+     * Variante asíncrona de cancelPaymentIntent.
+     */
+    public CompletableFuture<PaymentIntent> cancelPaymentIntentAsync(String tenantId, String paymentIntentId) {
+        return async(tenantId, "cancel", () -> cancelPaymentIntent(tenantId, paymentIntentId), deadlineMs, null);
+    }
+
+    /**
+     * Ejecuta la llamada en el pool de Stripe con un deadline.
+     * Al vencer el deadline el future falla; la llamada en curso sigue acotada por su timeout de lectura
+     * y, si termina bien, su resultado se entrega a onLate (null si no hay nada que deshacer).
+     */
+    private <T> CompletableFuture<T> async(String tenantId, String operation, Supplier<T> call, long deadline,
+                                           Consumer<T> onLate) {
+        // Con el circuito abierto no tiene sentido encolar la llamada
+        if (guardEnabled) {
+            Guard guard = guard(tenantId);
+            if (guard.circuitBreaker().isRejecting()) {
+                return CompletableFuture.failedFuture(circuitOpen(guard, operation));
+            }
+        }
+
+        CompletableFuture<T> started;
+        try {
+            started = CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Stripe async executor saturated, rejecting {} call", operation);
+            countRejection(operation, "queue_full");
+            return CompletableFuture.failedFuture(new StripeApiException(
+                    "Demasiadas llamadas pendientes al proveedor de pagos", limiterRetryAfterSeconds));
+        }
+
+        // El deadline vence sobre una copia: la llamada original conserva su resultado para onLate
+        CompletableFuture<T> future = started;
+        return future
+                .copy()
+                .orTimeout(deadline, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        logger.error("Stripe {} call exceeded its deadline of {} ms", operation, deadline);
+                        if (onLate != null) {
+                            future.thenAccept(onLate);
+                        }
+                        cause = new StripeApiException("El proveedor de pagos no respondió a tiempo", cause);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private void cachePaymentIntent(String tenantId, PaymentIntent paymentIntent) {
+        String status = paymentIntent.getStatus();
+        long ttlMs = status != null && TERMINAL_STATUSES.contains(status)
+                ? retrieveCacheTerminalTtlMs
+                : retrieveCacheTtlMs;
+        retrieveCache.put(retrieveKey(tenantId, paymentIntent.getId()), paymentIntent, ttlMs);
+    }
+
+    private static String retrieveKey(String tenantId, String paymentIntentId) {
+        return tenant(tenantId) + "/" + paymentIntentId;
+    }
+
+    private static String tenant(String tenantId) {
+        return tenantId != null ? tenantId : StripeTenantRegistry.DEFAULT_TENANT;
+    }
+
+    /**
+     * Ejecuta la llamada a Stripe cuando el planificador le da turno.
+     * Un 429 de Stripe se convierte en StripeApiException con Retry-After (503, no 502).
+     */
+    private <T> T guarded(String tenantId, String operation, StripeCall<T> call) throws StripeException {
+        Guard guard = guardEnabled ? guard(tenantId) : null;
+        // Con el circuito abierto no se espera turno: se rechaza ya
+        if (guard != null && guard.circuitBreaker().isRejecting()) {
+            throw circuitOpen(guard, operation);
+        }
+        rateLimitScheduler.acquire(tenantId, operation);
+        try {
+            return guard != null ? protect(guard, operation, call) : call.execute();
+        } catch (RateLimitException e) {
+            logger.warn("Stripe rate limited {} call for tenant {}: {}", operation, tenant(tenantId), e.getMessage());
+            throw new StripeApiException("El proveedor de pagos está limitando las solicitudes", e,
+                    rateLimitScheduler.getRetryAfterSeconds(tenantId, operation));
+        }
+    }
+
+    /**
+     * Ejecuta la llamada protegida por el circuit breaker y el límite de concurrencia.
+     * Solo los errores del proveedor (red, timeout, 5xx, 429) cuentan como fallo;
+     * los errores de la request (4xx) son respuestas válidas de Stripe.
+     */
+    private <T> T protect(Guard guard, String operation, StripeCall<T> call) throws StripeException {
+        CircuitBreaker circuitBreaker = guard.circuitBreaker();
+        AdaptiveConcurrencyLimiter concurrencyLimiter = guard.concurrencyLimiter();
+        long permit = circuitBreaker.tryAcquire();
+        if (permit < 0) {
+            throw circuitOpen(guard, operation);
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            circuitBreaker.release(permit);
+            logger.warn("Stripe concurrency limit reached for tenant {} ({}), rejecting {} call",
+                        guard.tenantId(), concurrencyLimiter.getLimit(), operation);
+            countRejection(operation, "concurrency_limit");
+            throw new StripeApiException("Límite de llamadas concurrentes al proveedor de pagos alcanzado",
+                    limiterRetryAfterSeconds);
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.execute();
+            circuitBreaker.onSuccess(permit);
+            concurrencyLimiter.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (StripeException e) {
+            if (isProviderFailure(e)) {
+                circuitBreaker.onFailure(permit);
+                concurrencyLimiter.onFailure();
+            } else {
+                circuitBreaker.onSuccess(permit);
+                concurrencyLimiter.onSuccess(System.nanoTime() - start);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(permit);
+            concurrencyLimiter.onFailure();
+            throw e;
+        }
+    }
+
+    private boolean isProviderFailure(StripeException e) {
+        return e instanceof ApiConnectionException
+                || e instanceof RateLimitException
+                || e.getStatusCode() == null
+                || e.getStatusCode() >= 500;
+    }
+
+    private StripeApiException circuitOpen(Guard guard, String operation) {
+        logger.warn("Stripe circuit breaker open for tenant {}, rejecting {} call", guard.tenantId(), operation);
+        countRejection(operation, "circuit_open");
+        return new StripeApiException("El proveedor de pagos está fallando, se pausaron las llamadas",
+                guard.circuitBreaker().getRetryAfterSeconds());
+    }
+
+    private Guard guard(String tenantId) {
+        return guards.computeIfAbsent(tenant(tenantId), tenant -> {
+            Guard guard = new Guard(tenant,
+                    new CircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRateThreshold,
+                            circuitOpenDurationMs, circuitHalfOpenProbes),
+                    new AdaptiveConcurrencyLimiter(limiterInitialLimit, limiterMinLimit, limiterMaxLimit,
+                            limiterLatencyThresholdMs, limiterBackoffRatio));
+            registerGuardMetrics(guard);
+            return guard;
+        });
+    }
+
+    private void countRejection(String operation, String reason) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("stripe.client.rejected", "operation", operation, "reason", reason).increment();
+        }
+    }
+
+    private void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("stripe.client.async.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Llamadas asíncronas a Stripe en ejecución")
+                .register(meterRegistry);
+        Gauge.builder("stripe.client.async.queued", executor, pool -> pool.getQueue().size())
+                .description("Llamadas asíncronas a Stripe en cola")
+                .register(meterRegistry);
+    }
+
+    private void registerGuardMetrics(Guard guard) {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("stripe.client.concurrency.limit", guard.concurrencyLimiter(),
+                        AdaptiveConcurrencyLimiter::getLimit)
+                .description("Límite adaptativo de llamadas concurrentes a Stripe")
+                .tag("tenant", guard.tenantId())
+                .register(meterRegistry);
+        Gauge.builder("stripe.client.concurrency.inflight", guard.concurrencyLimiter(),
+                        AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Llamadas a Stripe en vuelo")
+                .tag("tenant", guard.tenantId())
+                .register(meterRegistry);
+        Gauge.builder("stripe.client.circuit.state", guard.circuitBreaker(), breaker -> breaker.getState().ordinal())
+                .description("Estado del circuit breaker de Stripe (0=closed, 1=open, 2=half-open)")
+                .tag("tenant", guard.tenantId())
+                .register(meterRegistry);
+    }
+
+    public int getAsyncActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getAsyncQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Peor estado entre los circuitos de los tenants: OPEN si alguno está abierto, HALF_OPEN si alguno
+     * está probando, CLOSED si no.
+     */
+    public CircuitBreaker.State getCircuitState() {
+        CircuitBreaker.State worst = CircuitBreaker.State.CLOSED;
+        for (Guard guard : guards.values()) {
+            CircuitBreaker.State state = guard.circuitBreaker().getState();
+            if (state == CircuitBreaker.State.OPEN) {
+                return state;
+            }
+            if (state == CircuitBreaker.State.HALF_OPEN) {
+                worst = state;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Estado del circuito del tenant (CLOSED si todavía no llamó a Stripe o el guard está desactivado).
+     */
+    public CircuitBreaker.State getCircuitState(String tenantId) {
+        Guard guard = guards.get(tenant(tenantId));
+        return guard != null ? guard.circuitBreaker().getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T execute() throws StripeException;
+    }
+
+    private record Guard(String tenantId, CircuitBreaker circuitBreaker,
+                         AdaptiveConcurrencyLimiter concurrencyLimiter) {
+    }
+}
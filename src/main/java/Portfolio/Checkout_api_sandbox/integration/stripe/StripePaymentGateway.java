@@ -0,0 +1,93 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.payment.GatewayFailure;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentGateway;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentResult;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pasarela de pago de Stripe: un pago es un Payment Intent.
+ */
+@Component
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Autowired
+    private StripePaymentClient stripePaymentClient;
+
+    @Override
+    public String getName() {
+        return PaymentProvider.STRIPE.name();
+    }
+
+    @Override
+    public PaymentProvider getProvider() {
+        return PaymentProvider.STRIPE;
+    }
+
+    @Override
+    public PaymentResult create(String tenantId, Long amountMinor, String currency, UUID orderId,
+                                String idempotencyKey) {
+        return toResult(stripePaymentClient.createPaymentIntent(tenantId, amountMinor, currency, orderId,
+                idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> createAsync(String tenantId, Long amountMinor, String currency,
+                                                        UUID orderId, String idempotencyKey) {
+        return stripePaymentClient.createPaymentIntentAsync(tenantId, amountMinor, currency, orderId, idempotencyKey)
+                .thenApply(this::toResult);
+    }
+
+    @Override
+    public CompletableFuture<Void> cancelAsync(String tenantId, String externalPaymentId) {
+        return stripePaymentClient.cancelPaymentIntentAsync(tenantId, externalPaymentId)
+                .thenAccept(canceled -> { });
+    }
+
+    /**
+     * Los rechazos locales de StripePaymentClient llevan Retry-After sin causa; un 429 lleva
+     * el RateLimitException. Un timeout de lectura pudo haber creado el Payment Intent.
+     */
+    @Override
+    public GatewayFailure classify(Throwable error) {
+        if (!(error instanceof StripeApiException stripe)) {
+            return GatewayFailure.REJECTED;
+        }
+        Throwable cause = stripe.getCause();
+        if (stripe.getRetryAfterSeconds() != null) {
+            return cause instanceof RateLimitException ? GatewayFailure.THROTTLED : GatewayFailure.NOT_SENT;
+        }
+        if (cause instanceof TimeoutException) {
+            return GatewayFailure.TIMED_OUT;
+        }
+        if (cause instanceof ApiConnectionException) {
+            return cause.getCause() instanceof InterruptedIOException
+                    || cause.getCause() instanceof HttpTimeoutException
+                    ? GatewayFailure.TIMED_OUT
+                    : GatewayFailure.UNAVAILABLE;
+        }
+        if (cause instanceof StripeException stripeError) {
+            Integer status = stripeError.getStatusCode();
+            return status == null || status >= 500 ? GatewayFailure.UNAVAILABLE : GatewayFailure.REJECTED;
+        }
+        return GatewayFailure.REJECTED;
+    }
+
+    private PaymentResult toResult(PaymentIntent paymentIntent) {
+        return new PaymentResult(getName(), PaymentProvider.STRIPE, paymentIntent.getId(),
+                paymentIntent.getClientSecret(), paymentIntent.getStatus());
+    }
+}
@@ -0,0 +1,187 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Planificador de llamadas a Stripe que respeta los límites de tasa de cada cuenta.
+ *
+ * Stripe limita por cuenta, así que cada tenant tiene sus propios token buckets, uno por tipo de
+ * operación (create, retrieve, cancel, list), creados en su primera llamada con los límites configurados.
+ * Si no hay token, la llamada espera brevemente su turno (hasta stripe.rate-limit.max-wait-ms)
+ * en lugar de fallar; si la espera sería mayor, se rechaza con StripeApiException + Retry-After.
+ * Cuando Stripe responde 429 a un tenant, se pausan los buckets de ese tenant durante el Retry-After
+ * recibido (o la pausa por defecto si no viene); los demás tenants siguen llamando.
+ */
+@Component
+public class StripeRateLimitScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeRateLimitScheduler.class);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${stripe.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stripe.rate-limit.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    @Value("${stripe.rate-limit.default-pause-ms:1000}")
+    private long defaultPauseMs;
+
+    @Value("${stripe.rate-limit.create.rate-per-second:40}")
+    private double createRatePerSecond;
+
+    @Value("${stripe.rate-limit.create.burst:20}")
+    private int createBurst;
+
+    @Value("${stripe.rate-limit.retrieve.rate-per-second:40}")
+    private double retrieveRatePerSecond;
+
+    @Value("${stripe.rate-limit.retrieve.burst:20}")
+    private int retrieveBurst;
+
+    @Value("${stripe.rate-limit.cancel.rate-per-second:20}")
+    private double cancelRatePerSecond;
+
+    @Value("${stripe.rate-limit.cancel.burst:10}")
+    private int cancelBurst;
+
+    @Value("${stripe.rate-limit.list.rate-per-second:20}")
+    private double listRatePerSecond;
+
+    @Value("${stripe.rate-limit.list.burst:5}")
+    private int listBurst;
+
+    // Límites por operación; cada tenant recibe sus propios buckets con estos límites
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, TokenBucket>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> waiting = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        register("create", createRatePerSecond, createBurst);
+        register("retrieve", retrieveRatePerSecond, retrieveBurst);
+        register("cancel", cancelRatePerSecond, cancelBurst);
+        register("list", listRatePerSecond, listBurst);
+    }
+
+    /**
+     * Espera un token para la operación indicada en la cuenta del tenant.
+     *
+     * @param tenantId Tenant cuya cuenta de Stripe recibe la llamada (null equivale al tenant por defecto)
+     * @param operation Tipo de operación (create, retrieve, cancel, list)
+     * @throws StripeApiException si el turno llegaría después de la espera máxima
+     */
+    public void acquire(String tenantId, String operation) {
+        TokenBucket bucket = bucket(tenantId, operation);
+        if (bucket == null) {
+            return;
+        }
+
+        long waitNanos = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+        if (waitNanos < 0) {
+            logger.warn("Stripe rate limit budget exhausted for tenant {}, rejecting {} call",
+                        tenant(tenantId), operation);
+            if (meterRegistry != null) {
+                meterRegistry.counter("stripe.client.rejected", "operation", operation, "reason", "rate_limit").increment();
+            }
+            throw new StripeApiException("Demasiadas solicitudes al proveedor de pagos",
+                    getRetryAfterSeconds(tenantId, operation));
+        }
+
+        if (waitNanos > 0) {
+            AtomicInteger queued = waiting.get(operation);
+            queued.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StripeApiException("Llamada al proveedor de pagos interrumpida", e);
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+        if (meterRegistry != null) {
+            meterRegistry.timer("stripe.client.ratelimit.wait", "operation", operation)
+                    .record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stripe respondió 429 a un tenant: pausa todas las operaciones de ese tenant.
+     *
+     * @param tenantId Tenant cuya cuenta recibió el 429 (null equivale al tenant por defecto)
+     * @param retryAfterMillis Pausa indicada por Stripe, o ≤ 0 para usar la pausa por defecto
+     */
+    public void onRateLimited(String tenantId, long retryAfterMillis) {
+        if (limits.isEmpty()) {
+            return;
+        }
+        long pauseMillis = retryAfterMillis > 0 ? retryAfterMillis : defaultPauseMs;
+        logger.warn("Stripe rate limit hit (429) for tenant {}, pausing its calls for {} ms",
+                    tenant(tenantId), pauseMillis);
+
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pauseMillis);
+        buckets(tenantId).values().forEach(bucket -> bucket.pauseUntil(until));
+    }
+
+    /**
+     * Segundos hasta que la operación del tenant vuelva a tener token (mínimo 1).
+     */
+    public long getRetryAfterSeconds(String tenantId, String operation) {
+        TokenBucket bucket = bucket(tenantId, operation);
+        long nanos = bucket == null ? TimeUnit.MILLISECONDS.toNanos(defaultPauseMs) : bucket.nanosUntilAvailable();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private TokenBucket bucket(String tenantId, String operation) {
+        return limits.containsKey(operation) ? buckets(tenantId).get(operation) : null;
+    }
+
+    private Map<String, TokenBucket> buckets(String tenantId) {
+        return buckets.computeIfAbsent(tenant(tenantId), tenant -> {
+            Map<String, TokenBucket> tenantBuckets = new ConcurrentHashMap<>();
+            limits.forEach((operation, limit) ->
+                    tenantBuckets.put(operation, new TokenBucket(limit.ratePerSecond(), limit.burst())));
+            return tenantBuckets;
+        });
+    }
+
+    private static String tenant(String tenantId) {
+        return tenantId != null ? tenantId : StripeTenantRegistry.DEFAULT_TENANT;
+    }
+
+    private void register(String operation, double ratePerSecond, int burst) {
+        limits.put(operation, new Limit(ratePerSecond, burst));
+        AtomicInteger queued = new AtomicInteger();
+        waiting.put(operation, queued);
+
+        if (meterRegistry != null) {
+            Gauge.builder("stripe.client.ratelimit.queued", queued, AtomicInteger::get)
+                    .description("Llamadas a Stripe esperando turno por límite de tasa")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+        }
+        logger.info("Stripe rate limit for {} calls: {}/s, burst {} per tenant", operation, ratePerSecond, burst);
+    }
+
+    private record Limit(double ratePerSecond, int burst) {
+    }
+}
@@ -0,0 +1,226 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import com.stripe.net.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Credenciales de Stripe por tenant (cuenta de Stripe del comercio).
+ *
+ * El tenant por defecto usa stripe.apiKey / stripe.webhookSecret. Los demás se leen de un
+ * archivo .properties (stripe.tenants.file) con líneas {@code <tenant>.api-key=sk_...} y
+ * {@code <tenant>.webhook-secret=whsec_...}; el archivo se vuelve a leer cuando cambia, sin reiniciar.
+ *
+ * Cada tenant cachea sus RequestOptions por timeout, así una request no construye opciones nuevas.
+ * Un tenant cuyas claves no cambiaron conserva su instancia (y su caché) al recargar.
+ */
+public class StripeTenantRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeTenantRegistry.class);
+
+    // Mismo valor que OrderEntity.DEFAULT_TENANT_ID; literal para que el módulo reactivo no dependa de JPA
+    public static final String DEFAULT_TENANT = "default";
+
+    public static final String UNKNOWN_TENANT = "Tenant desconocido: ";
+
+    private final TenantCredentials defaultTenant;
+    private final Path tenantsFile;
+
+    private volatile Map<String, TenantCredentials> tenants;
+    private volatile FileTime loadedVersion;
+
+    // Lock en lugar de synchronized: la recarga lee un archivo y no debe fijar un hilo virtual a su carrier
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    /**
+     * @param defaultApiKey Clave del tenant por defecto
+     * @param defaultWebhookSecret Webhook secret del tenant por defecto
+     * @param tenantsFile Archivo con los demás tenants, o null si solo hay uno
+     */
+    public StripeTenantRegistry(String defaultApiKey, String defaultWebhookSecret, Path tenantsFile) {
+        this.defaultTenant = new TenantCredentials(DEFAULT_TENANT, defaultApiKey, defaultWebhookSecret);
+        this.tenantsFile = tenantsFile;
+        this.tenants = Map.of(DEFAULT_TENANT, defaultTenant);
+        reload();
+    }
+
+    /**
+     * Credenciales del tenant; null equivale al tenant por defecto.
+     *
+     * @throws StripeApiException si el tenant no tiene credenciales configuradas
+     */
+    public TenantCredentials get(String tenantId) {
+        if (tenantId == null) {
+            return defaultTenant;
+        }
+        TenantCredentials credentials = tenants.get(tenantId);
+        if (credentials == null) {
+            throw new StripeApiException("No hay credenciales de Stripe para el tenant: " + tenantId);
+        }
+        return credentials;
+    }
+
+    public boolean contains(String tenantId) {
+        return tenantId == null || tenants.containsKey(tenantId);
+    }
+
+    /**
+     * Verifica el tenant de una orden nueva, así una orden de un tenant inexistente no llega al checkout.
+     *
+     * @throws IllegalArgumentException (HTTP 400) si el tenant no tiene credenciales configuradas
+     */
+    public void requireKnown(String tenantId) {
+        if (!contains(tenantId)) {
+            throw new IllegalArgumentException(UNKNOWN_TENANT + tenantId);
+        }
+    }
+
+    /**
+     * Tenant dueño de una clave de API, para saber qué cuenta recibió un 429.
+     * Una clave que no es de ningún tenant del archivo (o null) es la del tenant por defecto.
+     */
+    public String tenantForApiKey(String apiKey) {
+        if (apiKey != null) {
+            for (TenantCredentials credentials : tenants.values()) {
+                if (apiKey.equals(credentials.getApiKey())) {
+                    return credentials.getTenantId();
+                }
+            }
+        }
+        return DEFAULT_TENANT;
+    }
+
+    public Set<String> getTenantIds() {
+        return tenants.keySet();
+    }
+
+    /**
+     * Vuelve a leer el archivo de tenants si cambió desde la última carga.
+     * Si el archivo es inválido o desapareció se conservan los tenants actuales.
+     */
+    @Scheduled(fixedDelayString = "${stripe.tenants.reload-interval-ms:30000}",
+               initialDelayString = "${stripe.tenants.reload-interval-ms:30000}")
+    public void reload() {
+        if (tenantsFile == null) {
+            return;
+        }
+        reloadLock.lock();
+        try {
+            FileTime version = Files.getLastModifiedTime(tenantsFile);
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(tenantsFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            tenants = parse(properties);
+            loadedVersion = version;
+            logger.info("Stripe tenants loaded from {} - Tenants: {}", tenantsFile, tenants.keySet());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Could not load Stripe tenants from {}, keeping the current ones: {}",
+                         tenantsFile, e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Map<String, TenantCredentials> parse(Properties properties) {
+        Map<String, String> apiKeys = new HashMap<>();
+        Map<String, String> webhookSecrets = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim();
+            if (name.endsWith(".api-key")) {
+                apiKeys.put(name.substring(0, name.length() - ".api-key".length()), value);
+            } else if (name.endsWith(".webhook-secret")) {
+                webhookSecrets.put(name.substring(0, name.length() - ".webhook-secret".length()), value);
+            } else {
+                throw new IllegalArgumentException("Unknown property: " + name);
+            }
+        }
+
+        Map<String, TenantCredentials> current = tenants;
+        Map<String, TenantCredentials> loaded = new HashMap<>();
+        loaded.put(DEFAULT_TENANT, defaultTenant);
+        for (Map.Entry<String, String> apiKey : apiKeys.entrySet()) {
+            String tenantId = apiKey.getKey();
+            if (DEFAULT_TENANT.equals(tenantId)) {
+                throw new IllegalArgumentException("The default tenant is configured with stripe.apiKey");
+            }
+            String webhookSecret = webhookSecrets.get(tenantId);
+            if (apiKey.getValue().isEmpty() || webhookSecret == null || webhookSecret.isEmpty()) {
+                throw new IllegalArgumentException("Tenant " + tenantId + " needs both api-key and webhook-secret");
+            }
+
+            TenantCredentials existing = current.get(tenantId);
+            loaded.put(tenantId, existing != null && existing.matches(apiKey.getValue(), webhookSecret)
+                    ? existing
+                    : new TenantCredentials(tenantId, apiKey.getValue(), webhookSecret));
+        }
+        return Map.copyOf(loaded);
+    }
+
+    /**
+     * Claves de Stripe de un tenant, con sus RequestOptions cacheadas por timeout de lectura.
+     */
+    public static final class TenantCredentials {
+
+        private final String tenantId;
+        private final String apiKey;
+        private final String webhookSecret;
+        private final Map<Integer, RequestOptions> requestOptions = new ConcurrentHashMap<>();
+
+        TenantCredentials(String tenantId, String apiKey, String webhookSecret) {
+            this.tenantId = tenantId;
+            this.apiKey = apiKey;
+            this.webhookSecret = webhookSecret;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+
+        public String getWebhookSecret() {
+            return webhookSecret;
+        }
+
+        /**
+         * Clave propia del tenant, o null si usa la del cliente compartido.
+         */
+        public String getApiKey() {
+            return apiKey == null || apiKey.isBlank() ? null : apiKey;
+        }
+
+        /**
+         * Opciones de request con la clave del tenant y el timeout de lectura indicado.
+         */
+        public RequestOptions requestOptions(int readTimeoutMs) {
+            // Sin clave propia se usa la del StripeClient compartido
+            return requestOptions.computeIfAbsent(readTimeoutMs, timeout -> RequestOptions.builder()
+                    .setApiKey(apiKey == null || apiKey.isBlank() ? null : apiKey)
+                    .setReadTimeout(timeout)
+                    .build());
+        }
+
+        boolean matches(String apiKey, String webhookSecret) {
+            return Objects.equals(this.apiKey, apiKey) && Objects.equals(this.webhookSecret, webhookSecret);
+        }
+    }
+}
@@ -6,20 +6,28 @@ import com.stripe.model.Event;
 import com.stripe.net.Webhook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
  * Validador de webhooks de Stripe.
- * Verifica la autenticidad de los webhooks usando la firma HMAC.
+ * Verifica la autenticidad de los webhooks usando la firma HMAC con el secret del tenant
+ * (cada cuenta de Stripe firma con el secret de su endpoint).
  */
 @Component
 public class StripeWebhookValidator {
 
     private static final Logger logger = LoggerFactory.getLogger(StripeWebhookValidator.class);
 
-    @Value("${stripe.webhookSecret}")
-    private String webhookSecret;
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    /**
+     * Valida un webhook del tenant por defecto.
+     */
+    public Event validateAndConstructEvent(String payload, String signatureHeader) {
+        return validateAndConstructEvent(StripeTenantRegistry.DEFAULT_TENANT, payload, signatureHeader);
+    }
 
     /**
      * Valida y construye un evento de Stripe desde el payload y la firma.
@@ -27,18 +35,25 @@ public class StripeWebhookValidator {
      * IMPORTANTE: Esta validación es CRÍTICA para la seguridad.
      * Sin ella, cualquiera podría enviar webhooks falsos para marcar órdenes como pagadas.
      *
+     * @param tenantId Tenant al que pertenece el endpoint que recibió el webhook
      * @param payload Cuerpo del webhook (JSON raw)
      * @param signatureHeader Valor del header "Stripe-Signature"
      * @return Event de Stripe validado
-     * @throws InvalidWebhookSignatureException si la firma es inválida
+     * @throws InvalidWebhookSignatureException si la firma es inválida o el tenant no existe
      */
-    public Event validateAndConstructEvent(String payload, String signatureHeader) {
+    public Event validateAndConstructEvent(String tenantId, String payload, String signatureHeader) {
         try {
-            logger.debug("Validating webhook signature");
+            logger.debug("Validating webhook signature for tenant {}", tenantId);
+
+            if (!tenantRegistry.contains(tenantId)) {
+                logger.warn("Webhook received for unknown tenant: {}", tenantId);
+                throw new InvalidWebhookSignatureException("Tenant desconocido: " + tenantId);
+            }
+            String webhookSecret = tenantRegistry.get(tenantId).getWebhookSecret();
 
             // Verificar que tenemos el secret configurado
             if (webhookSecret == null || webhookSecret.isBlank()) {
-                logger.error("Webhook secret is not configured!");
+                logger.error("Webhook secret is not configured for tenant {}!", tenantId);
                 throw new InvalidWebhookSignatureException("Webhook secret no configurado en el servidor");
             }
 
@@ -0,0 +1,66 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sin locks (algoritmo GCRA).
+ *
+ * En lugar de contar tokens guarda un único instante, el "tiempo teórico de llegada" (TAT),
+ * que se avanza con CAS: reservar un token es mover el TAT un intervalo (1 / tasa).
+ * Si el TAT queda en el futuro, el llamador sabe exactamente cuánto esperar por su token,
+ * así que las reservas hacen fila sin necesidad de una cola explícita.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond Tokens por segundo en régimen sostenido
+     * @param burst Tokens que se pueden consumir de golpe con el bucket lleno
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserva un token.
+     *
+     * @param maxWaitNanos Espera máxima aceptable
+     * @return Nanosegundos que hay que esperar antes de usar el token (0 si está disponible ya),
+     *         o -1 si la espera superaría maxWaitNanos (en ese caso no se reserva nada)
+     */
+    public long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = theoreticalArrival.get();
+            long arrival = current - now > 0 ? current : now;
+            long wait = arrival - toleranceNanos - now;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    /**
+     * No entrega tokens hasta el instante indicado (System.nanoTime) y luego reanuda a ritmo
+     * sostenido, sin ráfaga.
+     */
+    public void pauseUntil(long untilNanos) {
+        long resumeAt = untilNanos + toleranceNanos;
+        theoreticalArrival.accumulateAndGet(resumeAt, (current, candidate) -> current - candidate > 0 ? current : candidate);
+    }
+
+    /**
+     * Nanosegundos hasta que haya un token disponible (0 si ya lo hay).
+     */
+    public long nanosUntilAvailable() {
+        return Math.max(0, theoreticalArrival.get() - toleranceNanos - System.nanoTime());
+    }
+}
@@ -27,11 +27,15 @@ public class OrderMapper {
         OrderEntity order = new OrderEntity();
         order.setCurrency(request.getCurrency());
         order.setStatus(OrderStatus.CREATED);
+        if (request.getTenantId() != null) {
+            order.setTenantId(request.getTenantId());
+        }
 
         // Convertir items y calcular totales
         long totalAmount = 0L;
+        int lineNumber = 0;
         for (OrderItemRequest itemRequest : request.getItems()) {
-            OrderItemEntity item = toItemEntity(itemRequest);
+            OrderItemEntity item = toItemEntity(itemRequest, ++lineNumber);
             order.addItem(item);
             totalAmount += item.getSubtotalMinor();
         }
@@ -41,11 +45,12 @@ public class OrderMapper {
     }
 
     /**
-     * Convierte OrderItemRequest a OrderItemEntity.
+     * Convierte OrderItemRequest a OrderItemEntity en la posición indicada.
      * Calcula el subtotal (precio × cantidad).
      */
-    private OrderItemEntity toItemEntity(OrderItemRequest request) {
+    public OrderItemEntity toItemEntity(OrderItemRequest request, int lineNumber) {
         OrderItemEntity item = new OrderItemEntity();
+        item.setLineNumber(lineNumber);
         item.setName(request.getName());
         item.setUnitPriceMinor(request.getUnitPriceMinor());
         item.setQuantity(request.getQuantity());
@@ -72,11 +77,28 @@ public class OrderMapper {
         );
     }
 
+    /**
+     * Convierte OrderEntity a OrderResponse en modo resumen (sin items, solo la cantidad).
+     */
+    public OrderResponse toSummaryResponse(OrderEntity entity, long itemCount) {
+        OrderResponse response = new OrderResponse(
+                entity.getId(),
+                entity.getStatus(),
+                entity.getCurrency(),
+                entity.getTotalAmountMinor(),
+                null,
+                entity.getCreatedAt()
+        );
+        response.setItemCount((int) itemCount);
+        return response;
+    }
+
     /**
      * Convierte OrderItemEntity a OrderItemResponse.
      */
-    private OrderItemResponse toItemResponse(OrderItemEntity entity) {
+    public OrderItemResponse toItemResponse(OrderItemEntity entity) {
         return new OrderItemResponse(
+                entity.getLineNumber(),
                 entity.getName(),
                 entity.getUnitPriceMinor(),
                 entity.getQuantity(),
@@ -0,0 +1,108 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Reserva de una clave de idempotencia para una operación (scope).
+ * La fila se inserta de forma atómica antes de ejecutar la operación y
+ * guarda el hash del request, el ID del recurso creado y la respuesta original, que es lo que
+ * devuelven los reintentos. Vence en expiresAt: desde ahí la clave se puede reutilizar y la
+ * fila la borra IdempotencyRecordPurger (las filas anteriores a expiresAt vencen por createdAt).
+ */
+@Entity
+@Table(
+    name = "idempotency_records",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"scope", "idempotency_key"})
+)
+public class IdempotencyRecordEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false, length = 30)
+    private String scope;
+
+    @Column(nullable = false, length = 255)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    private UUID resourceId;
+
+    // Respuesta original en JSON: los reintentos la devuelven tal cual, aunque la orden haya cambiado
+    @Column(columnDefinition = "text")
+    private String responseBody;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    // Getters y Setters
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public UUID getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(UUID resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,49 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease de un job programado: con varias instancias, solo la que tiene el lease vigente lo ejecuta.
+ * El lease vence solo (lockedUntil), así una instancia caída no bloquea el job para siempre.
+ */
+@Entity
+@Table(name = "job_leases")
+public class JobLeaseEntity {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Instancia que tiene el lease
+    @Column(nullable = false, length = 64)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedUntil;
+
+    // Getters y Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+}
@@ -1,17 +1,27 @@
 package Portfolio.Checkout_api_sandbox.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(
+    name = "orders",
+    indexes = @Index(name = "idx_orders_status_updated_at", columnList = "status, updated_at")
+)
+@DynamicUpdate
 public class OrderEntity {
 
+    // Tenant de las órdenes creadas sin tenant (y de las anteriores a la columna)
+    public static final String DEFAULT_TENANT_ID = "default";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedId
     private UUID id;
 
     @Enumerated(EnumType.STRING)
@@ -21,10 +31,16 @@ public class OrderEntity {
     @Column(nullable = false, length = 3)
     private String currency;
 
+    // Comercio dueño de la orden: decide con qué cuenta de Stripe se cobra
+    @Column(nullable = false, updatable = false, length = 64)
+    @ColumnDefault("'" + DEFAULT_TENANT_ID + "'")
+    private String tenantId = DEFAULT_TENANT_ID;
+
     @Column(nullable = false)
     private Long totalAmountMinor;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("lineNumber")
     private List<OrderItemEntity> items = new ArrayList<>();
 
     @Column(nullable = false, updatable = false)
@@ -35,7 +51,10 @@ public class OrderEntity {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // En modo write-behind la fecha de creación se fija al aceptar la orden
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
         updatedAt = LocalDateTime.now();
         if (status == null) {
             status = OrderStatus.CREATED;
@@ -72,6 +91,14 @@ public class OrderEntity {
         this.currency = currency;
     }
 
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public Long getTotalAmountMinor() {
         return totalAmountMinor;
     }
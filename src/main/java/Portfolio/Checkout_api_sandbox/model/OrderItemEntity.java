@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "order_items")
+@Table(
+    name = "order_items",
+    indexes = @Index(name = "idx_order_items_order_line", columnList = "order_id, line_number")
+)
 public class OrderItemEntity {
 
     @Id
@@ -15,6 +18,10 @@ public class OrderItemEntity {
     @JoinColumn(name = "order_id", nullable = false)
     private OrderEntity order;
 
+    // Posición del item dentro de la orden (1..n), usada para paginar por keyset
+    @Column(name = "line_number")
+    private Integer lineNumber;
+
     @Column(nullable = false, length = 255)
     private String name;
 
@@ -44,6 +51,14 @@ public class OrderItemEntity {
         this.order = order;
     }
 
+    public Integer getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(Integer lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
     public String getName() {
         return name;
     }
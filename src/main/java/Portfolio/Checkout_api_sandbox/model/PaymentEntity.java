@@ -1,11 +1,17 @@
 package Portfolio.Checkout_api_sandbox.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "payments")
+@Table(
+    name = "payments",
+    indexes = @Index(name = "idx_payments_status_created_at", columnList = "status, created_at")
+)
+@DynamicUpdate
 public class PaymentEntity {
 
     @Id
@@ -23,6 +29,8 @@ public class PaymentEntity {
     @Column(nullable = false, unique = true)
     private String externalPaymentId; // ID del Payment Intent de Stripe
 
+    // Solo se lee al armar la respuesta del checkout: se carga bajo demanda (requiere bytecode enhancement)
+    @Basic(fetch = FetchType.LAZY)
     @Column(length = 500)
     private String clientSecret;
 
@@ -4,6 +4,8 @@ public enum PaymentStatus {
     INITIATED,
     SUCCEEDED,
     FAILED,
-    CANCELED
+    CANCELED,
+    PRECREATED, // Payment Intent pre-creado que todavía no reclamó ningún checkout
+    EXPIRING // Pre-creado descartado: se borra cuando Stripe confirma la cancelación
 }
 
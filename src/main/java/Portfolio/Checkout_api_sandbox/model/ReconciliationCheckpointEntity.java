@@ -0,0 +1,131 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Progreso de la conciliación de pagos de un tenant para un tramo de tiempo (slice).
+ * Guarda el cursor de paginación de Stripe confirmado junto con las correcciones,
+ * para que una ejecución interrumpida retome desde la última página aplicada.
+ */
+@Entity
+@Table(
+    name = "reconciliation_checkpoints",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "slice_start", "slice_end"})
+)
+public class ReconciliationCheckpointEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Cuenta de Stripe conciliada
+    @Column(nullable = false, length = 64)
+    @ColumnDefault("'" + OrderEntity.DEFAULT_TENANT_ID + "'")
+    private String tenantId = OrderEntity.DEFAULT_TENANT_ID;
+
+    // Ventana de creación en Stripe (epoch en segundos, [start, end))
+    @Column(nullable = false)
+    private Long sliceStart;
+
+    @Column(nullable = false)
+    private Long sliceEnd;
+
+    // Último Payment Intent procesado (starting_after de la siguiente página)
+    @Column(length = 255)
+    private String lastPaymentIntentId;
+
+    @Column(nullable = false)
+    private boolean completed;
+
+    @Column(nullable = false)
+    private long examined;
+
+    @Column(nullable = false)
+    private long corrected;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public Long getSliceStart() {
+        return sliceStart;
+    }
+
+    public void setSliceStart(Long sliceStart) {
+        this.sliceStart = sliceStart;
+    }
+
+    public Long getSliceEnd() {
+        return sliceEnd;
+    }
+
+    public void setSliceEnd(Long sliceEnd) {
+        this.sliceEnd = sliceEnd;
+    }
+
+    public String getLastPaymentIntentId() {
+        return lastPaymentIntentId;
+    }
+
+    public void setLastPaymentIntentId(String lastPaymentIntentId) {
+        this.lastPaymentIntentId = lastPaymentIntentId;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public long getExamined() {
+        return examined;
+    }
+
+    public void setExamined(long examined) {
+        this.examined = examined;
+    }
+
+    public long getCorrected() {
+        return corrected;
+    }
+
+    public void setCorrected(long corrected) {
+        this.corrected = corrected;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
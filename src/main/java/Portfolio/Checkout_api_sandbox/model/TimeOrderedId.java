@@ -0,0 +1,18 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un ID UUID que se genera ordenado por tiempo (UUIDv7).
+ * Si la aplicación ya asignó el ID antes de persistir, se respeta.
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,39 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Generador de UUIDv7 para Hibernate (ver TimeOrderedIds).
+ * Los IDs pueden asignarse antes de persistir (modo write-behind).
+ */
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+    /**
+     * Genera un nuevo UUIDv7.
+     */
+    public static UUID nextId() {
+        return TimeOrderedIds.next();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner,
+                           Object currentValue, EventType eventType) {
+        return currentValue != null ? currentValue : nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package Portfolio.Checkout_api_sandbox.model;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7 (48 bits de timestamp en ms + secuencia + bits aleatorios), sin depender de Hibernate.
+ * Los IDs son monótonos dentro del proceso, lo que mantiene local el índice primario.
+ * Lo usan TimeOrderedIdGenerator y el módulo reactivo, que asigna los IDs antes de insertar.
+ */
+public final class TimeOrderedIds {
+
+    // Último estado emitido: timestamp en ms << 12 | secuencia de 12 bits
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedIds() {
+    }
+
+    /**
+     * Genera un nuevo UUIDv7.
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis();
+        long state = LAST.updateAndGet(previous -> {
+            long candidate = now << 12;
+            return candidate > previous ? candidate : previous + 1;
+        });
+
+        long mostSigBits = ((state >>> 12) << 16) | 0x7000L | (state & 0xFFFL);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,61 @@
+package Portfolio.Checkout_api_sandbox.repository;
+
+import Portfolio.Checkout_api_sandbox.model.IdempotencyRecordEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecordEntity, UUID> {
+
+    /**
+     * Reserva la clave de forma atómica. Devuelve 1 si la reserva es nueva y 0 si la clave ya existía.
+     * Una clave vencida (expires_at pasado) se vuelve a reservar como nueva.
+     * Si otra transacción tiene la misma clave sin confirmar, el INSERT espera a que termine.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records " +
+                   "(id, scope, idempotency_key, request_hash, created_at, expires_at) " +
+                   "VALUES (:id, :scope, :key, :requestHash, now(), now() + make_interval(secs => :ttlSeconds)) " +
+                   "ON CONFLICT (scope, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+                   "resource_id = NULL, response_body = NULL, created_at = EXCLUDED.created_at, " +
+                   "expires_at = EXCLUDED.expires_at " +
+                   "WHERE idempotency_records.expires_at < now()",
+           nativeQuery = true)
+    int reserve(@Param("id") UUID id,
+                @Param("scope") String scope,
+                @Param("key") String key,
+                @Param("requestHash") String requestHash,
+                @Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Asocia la reserva con el recurso creado y guarda la respuesta original (JSON).
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecordEntity r SET r.resourceId = :resourceId, r.responseBody = :responseBody " +
+           "WHERE r.scope = :scope AND r.idempotencyKey = :key")
+    int complete(@Param("scope") String scope,
+                 @Param("key") String key,
+                 @Param("resourceId") UUID resourceId,
+                 @Param("responseBody") String responseBody);
+
+    /**
+     * Borra un lote de claves vencidas. Las filas sin expires_at (anteriores a su columna)
+     * vencen por created_at. Devuelve la cantidad de filas borradas.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_records WHERE id IN (" +
+                   "SELECT id FROM idempotency_records " +
+                   "WHERE expires_at < now() OR (expires_at IS NULL AND created_at < :legacyCutoff) " +
+                   "LIMIT :limit)",
+           nativeQuery = true)
+    int purgeExpired(@Param("legacyCutoff") LocalDateTime legacyCutoff, @Param("limit") int limit);
+
+    Optional<IdempotencyRecordEntity> findByScopeAndIdempotencyKey(String scope, String idempotencyKey);
+}
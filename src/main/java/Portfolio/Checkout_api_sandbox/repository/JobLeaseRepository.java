@@ -0,0 +1,35 @@
+package Portfolio.Checkout_api_sandbox.repository;
+
+import Portfolio.Checkout_api_sandbox.model.JobLeaseEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLeaseEntity, String> {
+
+    /**
+     * Toma el lease del job si está libre, vencido o ya es de esta instancia, de forma atómica.
+     * Usa el reloj de la base para que el vencimiento no dependa del reloj de cada instancia.
+     * Devuelve 1 si el lease quedó tomado y 0 si lo tiene otra instancia.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_leases (name, owner, locked_until) " +
+                   "VALUES (:name, :owner, now() + make_interval(secs => :seconds)) " +
+                   "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, locked_until = EXCLUDED.locked_until " +
+                   "WHERE job_leases.locked_until < now() OR job_leases.owner = EXCLUDED.owner",
+           nativeQuery = true)
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("seconds") long seconds);
+
+    /**
+     * Libera el lease si sigue siendo de esta instancia.
+     */
+    @Modifying
+    @Query(value = "UPDATE job_leases SET locked_until = now() WHERE name = :name AND owner = :owner",
+           nativeQuery = true)
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
@@ -0,0 +1,47 @@
+package Portfolio.Checkout_api_sandbox.repository;
+
+import Portfolio.Checkout_api_sandbox.model.OrderItemEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItemEntity, UUID> {
+
+    /**
+     * Página de items por keyset: los items con lineNumber mayor al cursor, en orden.
+     */
+    @Query("SELECT i FROM OrderItemEntity i " +
+           "WHERE i.order.id = :orderId AND i.lineNumber > :afterLine " +
+           "ORDER BY i.lineNumber")
+    List<OrderItemEntity> findPage(@Param("orderId") UUID orderId,
+                                   @Param("afterLine") int afterLine,
+                                   Limit limit);
+
+    /**
+     * Numera los items anteriores a lineNumber (line_number NULL) de un lote de órdenes.
+     * Cada orden sigue numerando desde su mayor lineNumber, en el orden de id de los items sin número.
+     * Devuelve la cantidad de items numerados (0 cuando ya no quedan).
+     */
+    @Modifying
+    @Query(value = "UPDATE order_items i SET line_number = n.line FROM (" +
+                   "  SELECT id, line_number, " +
+                   "         ROW_NUMBER() OVER (PARTITION BY order_id, line_number IS NULL ORDER BY id) " +
+                   "         + COALESCE(MAX(line_number) OVER (PARTITION BY order_id), 0) AS line " +
+                   "  FROM order_items " +
+                   "  WHERE order_id IN (SELECT DISTINCT order_id FROM order_items " +
+                   "                     WHERE line_number IS NULL LIMIT :orders)" +
+                   ") n " +
+                   "WHERE i.id = n.id AND n.line_number IS NULL",
+           nativeQuery = true)
+    int backfillLineNumbers(@Param("orders") int orders);
+
+    @Query("SELECT COUNT(i) FROM OrderItemEntity i WHERE i.order.id = :orderId")
+    long countByOrderId(@Param("orderId") UUID orderId);
+}
@@ -1,12 +1,54 @@
 package Portfolio.Checkout_api_sandbox.repository;
 
 import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, UUID> {
-}
 
+    @Query("SELECT o.id FROM OrderEntity o WHERE o.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Datos de varias órdenes necesarios para validar su checkout, en una sola consulta
+     * y sin cargar los items (solo se cuentan).
+     */
+    @Query("SELECT o.id AS id, o.tenantId AS tenantId, o.status AS status, " +
+           "o.totalAmountMinor AS totalAmountMinor, o.currency AS currency, SIZE(o.items) AS itemCount " +
+           "FROM OrderEntity o WHERE o.id IN :ids")
+    List<CheckoutOrderView> findCheckoutViews(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE OrderEntity o SET o.totalAmountMinor = :total WHERE o.id = :id")
+    int updateTotalAmount(@Param("id") UUID id, @Param("total") Long total);
+
+    /**
+     * Cambia el estado de varias órdenes a la vez, solo si siguen en el estado esperado.
+     */
+    @Modifying
+    @Query("UPDATE OrderEntity o SET o.status = :status, o.updatedAt = :now " +
+           "WHERE o.id IN :ids AND o.status = :expected")
+    int updateStatus(@Param("ids") Collection<UUID> ids,
+                     @Param("expected") OrderStatus expected,
+                     @Param("status") OrderStatus status,
+                     @Param("now") LocalDateTime now);
+
+    interface CheckoutOrderView {
+        UUID getId();
+        String getTenantId();
+        OrderStatus getStatus();
+        Long getTotalAmountMinor();
+        String getCurrency();
+        Integer getItemCount();
+    }
+}
@@ -1,9 +1,18 @@
 package Portfolio.Checkout_api_sandbox.repository;
 
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
 import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,5 +20,99 @@ import java.util.UUID;
 public interface PaymentRepository extends JpaRepository<PaymentEntity, UUID> {
     Optional<PaymentEntity> findByIdempotencyKey(String idempotencyKey);
     Optional<PaymentEntity> findByExternalPaymentId(String externalPaymentId);
-}
+    Optional<PaymentEntity> findByOrderId(UUID orderId);
+
+    @Query("SELECT p.idempotencyKey FROM PaymentEntity p WHERE p.idempotencyKey IN :keys")
+    List<String> findUsedIdempotencyKeys(@Param("keys") Collection<String> keys);
+
+    /**
+     * Pagos de órdenes en el estado indicado sin cambios desde antes del corte, por keyset
+     * sobre (updatedAt, id) de la orden. Usa el índice idx_orders_status_updated_at.
+     */
+    @Query("SELECT p.id AS paymentId, o.id AS orderId, o.tenantId AS tenantId, " +
+           "p.externalPaymentId AS externalPaymentId, o.updatedAt AS orderUpdatedAt " +
+           "FROM PaymentEntity p JOIN p.order o " +
+           "WHERE o.status = :status AND o.updatedAt < :cutoff " +
+           "AND (o.updatedAt > :afterUpdatedAt OR (o.updatedAt = :afterUpdatedAt AND o.id > :afterOrderId)) " +
+           "ORDER BY o.updatedAt, o.id")
+    List<StalePaymentView> findStalePage(@Param("status") OrderStatus status,
+                                         @Param("cutoff") LocalDateTime cutoff,
+                                         @Param("afterUpdatedAt") LocalDateTime afterUpdatedAt,
+                                         @Param("afterOrderId") UUID afterOrderId,
+                                         Limit limit);
+
+    /**
+     * Pagos pendientes (pago y orden) de un tenant creados en la ventana, en chunks por keyset
+     * sobre el ID del pago. Usa el índice idx_payments_status_created_at.
+     */
+    @Query("SELECT p.id AS paymentId, o.id AS orderId, o.tenantId AS tenantId, " +
+           "p.externalPaymentId AS externalPaymentId, o.updatedAt AS orderUpdatedAt " +
+           "FROM PaymentEntity p JOIN p.order o " +
+           "WHERE p.status = :paymentStatus AND o.status = :orderStatus AND o.tenantId = :tenantId " +
+           "AND p.createdAt >= :from AND p.createdAt < :to AND p.id > :afterId " +
+           "ORDER BY p.id")
+    List<StalePaymentView> findPendingChunk(@Param("paymentStatus") PaymentStatus paymentStatus,
+                                            @Param("orderStatus") OrderStatus orderStatus,
+                                            @Param("tenantId") String tenantId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("afterId") UUID afterId,
+                                            Limit limit);
+
+    /**
+     * Pagos en el estado indicado creados antes del corte, más viejos primero.
+     * Usa el índice idx_payments_status_created_at.
+     */
+    @Query("SELECT p.id AS paymentId, o.id AS orderId, o.tenantId AS tenantId, " +
+           "p.externalPaymentId AS externalPaymentId, o.updatedAt AS orderUpdatedAt " +
+           "FROM PaymentEntity p JOIN p.order o " +
+           "WHERE p.status = :status AND p.createdAt < :cutoff " +
+           "ORDER BY p.createdAt")
+    List<StalePaymentView> findCreatedBefore(@Param("status") PaymentStatus status,
+                                             @Param("cutoff") LocalDateTime cutoff,
+                                             Limit limit);
 
+    /**
+     * Pagos en el estado indicado sin cambios desde antes del corte, los que llevan más tiempo sin cambios primero.
+     */
+    @Query("SELECT p.id AS paymentId, o.id AS orderId, o.tenantId AS tenantId, " +
+           "p.externalPaymentId AS externalPaymentId, o.updatedAt AS orderUpdatedAt " +
+           "FROM PaymentEntity p JOIN p.order o " +
+           "WHERE p.status = :status AND p.updatedAt < :cutoff " +
+           "ORDER BY p.updatedAt")
+    List<StalePaymentView> findUpdatedBefore(@Param("status") PaymentStatus status,
+                                             @Param("cutoff") LocalDateTime cutoff,
+                                             Limit limit);
+
+    /**
+     * Reclama el pago de la orden si sigue en el estado esperado y le asigna la clave de idempotencia.
+     */
+    @Modifying
+    @Query("UPDATE PaymentEntity p SET p.status = :status, p.idempotencyKey = :idempotencyKey, " +
+           "p.updatedAt = :now WHERE p.order.id = :orderId AND p.status = :expected")
+    int claim(@Param("orderId") UUID orderId,
+              @Param("expected") PaymentStatus expected,
+              @Param("status") PaymentStatus status,
+              @Param("idempotencyKey") String idempotencyKey,
+              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM PaymentEntity p WHERE p.id = :id AND p.status = :status")
+    int deleteByIdAndStatus(@Param("id") UUID id, @Param("status") PaymentStatus status);
+
+    @Modifying
+    @Query("UPDATE PaymentEntity p SET p.status = :status, p.updatedAt = :now " +
+           "WHERE p.id IN :ids AND p.status = :expected")
+    int updateStatus(@Param("ids") Collection<UUID> ids,
+                     @Param("expected") PaymentStatus expected,
+                     @Param("status") PaymentStatus status,
+                     @Param("now") LocalDateTime now);
+
+    interface StalePaymentView {
+        UUID getPaymentId();
+        UUID getOrderId();
+        String getTenantId();
+        String getExternalPaymentId();
+        LocalDateTime getOrderUpdatedAt();
+    }
+}
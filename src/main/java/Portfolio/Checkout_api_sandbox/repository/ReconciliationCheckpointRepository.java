@@ -0,0 +1,24 @@
+package Portfolio.Checkout_api_sandbox.repository;
+
+import Portfolio.Checkout_api_sandbox.model.ReconciliationCheckpointEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpointEntity, UUID> {
+    Optional<ReconciliationCheckpointEntity> findByTenantIdAndSliceStartAndSliceEnd(String tenantId, Long sliceStart,
+                                                                                      Long sliceEnd);
+    List<ReconciliationCheckpointEntity> findByCompletedFalse();
+
+    /**
+     * High-water mark del tenant: fin del tramo más reciente con checkpoint, o null si nunca se concilió.
+     */
+    @Query("SELECT MAX(c.sliceEnd) FROM ReconciliationCheckpointEntity c WHERE c.tenantId = :tenantId")
+    Long findMaxSliceEnd(@Param("tenantId") String tenantId);
+}
@@ -0,0 +1,372 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.BulkCheckoutItem;
+import Portfolio.Checkout_api_sandbox.dto.request.BulkCheckoutRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkCheckoutResult;
+import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentResult;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentRouter;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository.CheckoutOrderView;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service para iniciar el checkout de muchas órdenes en un solo pedido (canal B2B).
+ *
+ * En lugar de un checkout completo por orden:
+ * 1. Las claves de idempotencia y las órdenes del lote se cargan con una consulta cada una.
+ * 2. Los pagos se crean en la pasarela en paralelo, con un máximo de llamadas simultáneas.
+ * 3. Los pagos y los cambios de estado de todas las órdenes se guardan en una sola transacción con JDBC batching;
+ *    si esa transacción falla, se reintenta orden por orden y solo fallan las órdenes en conflicto.
+ *
+ * Cada orden tiene su propio resultado: un rechazo o un fallo de la pasarela no afecta al resto del lote.
+ * Las órdenes del lote quedan tomadas en OrderLockManager mientras dura, igual que en el checkout individual.
+ */
+@Service
+public class BulkCheckoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkCheckoutService.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentRouter paymentRouter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
+    @Autowired
+    private OrderLockManager orderLockManager;
+
+    @Value("${checkout.batch.max-orders:500}")
+    private int maxOrders;
+
+    @Value("${checkout.batch.parallelism:16}")
+    private int parallelism;
+
+    /**
+     * Inicia el checkout de todas las órdenes del lote.
+     *
+     * @param request Proveedor y órdenes con su clave de idempotencia
+     * @return Un resultado por orden, en el orden del pedido
+     * @throws IllegalArgumentException si el lote supera el máximo o el proveedor no existe
+     */
+    public List<BulkCheckoutResult> initiateCheckouts(BulkCheckoutRequest request) {
+        List<BulkCheckoutItem> items = request.getOrders();
+        if (items.size() > maxOrders) {
+            throw new IllegalArgumentException("El lote admite como máximo " + maxOrders + " órdenes");
+        }
+        paymentRouter.checkProvider(request.getProvider());
+
+        logger.info("Initiating bulk checkout - Orders: {}, Provider: {}", items.size(), request.getProvider());
+
+        BulkCheckoutResult[] results = new BulkCheckoutResult[items.size()];
+
+        // 0. Repetidos dentro del mismo lote: solo cuenta la primera aparición
+        Map<UUID, Integer> indexByOrder = new LinkedHashMap<>();
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkCheckoutItem item = items.get(i);
+            if (!keys.add(item.getIdempotencyKey())) {
+                results[i] = BulkCheckoutResult.rejected(i, item.getOrderId(),
+                        "La clave de idempotencia está repetida en el lote");
+            } else if (indexByOrder.putIfAbsent(item.getOrderId(), i) != null) {
+                results[i] = BulkCheckoutResult.rejected(i, item.getOrderId(), "La orden está repetida en el lote");
+            }
+        }
+
+        // Si algún intent del lote se está pre-creando, esperarlo para reclamarlo en lugar de crear otro
+        if (paymentIntentPrecreator.isEnabled()) {
+            CompletableFuture.allOf(indexByOrder.keySet().stream()
+                    .map(paymentIntentPrecreator::awaitInFlight)
+                    .toArray(CompletableFuture[]::new)).join();
+        }
+
+        orderLockManager.withOrderLocks(indexByOrder.keySet(), () -> {
+            checkoutInTurn(request.getProvider(), items, indexByOrder, results);
+            return null;
+        });
+
+        long initiated = Arrays.stream(results)
+                .filter(result -> result.getStatus() == BulkCheckoutResult.Status.INITIATED)
+                .count();
+        logger.info("Bulk checkout finished - Orders: {}, Initiated: {}", items.size(), initiated);
+        return Arrays.asList(results);
+    }
+
+    private void checkoutInTurn(String provider, List<BulkCheckoutItem> items, Map<UUID, Integer> indexByOrder,
+                                BulkCheckoutResult[] results) {
+        // 1-3. Validar todo el lote (y reclamar los intents pre-creados) en una transacción corta
+        List<CheckoutTarget> targets = transactionTemplate.execute(status ->
+                loadTargets(provider, items, indexByOrder, results));
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        // 4. Crear los pagos en paralelo, acotado
+        PaymentResult[] payments = createPayments(provider, targets, results);
+
+        // 5-7. Registrar los pagos creados en una sola transacción
+        recordPayments(targets, payments, results);
+    }
+
+    /**
+     * Carga claves y órdenes del lote con dos consultas y devuelve las que necesitan un pago nuevo.
+     * Las demás quedan resueltas en results (rechazadas, o iniciadas con un intent pre-creado).
+     */
+    private List<CheckoutTarget> loadTargets(String provider, List<BulkCheckoutItem> items,
+                                             Map<UUID, Integer> indexByOrder, BulkCheckoutResult[] results) {
+        List<String> keys = indexByOrder.values().stream()
+                .map(index -> items.get(index).getIdempotencyKey())
+                .toList();
+        Set<String> usedKeys = new HashSet<>(paymentRepository.findUsedIdempotencyKeys(keys));
+        Map<UUID, CheckoutOrderView> orders = orderRepository.findCheckoutViews(indexByOrder.keySet()).stream()
+                .collect(Collectors.toMap(CheckoutOrderView::getId, Function.identity()));
+
+        List<CheckoutTarget> targets = new ArrayList<>();
+        List<UUID> claimedOrderIds = new ArrayList<>();
+        for (Map.Entry<UUID, Integer> entry : indexByOrder.entrySet()) {
+            UUID orderId = entry.getKey();
+            int index = entry.getValue();
+            String idempotencyKey = items.get(index).getIdempotencyKey();
+            CheckoutOrderView order = orders.get(orderId);
+
+            if (usedKeys.contains(idempotencyKey)) {
+                results[index] = BulkCheckoutResult.rejected(index, orderId,
+                        "Ya existe una solicitud procesada con la clave de idempotencia: " + idempotencyKey);
+                continue;
+            }
+            if (order == null) {
+                results[index] = BulkCheckoutResult.rejected(index, orderId, "Orden no encontrada con ID: " + orderId);
+                continue;
+            }
+            String error = CheckoutRules.checkoutError(order.getStatus(), order.getTotalAmountMinor(),
+                    order.getItemCount() != null && order.getItemCount() > 0);
+            if (error != null) {
+                results[index] = BulkCheckoutResult.rejected(index, orderId, error);
+                continue;
+            }
+
+            // 4a. Reclamar el Payment Intent pre-creado, sin llamar a la pasarela
+            PaymentEntity claimed = paymentIntentPrecreator.isEnabled()
+                    ? paymentIntentPrecreator.claim(orderId, provider, idempotencyKey)
+                    : null;
+            if (claimed != null) {
+                results[index] = BulkCheckoutResult.initiated(index, toCheckoutResponse(orderId, claimed));
+                claimedOrderIds.add(orderId);
+                continue;
+            }
+
+            targets.add(new CheckoutTarget(index, orderId, idempotencyKey, order.getTenantId(),
+                    order.getTotalAmountMinor(), order.getCurrency()));
+        }
+
+        if (!claimedOrderIds.isEmpty()) {
+            orderRepository.updateStatus(claimedOrderIds, OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING,
+                    LocalDateTime.now());
+        }
+        return targets;
+    }
+
+    /**
+     * Crea los pagos con a lo sumo {@code parallelism} llamadas a la pasarela en vuelo.
+     * Un fallo deja a su orden como FAILED y null en su posición.
+     */
+    private PaymentResult[] createPayments(String provider, List<CheckoutTarget> targets,
+                                           BulkCheckoutResult[] results) {
+        PaymentResult[] payments = new PaymentResult[targets.size()];
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[targets.size()];
+
+        for (int i = 0; i < targets.size(); i++) {
+            CheckoutTarget target = targets.get(i);
+            int position = i;
+            permits.acquireUninterruptibly();
+
+            CompletableFuture<PaymentResult> call;
+            try {
+                call = paymentRouter.createAsync(provider, target.tenantId(), target.amountMinor(),
+                        target.currency(), target.orderId(), target.idempotencyKey());
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+
+            calls[i] = call.handle((payment, error) -> {
+                permits.release();
+                if (error == null) {
+                    payments[position] = payment;
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    logger.warn("Bulk checkout payment failed for order {}: {}", target.orderId(), cause.getMessage());
+                    results[target.index()] = BulkCheckoutResult.failed(target.index(), target.orderId(),
+                            cause.getMessage());
+                }
+                return null;
+            });
+        }
+
+        CompletableFuture.allOf(calls).join();
+        return payments;
+    }
+
+    /**
+     * Guarda todos los pagos creados y pasa sus órdenes a PAYMENT_PENDING en una sola transacción.
+     * Si la transacción falla (p. ej. una clave de idempotencia usada en otro nodo), se reintenta orden
+     * por orden para que el conflicto de una no haga fallar al resto; las que fallan solas cancelan su pago.
+     */
+    private void recordPayments(List<CheckoutTarget> targets, PaymentResult[] payments,
+                                BulkCheckoutResult[] results) {
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            if (payments[i] != null) {
+                created.add(i);
+            }
+        }
+        if (created.isEmpty()) {
+            return;
+        }
+
+        try {
+            recordInTransaction(targets, payments, results, created);
+            return;
+        } catch (RuntimeException e) {
+            if (created.size() == 1) {
+                failRecording(targets, payments, results, created.get(0), e);
+                return;
+            }
+            logger.warn("Error recording bulk checkout payments, retrying order by order: {}", e.getMessage());
+        }
+
+        for (int i : created) {
+            try {
+                recordInTransaction(targets, payments, results, List.of(i));
+            } catch (RuntimeException e) {
+                failRecording(targets, payments, results, i, e);
+            }
+        }
+    }
+
+    /**
+     * Guarda los pagos de las posiciones indicadas y pasa sus órdenes a PAYMENT_PENDING en una transacción.
+     * Si una orden cambió de estado en otro nodo mientras tanto, se rechaza y se cancela su pago.
+     */
+    private void recordInTransaction(List<CheckoutTarget> targets, PaymentResult[] payments,
+                                     BulkCheckoutResult[] results, List<Integer> positions) {
+        List<Integer> changed = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            Set<UUID> stillCreated = orderRepository.findCheckoutViews(
+                            positions.stream().map(i -> targets.get(i).orderId()).toList()).stream()
+                    .filter(order -> order.getStatus() == OrderStatus.CREATED)
+                    .map(CheckoutOrderView::getId)
+                    .collect(Collectors.toSet());
+
+            List<PaymentEntity> entities = new ArrayList<>(positions.size());
+            List<Integer> recorded = new ArrayList<>(positions.size());
+            for (int i : positions) {
+                CheckoutTarget target = targets.get(i);
+                if (!stillCreated.contains(target.orderId())) {
+                    changed.add(i);
+                    continue;
+                }
+                entities.add(toPaymentEntity(target, payments[i]));
+                recorded.add(i);
+            }
+
+            List<PaymentEntity> saved = paymentRepository.saveAll(entities);
+            orderRepository.updateStatus(recorded.stream().map(i -> targets.get(i).orderId()).toList(),
+                    OrderStatus.CREATED, OrderStatus.PAYMENT_PENDING, LocalDateTime.now());
+
+            for (int j = 0; j < recorded.size(); j++) {
+                CheckoutTarget target = targets.get(recorded.get(j));
+                results[target.index()] = BulkCheckoutResult.initiated(target.index(),
+                        toCheckoutResponse(target.orderId(), saved.get(j)));
+            }
+            return null;
+        });
+
+        for (int i : changed) {
+            CheckoutTarget target = targets.get(i);
+            results[target.index()] = BulkCheckoutResult.rejected(target.index(), target.orderId(),
+                    "La orden cambió de estado durante el checkout");
+        }
+        cancelAll(targets, payments, changed);
+    }
+
+    private void failRecording(List<CheckoutTarget> targets, PaymentResult[] payments,
+                               BulkCheckoutResult[] results, int position, RuntimeException error) {
+        CheckoutTarget target = targets.get(position);
+        logger.error("Error recording bulk checkout payment for order {}: {}",
+                     target.orderId(), error.getMessage(), error);
+        results[target.index()] = BulkCheckoutResult.failed(target.index(), target.orderId(),
+                "Error al registrar el pago de la orden");
+        cancelAll(targets, payments, List.of(position));
+    }
+
+    private void cancelAll(List<CheckoutTarget> targets, PaymentResult[] payments, List<Integer> positions) {
+        for (int i : positions) {
+            PaymentResult payment = payments[i];
+            logger.warn("Canceling unused payment {} in {} for order {}",
+                        payment.externalPaymentId(), payment.gateway(), targets.get(i).orderId());
+            paymentRouter.cancelAsync(payment.gateway(), targets.get(i).tenantId(), payment.externalPaymentId());
+        }
+    }
+
+    private PaymentEntity toPaymentEntity(CheckoutTarget target, PaymentResult gatewayPayment) {
+        PaymentEntity payment = new PaymentEntity();
+        // Referencia sin consultar la orden: solo se necesita su ID para la FK
+        payment.setOrder(orderRepository.getReferenceById(target.orderId()));
+        payment.setProvider(gatewayPayment.provider());
+        payment.setExternalPaymentId(gatewayPayment.externalPaymentId());
+        payment.setClientSecret(gatewayPayment.clientSecret());
+        payment.setStatus(PaymentStatus.INITIATED);
+        payment.setAmountMinor(target.amountMinor());
+        payment.setCurrency(target.currency());
+        payment.setIdempotencyKey(target.idempotencyKey());
+        return payment;
+    }
+
+    private CheckoutResponse toCheckoutResponse(UUID orderId, PaymentEntity payment) {
+        return new CheckoutResponse(orderId, payment.getId(), payment.getProvider().name(),
+                payment.getClientSecret(), OrderStatus.PAYMENT_PENDING);
+    }
+
+    /**
+     * Orden validada que necesita un pago nuevo; index es su posición en el pedido.
+     */
+    private record CheckoutTarget(int index, UUID orderId, String idempotencyKey, String tenantId,
+                                  Long amountMinor, String currency) {
+    }
+}
@@ -0,0 +1,190 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkOrderResult;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service para la carga masiva de órdenes en formato NDJSON.
+ * Lee una orden por línea, la valida y la persiste en bloques con JDBC batching,
+ * escribiendo un resultado por línea a medida que cada bloque se confirma.
+ * La memoria usada es constante: solo se mantiene en memoria el bloque actual.
+ */
+@Service
+public class BulkOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkOrderService.class);
+
+    private static final byte NEWLINE = '\n';
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${orders.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Importa órdenes desde un stream NDJSON y escribe los resultados en otro stream NDJSON.
+     *
+     * @param input Stream con una CreateOrderRequest en JSON por línea
+     * @param output Stream donde se escribe un BulkOrderResult por línea
+     * @return Número de órdenes creadas
+     * @throws IOException si falla la lectura o escritura de los streams
+     */
+    public long importOrders(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        List<OrderEntity> chunk = new ArrayList<>(chunkSize);
+        List<PendingLine> pending = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        long created = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            BulkOrderResult invalid = null;
+            OrderEntity order = null;
+            try {
+                CreateOrderRequest request = objectMapper.readValue(line, CreateOrderRequest.class);
+                Map<String, String> errors = validate(request);
+                if (errors.isEmpty()) {
+                    order = orderMapper.toEntity(request);
+                } else {
+                    invalid = BulkOrderResult.invalid(lineNumber, "Error de validación", errors);
+                }
+            } catch (JacksonException e) {
+                invalid = BulkOrderResult.invalid(lineNumber, "JSON inválido: " + e.getOriginalMessage(), null);
+            }
+
+            if (order != null) {
+                chunk.add(order);
+            }
+            pending.add(new PendingLine(lineNumber, order, invalid));
+
+            if (pending.size() >= chunkSize) {
+                created += flushChunk(chunk, pending, output);
+            }
+        }
+
+        created += flushChunk(chunk, pending, output);
+
+        logger.info("Bulk import finished - Lines: {}, Orders created: {}", lineNumber, created);
+        return created;
+    }
+
+    /**
+     * Persiste el bloque actual en una sola transacción y escribe los resultados pendientes.
+     * Si el bloque falla, todas sus órdenes se reportan como FAILED.
+     */
+    private long flushChunk(List<OrderEntity> chunk, List<PendingLine> pending, OutputStream output)
+            throws IOException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        boolean persisted = true;
+        if (!chunk.isEmpty()) {
+            try {
+                transactionTemplate.execute(status -> {
+                    for (OrderEntity order : chunk) {
+                        entityManager.persist(order);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                    return null;
+                });
+                logger.debug("Bulk chunk persisted - Orders: {}", chunk.size());
+            } catch (RuntimeException e) {
+                persisted = false;
+                logger.error("Error persisting bulk chunk of {} orders: {}", chunk.size(), e.getMessage(), e);
+            }
+        }
+
+        long created = 0;
+        for (PendingLine line : pending) {
+            BulkOrderResult result;
+            if (line.invalid() != null) {
+                result = line.invalid();
+            } else if (persisted) {
+                result = BulkOrderResult.created(line.number(), line.order().getId(),
+                        line.order().getTotalAmountMinor());
+                created++;
+            } else {
+                result = BulkOrderResult.failed(line.number(), "Error al persistir el bloque de órdenes");
+            }
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write(NEWLINE);
+        }
+        output.flush();
+
+        chunk.clear();
+        pending.clear();
+        return created;
+    }
+
+    /**
+     * Valida la orden con Bean Validation y devuelve los errores por campo.
+     */
+    private Map<String, String> validate(CreateOrderRequest request) {
+        Set<ConstraintViolation<CreateOrderRequest>> violations = validator.validate(request);
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (ConstraintViolation<CreateOrderRequest> violation : violations) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (!errors.containsKey("tenantId") && !tenantRegistry.contains(request.getTenantId())) {
+            errors.put("tenantId", StripeTenantRegistry.UNKNOWN_TENANT + request.getTenantId());
+        }
+        return errors;
+    }
+
+    /**
+     * Línea leída pendiente de confirmar junto con su bloque.
+     */
+    private record PendingLine(long number, OrderEntity order, BulkOrderResult invalid) {
+    }
+}
@@ -0,0 +1,52 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+
+/**
+ * Reglas de negocio del checkout que no dependen de cómo se lee la orden.
+ * Las usan el checkout síncrono, el asíncrono, el checkout por lotes y el módulo reactivo (reactive/),
+ * que compila esta clase desde las mismas fuentes.
+ */
+public final class CheckoutRules {
+
+    private CheckoutRules() {
+    }
+
+    /**
+     * Motivo por el que una orden no admite checkout, o null si lo admite.
+     *
+     * @param status Estado actual de la orden
+     * @param totalAmountMinor Total de la orden en unidades menores
+     * @param hasItems Si la orden tiene al menos un item
+     */
+    public static String checkoutError(OrderStatus status, Long totalAmountMinor, boolean hasItems) {
+        // Solo se puede hacer checkout de órdenes en estado CREATED
+        if (status != OrderStatus.CREATED) {
+            return invalidStateMessage(status);
+        }
+
+        // Validar que el total sea mayor a cero
+        if (totalAmountMinor == null || totalAmountMinor <= 0) {
+            return "El monto total de la orden debe ser mayor a cero";
+        }
+
+        // Validar que tenga items
+        if (!hasItems) {
+            return "La orden no tiene items";
+        }
+        return null;
+    }
+
+    /**
+     * Construye un mensaje descriptivo para estados inválidos.
+     */
+    public static String invalidStateMessage(OrderStatus status) {
+        return switch (status) {
+            case PAYMENT_PENDING -> "La orden ya tiene un pago en proceso";
+            case PAID -> "La orden ya fue pagada";
+            case FAILED -> "La orden tiene un pago fallido, cree una nueva orden";
+            case CANCELED -> "La orden está cancelada, cree una nueva orden";
+            default -> "La orden no está en un estado válido para checkout";
+        };
+    }
+}
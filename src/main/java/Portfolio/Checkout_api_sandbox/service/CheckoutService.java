@@ -5,27 +5,31 @@ import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
 import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
 import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
 import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
-import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentResult;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentRouter;
 import Portfolio.Checkout_api_sandbox.mapper.PaymentMapper;
 import Portfolio.Checkout_api_sandbox.model.OrderEntity;
 import Portfolio.Checkout_api_sandbox.model.OrderStatus;
 import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
-import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
 import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
 import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
 import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
-import com.stripe.model.PaymentIntent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service para gestionar el proceso de checkout.
- * Maneja la creación de Payment Intents en Stripe con idempotencia.
+ * Maneja la creación del pago (Payment Intent en Stripe) con idempotencia;
+ * la pasarela la elige PaymentRouter según el provider pedido y su salud.
  */
 @Service
 public class CheckoutService {
@@ -39,14 +43,25 @@ public class CheckoutService {
     private PaymentRepository paymentRepository;
 
     @Autowired
-    private StripePaymentClient stripePaymentClient;
+    private PaymentRouter paymentRouter;
 
     @Autowired
     private PaymentMapper paymentMapper;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
+    @Autowired
+    private OrderLockManager orderLockManager;
+
     /**
      * Inicia el proceso de checkout para una orden.
      * Implementa idempotencia mediante la clave de idempotencia.
+     * Los checkouts de una misma orden se ejecutan de a uno en este nodo (transacción incluida),
+     * y un pedido repetido con la misma clave recibe la respuesta del que ya está en curso.
      *
      * @param request Datos del checkout (orderId y provider)
      * @param idempotencyKey Clave única para prevenir pagos duplicados
@@ -55,11 +70,134 @@ public class CheckoutService {
      * @throws InvalidOrderStateException si la orden no está en estado válido
      * @throws IdempotencyConflictException si la clave ya fue usada
      */
-    @Transactional
     public CheckoutResponse initiateCheckout(CheckoutRequest request, String idempotencyKey) {
         logger.info("Initiating checkout for order {} with idempotency key: {}",
                     request.getOrderId(), idempotencyKey);
 
+        // 0. Si el intent de la orden se está pre-creando, esperarlo en lugar de crear otro
+        if (paymentIntentPrecreator.isEnabled()) {
+            paymentIntentPrecreator.awaitInFlight(request.getOrderId()).join();
+        }
+
+        return orderLockManager.coalesce(checkoutKey(request, idempotencyKey), () ->
+                orderLockManager.withOrderLock(request.getOrderId(), () ->
+                        transactionTemplate.execute(status -> checkoutInTransaction(request, idempotencyKey))));
+    }
+
+    /**
+     * Pasos 1-7 del checkout síncrono, en una sola transacción.
+     */
+    private CheckoutResponse checkoutInTransaction(CheckoutRequest request, String idempotencyKey) {
+        // 1-3. Verificar idempotencia, buscar y validar la orden
+        OrderEntity order = loadOrderForCheckout(request, idempotencyKey);
+
+        // 4a. Reclamar el Payment Intent pre-creado, sin llamar a Stripe
+        CheckoutResponse claimed = claimPrecreated(order, request.getProvider(), idempotencyKey);
+        if (claimed != null) {
+            return claimed;
+        }
+
+        // 4. Crear el pago en la pasarela elegida (con la cuenta del tenant de la orden)
+        PaymentResult payment = paymentRouter.create(
+                request.getProvider(),
+                order.getTenantId(),
+                order.getTotalAmountMinor(),
+                order.getCurrency(),
+                order.getId(),
+                idempotencyKey
+        );
+
+        // 5-7. Registrar el pago y pasar la orden a PAYMENT_PENDING
+        return recordPayment(order, idempotencyKey, payment);
+    }
+
+    /**
+     * Variante asíncrona del checkout: no bloquea el hilo del request mientras la pasarela responde.
+     * La validación y el registro del pago se hacen en dos transacciones cortas,
+     * sin mantener una conexión de base de datos abierta durante la llamada a la pasarela.
+     * Si la orden cambió de estado mientras tanto, se cancela el pago creado.
+     *
+     * @param request Datos del checkout (orderId y provider)
+     * @param idempotencyKey Clave única para prevenir pagos duplicados
+     * @return Future con el CheckoutResponse
+     * @throws OrderNotFoundException si la orden no existe
+     * @throws InvalidOrderStateException si la orden no está en estado válido
+     * @throws IdempotencyConflictException si la clave ya fue usada
+     */
+    public CompletableFuture<CheckoutResponse> initiateCheckoutAsync(CheckoutRequest request, String idempotencyKey) {
+        logger.info("Initiating async checkout for order {} with idempotency key: {}",
+                    request.getOrderId(), idempotencyKey);
+
+        // 0. Si el intent de la orden se está pre-creando, continuar cuando termine
+        if (paymentIntentPrecreator.isEnabled()) {
+            CompletableFuture<Void> precreation = paymentIntentPrecreator.awaitInFlight(request.getOrderId());
+            if (!precreation.isDone()) {
+                return precreation.thenCompose(ignored -> checkoutInTurnAsync(request, idempotencyKey));
+            }
+        }
+        return checkoutInTurnAsync(request, idempotencyKey);
+    }
+
+    /**
+     * Espera, sin bloquear el hilo, a que terminen las otras operaciones de la orden;
+     * un pedido repetido con la misma clave recibe la respuesta del que ya está en curso.
+     */
+    private CompletableFuture<CheckoutResponse> checkoutInTurnAsync(CheckoutRequest request, String idempotencyKey) {
+        return orderLockManager.coalesceAsync(checkoutKey(request, idempotencyKey), () ->
+                orderLockManager.withOrderLockAsync(request.getOrderId(), () ->
+                        startCheckoutAsync(request, idempotencyKey)));
+    }
+
+    private CompletableFuture<CheckoutResponse> startCheckoutAsync(CheckoutRequest request, String idempotencyKey) {
+        // 1-3. Validar en una transacción corta (4a. reclamando el intent pre-creado si lo hay)
+        CheckoutTarget target = transactionTemplate.execute(status -> {
+            OrderEntity order = loadOrderForCheckout(request, idempotencyKey);
+            return new CheckoutTarget(order.getId(), order.getTenantId(), order.getTotalAmountMinor(),
+                    order.getCurrency(), claimPrecreated(order, request.getProvider(), idempotencyKey));
+        });
+        if (target.claimed() != null) {
+            return CompletableFuture.completedFuture(target.claimed());
+        }
+
+        // 4. Crear el pago sin ocupar el hilo del request
+        return paymentRouter.createAsync(request.getProvider(), target.tenantId(), target.amountMinor(),
+                        target.currency(), target.orderId(), idempotencyKey)
+                .thenApply(payment -> recordPaymentAfterGateway(target, idempotencyKey, payment));
+    }
+
+    /**
+     * Registra el pago una vez que la pasarela respondió (paso 5-7 del checkout asíncrono).
+     */
+    private CheckoutResponse recordPaymentAfterGateway(CheckoutTarget target, String idempotencyKey,
+                                                       PaymentResult gatewayPayment) {
+        try {
+            return transactionTemplate.execute(status -> {
+                OrderEntity order = orderRepository.findById(target.orderId())
+                        .orElseThrow(() -> new OrderNotFoundException(target.orderId()));
+
+                // La orden pudo cambiar mientras se esperaba a la pasarela
+                if (order.getStatus() != OrderStatus.CREATED) {
+                    throw new InvalidOrderStateException(CheckoutRules.invalidStateMessage(order.getStatus()));
+                }
+                return recordPayment(order, idempotencyKey, gatewayPayment);
+            });
+        } catch (InvalidOrderStateException | DataIntegrityViolationException e) {
+            logger.warn("Order {} changed during async checkout, canceling payment {} in {}",
+                        target.orderId(), gatewayPayment.externalPaymentId(), gatewayPayment.gateway());
+            paymentRouter.cancelAsync(gatewayPayment.gateway(), target.tenantId(), gatewayPayment.externalPaymentId());
+            throw e instanceof InvalidOrderStateException invalid
+                    ? invalid
+                    : new InvalidOrderStateException(CheckoutRules.invalidStateMessage(OrderStatus.PAYMENT_PENDING));
+        }
+    }
+
+    /**
+     * Verifica la clave de idempotencia, busca la orden y valida que admita checkout.
+     */
+    private OrderEntity loadOrderForCheckout(CheckoutRequest request, String idempotencyKey) {
+        // 0. Rechazar pasarelas desconocidas antes de reclamar o crear nada
+        paymentRouter.checkProvider(request.getProvider());
+
         // 1. Verificar idempotencia
         Optional<PaymentEntity> existingPayment = paymentRepository.findByIdempotencyKey(idempotencyKey);
         if (existingPayment.isPresent()) {
@@ -74,22 +212,45 @@ public class CheckoutService {
         // 3. Validar estado de la orden
         validateOrderForCheckout(order);
 
-        // 4. Crear Payment Intent en Stripe
-        PaymentIntent paymentIntent = stripePaymentClient.createPaymentIntent(
-                order.getTotalAmountMinor(),
-                order.getCurrency(),
-                order.getId()
-        );
+        return order;
+    }
+
+    /**
+     * Reclama el Payment Intent pre-creado de la orden y la pasa a PAYMENT_PENDING.
+     *
+     * @return La respuesta del checkout, o null si no hay intent pre-creado que reclamar
+     */
+    private CheckoutResponse claimPrecreated(OrderEntity order, String providerHint, String idempotencyKey) {
+        if (!paymentIntentPrecreator.isEnabled()) {
+            return null;
+        }
+        PaymentEntity payment = paymentIntentPrecreator.claim(order.getId(), providerHint, idempotencyKey);
+        if (payment == null) {
+            return null;
+        }
+
+        logger.info("Claimed pre-created Payment Intent {} for order {}",
+                    payment.getExternalPaymentId(), order.getId());
+
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+        orderRepository.save(order);
 
-        logger.info("Payment Intent created in Stripe - ID: {}, Status: {}",
-                    paymentIntent.getId(), paymentIntent.getStatus());
+        return paymentMapper.toCheckoutResponse(payment);
+    }
+
+    /**
+     * Crea el registro de pago y pasa la orden a PAYMENT_PENDING.
+     */
+    private CheckoutResponse recordPayment(OrderEntity order, String idempotencyKey, PaymentResult gatewayPayment) {
+        logger.info("Payment created in {} - ID: {}, Status: {}",
+                    gatewayPayment.gateway(), gatewayPayment.externalPaymentId(), gatewayPayment.status());
 
         // 5. Crear registro de pago en la base de datos
         PaymentEntity payment = new PaymentEntity();
         payment.setOrder(order);
-        payment.setProvider(PaymentProvider.valueOf(request.getProvider().toUpperCase()));
-        payment.setExternalPaymentId(paymentIntent.getId());
-        payment.setClientSecret(paymentIntent.getClientSecret());
+        payment.setProvider(gatewayPayment.provider());
+        payment.setExternalPaymentId(gatewayPayment.externalPaymentId());
+        payment.setClientSecret(gatewayPayment.clientSecret());
         payment.setStatus(PaymentStatus.INITIATED);
         payment.setAmountMinor(order.getTotalAmountMinor());
         payment.setCurrency(order.getCurrency());
@@ -116,41 +277,17 @@ public class CheckoutService {
      * @throws InvalidOrderStateException si la orden no está en estado válido
      */
     private void validateOrderForCheckout(OrderEntity order) {
-        OrderStatus status = order.getStatus();
-
-        // Solo se puede hacer checkout de órdenes en estado CREATED
-        if (status != OrderStatus.CREATED) {
-            String message = buildInvalidStateMessage(status);
-            logger.warn("Invalid order state for checkout - Order: {}, Status: {}",
-                       order.getId(), status);
-            throw new InvalidOrderStateException(message);
-        }
-
-        // Validar que el total sea mayor a cero
-        if (order.getTotalAmountMinor() == null || order.getTotalAmountMinor() <= 0) {
-            logger.warn("Order {} has invalid total amount: {}",
-                       order.getId(), order.getTotalAmountMinor());
-            throw new InvalidOrderStateException("El monto total de la orden debe ser mayor a cero");
-        }
-
-        // Validar que tenga items
-        if (order.getItems() == null || order.getItems().isEmpty()) {
-            logger.warn("Order {} has no items", order.getId());
-            throw new InvalidOrderStateException("La orden no tiene items");
+        String error = CheckoutRules.checkoutError(order.getStatus(), order.getTotalAmountMinor(),
+                order.getItems() != null && !order.getItems().isEmpty());
+        if (error != null) {
+            logger.warn("Order {} cannot be checked out - Status: {}, Total: {}, Reason: {}",
+                       order.getId(), order.getStatus(), order.getTotalAmountMinor(), error);
+            throw new InvalidOrderStateException(error);
         }
     }
 
-    /**
-     * Construye un mensaje descriptivo para estados inválidos.
-     */
-    private String buildInvalidStateMessage(OrderStatus status) {
-        return switch (status) {
-            case PAYMENT_PENDING -> "La orden ya tiene un pago en proceso";
-            case PAID -> "La orden ya fue pagada";
-            case FAILED -> "La orden tiene un pago fallido, cree una nueva orden";
-            case CANCELED -> "La orden está cancelada, cree una nueva orden";
-            default -> "La orden no está en un estado válido para checkout";
-        };
+    private static String checkoutKey(CheckoutRequest request, String idempotencyKey) {
+        return request.getOrderId() + ":" + idempotencyKey;
     }
 
     /**
@@ -163,5 +300,12 @@ public class CheckoutService {
     public boolean isIdempotencyKeyUsed(String idempotencyKey) {
         return paymentRepository.findByIdempotencyKey(idempotencyKey).isPresent();
     }
-}
 
+    /**
+     * Datos de la orden necesarios para llamar a la pasarela fuera de la transacción
+     * (o la respuesta ya lista si se reclamó un intent pre-creado).
+     */
+    private record CheckoutTarget(UUID orderId, String tenantId, Long amountMinor, String currency,
+                                  CheckoutResponse claimed) {
+    }
+}
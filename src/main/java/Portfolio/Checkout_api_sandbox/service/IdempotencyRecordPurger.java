@@ -0,0 +1,76 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Borrado periódico de las claves de idempotencia vencidas (idempotency_records).
+ *
+ * Una clave vencida ya se puede reutilizar (ver IdempotencyRecordRepository.reserve); este job
+ * solo evita que la tabla crezca sin límite. Borra por lotes, cada uno en una transacción corta.
+ */
+@Component
+public class IdempotencyRecordPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyRecordPurger.class);
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.idempotency.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${orders.idempotency.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${orders.idempotency.purge.max-per-run:100000}")
+    private int maxPerRun;
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge.interval-ms:3600000}",
+               initialDelayString = "${orders.idempotency.purge.interval-ms:3600000}")
+    public void scheduledPurge() {
+        if (enabled) {
+            purge();
+        }
+    }
+
+    /**
+     * Borra claves vencidas, lote por lote, hasta que no quede ninguna o se llegue a max-per-run.
+     *
+     * @return Cantidad de claves borradas
+     */
+    public int purge() {
+        LocalDateTime legacyCutoff = LocalDateTime.now().minusHours(retentionHours);
+        int purged = 0;
+        while (purged < maxPerRun) {
+            Integer deleted = transactionTemplate.execute(
+                    status -> idempotencyRecordRepository.purgeExpired(legacyCutoff, batchSize));
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,68 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.repository.JobLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Exclusión entre instancias para los jobs programados (conciliación, barrido de pagos abandonados).
+ *
+ * Cada ejecución toma un lease en la tabla job_leases antes de empezar y lo libera al terminar;
+ * las demás instancias, al no poder tomarlo, saltean esa ejecución. Si la instancia muere con
+ * el lease tomado, vence solo pasado su TTL.
+ */
+@Component
+public class JobLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseManager.class);
+
+    // Identifica a esta instancia como dueña de los leases que toma
+    private final String owner = UUID.randomUUID().toString();
+
+    @Autowired
+    private JobLeaseRepository jobLeaseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Intenta tomar el lease del job.
+     *
+     * @param job Nombre del job
+     * @param ttl Tiempo máximo que se conserva el lease si no se libera
+     * @return true si esta instancia puede ejecutar el job
+     */
+    public boolean tryAcquire(String job, Duration ttl) {
+        try {
+            Integer acquired = transactionTemplate.execute(
+                    status -> jobLeaseRepository.acquire(job, owner, ttl.toSeconds()));
+            if (acquired == null || acquired == 0) {
+                logger.debug("Job {} is running on another instance, skipping", job);
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            // Sin poder confirmar el lease no se ejecuta: lo hará la siguiente ejecución
+            logger.warn("Could not acquire lease of job {}: {}", job, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Libera el lease del job para que la siguiente ejecución no espere a que venza.
+     */
+    public void release(String job) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jobLeaseRepository.release(job, owner));
+        } catch (DataAccessException e) {
+            logger.warn("Could not release lease of job {}, it will expire: {}", job, e.getMessage());
+        }
+    }
+}
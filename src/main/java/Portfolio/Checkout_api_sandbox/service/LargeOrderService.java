@@ -0,0 +1,195 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.request.OrderItemRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderItemEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.InputStream;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Service para crear órdenes con muchos items (B2B).
+ * Lee el JSON en streaming (un item a la vez) y persiste los items en bloques
+ * con JDBC batching, limpiando el contexto de persistencia entre bloques.
+ * La memoria usada es constante: nunca se materializa la lista completa de items.
+ */
+@Service
+public class LargeOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LargeOrderService.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${orders.large.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${orders.large.max-items:100000}")
+    private int maxItems;
+
+    /**
+     * Crea una orden leyendo el body en streaming.
+     * El JSON tiene el mismo formato que CreateOrderRequest, pero "currency" (y "tenantId", si se envía)
+     * deben ir antes de "items".
+     * Todo ocurre en una sola transacción: si un item es inválido, no se crea nada.
+     *
+     * @param input Stream con el JSON de la orden
+     * @return OrderResponse en modo resumen (sin items, con itemCount)
+     * @throws IllegalArgumentException si el JSON o algún item es inválido, o el tenant no existe
+     */
+    @Transactional
+    public OrderResponse createLargeOrder(InputStream input) {
+        // Cada item se lee dentro del array, así que lo que sigue no es un token sobrante
+        ObjectReader itemReader = objectMapper.readerFor(OrderItemRequest.class)
+                .without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("El body debe ser un objeto JSON");
+            }
+
+            String currency = null;
+            String tenantId = null;
+            OrderEntity order = null;
+            int itemCount = 0;
+            long totalAmount = 0L;
+
+            while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("currency".equals(field)) {
+                    currency = parser.getValueAsString();
+                    validateField("currency", currency);
+                } else if ("tenantId".equals(field)) {
+                    if (order != null) {
+                        throw new IllegalArgumentException("El campo 'tenantId' debe enviarse antes de 'items'");
+                    }
+                    tenantId = parser.getValueAsString();
+                    validateField("tenantId", tenantId);
+                    tenantRegistry.requireKnown(tenantId);
+                } else if ("items".equals(field)) {
+                    if (currency == null) {
+                        throw new IllegalArgumentException("El campo 'currency' debe enviarse antes de 'items'");
+                    }
+                    if (value != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("El campo 'items' debe ser un array");
+                    }
+
+                    // Se inserta la orden primero para que los items puedan referenciarla
+                    order = new OrderEntity();
+                    order.setCurrency(currency);
+                    if (tenantId != null) {
+                        order.setTenantId(tenantId);
+                    }
+                    order.setStatus(OrderStatus.CREATED);
+                    order.setTotalAmountMinor(0L);
+                    entityManager.persist(order);
+                    OrderEntity orderRef = order;
+
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (++itemCount > maxItems) {
+                            throw new IllegalArgumentException("La orden supera el máximo de " + maxItems + " items");
+                        }
+                        OrderItemRequest itemRequest = itemReader.readValue(parser);
+                        validateItem(itemCount, itemRequest);
+
+                        OrderItemEntity item = orderMapper.toItemEntity(itemRequest, itemCount);
+                        item.setOrder(orderRef);
+                        entityManager.persist(item);
+                        totalAmount += item.getSubtotalMinor();
+
+                        if (itemCount % chunkSize == 0) {
+                            orderRef = flushChunk(order.getId());
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (order == null || itemCount == 0) {
+                throw new IllegalArgumentException("Debe incluir al menos un item");
+            }
+
+            entityManager.flush();
+            entityManager.clear();
+            orderRepository.updateTotalAmount(order.getId(), totalAmount);
+
+            logger.info("Large order created successfully - ID: {}, Items: {}, Total: {} {}",
+                        order.getId(), itemCount, totalAmount, currency);
+
+            order.setTotalAmountMinor(totalAmount);
+            return orderMapper.toSummaryResponse(order, itemCount);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Envía el bloque actual a la base de datos y libera el contexto de persistencia.
+     *
+     * @return Referencia a la orden para los items del siguiente bloque
+     */
+    private OrderEntity flushChunk(UUID orderId) {
+        entityManager.flush();
+        entityManager.clear();
+        logger.debug("Large order chunk flushed - Order: {}", orderId);
+        return entityManager.getReference(OrderEntity.class, orderId);
+    }
+
+    private void validateField(String field, String value) {
+        Set<ConstraintViolation<CreateOrderRequest>> violations =
+                validator.validateValue(CreateOrderRequest.class, field, value);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.iterator().next().getMessage());
+        }
+    }
+
+    private void validateItem(int lineNumber, OrderItemRequest item) {
+        Set<ConstraintViolation<OrderItemRequest>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<OrderItemRequest> violation = violations.iterator().next();
+            throw new IllegalArgumentException(
+                    "Item " + lineNumber + " (" + violation.getPropertyPath() + "): " + violation.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Numera los items creados antes de que existiera line_number.
+ *
+ * La paginación de items es por keyset sobre lineNumber y un item sin número no aparecería en
+ * ninguna página. Como el esquema lo mantiene ddl-auto (no hay migraciones), la columna se agrega
+ * vacía y este componente la completa al arrancar, por lotes de órdenes en transacciones cortas.
+ * Es idempotente: cuando ya no quedan items sin número, el primer lote no actualiza nada.
+ */
+@Component
+public class OrderItemLineBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderItemLineBackfill.class);
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.line-backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.line-backfill.batch-orders:500}")
+    private int batchOrders;
+
+    /**
+     * Numera los items pendientes, lote por lote, hasta que no quede ninguno.
+     *
+     * @return Cantidad total de items numerados
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public long backfill() {
+        if (!enabled) {
+            return 0;
+        }
+
+        long total = 0;
+        while (true) {
+            Integer updated = transactionTemplate.execute(
+                    status -> orderItemRepository.backfillLineNumbers(batchOrders));
+            if (updated == null || updated == 0) {
+                break;
+            }
+            total += updated;
+            logger.info("Backfilled line numbers of {} order items ({} so far)", updated, total);
+        }
+
+        if (total > 0) {
+            logger.info("Line number backfill finished - {} order items numbered", total);
+        }
+        return total;
+    }
+}
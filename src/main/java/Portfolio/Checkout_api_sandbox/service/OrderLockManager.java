@@ -0,0 +1,285 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.exception.OrderBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Serializa en este nodo las operaciones que modifican una misma orden (checkout y webhooks).
+ *
+ * Cada orden tiene una cola de turnos: una operación empieza cuando termina la anterior de la misma orden,
+ * así el segundo checkout de un doble click ve la orden ya en PAYMENT_PENDING y falla sin llamar a Stripe.
+ * Las órdenes distintas no se esperan entre sí. El turno no está atado a un hilo, por lo que sirve
+ * también para el checkout asíncrono, que libera el turno cuando Stripe responde y el pago queda registrado.
+ *
+ * Además, los pedidos idénticos en curso (misma orden y misma clave de idempotencia) se agrupan:
+ * los repetidos reciben el resultado del primero en lugar de volver a ejecutarse.
+ *
+ * Solo protege dentro de un nodo; entre nodos siguen valiendo la clave de idempotencia y el estado de la orden.
+ */
+@Component
+public class OrderLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderLockManager.class);
+
+    private static final String DUPLICATE_IN_FLIGHT = "Hay un pedido idéntico en curso, reintente más tarde";
+    private static final String ORDER_BUSY = "La orden tiene otra operación en curso, reintente más tarde";
+
+    private static final CompletableFuture<Void> FREE = CompletableFuture.completedFuture(null);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${orders.locks.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    @Value("${orders.locks.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    /** Último turno de cada orden con operaciones en curso o en espera. */
+    private final ConcurrentHashMap<UUID, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /** Resultado del primer pedido de cada clave en curso. */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong waited = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null) {
+            return;
+        }
+        Gauge.builder("orders.locks.active", tails, ConcurrentHashMap::size)
+                .description("Órdenes con operaciones en curso o en espera en este nodo")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.locks.waited", waited, AtomicLong::get)
+                .description("Operaciones que esperaron a otra de la misma orden")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.locks.coalesced", coalesced, AtomicLong::get)
+                .description("Pedidos repetidos que recibieron el resultado del primero")
+                .register(meterRegistry);
+        FunctionCounter.builder("orders.locks.timeouts", timedOut, AtomicLong::get)
+                .description("Operaciones rechazadas por esperar demasiado su turno")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la acción cuando terminan las operaciones previas de la orden, bloqueando el hilo mientras espera.
+     * Si la acción abre una transacción, debe hacerlo dentro del turno para que el commit ocurra antes de liberarlo.
+     *
+     * @throws OrderBusyException si la orden sigue ocupada después del tiempo de espera
+     */
+    public <T> T withOrderLock(UUID orderId, Supplier<T> action) {
+        Turn turn = enqueue(orderId);
+        try {
+            awaitTurn(orderId, turn, deadline());
+            return action.get();
+        } finally {
+            turn.release();
+        }
+    }
+
+    /**
+     * Ejecuta la acción con el turno de todas las órdenes indicadas (p. ej. un checkout por lotes).
+     * Los turnos se toman de a uno y en orden de ID, así dos lotes que comparten órdenes no se bloquean mutuamente.
+     * El tiempo de espera acota la espera de todo el lote, no la de cada orden.
+     *
+     * @throws OrderBusyException si alguna orden sigue ocupada después del tiempo de espera
+     */
+    public <T> T withOrderLocks(Collection<UUID> orderIds, Supplier<T> action) {
+        List<UUID> sorted = orderIds.stream().distinct().sorted().toList();
+        List<Turn> held = new ArrayList<>(sorted.size());
+        long deadline = deadline();
+        try {
+            for (UUID orderId : sorted) {
+                Turn turn = enqueue(orderId);
+                held.add(turn);
+                awaitTurn(orderId, turn, deadline);
+            }
+            return action.get();
+        } finally {
+            held.forEach(Turn::release);
+        }
+    }
+
+    /**
+     * Variante asíncrona: la acción arranca cuando terminan las operaciones previas de la orden,
+     * sin bloquear el hilo que llama, y el turno se libera cuando se completa el future que devuelve.
+     */
+    public <T> CompletableFuture<T> withOrderLockAsync(UUID orderId, Supplier<CompletableFuture<T>> action) {
+        Turn turn = enqueue(orderId);
+        CompletableFuture<T> result = turn.previous().copy()
+                .orTimeout(waitTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    throw busy(orderId);
+                })
+                .thenCompose(ignored -> action.get());
+        result.whenComplete((value, error) -> turn.release());
+        return result;
+    }
+
+    /**
+     * Ejecuta el pedido, o si ya hay uno idéntico en curso espera su resultado (o su excepción).
+     *
+     * @param key Identidad del pedido, p. ej. orden + clave de idempotencia
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String key, Supplier<T> work) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            logger.info("Coalescing duplicate request {}", key);
+            return (T) awaitLeader(leader);
+        }
+
+        try {
+            T value = work.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Variante asíncrona de coalesce.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> coalesceAsync(String key, Supplier<CompletableFuture<T>> work) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            logger.info("Coalescing duplicate request {}", key);
+            return leader.thenApply(value -> (T) value);
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = work.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            inFlight.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(value);
+            }
+        });
+        return result;
+    }
+
+    public int getActiveCount() {
+        return tails.size();
+    }
+
+    public long getWaitedCount() {
+        return waited.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getTimeoutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Se pone al final de la cola de la orden. El turno siguiente queda libre cuando terminaron
+     * el anterior y este, aunque este se abandone por timeout antes de empezar.
+     */
+    private Turn enqueue(UUID orderId) {
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(orderId, slot);
+        if (previous == null) {
+            previous = FREE;
+        } else if (!previous.isDone()) {
+            waited.incrementAndGet();
+        }
+        previous.runAfterBoth(done, () -> {
+            tails.remove(orderId, slot);
+            slot.complete(null);
+        });
+        return new Turn(previous, done);
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+    }
+
+    /**
+     * Espera el turno hasta el deadline (en System.nanoTime()).
+     */
+    private void awaitTurn(UUID orderId, Turn turn, long deadline) {
+        try {
+            turn.previous().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw busy(orderId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw busy(orderId);
+        } catch (ExecutionException e) {
+            // Los turnos siempre se completan normalmente
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Object awaitLeader(CompletableFuture<Object> leader) {
+        try {
+            return leader.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            timedOut.incrementAndGet();
+            throw new OrderBusyException(DUPLICATE_IN_FLIGHT, retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderBusyException(DUPLICATE_IN_FLIGHT, retryAfterSeconds);
+        }
+    }
+
+    private OrderBusyException busy(UUID orderId) {
+        timedOut.incrementAndGet();
+        logger.warn("Timed out waiting for order {} to be released", orderId);
+        return new OrderBusyException(ORDER_BUSY, retryAfterSeconds);
+    }
+
+    private record Turn(CompletableFuture<Void> previous, CompletableFuture<Void> done) {
+
+        void release() {
+            done.complete(null);
+        }
+    }
+}
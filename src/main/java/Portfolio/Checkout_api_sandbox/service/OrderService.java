@@ -1,19 +1,38 @@
 package Portfolio.Checkout_api_sandbox.service;
 
+import Portfolio.Checkout_api_sandbox.cache.TtlCache;
 import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemPageResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemResponse;
 import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
 import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
 import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.IdempotencyRecordEntity;
 import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderItemEntity;
 import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.repository.IdempotencyRecordRepository;
+import Portfolio.Checkout_api_sandbox.repository.OrderItemRepository;
 import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.ObjectMapper;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service para gestionar órdenes.
@@ -24,23 +43,57 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    private static final String IDEMPOTENCY_SCOPE = "ORDER_CREATE";
+
+    private static final int MAX_ITEMS_PAGE_SIZE = 500;
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Value("${orders.idempotency.cache-ttl-seconds:600}")
+    private long idempotencyCacheTtlSeconds;
+
+    @Value("${orders.idempotency.retention-hours:24}")
+    private long idempotencyRetentionHours;
+
+    // Respuestas recientes por clave de idempotencia (evita ir a la base de datos en reintentos)
+    private final TtlCache<String, IdempotentResponse> idempotencyCache = new TtlCache<>(10_000);
+
     /**
      * Crea una nueva orden con items y calcula los totales.
      *
      * @param request Datos de la orden (moneda e items)
      * @return OrderResponse con la orden creada
+     * @throws IllegalArgumentException si el tenant no existe
      */
     @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
         logger.info("Creating new order - Currency: {}, Items count: {}",
                     request.getCurrency(), request.getItems().size());
 
+        tenantRegistry.requireKnown(request.getTenantId());
+
         // Convertir DTO a Entity (el mapper calcula subtotales y total)
         OrderEntity order = orderMapper.toEntity(request);
 
@@ -50,10 +103,146 @@ public class OrderService {
         logger.info("Order created successfully - ID: {}, Total: {} {}",
                     savedOrder.getId(), savedOrder.getTotalAmountMinor(), savedOrder.getCurrency());
 
+        // Pre-crear el Payment Intent al confirmar (si está habilitado) para acelerar el checkout
+        paymentIntentPrecreator.precreateAfterCommit(savedOrder);
+
         // Convertir Entity a Response DTO
         return orderMapper.toResponse(savedOrder);
     }
 
+    /**
+     * Crea una orden de forma idempotente.
+     * Si la clave ya fue usada con el mismo payload, devuelve la respuesta original sin volver a escribir:
+     * la misma desde la caché o desde la reserva, aunque la orden haya cambiado después.
+     * La reserva de la clave y la creación de la orden se confirman en la misma transacción.
+     * La clave vence a las retention-hours y desde ahí se puede reutilizar.
+     *
+     * @param request Datos de la orden (moneda e items)
+     * @param idempotencyKey Clave de idempotencia enviada por el cliente (opcional)
+     * @return OrderResponse con la orden creada o la original si es un reintento
+     * @throws IdempotencyConflictException si la clave ya se usó con un payload distinto
+     */
+    @Transactional
+    public OrderResponse createOrder(CreateOrderRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createOrder(request);
+        }
+
+        String requestHash = hashRequest(request);
+
+        // 1. Reintento reciente: responder desde la caché
+        IdempotentResponse cached = idempotencyCache.get(idempotencyKey);
+        if (cached != null) {
+            return replay(idempotencyKey, requestHash, cached.requestHash(), cached.response());
+        }
+
+        // 2. Reservar la clave de forma atómica
+        int reserved = idempotencyRecordRepository.reserve(UUID.randomUUID(), IDEMPOTENCY_SCOPE, idempotencyKey,
+                requestHash, TimeUnit.HOURS.toSeconds(idempotencyRetentionHours));
+
+        if (reserved == 0) {
+            IdempotencyRecordEntity record = idempotencyRecordRepository
+                    .findByScopeAndIdempotencyKey(IDEMPOTENCY_SCOPE, idempotencyKey)
+                    .orElseThrow(() -> new IdempotencyConflictException(idempotencyKey));
+
+            if (record.getResourceId() == null) {
+                logger.warn("Idempotency key {} is reserved but has no order yet", idempotencyKey);
+                throw new IdempotencyConflictException(idempotencyKey);
+            }
+
+            OrderResponse original = originalResponse(record);
+            cacheAfterCommit(idempotencyKey, new IdempotentResponse(record.getRequestHash(), original));
+            return replay(idempotencyKey, requestHash, record.getRequestHash(), original);
+        }
+
+        // 3. Clave nueva: crear la orden y asociarla a la reserva
+        OrderResponse response = createOrder(request);
+        idempotencyRecordRepository.complete(IDEMPOTENCY_SCOPE, idempotencyKey, response.getOrderId(),
+                objectMapper.writeValueAsString(response));
+        cacheAfterCommit(idempotencyKey, new IdempotentResponse(requestHash, response));
+
+        return response;
+    }
+
+    /**
+     * Respuesta guardada con la reserva. Las reservas anteriores a response_body no la tienen:
+     * se arma con el estado actual de la orden.
+     */
+    private OrderResponse originalResponse(IdempotencyRecordEntity record) {
+        if (record.getResponseBody() != null) {
+            return objectMapper.readValue(record.getResponseBody(), OrderResponse.class);
+        }
+        return orderMapper.toResponse(findOrderById(record.getResourceId()));
+    }
+
+    /**
+     * Devuelve la respuesta original si el payload coincide; si no, es un conflicto.
+     */
+    private OrderResponse replay(String idempotencyKey, String requestHash,
+                                 String originalHash, OrderResponse original) {
+        if (!originalHash.equals(requestHash)) {
+            logger.warn("Idempotency key {} reused with a different payload", idempotencyKey);
+            throw new IdempotencyConflictException(idempotencyKey);
+        }
+        logger.info("Replaying order {} for idempotency key {}", original.getOrderId(), idempotencyKey);
+        return original;
+    }
+
+    /**
+     * Guarda la respuesta en caché solo cuando la transacción se confirma.
+     */
+    private void cacheAfterCommit(String idempotencyKey, IdempotentResponse response) {
+        long ttlMillis = idempotencyCacheTtlSeconds * 1000L;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            idempotencyCache.put(idempotencyKey, response, ttlMillis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                idempotencyCache.put(idempotencyKey, response, ttlMillis);
+            }
+        });
+    }
+
+    /**
+     * Calcula el hash SHA-256 del payload para detectar reutilización de claves con otro contenido.
+     */
+    private String hashRequest(CreateOrderRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Acepta una orden en modo write-behind: asigna el ID y calcula totales de inmediato,
+     * y la persistencia ocurre después en lote.
+     *
+     * @param request Datos de la orden (moneda e items)
+     * @return OrderResponse con la orden aceptada (aún no confirmada en la base de datos)
+     * @throws Portfolio.Checkout_api_sandbox.exception.OrderBufferFullException si el buffer está lleno
+     * @throws IllegalArgumentException si el tenant no existe
+     */
+    public OrderResponse acceptOrder(CreateOrderRequest request) {
+        tenantRegistry.requireKnown(request.getTenantId());
+        OrderResponse response = writeBehindBuffer.accept(request);
+
+        logger.info("Order accepted for write-behind - ID: {}, Total: {} {}",
+                    response.getOrderId(), response.getTotalAmountMinor(), response.getCurrency());
+
+        return response;
+    }
+
+    /**
+     * Indica si el modo write-behind está habilitado.
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeBehindBuffer.isEnabled();
+    }
+
     /**
      * Obtiene una orden por su ID.
      *
@@ -65,12 +254,89 @@ public class OrderService {
     public OrderResponse getOrder(UUID orderId) {
         logger.debug("Fetching order with ID: {}", orderId);
 
+        // Órdenes aceptadas en modo write-behind que aún no se han confirmado
+        OrderResponse buffered = writeBehindBuffer.find(orderId);
+        if (buffered != null) {
+            return buffered;
+        }
+
         OrderEntity order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException(orderId));
 
         return orderMapper.toResponse(order);
     }
 
+    /**
+     * Obtiene una orden en modo resumen: sin la lista de items, solo su cantidad.
+     * No carga los items (útil para órdenes con miles de líneas).
+     *
+     * @param orderId UUID de la orden
+     * @return OrderResponse con itemCount y sin items
+     * @throws OrderNotFoundException si la orden no existe
+     */
+    @Transactional(readOnly = true)
+    public OrderResponse getOrderSummary(UUID orderId) {
+        logger.debug("Fetching order summary with ID: {}", orderId);
+
+        OrderResponse buffered = writeBehindBuffer.find(orderId);
+        if (buffered != null) {
+            OrderResponse summary = new OrderResponse(buffered.getOrderId(), buffered.getStatus(),
+                    buffered.getCurrency(), buffered.getTotalAmountMinor(), null, buffered.getCreatedAt());
+            summary.setItemCount(buffered.getItemCount());
+            return summary;
+        }
+
+        OrderEntity order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+
+        return orderMapper.toSummaryResponse(order, orderItemRepository.countByOrderId(orderId));
+    }
+
+    /**
+     * Obtiene una página de items de una orden, paginando por keyset sobre lineNumber.
+     *
+     * @param orderId UUID de la orden
+     * @param afterLine Cursor: se devuelven los items con lineNumber mayor (0 para la primera página)
+     * @param limit Tamaño de página (máximo 500)
+     * @return OrderItemPageResponse con los items y el cursor de la siguiente página
+     * @throws OrderNotFoundException si la orden no existe
+     */
+    @Transactional(readOnly = true)
+    public OrderItemPageResponse getOrderItems(UUID orderId, int afterLine, int limit) {
+        if (afterLine < 0) {
+            throw new IllegalArgumentException("El parámetro 'after' no puede ser negativo");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_ITEMS_PAGE_SIZE));
+
+        logger.debug("Fetching items of order {} after line {} (limit {})", orderId, afterLine, pageSize);
+
+        // Órdenes en el buffer write-behind: se pagina sobre la lista en memoria
+        OrderResponse buffered = writeBehindBuffer.find(orderId);
+        if (buffered != null) {
+            List<OrderItemResponse> remaining = buffered.getItems().stream()
+                    .filter(item -> item.getLineNumber() > afterLine)
+                    .toList();
+            return toPage(orderId, remaining, pageSize);
+        }
+
+        if (!orderRepository.existsById(orderId)) {
+            throw new OrderNotFoundException(orderId);
+        }
+
+        // Se pide un item extra para saber si hay siguiente página
+        List<OrderItemEntity> items = orderItemRepository.findPage(orderId, afterLine, Limit.of(pageSize + 1));
+
+        return toPage(orderId, items.stream().map(orderMapper::toItemResponse).toList(), pageSize);
+    }
+
+    private OrderItemPageResponse toPage(UUID orderId, List<OrderItemResponse> items, int pageSize) {
+        if (items.size() <= pageSize) {
+            return new OrderItemPageResponse(orderId, items, null);
+        }
+        List<OrderItemResponse> page = items.subList(0, pageSize);
+        return new OrderItemPageResponse(orderId, page, page.get(pageSize - 1).getLineNumber());
+    }
+
     /**
      * Actualiza el estado de una orden.
      * Usado internamente por CheckoutService y WebhookService.
@@ -104,5 +370,10 @@ public class OrderService {
         return orderRepository.findById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException(orderId));
     }
-}
 
+    /**
+     * Respuesta original asociada a una clave de idempotencia.
+     */
+    private record IdempotentResponse(String requestHash, OrderResponse response) {
+    }
+}
@@ -0,0 +1,492 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.exception.OrderBufferFullException;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.TimeOrderedIdGenerator;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.exception.JDBCConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer de escritura diferida (write-behind) para la creación de órdenes.
+ *
+ * Las órdenes aceptadas se encolan en memoria (cola acotada) y un único hilo escritor
+ * las persiste en lotes, confirmando varias órdenes por transacción (group commit).
+ * Mientras no se confirman, las lecturas se sirven desde el buffer.
+ * Si la cola está llena, las órdenes se derraman a un journal en disco (con fsync)
+ * que el escritor reprocesa cuando la cola se vacía; si el journal también está lleno,
+ * se rechaza la orden con 503 (backpressure). Si un reproceso falla (base de datos caída),
+ * el siguiente espera un intervalo que se duplica en cada fallo, con un solo log por intento.
+ * Si un lote falla, se reintenta orden por orden: las órdenes que fallan por un error no transitorio
+ * (datos inválidos, restricciones) van a un archivo dead-letter en lugar de volver al journal.
+ *
+ * Solo se activa con orders.write-behind.enabled=true.
+ */
+@Component
+public class OrderWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderWriteBehindBuffer.class);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${orders.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${orders.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${orders.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${orders.write-behind.max-batch-delay-ms:20}")
+    private long maxBatchDelayMs;
+
+    @Value("${orders.write-behind.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${orders.write-behind.spill-dir:${java.io.tmpdir}/checkout-order-spill}")
+    private String spillDir;
+
+    @Value("${orders.write-behind.spill-max-bytes:268435456}")
+    private long spillMaxBytes;
+
+    @Value("${orders.write-behind.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    @Value("${orders.write-behind.replay-backoff-initial-ms:1000}")
+    private long replayBackoffInitialMs;
+
+    @Value("${orders.write-behind.replay-backoff-max-ms:60000}")
+    private long replayBackoffMaxMs;
+
+    // Respuestas de órdenes aceptadas y aún no confirmadas en la base de datos
+    private final ConcurrentHashMap<UUID, OrderResponse> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock spillLock = new ReentrantLock();
+
+    private BlockingQueue<BufferedOrder> queue;
+    private Path spillFile;
+    private Path replayFile;
+    private Path deadLetterFile;
+    // Órdenes del journal en reproceso ya resueltas (confirmadas o en dead-letter); solo lo usa el escritor
+    private long replayOffset;
+    // Espera tras un reproceso fallido (0 si el último no falló), el próximo intento y su causa; solo el escritor
+    private long replayBackoffMs;
+    private long nextReplayNanos;
+    private Exception replayFailure;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        Path directory = Paths.get(spillDir);
+        Files.createDirectories(directory);
+        spillFile = directory.resolve("orders.spill.ndjson");
+        replayFile = directory.resolve("orders.replay.ndjson");
+        deadLetterFile = directory.resolve("orders.dead-letter.ndjson");
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        running = true;
+        writer = new Thread(this::runWriter, "order-write-behind");
+        writer.start();
+
+        logger.info("Order write-behind enabled - Queue capacity: {}, Batch size: {}, Spill dir: {}",
+                    queueCapacity, batchSize, directory);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        logger.info("Order write-behind stopped - Pending orders: {}", pending.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Acepta una orden: asigna un ID ordenado por tiempo, calcula totales y la encola.
+     *
+     * @param request Datos de la orden ya validados
+     * @return OrderResponse con el ID asignado (la orden aún no está confirmada)
+     * @throws OrderBufferFullException si la cola y el journal están llenos
+     */
+    public OrderResponse accept(CreateOrderRequest request) {
+        BufferedOrder buffered = new BufferedOrder(TimeOrderedIdGenerator.nextId(), LocalDateTime.now(), request);
+        OrderResponse response = orderMapper.toResponse(toEntity(buffered));
+        pending.put(buffered.id(), response);
+
+        try {
+            if (queue.offer(buffered, offerTimeoutMs, TimeUnit.MILLISECONDS) || spill(List.of(buffered))) {
+                return response;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        pending.remove(buffered.id());
+        logger.warn("Order write-behind buffer and spill journal are full, rejecting order");
+        throw new OrderBufferFullException(retryAfterSeconds);
+    }
+
+    /**
+     * Busca una orden aceptada que todavía no se ha confirmado.
+     *
+     * @return OrderResponse o null si no está en el buffer
+     */
+    public OrderResponse find(UUID orderId) {
+        return pending.isEmpty() ? null : pending.get(orderId);
+    }
+
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Bucle del hilo escritor: agrupa lo que haya en la cola (hasta batchSize) en una transacción.
+     * Cuando la cola está vacía, reprocesa el journal de disco (si no está esperando tras un fallo).
+     */
+    private void runWriter() {
+        List<BufferedOrder> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                BufferedOrder first = queue.poll(maxBatchDelayMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpillIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                List<BufferedOrder> unsaved = write(batch, false);
+                if (!unsaved.isEmpty() && !spill(unsaved)) {
+                    unsaved.forEach(order -> pending.remove(order.id()));
+                    logger.error("Lost {} buffered orders: database and spill journal unavailable", unsaved.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in order write-behind writer: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Persiste un lote en una sola transacción. Si falla por un error no transitorio, reintenta
+     * orden por orden para que una orden inválida no arrastre al resto del lote; las que vuelven
+     * a fallar se mueven al dead-letter. Ante un error transitorio (base de datos no disponible)
+     * se detiene y devuelve las órdenes pendientes para derramarlas o reintentarlas.
+     *
+     * @return órdenes no persistidas (sufijo del lote), vacío si todas quedaron resueltas
+     */
+    private List<BufferedOrder> write(List<BufferedOrder> batch, boolean fromSpill) {
+        try {
+            commit(batch, fromSpill);
+            return List.of();
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                if (fromSpill) {
+                    replayFailure = e;
+                } else {
+                    logger.error("Error committing write-behind batch of {} orders: {}",
+                                 batch.size(), e.getMessage(), e);
+                }
+                return batch;
+            }
+            if (batch.size() == 1) {
+                return deadLetter(batch.get(0), e) ? List.of() : batch;
+            }
+            logger.warn("Write-behind batch of {} orders failed, retrying one by one: {}",
+                        batch.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            BufferedOrder order = batch.get(i);
+            try {
+                commit(List.of(order), fromSpill);
+            } catch (RuntimeException e) {
+                if (isTransient(e) || !deadLetter(order, e)) {
+                    if (fromSpill) {
+                        replayFailure = e;
+                    } else {
+                        logger.error("Error committing write-behind order {}: {}", order.id(), e.getMessage(), e);
+                    }
+                    return batch.subList(i, batch.size());
+                }
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Confirma las órdenes en una transacción.
+     * Al reprocesar el journal se omiten las órdenes que ya existen (reintentos tras una caída).
+     */
+    private void commit(List<BufferedOrder> orders, boolean fromSpill) {
+        transactionTemplate.execute(status -> {
+            Set<UUID> existing = fromSpill
+                    ? new HashSet<>(orderRepository.findExistingIds(orders.stream().map(BufferedOrder::id).toList()))
+                    : Set.of();
+            for (BufferedOrder order : orders) {
+                if (!existing.contains(order.id())) {
+                    entityManager.persist(toEntity(order));
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
+        orders.forEach(order -> pending.remove(order.id()));
+        logger.debug("Write-behind batch committed - Orders: {}, From spill: {}", orders.size(), fromSpill);
+    }
+
+    /**
+     * Errores que se resuelven reintentando más tarde (conexión, timeouts, base de datos caída).
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof JDBCConnectionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Agrega una orden que no se puede persistir al archivo dead-letter (con fsync) y la saca del buffer.
+     *
+     * @return false si no se pudo escribir (la orden se conserva para reintentarla)
+     */
+    private boolean deadLetter(BufferedOrder order, RuntimeException error) {
+        try (FileChannel channel = FileChannel.open(deadLetterFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            line.write(objectMapper.writeValueAsBytes(
+                    new DeadLetterOrder(order, String.valueOf(error.getMessage()), LocalDateTime.now())));
+            line.write('\n');
+            channel.write(ByteBuffer.wrap(line.toByteArray()));
+            channel.force(false);
+        } catch (IOException e) {
+            logger.error("Error writing order dead-letter file {}: {}", deadLetterFile, e.getMessage(), e);
+            return false;
+        }
+        pending.remove(order.id());
+        logger.error("Order {} moved to dead-letter file {}: {}", order.id(), deadLetterFile, error.getMessage());
+        return true;
+    }
+
+    /**
+     * Agrega órdenes al journal de disco y fuerza la escritura (fsync).
+     *
+     * @return false si el journal superó su tamaño máximo o no se pudo escribir
+     */
+    private boolean spill(List<BufferedOrder> orders) {
+        spillLock.lock();
+        try (FileChannel channel = FileChannel.open(spillFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (channel.size() >= spillMaxBytes) {
+                return false;
+            }
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (BufferedOrder order : orders) {
+                lines.write(objectMapper.writeValueAsBytes(order));
+                lines.write('\n');
+            }
+            channel.write(ByteBuffer.wrap(lines.toByteArray()));
+            channel.force(false);
+            return true;
+        } catch (IOException e) {
+            logger.error("Error writing order spill journal {}: {}", spillFile, e.getMessage(), e);
+            return false;
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Reprocesa el journal si ya pasó la espera del último fallo. Cada fallo duplica la espera
+     * (desde replay-backoff-initial-ms hasta replay-backoff-max-ms) y se registra una sola vez,
+     * así la base de datos caída no produce un intento y un stack trace en cada vuelta del escritor.
+     */
+    private void replaySpillIfDue() {
+        if (replayBackoffMs > 0 && System.nanoTime() - nextReplayNanos < 0) {
+            return;
+        }
+        boolean replayed;
+        try {
+            replayed = replaySpill();
+        } catch (RuntimeException e) {
+            // Línea ilegible u otro error inesperado: también espera, en lugar de reintentar en cada vuelta
+            replayFailure = e;
+            replayed = false;
+        }
+        if (replayed) {
+            if (replayBackoffMs > 0) {
+                logger.info("Order spill journal replay resumed");
+            }
+            replayBackoffMs = 0;
+            return;
+        }
+
+        replayBackoffMs = replayBackoffMs == 0
+                ? replayBackoffInitialMs
+                : Math.min(replayBackoffMs * 2, replayBackoffMaxMs);
+        nextReplayNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(replayBackoffMs);
+        Exception failure = replayFailure;
+        replayFailure = null;
+        logger.error("Error replaying order spill journal {}, next attempt in {} ms: {}",
+                     replayFile, replayBackoffMs, failure != null ? failure.getMessage() : "unknown error", failure);
+    }
+
+    /**
+     * Reprocesa el journal: lo renombra (las nuevas órdenes derramadas van a un archivo nuevo),
+     * lo persiste por lotes y lo borra. Si la base de datos no está disponible, el archivo se conserva
+     * y el siguiente intento continúa desde la primera orden no resuelta (tras un reinicio se empieza
+     * desde el principio: las órdenes ya confirmadas se omiten).
+     *
+     * @return false si quedaron órdenes sin resolver o no se pudo leer el journal (causa en replayFailure)
+     */
+    private boolean replaySpill() {
+        spillLock.lock();
+        try {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile)) {
+                    return true;
+                }
+                Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            replayFailure = e;
+            return false;
+        } finally {
+            spillLock.unlock();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            List<BufferedOrder> batch = new ArrayList<>(batchSize);
+            long index = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || index++ < replayOffset) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, BufferedOrder.class));
+                if (batch.size() >= batchSize && !replayBatch(batch)) {
+                    return false;
+                }
+            }
+            if (!batch.isEmpty() && !replayBatch(batch)) {
+                return false;
+            }
+            Files.delete(replayFile);
+            logger.info("Order spill journal replayed - Orders: {}", replayOffset);
+            replayOffset = 0;
+            return true;
+        } catch (IOException e) {
+            replayFailure = e;
+            return false;
+        }
+    }
+
+    /**
+     * @return false si quedaron órdenes sin resolver (se reintentan en el siguiente reproceso)
+     */
+    private boolean replayBatch(List<BufferedOrder> batch) {
+        List<BufferedOrder> unsaved = write(batch, true);
+        // unsaved puede ser el mismo lote (o una vista): se evalúa antes de vaciarlo
+        boolean resolved = unsaved.isEmpty();
+        replayOffset += batch.size() - unsaved.size();
+        batch.clear();
+        return resolved;
+    }
+
+    private OrderEntity toEntity(BufferedOrder buffered) {
+        OrderEntity order = orderMapper.toEntity(buffered.request());
+        order.setId(buffered.id());
+        order.setCreatedAt(buffered.createdAt());
+        return order;
+    }
+
+    /**
+     * Orden aceptada pendiente de persistir (también es el formato del journal en disco).
+     */
+    public record BufferedOrder(UUID id, LocalDateTime createdAt, CreateOrderRequest request) {
+    }
+
+    /**
+     * Línea del archivo dead-letter: la orden, el error que impidió persistirla y cuándo ocurrió.
+     */
+    public record DeadLetterOrder(BufferedOrder order, String error, LocalDateTime failedAt) {
+    }
+}
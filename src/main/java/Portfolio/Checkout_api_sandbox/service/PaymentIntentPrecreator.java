@@ -0,0 +1,518 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentRouter;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pre-creación especulativa de Payment Intents.
+ *
+ * Al confirmarse la creación de una orden se crea su Payment Intent en segundo plano y se guarda
+ * como pago PRECREATED (la orden sigue en CREATED). El checkout lo reclama con un UPDATE
+ * condicional en lugar de llamar a Stripe. Los que nadie reclama antes del TTL pasan a EXPIRING,
+ * se cancelan en Stripe y el registro se borra solo cuando la cancelación se confirma
+ * (si falla, se reintenta en la siguiente ejecución).
+ *
+ * Solo se activa con payments.precreate.enabled=true: cada orden que no llega al checkout
+ * cuesta un create y un cancel en Stripe.
+ */
+@Component
+public class PaymentIntentPrecreator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentIntentPrecreator.class);
+
+    // Clave de idempotencia del create: un reintento de la misma pre-creación devuelve el mismo intent
+    private static final String IDEMPOTENCY_KEY = "precreate";
+
+    private static final CompletableFuture<Void> SETTLED = CompletableFuture.completedFuture(null);
+
+    // Código de Stripe al cancelar un intent que ya está cancelado (o en otro estado final)
+    private static final String UNEXPECTED_STATE = "payment_intent_unexpected_state";
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StripePaymentClient stripePaymentClient;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${payments.precreate.enabled:false}")
+    private boolean enabled;
+
+    @Value("${payments.precreate.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${payments.precreate.expire-batch-size:200}")
+    private int expireBatchSize;
+
+    // Pre-creaciones en curso por orden: el checkout las espera en lugar de crear otro intent
+    private final Map<UUID, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // Cancelaciones fallidas de intents sin registro en la base; se reintentan en cada expiración
+    private final Queue<CancelTarget> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong wastedConflict = new AtomicLong();
+    private final AtomicLong wastedExpired = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        if (meterRegistry == null || !enabled) {
+            return;
+        }
+        FunctionCounter.builder("payments.precreate.created", created, AtomicLong::get)
+                .description("Payment Intents pre-creados y guardados")
+                .register(meterRegistry);
+        FunctionCounter.builder("payments.precreate.claimed", claimed, AtomicLong::get)
+                .description("Checkouts que reclamaron un Payment Intent pre-creado")
+                .register(meterRegistry);
+        FunctionCounter.builder("payments.precreate.missed", missed, AtomicLong::get)
+                .description("Checkouts sin Payment Intent pre-creado que reclamar")
+                .register(meterRegistry);
+        FunctionCounter.builder("payments.precreate.wasted", wastedConflict, AtomicLong::get)
+                .description("Payment Intents pre-creados cancelados sin usar")
+                .tag("reason", "conflict")
+                .register(meterRegistry);
+        FunctionCounter.builder("payments.precreate.wasted", wastedExpired, AtomicLong::get)
+                .description("Payment Intents pre-creados cancelados sin usar")
+                .tag("reason", "expired")
+                .register(meterRegistry);
+        FunctionCounter.builder("payments.precreate.failed", failed, AtomicLong::get)
+                .description("Payment Intents pre-creados que no se pudieron guardar (se cancelan)")
+                .register(meterRegistry);
+        Gauge.builder("payments.precreate.claim.ratio", this, PaymentIntentPrecreator::getClaimRatio)
+                .description("Fracción de Payment Intents pre-creados que reclamó un checkout")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Programa la pre-creación del Payment Intent de una orden recién guardada.
+     * Se lanza cuando la transacción se confirma; si se revierte, no se llama a Stripe.
+     *
+     * @param order Orden guardada (en estado CREATED)
+     */
+    public void precreateAfterCommit(OrderEntity order) {
+        if (!enabled) {
+            return;
+        }
+        PrecreateTarget target = new PrecreateTarget(order.getId(), order.getTenantId(),
+                order.getTotalAmountMinor(), order.getCurrency());
+
+        afterCommit(() -> precreate(target));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void precreate(PrecreateTarget target) {
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        inFlight.put(target.orderId(), settled);
+
+        CompletableFuture<PaymentIntent> paymentIntent;
+        try {
+            paymentIntent = stripePaymentClient.createPaymentIntentAsync(target.tenantId(),
+                    target.amountMinor(), target.currency(), target.orderId(), IDEMPOTENCY_KEY);
+        } catch (RuntimeException e) {
+            paymentIntent = CompletableFuture.failedFuture(e);
+        }
+
+        paymentIntent.whenComplete((intent, error) -> {
+            try {
+                if (error != null) {
+                    logger.warn("Could not pre-create Payment Intent for order {}: {}",
+                                target.orderId(), error.getMessage());
+                } else {
+                    store(target, intent);
+                }
+            } finally {
+                // Se quita antes de completar para que quien espere ya encuentre el pago guardado
+                inFlight.remove(target.orderId(), settled);
+                settled.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Guarda el intent como PRECREATED si la orden sigue esperando checkout. Si no, lo guarda como
+     * EXPIRING para que la expiración lo cancele; si la orden ya tiene otro pago (o no existe),
+     * lo cancela directamente.
+     */
+    private void store(PrecreateTarget target, PaymentIntent intent) {
+        PaymentStatus stored;
+        try {
+            stored = transactionTemplate.execute(status -> {
+                OrderEntity order = orderRepository.findById(target.orderId()).orElse(null);
+                if (order == null || paymentRepository.findByOrderId(order.getId()).isPresent()) {
+                    return null;
+                }
+                PaymentEntity payment = new PaymentEntity();
+                payment.setOrder(order);
+                payment.setProvider(PaymentProvider.STRIPE);
+                payment.setExternalPaymentId(intent.getId());
+                payment.setClientSecret(intent.getClientSecret());
+                payment.setStatus(order.getStatus() == OrderStatus.CREATED
+                        ? PaymentStatus.PRECREATED
+                        : PaymentStatus.EXPIRING);
+                payment.setAmountMinor(target.amountMinor());
+                payment.setCurrency(target.currency());
+                paymentRepository.save(payment);
+                return payment.getStatus();
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!isOrderPaymentConflict(target.orderId(), e)) {
+                // Otra restricción (p. ej. un CHECK desactualizado): es un error, no un checkout que ganó
+                failed.incrementAndGet();
+                logger.error("Could not store pre-created Payment Intent {} for order {}, canceling it",
+                             intent.getId(), target.orderId(), e);
+                cancelOrRetry(new CancelTarget(target.tenantId(), intent.getId()));
+                return;
+            }
+            // Otro checkout ya registró un pago para la orden
+            stored = null;
+        }
+
+        if (stored == PaymentStatus.PRECREATED) {
+            created.incrementAndGet();
+            logger.debug("Payment Intent {} pre-created for order {}", intent.getId(), target.orderId());
+            return;
+        }
+        wastedConflict.incrementAndGet();
+        if (stored == PaymentStatus.EXPIRING) {
+            logger.info("Order {} no longer waits for checkout, pre-created Payment Intent {} will be canceled",
+                        target.orderId(), intent.getId());
+            return;
+        }
+        logger.info("Order {} no longer waits for checkout, canceling pre-created Payment Intent {}",
+                    target.orderId(), intent.getId());
+        cancelOrRetry(new CancelTarget(target.tenantId(), intent.getId()));
+    }
+
+    /**
+     * Solo la clave única de payments.order_id indica que otro checkout ya registró un pago para la orden:
+     * la violación tiene que ser de unicidad y la orden tiene que tener un pago.
+     */
+    private boolean isOrderPaymentConflict(UUID orderId, DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE
+                        && paymentRepository.findByOrderId(orderId).isPresent();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancela un intent sin registro en la base. Si falla, se reintenta en la siguiente expiración
+     * (el reintento vive en memoria: no sobrevive a un reinicio).
+     */
+    private void cancelOrRetry(CancelTarget cancel) {
+        CompletableFuture<PaymentIntent> canceled;
+        try {
+            canceled = stripePaymentClient.cancelPaymentIntentAsync(cancel.tenantId(), cancel.paymentIntentId());
+        } catch (RuntimeException e) {
+            canceled = CompletableFuture.failedFuture(e);
+        }
+        canceled.whenComplete((intent, error) -> {
+            if (error != null && !alreadyFinal(error)) {
+                logger.warn("Could not cancel pre-created Payment Intent {}, retrying on next expiry run: {}",
+                            cancel.paymentIntentId(), error.getMessage());
+                pendingCancels.add(cancel);
+            }
+        });
+    }
+
+    /**
+     * Stripe rechaza cancelar un intent que ya está en un estado final: no hay nada que reintentar.
+     */
+    private static boolean alreadyFinal(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StripeException stripe && UNEXPECTED_STATE.equals(stripe.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Future que se completa cuando termina la pre-creación en curso de la orden
+     * (de inmediato si no hay ninguna en esta instancia).
+     */
+    public CompletableFuture<Void> awaitInFlight(UUID orderId) {
+        return inFlight.getOrDefault(orderId, SETTLED);
+    }
+
+    /**
+     * Reclama el pago pre-creado de la orden pasándolo a INITIATED con la clave de idempotencia
+     * del checkout. Debe llamarse dentro de la transacción del checkout.
+     * Los intents pre-creados son de Stripe: si el checkout pide otra pasarela no se reclama,
+     * y el pago pre-creado se descarta para que la orden pueda registrar el suyo.
+     *
+     * @param providerHint Pasarela pedida por el cliente (STRIPE, AUTO o null para reclamar)
+     * @return El pago reclamado, o null si la orden no tiene uno disponible
+     */
+    public PaymentEntity claim(UUID orderId, String providerHint, String idempotencyKey) {
+        if (!acceptsStripe(providerHint)) {
+            discard(orderId);
+            return null;
+        }
+        int updated = paymentRepository.claim(orderId, PaymentStatus.PRECREATED, PaymentStatus.INITIATED,
+                idempotencyKey, LocalDateTime.now());
+        if (updated == 0) {
+            missed.incrementAndGet();
+            return null;
+        }
+        claimed.incrementAndGet();
+        return paymentRepository.findByOrderId(orderId).orElse(null);
+    }
+
+    private static boolean acceptsStripe(String providerHint) {
+        return providerHint == null || PaymentRouter.AUTO.equalsIgnoreCase(providerHint)
+                || PaymentProvider.STRIPE.name().equalsIgnoreCase(providerHint);
+    }
+
+    /**
+     * Borra el pago pre-creado de la orden (el pago de una orden es único) y cancela su intent
+     * cuando se confirma la transacción del checkout.
+     */
+    private void discard(UUID orderId) {
+        paymentRepository.findByOrderId(orderId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.PRECREATED)
+                .filter(payment -> paymentRepository.deleteByIdAndStatus(payment.getId(),
+                        PaymentStatus.PRECREATED) > 0)
+                .ifPresent(payment -> {
+                    wastedConflict.incrementAndGet();
+                    logger.info("Checkout of order {} uses another provider, discarding pre-created Payment Intent {}",
+                                orderId, payment.getExternalPaymentId());
+                    CancelTarget cancel = new CancelTarget(payment.getOrder().getTenantId(),
+                            payment.getExternalPaymentId());
+                    afterCommit(() -> cancelOrRetry(cancel));
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${payments.precreate.expire-interval-ms:60000}",
+               initialDelayString = "${payments.precreate.expire-interval-ms:60000}")
+    public void scheduledExpire() {
+        if (enabled) {
+            expire();
+        }
+    }
+
+    /**
+     * Pasa a EXPIRING los pagos PRECREATED más viejos que el TTL y cancela en Stripe los EXPIRING
+     * (también los que quedaron de ejecuciones anteriores). Se marca antes de cancelar: un checkout
+     * concurrente o lo reclama antes o ya no lo encuentra. El registro se borra solo cuando Stripe
+     * confirma la cancelación; si falla, se reintenta en la siguiente ejecución.
+     *
+     * @return Número de intents descartados
+     */
+    public int expire() {
+        retryPendingCancels();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        int expired = 0;
+
+        while (true) {
+            List<StalePaymentView> page = paymentRepository.findCreatedBefore(PaymentStatus.PRECREATED, cutoff,
+                    Limit.of(expireBatchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            Integer marked = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                int count = 0;
+                for (StalePaymentView payment : page) {
+                    count += paymentRepository.updateStatus(List.of(payment.getPaymentId()),
+                            PaymentStatus.PRECREATED, PaymentStatus.EXPIRING, now);
+                }
+                return count;
+            });
+            expired += marked;
+            wastedExpired.addAndGet(marked);
+
+            if (page.size() < expireBatchSize) {
+                break;
+            }
+        }
+
+        int canceled = cancelExpiring();
+        if (expired > 0 || canceled > 0) {
+            logger.info("Expired {} unclaimed pre-created Payment Intents, canceled {}", expired, canceled);
+        }
+        return expired;
+    }
+
+    /**
+     * Cancela los intents EXPIRING y borra los registros cuya cancelación Stripe confirmó.
+     * Los que fallan se marcan como actualizados ahora: quedan al final y se reintentan en la siguiente ejecución.
+     *
+     * @return Número de registros borrados
+     */
+    private int cancelExpiring() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        int deleted = 0;
+
+        while (true) {
+            List<StalePaymentView> page = paymentRepository.findUpdatedBefore(PaymentStatus.EXPIRING, startedAt,
+                    Limit.of(expireBatchSize));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            List<CompletableFuture<Boolean>> cancels = new ArrayList<>(page.size());
+            for (StalePaymentView payment : page) {
+                cancels.add(cancelExpiring(payment));
+            }
+            CompletableFuture.allOf(cancels.toArray(CompletableFuture[]::new)).join();
+
+            Integer removed = transactionTemplate.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                int count = 0;
+                for (int i = 0; i < page.size(); i++) {
+                    UUID paymentId = page.get(i).getPaymentId();
+                    if (cancels.get(i).join()) {
+                        count += paymentRepository.deleteByIdAndStatus(paymentId, PaymentStatus.EXPIRING);
+                    } else {
+                        paymentRepository.updateStatus(List.of(paymentId), PaymentStatus.EXPIRING,
+                                PaymentStatus.EXPIRING, now);
+                    }
+                }
+                return count;
+            });
+            deleted += removed;
+
+            if (page.size() < expireBatchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return Future con true si el intent quedó cancelado (o ya estaba en un estado final)
+     */
+    private CompletableFuture<Boolean> cancelExpiring(StalePaymentView payment) {
+        CompletableFuture<PaymentIntent> canceled;
+        try {
+            canceled = stripePaymentClient.cancelPaymentIntentAsync(payment.getTenantId(),
+                    payment.getExternalPaymentId());
+        } catch (RuntimeException e) {
+            canceled = CompletableFuture.failedFuture(e);
+        }
+        return canceled.handle((intent, error) -> {
+            if (error == null || alreadyFinal(error)) {
+                return true;
+            }
+            logger.warn("Could not cancel expired Payment Intent {}, retrying on next run: {}",
+                        payment.getExternalPaymentId(), error.getMessage());
+            return false;
+        });
+    }
+
+    /**
+     * Reintenta las cancelaciones fallidas pendientes en memoria (las que vuelven a fallar se reencolan).
+     */
+    private void retryPendingCancels() {
+        for (int pending = pendingCancels.size(); pending > 0; pending--) {
+            CancelTarget cancel = pendingCancels.poll();
+            if (cancel == null) {
+                break;
+            }
+            cancelOrRetry(cancel);
+        }
+    }
+
+    /**
+     * Fracción de intents pre-creados que terminó en un checkout.
+     */
+    public double getClaimRatio() {
+        long total = created.get();
+        return total == 0 ? 0.0 : (double) claimed.get() / total;
+    }
+
+    public long getClaimedCount() {
+        return claimed.get();
+    }
+
+    public long getMissedCount() {
+        return missed.get();
+    }
+
+    public long getWastedCount() {
+        return wastedConflict.get() + wastedExpired.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Datos de la orden necesarios para crear el intent fuera de la transacción.
+     */
+    private record PrecreateTarget(UUID orderId, String tenantId, Long amountMinor, String currency) {
+    }
+
+    private record CancelTarget(String tenantId, String paymentIntentId) {
+    }
+}
@@ -0,0 +1,387 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.model.ReconciliationCheckpointEntity;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import Portfolio.Checkout_api_sandbox.repository.ReconciliationCheckpointRepository;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conciliación de pagos pendientes contra Stripe cuando se pierden webhooks.
+ *
+ * La ventana de creación se divide en tramos (slices) alineados, uno por tenant (cuenta de Stripe),
+ * que se procesan en paralelo (fork) y cuyos resultados se suman al final (join). En cada tramo:
+ * 1. Se cargan en memoria los pagos pendientes creados en el tramo, en chunks ordenados por ID.
+ * 2. Se recorre la lista de Payment Intents de Stripe del tramo, página a página.
+ * 3. Cada página se cruza en memoria con los pendientes y las correcciones se aplican con
+ *    UPDATEs por lote, en la misma transacción que guarda el cursor (checkpoint).
+ * Si el tramo no tiene pendientes no se llama a Stripe, y se deja de paginar en cuanto
+ * todos los pendientes del tramo aparecieron. Un tramo interrumpido se retoma desde su checkpoint.
+ * La ejecución programada arranca desde el último tramo con checkpoint de cada tenant (high-water mark),
+ * así recupera las ventanas de las horas en que no corrió, y toma un lease para correr en una sola instancia.
+ */
+@Component
+public class PaymentReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final UUID START_PAYMENT_ID = new UUID(0, 0);
+
+    private static final String JOB = "payment-reconciliation";
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private StripePaymentClient stripePaymentClient;
+
+    @Autowired
+    private StripeTenantRegistry tenantRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JobLeaseManager leaseManager;
+
+    @Value("${payments.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payments.reconciliation.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${payments.reconciliation.lag-minutes:60}")
+    private long lagMinutes;
+
+    @Value("${payments.reconciliation.slice-minutes:5}")
+    private long sliceMinutes;
+
+    @Value("${payments.reconciliation.parallelism:4}")
+    private int parallelism;
+
+    @Value("${payments.reconciliation.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${payments.reconciliation.page-size:100}")
+    private int pageSize;
+
+    // El pago se registra después de crear el intent: se amplía el final del tramo al buscar pendientes
+    @Value("${payments.reconciliation.match-margin-minutes:5}")
+    private long matchMarginMinutes;
+
+    // Límite de la recuperación de ventanas perdidas: lo anterior queda para una conciliación manual
+    @Value("${payments.reconciliation.max-catch-up-hours:24}")
+    private long maxCatchUpHours;
+
+    @Value("${payments.reconciliation.lease-minutes:30}")
+    private long leaseMinutes;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconciliation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Concilia la última ventana cerrada (window-minutes, con lag-minutes de margen para los webhooks)
+     * y las ventanas anteriores que no llegaron a conciliarse.
+     */
+    @Scheduled(cron = "${payments.reconciliation.cron:0 5 * * * *}")
+    public void scheduledReconciliation() {
+        if (!enabled || !leaseManager.tryAcquire(JOB, Duration.ofMinutes(leaseMinutes))) {
+            return;
+        }
+        try {
+            Instant to = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(lagMinutes, ChronoUnit.MINUTES);
+            reconcile(catchUpFrom(to), to);
+        } finally {
+            leaseManager.release(JOB);
+        }
+    }
+
+    /**
+     * Inicio de la ventana a conciliar: el high-water mark más antiguo entre los tenants
+     * (fin del último tramo con checkpoint), acotado a max-catch-up-hours.
+     * Los tenants sin checkpoints empiezan por la última ventana.
+     */
+    private Instant catchUpFrom(Instant to) {
+        Instant from = to.minus(windowMinutes, ChronoUnit.MINUTES);
+        Instant oldest = to.minus(maxCatchUpHours, ChronoUnit.HOURS);
+        for (String tenantId : tenantRegistry.getTenantIds()) {
+            Long highWaterMark = checkpointRepository.findMaxSliceEnd(tenantId);
+            if (highWaterMark != null && Instant.ofEpochSecond(highWaterMark).isBefore(from)) {
+                from = Instant.ofEpochSecond(highWaterMark);
+            }
+        }
+        if (from.isBefore(oldest)) {
+            logger.warn("Payment reconciliation is more than {} hours behind, catching up from {} only",
+                        maxCatchUpHours, oldest);
+            return oldest;
+        }
+        return from;
+    }
+
+    /**
+     * Concilia los Payment Intents creados en [from, to), más los tramos que quedaron
+     * incompletos en ejecuciones anteriores.
+     *
+     * @return Resumen de la ejecución
+     */
+    public ReconciliationResult reconcile(Instant from, Instant to) {
+        long start = System.nanoTime();
+        Set<Slice> slices = new LinkedHashSet<>();
+        for (String tenantId : tenantRegistry.getTenantIds()) {
+            slices.addAll(split(tenantId, from, to));
+        }
+        for (ReconciliationCheckpointEntity checkpoint : checkpointRepository.findByCompletedFalse()) {
+            // Los tenants dados de baja ya no tienen credenciales para listar en Stripe
+            if (tenantRegistry.contains(checkpoint.getTenantId())) {
+                slices.add(new Slice(checkpoint.getTenantId(), checkpoint.getSliceStart(), checkpoint.getSliceEnd()));
+            }
+        }
+
+        // Fork: un tramo por tarea; join: se suman los resultados
+        List<CompletableFuture<SliceResult>> tasks = new ArrayList<>(slices.size());
+        for (Slice slice : slices) {
+            tasks.add(CompletableFuture.supplyAsync(() -> reconcileSlice(slice), executor)
+                    .exceptionally(e -> {
+                        logger.error("Reconciliation of slice [{}, {}) of tenant {} failed, " +
+                                     "it will resume on the next run: {}",
+                                     slice.start(), slice.end(), slice.tenantId(), e.getMessage());
+                        return null;
+                    }));
+        }
+
+        long examined = 0;
+        long corrected = 0;
+        int failed = 0;
+        for (CompletableFuture<SliceResult> task : tasks) {
+            SliceResult result = task.join();
+            if (result == null) {
+                failed++;
+            } else {
+                examined += result.examined();
+                corrected += result.corrected();
+            }
+        }
+
+        ReconciliationResult result = new ReconciliationResult(slices.size(), examined, corrected, failed);
+        logger.info("Payment reconciliation [{}, {}) finished - Slices: {}, Examined intents: {}, Corrected: {}, " +
+                    "Failed slices: {}, Time: {} ms", from, to, result.slices(), examined, corrected, failed,
+                    (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private List<Slice> split(String tenantId, Instant from, Instant to) {
+        long sliceSeconds = TimeUnit.MINUTES.toSeconds(sliceMinutes);
+        long first = Math.floorDiv(from.getEpochSecond(), sliceSeconds) * sliceSeconds;
+        List<Slice> slices = new ArrayList<>();
+        for (long sliceStart = first; sliceStart < to.getEpochSecond(); sliceStart += sliceSeconds) {
+            slices.add(new Slice(tenantId, sliceStart, sliceStart + sliceSeconds));
+        }
+        return slices;
+    }
+
+    private SliceResult reconcileSlice(Slice slice) {
+        // El checkpoint se guarda antes de empezar: si el tramo falla, la siguiente ejecución lo retoma
+        ReconciliationCheckpointEntity checkpoint = checkpointRepository
+                .findByTenantIdAndSliceStartAndSliceEnd(slice.tenantId(), slice.start(), slice.end())
+                .orElseGet(() -> checkpointRepository.save(newCheckpoint(slice)));
+        if (checkpoint.isCompleted()) {
+            return new SliceResult(0, 0);
+        }
+
+        Map<String, StalePaymentView> pending = loadPending(slice);
+        if (pending.isEmpty()) {
+            checkpoint.setCompleted(true);
+            checkpointRepository.save(checkpoint);
+            return new SliceResult(0, 0);
+        }
+
+        long examined = 0;
+        long corrected = 0;
+        String cursor = checkpoint.getLastPaymentIntentId();
+        boolean done = false;
+        while (!done) {
+            StripeCollection<PaymentIntent> page =
+                    stripePaymentClient.listPaymentIntents(slice.tenantId(), slice.start(), slice.end(), cursor, pageSize);
+            List<PaymentIntent> intents = page.getData();
+
+            // Cruce en memoria de la página con los pendientes del tramo
+            Map<Outcome, List<StalePaymentView>> corrections = new EnumMap<>(Outcome.class);
+            for (PaymentIntent intent : intents) {
+                StalePaymentView payment = pending.remove(intent.getId());
+                Outcome outcome = payment == null ? null : Outcome.of(intent);
+                if (outcome != null) {
+                    corrections.computeIfAbsent(outcome, key -> new ArrayList<>()).add(payment);
+                }
+            }
+
+            examined += intents.size();
+            if (!intents.isEmpty()) {
+                cursor = intents.get(intents.size() - 1).getId();
+            }
+            done = intents.isEmpty() || !Boolean.TRUE.equals(page.getHasMore()) || pending.isEmpty();
+            corrected += apply(corrections, checkpoint, cursor, intents.size(), done);
+        }
+        return new SliceResult(examined, corrected);
+    }
+
+    /**
+     * Aplica las correcciones de una página y avanza el checkpoint en la misma transacción.
+     */
+    private int apply(Map<Outcome, List<StalePaymentView>> corrections, ReconciliationCheckpointEntity checkpoint,
+                      String cursor, int examined, boolean done) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int orders = 0;
+            for (Map.Entry<Outcome, List<StalePaymentView>> correction : corrections.entrySet()) {
+                Outcome outcome = correction.getKey();
+                List<UUID> orderIds = correction.getValue().stream().map(StalePaymentView::getOrderId).toList();
+                List<UUID> paymentIds = correction.getValue().stream().map(StalePaymentView::getPaymentId).toList();
+
+                orders += orderRepository.updateStatus(orderIds, OrderStatus.PAYMENT_PENDING, outcome.orderStatus, now);
+                paymentRepository.updateStatus(paymentIds, PaymentStatus.INITIATED, outcome.paymentStatus, now);
+            }
+            if (orders > 0) {
+                logger.info("Reconciled {} orders from slice [{}, {}) of tenant {}",
+                            orders, checkpoint.getSliceStart(), checkpoint.getSliceEnd(), checkpoint.getTenantId());
+            }
+
+            checkpoint.setLastPaymentIntentId(cursor);
+            checkpoint.setExamined(checkpoint.getExamined() + examined);
+            checkpoint.setCorrected(checkpoint.getCorrected() + orders);
+            checkpoint.setCompleted(done);
+            // El checkpoint vive fuera de la transacción: se conserva el ID asignado en el primer guardado
+            checkpoint.setId(checkpointRepository.save(checkpoint).getId());
+            return orders;
+        });
+    }
+
+    /**
+     * Pagos pendientes del tenant en el tramo, indexados por ID del Payment Intent.
+     */
+    private Map<String, StalePaymentView> loadPending(Slice slice) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime from = LocalDateTime.ofInstant(Instant.ofEpochSecond(slice.start()), zone);
+        LocalDateTime to = LocalDateTime.ofInstant(Instant.ofEpochSecond(slice.end()), zone)
+                .plusMinutes(matchMarginMinutes);
+
+        Map<String, StalePaymentView> pending = new HashMap<>();
+        UUID afterId = START_PAYMENT_ID;
+        while (true) {
+            List<StalePaymentView> chunk = paymentRepository.findPendingChunk(PaymentStatus.INITIATED,
+                    OrderStatus.PAYMENT_PENDING, slice.tenantId(), from, to, afterId, Limit.of(chunkSize));
+            for (StalePaymentView payment : chunk) {
+                pending.put(payment.getExternalPaymentId(), payment);
+            }
+            if (chunk.size() < chunkSize) {
+                return pending;
+            }
+            afterId = chunk.get(chunk.size() - 1).getPaymentId();
+        }
+    }
+
+    private ReconciliationCheckpointEntity newCheckpoint(Slice slice) {
+        ReconciliationCheckpointEntity checkpoint = new ReconciliationCheckpointEntity();
+        checkpoint.setTenantId(slice.tenantId());
+        checkpoint.setSliceStart(slice.start());
+        checkpoint.setSliceEnd(slice.end());
+        return checkpoint;
+    }
+
+    /**
+     * Estado final de la orden y el pago según el estado del intent en Stripe.
+     */
+    private enum Outcome {
+        PAID(OrderStatus.PAID, PaymentStatus.SUCCEEDED),
+        CANCELED(OrderStatus.CANCELED, PaymentStatus.CANCELED),
+        FAILED(OrderStatus.FAILED, PaymentStatus.FAILED);
+
+        private final OrderStatus orderStatus;
+        private final PaymentStatus paymentStatus;
+
+        Outcome(OrderStatus orderStatus, PaymentStatus paymentStatus) {
+            this.orderStatus = orderStatus;
+            this.paymentStatus = paymentStatus;
+        }
+
+        /**
+         * @return El resultado, o null si el intent sigue abierto en Stripe
+         */
+        static Outcome of(PaymentIntent intent) {
+            return switch (String.valueOf(intent.getStatus())) {
+                case "succeeded" -> PAID;
+                case "canceled" -> CANCELED;
+                // payment_intent.payment_failed deja el intent esperando otro método de pago
+                case "requires_payment_method" -> intent.getLastPaymentError() != null ? FAILED : null;
+                default -> null;
+            };
+        }
+    }
+
+    private record Slice(String tenantId, long start, long end) {
+    }
+
+    private record SliceResult(long examined, long corrected) {
+    }
+
+    /**
+     * Resumen de una ejecución de la conciliación.
+     */
+    public record ReconciliationResult(int slices, long examined, long corrected, int failedSlices) {
+    }
+}
@@ -0,0 +1,74 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Amplía el CHECK de payments.status cuando PaymentStatus gana valores.
+ *
+ * Hibernate crea el CHECK con los valores del enum al crear la tabla, pero ddl-auto=update no lo
+ * modifica después: en una base creada antes de PRECREATED y EXPIRING cada pago pre-creado lo violaría.
+ * Como no hay migraciones, al arrancar (después de que ddl-auto actualice el esquema y antes de atender
+ * requests) se compara el CHECK con el enum y, si le falta algún valor, se reemplaza. Solo PostgreSQL.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class PaymentStatusConstraintUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusConstraintUpdater.class);
+
+    static final String CONSTRAINT = "payments_status_check";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reemplaza el CHECK si le falta algún valor de PaymentStatus. Es idempotente.
+     *
+     * @return Valores que se agregaron (vacío si el CHECK ya estaba al día, no existe o la base no es PostgreSQL)
+     */
+    @PostConstruct
+    public List<String> update() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return List.of();
+        }
+
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT pg_get_constraintdef(oid) FROM pg_constraint " +
+                "WHERE conrelid = to_regclass('payments') AND conname = ?", String.class, CONSTRAINT);
+        if (definitions.isEmpty()) {
+            return List.of();
+        }
+
+        String definition = definitions.get(0);
+        List<String> missing = Arrays.stream(PaymentStatus.values())
+                .map(Enum::name)
+                .filter(status -> !definition.contains("'" + status + "'"))
+                .toList();
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        String statuses = Arrays.stream(PaymentStatus.values())
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        // NOT VALID: las filas existentes cumplen el CHECK anterior, más estricto; no hace falta recorrer la tabla
+        jdbcTemplate.execute("ALTER TABLE payments DROP CONSTRAINT " + CONSTRAINT +
+                ", ADD CONSTRAINT " + CONSTRAINT + " CHECK (status IN (" + statuses + ")) NOT VALID");
+        logger.info("Widened {} with payment statuses {}", CONSTRAINT, missing);
+        return missing;
+    }
+}
@@ -0,0 +1,217 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import com.stripe.exception.StripeException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Barrido periódico de checkouts abandonados.
+ *
+ * Busca órdenes que siguen en PAYMENT_PENDING más allá del TTL (consulta por keyset sobre
+ * el índice de status + updated_at), cancela sus Payment Intents (en la cuenta de Stripe del
+ * tenant de cada orden) con paralelismo acotado y marca órdenes y pagos como CANCELED con
+ * un UPDATE por lote en una sola transacción.
+ * Los intents que no se pudieron cancelar se reintentan en el siguiente barrido.
+ * Con varias instancias, cada barrido programado corre en una sola (lease en job_leases).
+ */
+@Component
+public class StalePaymentSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(StalePaymentSweeper.class);
+
+    // Cursor inicial del keyset (anterior a cualquier orden)
+    private static final LocalDateTime START_UPDATED_AT = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final UUID START_ORDER_ID = new UUID(0, 0);
+
+    private static final String JOB = "stale-payment-sweeper";
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StripePaymentClient stripePaymentClient;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JobLeaseManager leaseManager;
+
+    @Value("${payments.stale-sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payments.stale-sweeper.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${payments.stale-sweeper.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payments.stale-sweeper.parallelism:8}")
+    private int parallelism;
+
+    @Value("${payments.stale-sweeper.max-per-run:5000}")
+    private int maxPerRun;
+
+    @Value("${payments.stale-sweeper.lease-minutes:10}")
+    private long leaseMinutes;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "stale-payment-sweeper-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${payments.stale-sweeper.interval-ms:300000}",
+               initialDelayString = "${payments.stale-sweeper.interval-ms:300000}")
+    public void scheduledSweep() {
+        if (!enabled || !leaseManager.tryAcquire(JOB, Duration.ofMinutes(leaseMinutes))) {
+            return;
+        }
+        try {
+            sweep();
+        } finally {
+            leaseManager.release(JOB);
+        }
+    }
+
+    /**
+     * Ejecuta un barrido completo (hasta max-per-run pagos).
+     *
+     * @return Número de órdenes marcadas como CANCELED
+     */
+    public int sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        LocalDateTime afterUpdatedAt = START_UPDATED_AT;
+        UUID afterOrderId = START_ORDER_ID;
+        int examined = 0;
+        int canceled = 0;
+        long start = System.nanoTime();
+
+        while (examined < maxPerRun) {
+            List<StalePaymentView> page = paymentRepository.findStalePage(OrderStatus.PAYMENT_PENDING, cutoff,
+                    afterUpdatedAt, afterOrderId, Limit.of(Math.min(batchSize, maxPerRun - examined)));
+            if (page.isEmpty()) {
+                break;
+            }
+
+            canceled += cancelBatch(page);
+            examined += page.size();
+
+            StalePaymentView last = page.get(page.size() - 1);
+            afterUpdatedAt = last.getOrderUpdatedAt();
+            afterOrderId = last.getOrderId();
+        }
+
+        if (examined > 0) {
+            logger.info("Stale payment sweep finished - Examined: {}, Canceled: {}, Time: {} ms",
+                        examined, canceled, (System.nanoTime() - start) / 1_000_000);
+        }
+        return canceled;
+    }
+
+    /**
+     * Cancela los intents del lote en paralelo y confirma en una transacción los que se cancelaron.
+     */
+    private int cancelBatch(List<StalePaymentView> page) {
+        List<CompletableFuture<StalePaymentView>> cancellations = new ArrayList<>(page.size());
+        for (StalePaymentView payment : page) {
+            cancellations.add(CompletableFuture.supplyAsync(() -> cancelIntent(payment), executor));
+        }
+
+        List<UUID> paymentIds = new ArrayList<>();
+        List<UUID> orderIds = new ArrayList<>();
+        for (CompletableFuture<StalePaymentView> cancellation : cancellations) {
+            StalePaymentView payment = cancellation.join();
+            if (payment != null) {
+                paymentIds.add(payment.getPaymentId());
+                orderIds.add(payment.getOrderId());
+            }
+        }
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            int orders = orderRepository.updateStatus(orderIds, OrderStatus.PAYMENT_PENDING, OrderStatus.CANCELED, now);
+            paymentRepository.updateStatus(paymentIds, PaymentStatus.INITIATED, PaymentStatus.CANCELED, now);
+            return orders;
+        });
+    }
+
+    /**
+     * @return El pago si su intent quedó cancelado en Stripe, o null si hay que dejarlo como está
+     */
+    private StalePaymentView cancelIntent(StalePaymentView payment) {
+        String paymentIntentId = payment.getExternalPaymentId();
+        try {
+            stripePaymentClient.cancelPaymentIntent(payment.getTenantId(), paymentIntentId);
+            return payment;
+        } catch (StripeApiException e) {
+            // El intent ya no se puede cancelar: puede que ya estuviera cancelado (o pagado) en Stripe
+            if (e.getCause() instanceof StripeException stripeException
+                    && "payment_intent_unexpected_state".equals(stripeException.getCode())) {
+                return alreadyCanceled(payment) ? payment : null;
+            }
+            logger.warn("Could not cancel stale Payment Intent {} (order {}): {}",
+                        paymentIntentId, payment.getOrderId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean alreadyCanceled(StalePaymentView payment) {
+        try {
+            String status = stripePaymentClient
+                    .retrievePaymentIntent(payment.getTenantId(), payment.getExternalPaymentId()).getStatus();
+            if (!"canceled".equals(status)) {
+                logger.warn("Stale Payment Intent {} (order {}) is {} in Stripe, leaving order as is",
+                            payment.getExternalPaymentId(), payment.getOrderId(), status);
+            }
+            return "canceled".equals(status);
+        } catch (StripeApiException e) {
+            logger.warn("Could not check stale Payment Intent {}: {}", payment.getExternalPaymentId(), e.getMessage());
+            return false;
+        }
+    }
+}
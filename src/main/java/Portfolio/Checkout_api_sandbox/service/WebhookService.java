@@ -14,7 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.UUID;
 
@@ -36,43 +36,63 @@ public class WebhookService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderLockManager orderLockManager;
+
     /**
      * Procesa un webhook de Stripe.
-     * Valida la firma y actualiza el estado según el tipo de evento.
+     * Valida la firma con el secret del tenant y actualiza el estado según el tipo de evento.
+     * Solo se actualizan órdenes de ese tenant. La actualización espera a que terminen
+     * las otras operaciones de la misma orden en este nodo (p. ej. un checkout en curso).
      *
+     * @param tenantId Tenant del endpoint que recibió el webhook
      * @param payload Cuerpo raw del webhook (JSON)
      * @param signatureHeader Valor del header "Stripe-Signature"
      * @throws Portfolio.Checkout_api_sandbox.exception.InvalidWebhookSignatureException si la firma es inválida
      */
-    @Transactional
-    public void processStripeWebhook(String payload, String signatureHeader) {
-        logger.info("Processing Stripe webhook");
+    public void processStripeWebhook(String tenantId, String payload, String signatureHeader) {
+        logger.info("Processing Stripe webhook for tenant {}", tenantId);
 
         // 1. Validar firma del webhook (CRÍTICO para seguridad)
-        Event event = webhookValidator.validateAndConstructEvent(payload, signatureHeader);
+        Event event = webhookValidator.validateAndConstructEvent(tenantId, payload, signatureHeader);
 
         logger.info("Webhook validated - Event type: {}, Event ID: {}",
                     event.getType(), event.getId());
 
         // 2. Procesar según el tipo de evento
         if (webhookValidator.isPaymentSucceeded(event)) {
-            handlePaymentSuccess(event);
+            inOrderTurn(event, () -> handlePaymentSuccess(tenantId, event));
         } else if (webhookValidator.isPaymentFailed(event)) {
-            handlePaymentFailed(event);
+            inOrderTurn(event, () -> handlePaymentFailed(tenantId, event));
         } else if (webhookValidator.isPaymentCanceled(event)) {
-            handlePaymentCanceled(event);
+            inOrderTurn(event, () -> handlePaymentCanceled(tenantId, event));
         } else {
             logger.info("Webhook event type not handled: {}", event.getType());
         }
     }
 
+    /**
+     * Ejecuta el handler en una transacción, en el turno de la orden del evento.
+     */
+    private void inOrderTurn(Event event, Runnable handler) {
+        UUID orderId = UUID.fromString(webhookValidator.extractOrderIdFromMetadata(event));
+        orderLockManager.withOrderLock(orderId, () -> transactionTemplate.execute(status -> {
+            handler.run();
+            return null;
+        }));
+    }
+
     /**
      * Maneja el evento payment_intent.succeeded.
      * Marca la orden como PAID y el pago como SUCCEEDED.
      *
+     * @param tenantId Tenant del webhook
      * @param event Evento de Stripe
      */
-    private void handlePaymentSuccess(Event event) {
+    private void handlePaymentSuccess(String tenantId, Event event) {
         logger.info("Handling payment success event");
 
         try {
@@ -84,9 +104,8 @@ public class WebhookService {
             logger.info("Payment succeeded - PaymentIntent: {}, Order: {}",
                        paymentIntentId, orderId);
 
-            // Buscar la orden
-            OrderEntity order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new OrderNotFoundException(orderId));
+            // Buscar la orden (del mismo tenant)
+            OrderEntity order = findTenantOrder(tenantId, orderId);
 
             // Buscar el pago
             PaymentEntity payment = paymentRepository.findByExternalPaymentId(paymentIntentId)
@@ -119,9 +138,10 @@ public class WebhookService {
      * Maneja el evento payment_intent.payment_failed.
      * Marca la orden como FAILED y el pago como FAILED.
      *
+     * @param tenantId Tenant del webhook
      * @param event Evento de Stripe
      */
-    private void handlePaymentFailed(Event event) {
+    private void handlePaymentFailed(String tenantId, Event event) {
         logger.info("Handling payment failed event");
 
         try {
@@ -133,9 +153,8 @@ public class WebhookService {
             logger.warn("Payment failed - PaymentIntent: {}, Order: {}",
                        paymentIntentId, orderId);
 
-            // Buscar la orden
-            OrderEntity order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new OrderNotFoundException(orderId));
+            // Buscar la orden (del mismo tenant)
+            OrderEntity order = findTenantOrder(tenantId, orderId);
 
             // Buscar el pago
             PaymentEntity payment = paymentRepository.findByExternalPaymentId(paymentIntentId)
@@ -168,9 +187,10 @@ public class WebhookService {
      * Maneja el evento payment_intent.canceled.
      * Marca la orden como CANCELED y el pago como CANCELED.
      *
+     * @param tenantId Tenant del webhook
      * @param event Evento de Stripe
      */
-    private void handlePaymentCanceled(Event event) {
+    private void handlePaymentCanceled(String tenantId, Event event) {
         logger.info("Handling payment canceled event");
 
         try {
@@ -182,15 +202,28 @@ public class WebhookService {
             logger.info("Payment canceled - PaymentIntent: {}, Order: {}",
                        paymentIntentId, orderId);
 
-            // Buscar la orden
-            OrderEntity order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new OrderNotFoundException(orderId));
+            // Buscar la orden (del mismo tenant)
+            OrderEntity order = findTenantOrder(tenantId, orderId);
+
+            // Intent pre-creado que venció sin checkout: la orden sigue disponible
+            if (order.getStatus() == OrderStatus.CREATED) {
+                logger.info("Canceled Payment Intent {} was never claimed by order {}, skipping",
+                            paymentIntentId, orderId);
+                return;
+            }
 
             // Buscar el pago
             PaymentEntity payment = paymentRepository.findByExternalPaymentId(paymentIntentId)
                     .orElseThrow(() -> new PaymentNotFoundException(
                         "Pago no encontrado con external ID: " + paymentIntentId));
 
+            // Intent pre-creado descartado: nunca fue el pago de la orden
+            if (payment.getStatus() == PaymentStatus.EXPIRING) {
+                logger.info("Canceled Payment Intent {} was a discarded pre-created intent, skipping",
+                            paymentIntentId);
+                return;
+            }
+
             // Verificar idempotencia
             if (order.getStatus() == OrderStatus.CANCELED) {
                 logger.warn("Order {} already marked as CANCELED, skipping", orderId);
@@ -212,5 +245,20 @@ public class WebhookService {
             throw e;
         }
     }
-}
 
+    /**
+     * Busca la orden del evento y verifica que sea del tenant cuyo secret firmó el webhook.
+     * Una orden de otro tenant se trata como inexistente.
+     */
+    private OrderEntity findTenantOrder(String tenantId, UUID orderId) {
+        OrderEntity order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException(orderId));
+        String expected = tenantId != null ? tenantId : OrderEntity.DEFAULT_TENANT_ID;
+        if (!expected.equals(order.getTenantId())) {
+            logger.warn("Webhook for tenant {} references order {} of tenant {}, ignoring",
+                        expected, orderId, order.getTenantId());
+            throw new OrderNotFoundException(orderId);
+        }
+        return order;
+    }
+}
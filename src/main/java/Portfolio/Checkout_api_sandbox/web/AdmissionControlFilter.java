@@ -0,0 +1,272 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Control de admisión por clase de tráfico (creación de órdenes, checkout, lectura de órdenes, webhooks).
+ *
+ * Cada clase tiene su límite de requests en ejecución y una cola de espera corta. Cuando la cola está llena
+ * o un request espera más que el tiempo máximo de su clase, se responde 503 con Retry-After antes de llegar
+ * al controller, sin ocupar conexiones de la base ni llamar a Stripe. Así un pico en una clase no degrada
+ * a las demás y el servidor no acepta más trabajo del que puede terminar.
+ *
+ * Las clases comparten una capacidad total (admission.total-concurrent, pensada para los hilos de Tomcat y las
+ * conexiones del pool) repartida según su peso: cada clase tiene reservada su parte y, cuando la capacidad
+ * se agota, las de menor peso (lecturas) se degradan primero. Ver PriorityAdmissionScheduler.
+ *
+ * Los requests asíncronos (checkout asíncrono, carga NDJSON) conservan su permiso hasta que termina la respuesta.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    /** Cuerpo del 503, armado una sola vez para que rechazar sea barato. */
+    private static final byte[] REJECTION_BODY =
+            "{\"message\":\"El servidor está saturado, reintente más tarde\",\"status\":503}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${admission.total-concurrent:100}")
+    private int totalConcurrent;
+
+    @Value("${admission.order-create.weight:2}")
+    private int orderCreateWeight;
+
+    @Value("${admission.order-create.max-concurrent:40}")
+    private int orderCreateMaxConcurrent;
+
+    @Value("${admission.order-create.max-queue:50}")
+    private int orderCreateMaxQueue;
+
+    @Value("${admission.order-create.max-queue-wait-ms:500}")
+    private long orderCreateMaxQueueWaitMs;
+
+    @Value("${admission.checkout.weight:3}")
+    private int checkoutWeight;
+
+    @Value("${admission.checkout.max-concurrent:60}")
+    private int checkoutMaxConcurrent;
+
+    @Value("${admission.checkout.max-queue:50}")
+    private int checkoutMaxQueue;
+
+    @Value("${admission.checkout.max-queue-wait-ms:1000}")
+    private long checkoutMaxQueueWaitMs;
+
+    @Value("${admission.order-read.weight:1}")
+    private int orderReadWeight;
+
+    @Value("${admission.order-read.max-concurrent:60}")
+    private int orderReadMaxConcurrent;
+
+    @Value("${admission.order-read.max-queue:50}")
+    private int orderReadMaxQueue;
+
+    @Value("${admission.order-read.max-queue-wait-ms:250}")
+    private long orderReadMaxQueueWaitMs;
+
+    @Value("${admission.webhook.weight:4}")
+    private int webhookWeight;
+
+    @Value("${admission.webhook.max-concurrent:40}")
+    private int webhookMaxConcurrent;
+
+    @Value("${admission.webhook.max-queue:50}")
+    private int webhookMaxQueue;
+
+    @Value("${admission.webhook.max-queue-wait-ms:2000}")
+    private long webhookMaxQueueWaitMs;
+
+    private PriorityAdmissionScheduler scheduler;
+
+    private String retryAfter;
+
+    @PostConstruct
+    public void init() {
+        retryAfter = String.valueOf(retryAfterSeconds);
+        if (!enabled) {
+            return;
+        }
+        scheduler = new PriorityAdmissionScheduler(totalConcurrent);
+        register(TrafficClass.ORDER_CREATE, orderCreateWeight, orderCreateMaxConcurrent, orderCreateMaxQueue,
+                orderCreateMaxQueueWaitMs);
+        register(TrafficClass.CHECKOUT, checkoutWeight, checkoutMaxConcurrent, checkoutMaxQueue,
+                checkoutMaxQueueWaitMs);
+        register(TrafficClass.ORDER_READ, orderReadWeight, orderReadMaxConcurrent, orderReadMaxQueue,
+                orderReadMaxQueueWaitMs);
+        register(TrafficClass.WEBHOOK, webhookWeight, webhookMaxConcurrent, webhookMaxQueue,
+                webhookMaxQueueWaitMs);
+        if (meterRegistry != null) {
+            Gauge.builder("http.admission.capacity.used", scheduler, PriorityAdmissionScheduler::getInUse)
+                    .description("Requests en ejecución entre todas las clases de tráfico")
+                    .register(meterRegistry);
+        }
+        logger.info("Admission control enabled - Capacity: {} - Reserved: {}", totalConcurrent, reservations());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TrafficClass trafficClass = classify(request);
+        if (trafficClass == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PriorityAdmissionScheduler.Decision decision = scheduler.acquire(trafficClass);
+        if (decision != PriorityAdmissionScheduler.Decision.ADMITTED) {
+            logger.debug("Request {} {} shed: {}", request.getMethod(), request.getRequestURI(), decision);
+            reject(response);
+            return;
+        }
+
+        boolean releaseOnComplete = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(scheduler, trafficClass));
+                releaseOnComplete = true;
+            }
+        } finally {
+            if (!releaseOnComplete) {
+                scheduler.release(trafficClass);
+            }
+        }
+    }
+
+    /**
+     * Clase de tráfico del request, o null si no se limita.
+     */
+    TrafficClass classify(HttpServletRequest request) {
+        if (scheduler == null) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        TrafficClass trafficClass = TrafficClass.classify(request.getMethod(), path);
+        return trafficClass != null && scheduler.handles(trafficClass) ? trafficClass : null;
+    }
+
+    /**
+     * @return el planificador, o null si el control de admisión está desactivado
+     */
+    public PriorityAdmissionScheduler getScheduler() {
+        return scheduler;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTION_BODY.length);
+        response.getOutputStream().write(REJECTION_BODY);
+    }
+
+    private void register(TrafficClass trafficClass, int weight, int maxConcurrent, int maxQueue,
+                          long maxQueueWaitMs) {
+        scheduler.register(trafficClass, weight, maxConcurrent, maxQueue, maxQueueWaitMs);
+        if (meterRegistry == null) {
+            return;
+        }
+        String tag = trafficClass.getTag();
+        Gauge.builder("http.admission.inflight", scheduler, s -> s.getInFlight(trafficClass))
+                .description("Requests en ejecución de la clase de tráfico")
+                .tag("class", tag)
+                .register(meterRegistry);
+        Gauge.builder("http.admission.reserved", scheduler, s -> s.getReserved(trafficClass))
+                .description("Capacidad reservada para la clase de tráfico según su peso")
+                .tag("class", tag)
+                .register(meterRegistry);
+        Gauge.builder("http.admission.waiting", scheduler, s -> s.getWaiting(trafficClass))
+                .description("Requests esperando capacidad en la cola de la clase de tráfico")
+                .tag("class", tag)
+                .register(meterRegistry);
+        FunctionCounter.builder("http.admission.queued", scheduler, s -> s.getQueuedCount(trafficClass))
+                .description("Requests que tuvieron que esperar en la cola")
+                .tag("class", tag)
+                .register(meterRegistry);
+        FunctionCounter.builder("http.admission.shed", scheduler, s -> s.getRejectedQueueFullCount(trafficClass))
+                .description("Requests rechazados con 503")
+                .tag("class", tag)
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        FunctionCounter.builder("http.admission.shed", scheduler, s -> s.getRejectedQueueTimeoutCount(trafficClass))
+                .description("Requests rechazados con 503")
+                .tag("class", tag)
+                .tag("reason", "queue_timeout")
+                .register(meterRegistry);
+    }
+
+    private Map<TrafficClass, Integer> reservations() {
+        Map<TrafficClass, Integer> reserved = new EnumMap<>(TrafficClass.class);
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            reserved.put(trafficClass, scheduler.getReserved(trafficClass));
+        }
+        return reserved;
+    }
+
+    /**
+     * Libera el permiso una sola vez cuando termina la respuesta asíncrona (también tras timeout o error).
+     */
+    private static final class ReleaseListener implements AsyncListener {
+
+        private final PriorityAdmissionScheduler scheduler;
+        private final TrafficClass trafficClass;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseListener(PriorityAdmissionScheduler scheduler, TrafficClass trafficClass) {
+            this.scheduler = scheduler;
+            this.trafficClass = trafficClass;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                scheduler.release(trafficClass);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Límite de tasa por cliente en la API pública, por clase de tráfico (lectura de órdenes, creación, checkout).
+ *
+ * El cliente se identifica por su API key (header configurable) solo si es una de las claves conocidas
+ * (rate-limit.api-keys); cualquier otra clave, o su ausencia, se limita por IP. Así una clave inventada en cada
+ * request no consigue un bucket nuevo. Cada respuesta
+ * lleva los headers RateLimit-Limit, RateLimit-Remaining y RateLimit-Reset; al agotarse el bucket se responde
+ * 429 con Retry-After antes del control de admisión, el controller y la validación del body.
+ * Los webhooks no se limitan: los envía Stripe y ya se reintentan con backoff.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class ClientRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientRateLimitFilter.class);
+
+    static final String LIMIT_HEADER = "RateLimit-Limit";
+    static final String REMAINING_HEADER = "RateLimit-Remaining";
+    static final String RESET_HEADER = "RateLimit-Reset";
+
+    /** Cuerpo del 429, armado una sola vez para que rechazar sea barato. */
+    private static final byte[] REJECTION_BODY =
+            "{\"message\":\"Demasiadas solicitudes, reintente más tarde\",\"status\":429}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.api-key-header:X-API-Key}")
+    private String apiKeyHeader;
+
+    /** Claves conocidas, separadas por coma; la app no valida API keys, así que las demás no cuentan. */
+    @Value("${rate-limit.api-keys:}")
+    private String apiKeys;
+
+    @Value("${rate-limit.table-size:65536}")
+    private int tableSize;
+
+    @Value("${rate-limit.order-read.rate-per-second:20}")
+    private double orderReadRatePerSecond;
+
+    @Value("${rate-limit.order-read.burst:40}")
+    private int orderReadBurst;
+
+    @Value("${rate-limit.order-create.rate-per-second:10}")
+    private double orderCreateRatePerSecond;
+
+    @Value("${rate-limit.order-create.burst:20}")
+    private int orderCreateBurst;
+
+    @Value("${rate-limit.checkout.rate-per-second:5}")
+    private double checkoutRatePerSecond;
+
+    @Value("${rate-limit.checkout.burst:10}")
+    private int checkoutBurst;
+
+    private final Map<TrafficClass, ClientRateLimiter> limiters = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, AtomicLong> rejected = new EnumMap<>(TrafficClass.class);
+    private final Set<String> knownApiKeys = new HashSet<>();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        for (String key : apiKeys.split(",")) {
+            if (!key.isBlank()) {
+                knownApiKeys.add(key.trim());
+            }
+        }
+        register(TrafficClass.ORDER_READ, orderReadRatePerSecond, orderReadBurst);
+        register(TrafficClass.ORDER_CREATE, orderCreateRatePerSecond, orderCreateBurst);
+        register(TrafficClass.CHECKOUT, checkoutRatePerSecond, checkoutBurst);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TrafficClass trafficClass = limiters.isEmpty() ? null : classify(request);
+        ClientRateLimiter limiter = trafficClass != null ? limiters.get(trafficClass) : null;
+        if (limiter == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ClientRateLimiter.Result result = limiter.tryAcquire(clientKey(request));
+        response.setHeader(LIMIT_HEADER, String.valueOf(limiter.getBurst()));
+        response.setHeader(REMAINING_HEADER, String.valueOf(result.remaining()));
+        response.setHeader(RESET_HEADER, String.valueOf(toSeconds(result.resetNanos())));
+        if (result.allowed()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        rejected.get(trafficClass).incrementAndGet();
+        logger.debug("Rate limit exceeded for {} on {}", trafficClass, request.getRequestURI());
+
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(toSeconds(result.retryAfterNanos())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTION_BODY.length);
+        response.getOutputStream().write(REJECTION_BODY);
+    }
+
+    public long getRejectedCount(TrafficClass trafficClass) {
+        AtomicLong count = rejected.get(trafficClass);
+        return count != null ? count.get() : 0;
+    }
+
+    private static TrafficClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return TrafficClass.classify(request.getMethod(), path);
+    }
+
+    /**
+     * API key si es conocida, o la IP del cliente (detrás de un proxy, configurar server.forward-headers-strategy).
+     */
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && knownApiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private void register(TrafficClass trafficClass, double ratePerSecond, int burst) {
+        limiters.put(trafficClass, new ClientRateLimiter(ratePerSecond, burst, tableSize));
+        AtomicLong count = new AtomicLong();
+        rejected.put(trafficClass, count);
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("http.ratelimit.rejected", count, AtomicLong::get)
+                    .description("Requests rechazados con 429 por superar el límite por cliente")
+                    .tag("class", trafficClass.getTag())
+                    .register(meterRegistry);
+        }
+        logger.info("Client rate limit for {}: {}/s, burst {} ({} known API keys)",
+                    trafficClass.getTag(), ratePerSecond, burst, knownApiKeys.size());
+    }
+}
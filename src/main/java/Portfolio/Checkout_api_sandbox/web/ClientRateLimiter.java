@@ -0,0 +1,81 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token buckets por cliente sin locks y con memoria acotada.
+ *
+ * Usa el mismo algoritmo GCRA que TokenBucket, pero en lugar de un objeto por cliente guarda el
+ * "tiempo teórico de llegada" (TAT) en una tabla de tamaño fijo indexada por el hash de la clave del
+ * cliente (un sketch). No hace falta expulsar entradas: un TAT que quedó en el pasado equivale a un
+ * bucket lleno, así que los clientes inactivos no ocupan nada. Dos clientes que caen en la misma
+ * posición comparten bucket; con una tabla bastante más grande que los clientes activos es poco
+ * probable y, si pasa, solo los limita antes de tiempo, nunca de más.
+ */
+public class ClientRateLimiter {
+
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLongArray theoreticalArrival;
+    private final int mask;
+
+    /** Los TAT se guardan relativos a este instante, así la tabla recién creada (ceros) está llena. */
+    private final long originNanos = System.nanoTime();
+
+    /**
+     * @param ratePerSecond Requests por segundo sostenidos por cliente
+     * @param burst Requests que un cliente puede hacer de golpe con el bucket lleno
+     * @param tableSize Posiciones de la tabla (se redondea a potencia de 2)
+     */
+    public ClientRateLimiter(double ratePerSecond, int burst, int tableSize) {
+        this.burst = Math.max(1, burst);
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.toleranceNanos = intervalNanos * (this.burst - 1);
+        int size = Integer.highestOneBit(Math.max(1, tableSize - 1) << 1);
+        this.theoreticalArrival = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Consume un token del cliente si hay.
+     *
+     * @param clientKey Identidad del cliente (API key o IP)
+     */
+    public Result tryAcquire(String clientKey) {
+        int slot = index(clientKey);
+        while (true) {
+            long now = System.nanoTime() - originNanos;
+            long current = theoreticalArrival.get(slot);
+            long arrival = Math.max(current, now);
+            long wait = arrival - toleranceNanos - now;
+            if (wait > 0) {
+                return new Result(false, 0, arrival - now, wait);
+            }
+            long next = arrival + intervalNanos;
+            if (theoreticalArrival.compareAndSet(slot, current, next)) {
+                long spare = toleranceNanos - (next - now);
+                int remaining = spare < 0 ? 0 : (int) (spare / intervalNanos) + 1;
+                return new Result(true, Math.min(remaining, burst), next - now, 0);
+            }
+        }
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    private int index(String clientKey) {
+        int h = clientKey.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @param allowed Si el request puede seguir
+     * @param remaining Requests que el cliente todavía puede hacer de golpe
+     * @param resetNanos Tiempo hasta que el bucket vuelva a estar lleno
+     * @param retryAfterNanos Si se rechazó, tiempo hasta el próximo token
+     */
+    public record Result(boolean allowed, int remaining, long resetNanos, long retryAfterNanos) {
+    }
+}
@@ -0,0 +1,251 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Reparte una capacidad total de requests en ejecución entre las clases de tráfico según su peso.
+ *
+ * Cada clase tiene reservada una parte de la capacidad proporcional a su peso (su bulkhead), un límite propio
+ * y una cola de espera corta. Una clase puede usar capacidad libre por encima de su reserva, pero sin tocar
+ * la reserva sin usar de las clases de mayor peso: cuando la capacidad se agota, las clases de menor peso
+ * (lectura de órdenes) esperan o se rechazan primero y las de mayor peso (webhooks, checkout) siguen entrando.
+ * Al liberarse capacidad se atiende primero la cola de la clase de mayor peso, y dentro de cada clase
+ * por orden de llegada.
+ */
+public class PriorityAdmissionScheduler {
+
+    public enum Decision {
+        ADMITTED,
+        QUEUE_FULL,
+        QUEUE_TIMEOUT
+    }
+
+    private final int capacity;
+    private final Map<TrafficClass, Lane> lanes = new EnumMap<>(TrafficClass.class);
+    private final List<Lane> byPriority = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int inUse;
+
+    /**
+     * @param capacity Requests en ejecución a la vez entre todas las clases
+     */
+    public PriorityAdmissionScheduler(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Agrega una clase de tráfico y recalcula las reservas de todas.
+     *
+     * @param weight Peso de la clase: define su reserva y su prioridad al repartir capacidad libre
+     * @param maxConcurrent Requests de la clase en ejecución a la vez
+     * @param maxQueue Requests de la clase que pueden esperar (0 = rechazar apenas no hay capacidad)
+     * @param maxQueueWaitMillis Tiempo máximo de espera en la cola
+     */
+    public void register(TrafficClass trafficClass, int weight, int maxConcurrent, int maxQueue,
+                         long maxQueueWaitMillis) {
+        lock.lock();
+        try {
+            Lane lane = new Lane(Math.max(1, weight), Math.max(1, maxConcurrent), Math.max(0, maxQueue),
+                    TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxQueueWaitMillis)));
+            if (lanes.put(trafficClass, lane) != null) {
+                throw new IllegalStateException("Duplicate traffic class: " + trafficClass);
+            }
+            byPriority.add(lane);
+            byPriority.sort(Comparator.comparingInt((Lane l) -> l.weight).reversed());
+
+            int totalWeight = byPriority.stream().mapToInt(l -> l.weight).sum();
+            for (Lane l : byPriority) {
+                l.reserved = Math.min(l.maxConcurrent, (int) ((long) capacity * l.weight / totalWeight));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean handles(TrafficClass trafficClass) {
+        return lanes.containsKey(trafficClass);
+    }
+
+    /**
+     * Pide capacidad para un request de la clase, esperando en su cola si hace falta.
+     * Si devuelve ADMITTED hay que llamar a release al terminar el request.
+     */
+    public Decision acquire(TrafficClass trafficClass) {
+        Lane lane = lanes.get(trafficClass);
+        CompletableFuture<Void> ticket;
+
+        lock.lock();
+        try {
+            if (lane.waiters.isEmpty() && canRun(lane)) {
+                grant(lane);
+                return Decision.ADMITTED;
+            }
+            if (lane.waiters.size() >= lane.maxQueue) {
+                lane.rejectedQueueFull.incrementAndGet();
+                return Decision.QUEUE_FULL;
+            }
+            ticket = new CompletableFuture<>();
+            lane.waiters.addLast(ticket);
+            lane.queued.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            ticket.get(lane.maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+            return Decision.ADMITTED;
+        } catch (TimeoutException e) {
+            // Se resuelve abajo
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Los tickets siempre se completan normalmente
+            throw new IllegalStateException(e.getCause());
+        }
+
+        lock.lock();
+        try {
+            if (lane.waiters.remove(ticket)) {
+                lane.rejectedQueueTimeout.incrementAndGet();
+                return Decision.QUEUE_TIMEOUT;
+            }
+        } finally {
+            lock.unlock();
+        }
+        // La capacidad se le asignó justo al vencer la espera
+        return Decision.ADMITTED;
+    }
+
+    public void release(TrafficClass trafficClass) {
+        Lane lane = lanes.get(trafficClass);
+        lock.lock();
+        try {
+            lane.inUse--;
+            inUse--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getInUse() {
+        lock.lock();
+        try {
+            return inUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getReserved(TrafficClass trafficClass) {
+        return read(trafficClass, lane -> lane.reserved);
+    }
+
+    public int getInFlight(TrafficClass trafficClass) {
+        return read(trafficClass, lane -> lane.inUse);
+    }
+
+    public int getWaiting(TrafficClass trafficClass) {
+        return read(trafficClass, lane -> lane.waiters.size());
+    }
+
+    public long getQueuedCount(TrafficClass trafficClass) {
+        return lanes.get(trafficClass).queued.get();
+    }
+
+    public long getRejectedQueueFullCount(TrafficClass trafficClass) {
+        return lanes.get(trafficClass).rejectedQueueFull.get();
+    }
+
+    public long getRejectedQueueTimeoutCount(TrafficClass trafficClass) {
+        return lanes.get(trafficClass).rejectedQueueTimeout.get();
+    }
+
+    /**
+     * Con el lock tomado: si la clase puede ocupar un lugar más ahora.
+     */
+    private boolean canRun(Lane lane) {
+        if (lane.inUse >= lane.maxConcurrent || inUse >= capacity) {
+            return false;
+        }
+        if (lane.inUse < lane.reserved) {
+            return true;
+        }
+        // Por encima de su reserva: solo si sobra capacidad después de la reserva sin usar de las clases de mayor peso
+        int free = capacity - inUse;
+        for (Lane other : byPriority) {
+            if (other == lane) {
+                break;
+            }
+            free -= Math.max(0, other.reserved - other.inUse);
+        }
+        return free > 0;
+    }
+
+    private void grant(Lane lane) {
+        lane.inUse++;
+        inUse++;
+    }
+
+    /**
+     * Con el lock tomado: entrega la capacidad libre a las colas, de mayor a menor peso.
+     */
+    private void dispatch() {
+        for (Lane lane : byPriority) {
+            while (!lane.waiters.isEmpty() && canRun(lane)) {
+                grant(lane);
+                lane.waiters.pollFirst().complete(null);
+            }
+        }
+    }
+
+    private int read(TrafficClass trafficClass, ToIntFunction<Lane> value) {
+        Lane lane = lanes.get(trafficClass);
+        lock.lock();
+        try {
+            return value.applyAsInt(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Lane {
+
+        final int weight;
+        final int maxConcurrent;
+        final int maxQueue;
+        final long maxQueueWaitNanos;
+        final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+        final AtomicLong queued = new AtomicLong();
+        final AtomicLong rejectedQueueFull = new AtomicLong();
+        final AtomicLong rejectedQueueTimeout = new AtomicLong();
+
+        int reserved;
+        int inUse;
+
+        Lane(int weight, int maxConcurrent, int maxQueue, long maxQueueWaitNanos) {
+            this.weight = weight;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.maxQueueWaitNanos = maxQueueWaitNanos;
+        }
+    }
+}
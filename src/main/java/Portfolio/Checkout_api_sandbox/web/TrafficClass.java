@@ -0,0 +1,59 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+/**
+ * Clases de tráfico de la API, usadas para limitar cada una por separado.
+ */
+public enum TrafficClass {
+
+    /** POST /api/orders, /api/orders/bulk y /api/orders/large */
+    ORDER_CREATE("order-create"),
+
+    /** POST /api/checkout y /api/checkout/batch */
+    CHECKOUT("checkout"),
+
+    /** GET /api/orders/** */
+    ORDER_READ("order-read"),
+
+    /** POST /api/webhooks/** */
+    WEBHOOK("webhook");
+
+    private final String tag;
+
+    TrafficClass(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Nombre usado en la configuración y en las métricas.
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Clasifica un request por método y ruta (sin el context path).
+     *
+     * @return la clase del request, o null si no pertenece a ninguna (actuator, swagger, etc.)
+     */
+    public static TrafficClass classify(String method, String path) {
+        if ("POST".equals(method)) {
+            if (matches(path, "/api/webhooks")) {
+                return WEBHOOK;
+            }
+            if (matches(path, "/api/checkout")) {
+                return CHECKOUT;
+            }
+            if (matches(path, "/api/orders")) {
+                return ORDER_CREATE;
+            }
+        } else if ("GET".equals(method) && matches(path, "/api/orders")) {
+            return ORDER_READ;
+        }
+        return null;
+    }
+
+    private static boolean matches(String path, String prefix) {
+        return path.startsWith(prefix)
+                && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+    }
+}
@@ -0,0 +1,155 @@
+package Portfolio.Checkout_api_sandbox.benchmark;
+
+import Portfolio.Checkout_api_sandbox.TestcontainersConfiguration;
+import Portfolio.Checkout_api_sandbox.integration.stripe.FakeStripeServer;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de punta a punta sin red: crear orden → checkout → webhook payment_intent.succeeded → PAID.
+ * Stripe es FakeStripeServer (latencia log-normal, confirma cada pago y envía el webhook firmado
+ * a StripeWebhookController), así se ejercita el camino HTTP real hacia Stripe y de vuelta.
+ *
+ * Ejecutar con: mvn test -Pbenchmark -Dtest=CheckoutEndToEndBenchmarkTest [-Dbenchmark.clients=50]
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(TestcontainersConfiguration.class)
+class CheckoutEndToEndBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutEndToEndBenchmarkTest.class);
+
+    private static final int CHECKOUTS = 1_000;
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 50);
+    private static final String WEBHOOK_SECRET = "whsec_benchmark";
+
+    private static final FakeStripeServer fakeStripe = startFakeStripe();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private static FakeStripeServer startFakeStripe() {
+        try {
+            return new FakeStripeServer()
+                    .withLatency(FakeStripeServer.LatencyModel.logNormal(150, 0.5))
+                    .withAutoSucceedAfter(50)
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void stripeProperties(DynamicPropertyRegistry registry) {
+        registry.add("stripe.apiBase", fakeStripe::getApiBase);
+        registry.add("stripe.apiKey", () -> "sk_test_benchmark");
+        registry.add("stripe.webhookSecret", () -> WEBHOOK_SECRET);
+        registry.add("stripe.http.prewarm", () -> "false");
+        registry.add("payments.stale-sweeper.enabled", () -> "false");
+        registry.add("payments.reconciliation.enabled", () -> "false");
+    }
+
+    @AfterAll
+    static void stopFakeStripe() {
+        fakeStripe.close();
+    }
+
+    @Test
+    void checkoutToPaid() throws Exception {
+        fakeStripe.withWebhooks("http://localhost:" + port + "/api/webhooks/stripe", WEBHOOK_SECRET);
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+
+        List<Future<UUID>> results = new ArrayList<>(CHECKOUTS);
+        for (int i = 0; i < CHECKOUTS; i++) {
+            results.add(clients.submit(this::createAndCheckout));
+        }
+        List<UUID> orderIds = new ArrayList<>(CHECKOUTS);
+        for (Future<UUID> result : results) {
+            orderIds.add(result.get());
+        }
+        double checkoutSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        // Esperar a que lleguen y se procesen todos los webhooks
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        long paid = 0;
+        while (System.nanoTime() < deadline) {
+            paid = orderRepository.findAllById(orderIds).stream()
+                    .map(OrderEntity::getStatus)
+                    .filter(OrderStatus.PAID::equals)
+                    .count();
+            if (paid == CHECKOUTS) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        double totalSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+
+        logger.info("Checkout end-to-end benchmark - Checkouts: {}, Clients: {}, Checkout throughput: {} req/s, " +
+                    "Time to all PAID: {} s, Webhooks delivered: {}, failed: {}",
+                    CHECKOUTS, CLIENTS, String.format("%.0f", CHECKOUTS / checkoutSeconds),
+                    String.format("%.2f", totalSeconds), fakeStripe.getWebhooksDelivered(), fakeStripe.getWebhooksFailed());
+
+        assertEquals(CHECKOUTS, paid);
+    }
+
+    private UUID createAndCheckout() throws Exception {
+        HttpResponse<String> order = post("/api/orders", null,
+                "{\"currency\":\"USD\",\"items\":[{\"name\":\"T-shirt\",\"unitPriceMinor\":1999,\"quantity\":2}]}");
+        assertEquals(201, order.statusCode(), order.body());
+        String orderId = JsonParser.parseString(order.body()).getAsJsonObject().get("orderId").getAsString();
+
+        HttpResponse<String> checkout = post("/api/checkout", UUID.randomUUID().toString(),
+                "{\"orderId\":\"" + orderId + "\",\"provider\":\"STRIPE\"}");
+        assertEquals(200, checkout.statusCode() / 100 * 100, checkout.body());
+        return UUID.fromString(orderId);
+    }
+
+    private HttpResponse<String> post(String path, String idempotencyKey, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,136 @@
+package Portfolio.Checkout_api_sandbox.benchmark;
+
+import Portfolio.Checkout_api_sandbox.dto.response.ErrorResponse;
+import Portfolio.Checkout_api_sandbox.exception.GlobalExceptionHandler;
+import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de una tormenta de 404: GET de órdenes inexistentes desde varios hilos.
+ * Compara la excepción anterior (captura el stack trace y arma el mensaje al construirse)
+ * con la OrderNotFoundException actual (sin stack trace, mensaje armado al pedirlo), ambas lanzadas
+ * a la profundidad de stack típica de un request de Spring MVC y convertidas en ErrorResponse.
+ *
+ * El costo del log no entra en la medición: antes cada 404 escribía un WARN, ahora se loguea en DEBUG.
+ *
+ * Ejecutar con: mvn test -Pbenchmark -Dtest=NotFoundStormBenchmarkTest
+ */
+@Tag("benchmark")
+class NotFoundStormBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotFoundStormBenchmarkTest.class);
+
+    private static final int WARMUP_REQUESTS = 200_000;
+    private static final int REQUESTS = 1_000_000;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Frames entre el filtro de Tomcat y el repositorio en un GET /api/orders/{id}
+    private static final int STACK_DEPTH = 120;
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void notFoundStorm() throws Exception {
+        // Arrange
+        run(WARMUP_REQUESTS, this::legacyNotFound);
+        run(WARMUP_REQUESTS, this::stacklessNotFound);
+
+        // Act
+        double before = run(REQUESTS, this::legacyNotFound);
+        double after = run(REQUESTS, this::stacklessNotFound);
+
+        // Assert
+        logger.info("404 storm ({} threads, stack depth {}): before {} req/s, after {} req/s ({}x)",
+                    THREADS, STACK_DEPTH, Math.round(before), Math.round(after),
+                    String.format("%.1f", after / before));
+        assertTrue(after > before, "La excepción sin stack trace debería dar más throughput");
+    }
+
+    /**
+     * Ejecuta la tormenta repartida entre los hilos y devuelve el throughput en requests por segundo.
+     */
+    private double run(int requests, Function<UUID, ResponseEntity<ErrorResponse>> notFound) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            int perThread = requests / THREADS;
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ResponseEntity<ErrorResponse> response = notFound.apply(UUID.randomUUID());
+                        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            return perThread * (double) THREADS / (elapsedNanos / 1_000_000_000.0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ResponseEntity<ErrorResponse> stacklessNotFound(UUID orderId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/" + orderId);
+        try {
+            findOrder(STACK_DEPTH, orderId, false);
+            throw new IllegalStateException("La orden no debería existir");
+        } catch (OrderNotFoundException ex) {
+            return handler.handleOrderNotFound(ex, request);
+        }
+    }
+
+    private ResponseEntity<ErrorResponse> legacyNotFound(UUID orderId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/" + orderId);
+        try {
+            findOrder(STACK_DEPTH, orderId, true);
+            throw new IllegalStateException("La orden no debería existir");
+        } catch (LegacyOrderNotFoundException ex) {
+            ErrorResponse error = new ErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND.value(),
+                    request.getRequestURI());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+
+    /**
+     * Baja {@code depth} frames y lanza la excepción, como un repositorio llamado a través de la cadena de MVC.
+     */
+    private static void findOrder(int depth, UUID orderId, boolean legacy) {
+        if (depth > 0) {
+            findOrder(depth - 1, orderId, legacy);
+            return;
+        }
+        if (legacy) {
+            throw new LegacyOrderNotFoundException(orderId);
+        }
+        throw new OrderNotFoundException(orderId);
+    }
+
+    /**
+     * OrderNotFoundException tal como era antes: stack trace completo y mensaje armado en el constructor.
+     */
+    private static class LegacyOrderNotFoundException extends RuntimeException {
+
+        LegacyOrderNotFoundException(UUID orderId) {
+            super("Orden no encontrada con ID: " + orderId);
+        }
+    }
+}
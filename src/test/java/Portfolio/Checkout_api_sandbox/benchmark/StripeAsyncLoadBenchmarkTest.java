@@ -0,0 +1,220 @@
+package Portfolio.Checkout_api_sandbox.benchmark;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.FakeStripeServer;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeHttpTransport;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeRateLimitScheduler;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import com.stripe.model.PaymentIntent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de 2.000 checkouts concurrentes contra un Stripe simulado (200 ms de latencia).
+ * Compara el modo bloqueante (un hilo de request por llamada, como Tomcat con 200 hilos)
+ * con las variantes asíncronas de StripePaymentClient (el hilo del request solo encola la llamada).
+ *
+ * Con hilos de plataforma el executor asíncrono tiene el mismo tope de hilos que el pool de requests,
+ * así que no se espera más throughput: lo que cambia es qué hilos quedan bloqueados esperando a Stripe.
+ * Cada modo hace una pasada de calentamiento antes de medir, los tests corren en orden aleatorio
+ * y los hilos bloqueados se miden muestreando los stacks, no se suponen.
+ *
+ * Ejecutar con: mvn test -Pbenchmark -Dtest=StripeAsyncLoadBenchmarkTest
+ * Para aislar un modo: -Dtest=StripeAsyncLoadBenchmarkTest#blockingCheckouts (o #asyncCheckouts)
+ */
+@Tag("benchmark")
+@TestMethodOrder(MethodOrderer.Random.class)
+class StripeAsyncLoadBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripeAsyncLoadBenchmarkTest.class);
+
+    private static final int CHECKOUTS = 2_000;
+    private static final int WARMUP_CHECKOUTS = CHECKOUTS;
+    private static final int REQUEST_THREADS = 200;
+    private static final long STRIPE_LATENCY_MS = 200;
+    private static final long SAMPLE_INTERVAL_MS = 50;
+
+    private static final String REQUEST_THREAD_PREFIX = "request-";
+    private static final String STRIPE_THREAD_PREFIX = "stripe-call-";
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private FakeStripeServer fakeStripe;
+    private StripePaymentClient stripePaymentClient;
+    private ExecutorService requestThreads;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeStripe = new FakeStripeServer()
+                .withLatency(FakeStripeServer.LatencyModel.fixed(STRIPE_LATENCY_MS))
+                .start();
+
+        stripePaymentClient = new StripePaymentClient();
+        ReflectionTestUtils.setField(stripePaymentClient, "stripeClient",
+                fakeStripe.newStripeClient(new StripeHttpTransport(Duration.ofSeconds(2))));
+        ReflectionTestUtils.setField(stripePaymentClient, "rateLimitScheduler", new StripeRateLimitScheduler());
+        ReflectionTestUtils.setField(stripePaymentClient, "tenantRegistry",
+                new StripeTenantRegistry(null, null, null));
+        ReflectionTestUtils.setField(stripePaymentClient, "createTimeoutMs", 15_000);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncMaxConcurrency", REQUEST_THREADS);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncQueueCapacity", CHECKOUTS);
+        ReflectionTestUtils.setField(stripePaymentClient, "createDeadlineMs", 60_000L);
+        stripePaymentClient.start();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS,
+                runnable -> new Thread(runnable, REQUEST_THREAD_PREFIX + threadNumber.incrementAndGet()));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        requestThreads.shutdown();
+        requestThreads.awaitTermination(10, TimeUnit.SECONDS);
+        stripePaymentClient.stop();
+        fakeStripe.close();
+    }
+
+    @Test
+    void blockingCheckouts() throws InterruptedException {
+        // El hilo del request espera la respuesta de Stripe
+        run("blocking (" + REQUEST_THREADS + " request threads)", () -> CompletableFuture.supplyAsync(
+                () -> stripePaymentClient.createPaymentIntent(1999L, "usd", UUID.randomUUID(), "benchmark"),
+                requestThreads));
+    }
+
+    @Test
+    void asyncCheckouts() throws InterruptedException {
+        // El hilo del request encola la llamada y vuelve, como un controller que devuelve CompletableFuture
+        run("async (" + REQUEST_THREADS + " stripe executor threads)", () -> CompletableFuture.supplyAsync(
+                () -> stripePaymentClient.createPaymentIntentAsync(1999L, "usd", UUID.randomUUID(), "benchmark"),
+                requestThreads).thenCompose(intent -> intent));
+    }
+
+    private void run(String mode, Supplier<CompletableFuture<PaymentIntent>> checkout) throws InterruptedException {
+        checkouts(WARMUP_CHECKOUTS, checkout);
+
+        BlockedThreadSampler sampler = new BlockedThreadSampler();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        sampler.start();
+        try {
+            checkouts(CHECKOUTS, checkout);
+        } finally {
+            sampler.stop();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        logger.info("Checkout load benchmark - Mode: {}, Checkouts: {}, Time: {} s, Throughput: {} req/s, " +
+                    "Peak JVM threads: {}, Request threads blocked on Stripe: peak {} / mean {}, " +
+                    "Stripe executor threads blocked on Stripe: peak {} / mean {} ({} samples)",
+                    mode, CHECKOUTS, String.format("%.2f", seconds), String.format("%.0f", CHECKOUTS / seconds),
+                    threads.getPeakThreadCount(), sampler.request.peak(), sampler.request.mean(),
+                    sampler.stripe.peak(), sampler.stripe.mean(), sampler.samples);
+    }
+
+    private static void checkouts(int count, Supplier<CompletableFuture<PaymentIntent>> checkout) {
+        List<CompletableFuture<PaymentIntent>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(checkout.get());
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        results.forEach(result -> assertNotNull(result.join().getId()));
+    }
+
+    /**
+     * Cuenta, cada SAMPLE_INTERVAL_MS, los hilos de request y del executor de Stripe que están dentro
+     * de stripe-java (esperando la respuesta HTTP o un permiso del limitador).
+     */
+    private static final class BlockedThreadSampler {
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "benchmark-sampler"));
+        private final Counter request = new Counter();
+        private final Counter stripe = new Counter();
+        private int samples;
+
+        void start() {
+            scheduler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() throws InterruptedException {
+            scheduler.shutdown();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        private void sample() {
+            int requestBlocked = 0;
+            int stripeBlocked = 0;
+            for (Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+                if (!insideStripe(entry.getValue())) {
+                    continue;
+                }
+                String name = entry.getKey().getName();
+                if (name.startsWith(REQUEST_THREAD_PREFIX)) {
+                    requestBlocked++;
+                } else if (name.startsWith(STRIPE_THREAD_PREFIX)) {
+                    stripeBlocked++;
+                }
+            }
+            request.add(requestBlocked);
+            stripe.add(stripeBlocked);
+            samples++;
+        }
+
+        private static boolean insideStripe(StackTraceElement[] stack) {
+            for (StackTraceElement frame : stack) {
+                if (frame.getClassName().startsWith("com.stripe.")
+                        || frame.getClassName().equals(StripeRateLimitScheduler.class.getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Counter {
+
+        private int peak;
+        private long total;
+        private int samples;
+
+        void add(int value) {
+            peak = Math.max(peak, value);
+            total += value;
+            samples++;
+        }
+
+        int peak() {
+            return peak;
+        }
+
+        String mean() {
+            return String.format("%.0f", samples == 0 ? 0d : (double) total / samples);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package Portfolio.Checkout_api_sandbox.benchmark;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.FakeStripeServer;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeHttpTransport;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeRateLimitScheduler;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import com.stripe.model.PaymentIntent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmark de 2.000 requests concurrentes que bloquean en una llamada a un Stripe simulado (200 ms de latencia),
+ * como hace un checkout síncrono. Compara el modo actual (200 hilos de plataforma, como Tomcat por defecto)
+ * con un hilo virtual por request (spring.threads.virtual.enabled, Java 21+).
+ *
+ * Reporta throughput, hilos de plataforma y heap usado por request en vuelo; en el modo virtual además
+ * cuenta los eventos jdk.VirtualThreadPinned (hilo virtual fijado a su carrier más de 20 ms).
+ *
+ * Ejecutar con: mvn test -Pbenchmark,virtual-threads -Dtest=VirtualThreadBenchmarkTest
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private static final int REQUESTS = 2_000;
+    private static final int PLATFORM_REQUEST_THREADS = 200;
+    private static final long STRIPE_LATENCY_MS = 200;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    private FakeStripeServer fakeStripe;
+    private StripePaymentClient stripePaymentClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeStripe = new FakeStripeServer()
+                .withLatency(FakeStripeServer.LatencyModel.fixed(STRIPE_LATENCY_MS))
+                .start();
+
+        stripePaymentClient = new StripePaymentClient();
+        ReflectionTestUtils.setField(stripePaymentClient, "stripeClient",
+                fakeStripe.newStripeClient(new StripeHttpTransport(Duration.ofSeconds(2))));
+        ReflectionTestUtils.setField(stripePaymentClient, "rateLimitScheduler", new StripeRateLimitScheduler());
+        ReflectionTestUtils.setField(stripePaymentClient, "tenantRegistry",
+                new StripeTenantRegistry(null, null, null));
+        ReflectionTestUtils.setField(stripePaymentClient, "createTimeoutMs", 15_000);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncMaxConcurrency", 1);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncQueueCapacity", 1);
+        stripePaymentClient.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stripePaymentClient.stop();
+        fakeStripe.close();
+    }
+
+    @Test
+    void platformThreadRequests() throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(PLATFORM_REQUEST_THREADS);
+        try {
+            run("platform (" + PLATFORM_REQUEST_THREADS + " request threads)", requestThreads::submit);
+        } finally {
+            requestThreads.shutdown();
+            requestThreads.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void virtualThreadRequests() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Los hilos virtuales requieren Java 21+");
+
+        AtomicInteger pinned = new AtomicInteger();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(20)).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinned.incrementAndGet();
+                logger.warn("Virtual thread pinned for {} ms: {}", event.getDuration().toMillis(),
+                            event.getStackTrace() != null ? event.getStackTrace().getFrames().get(0) : "?");
+            });
+            recording.startAsync();
+
+            // Un hilo virtual nuevo por request, como Tomcat con spring.threads.virtual.enabled
+            VirtualThreadTaskExecutor requestThreads = new VirtualThreadTaskExecutor("request-");
+            run("virtual (thread per request)", requestThreads::submit);
+            // Deja llegar los eventos que quedaron en el buffer de JFR
+            Thread.sleep(1_000);
+        }
+        logger.info("Virtual thread benchmark - Pinned events (> 20 ms): {}", pinned.get());
+    }
+
+    private void run(String mode, Function<Callable<PaymentIntent>, Future<PaymentIntent>> requestThreads)
+            throws Exception {
+        System.gc();
+        long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicLong peakHeap = new AtomicLong();
+
+        Callable<PaymentIntent> request = () -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return stripePaymentClient.createPaymentIntent(1999L, "usd", UUID.randomUUID(), "benchmark");
+            } finally {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                inFlight.decrementAndGet();
+            }
+        };
+
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        List<Future<PaymentIntent>> results = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(requestThreads.apply(request));
+        }
+        for (Future<PaymentIntent> result : results) {
+            assertNotNull(result.get().getId());
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        long heapPerRequest = (peakHeap.get() - baselineHeap) / Math.max(1, peakInFlight.get());
+        logger.info("Virtual thread benchmark - Mode: {}, Requests: {}, Time: {} s, Throughput: {} req/s, " +
+                    "Peak in-flight: {}, Peak platform threads: {}, Heap per in-flight request: {} KB",
+                    mode, REQUESTS, String.format("%.2f", seconds), String.format("%.0f", REQUESTS / seconds),
+                    peakInFlight.get(), threads.getPeakThreadCount(), heapPerRequest / 1024);
+    }
+}
@@ -0,0 +1,168 @@
+package Portfolio.Checkout_api_sandbox.benchmark;
+
+import Portfolio.Checkout_api_sandbox.TestcontainersConfiguration;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.ManagedEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del flush en el camino del webhook (payment_intent.succeeded).
+ * Mide cuánto tarda Hibernate en detectar y escribir los cambios de OrderEntity y PaymentEntity.
+ *
+ * Ejecutar con y sin bytecode enhancement para comparar:
+ *   mvn test -Pbenchmark
+ *   mvn clean test -Pbenchmark -Dhibernate.enhance.phase=none
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class WebhookFlushBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookFlushBenchmarkTest.class);
+
+    private static final int PAYMENTS = 2_000;
+    private static final int WARMUP = 500;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<UUID> orderIds = new ArrayList<>();
+    private final List<String> paymentIntentIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        paymentRepository.deleteAll();
+        orderRepository.deleteAll();
+        orderIds.clear();
+        paymentIntentIds.clear();
+
+        String clientSecret = "pi_secret_" + "x".repeat(480);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < PAYMENTS; i++) {
+                OrderEntity order = new OrderEntity();
+                order.setCurrency("USD");
+                order.setTotalAmountMinor(1999L);
+                order.setStatus(OrderStatus.PAYMENT_PENDING);
+                entityManager.persist(order);
+
+                PaymentEntity payment = new PaymentEntity();
+                payment.setOrder(order);
+                payment.setProvider(PaymentProvider.STRIPE);
+                payment.setExternalPaymentId("pi_bench_" + i);
+                payment.setClientSecret(clientSecret);
+                payment.setAmountMinor(1999L);
+                payment.setCurrency("USD");
+                entityManager.persist(payment);
+
+                orderIds.add(order.getId());
+                paymentIntentIds.add(payment.getExternalPaymentId());
+
+                if (i % 500 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    @Test
+    void webhookPath_FlushTime() {
+        long[] flushNanos = new long[PAYMENTS - WARMUP];
+
+        for (int i = 0; i < PAYMENTS; i++) {
+            UUID orderId = orderIds.get(i);
+            String paymentIntentId = paymentIntentIds.get(i);
+            int index = i;
+
+            long elapsed = transactionTemplate.execute(status -> {
+                // Mismo acceso que WebhookService.handlePaymentSuccess
+                OrderEntity order = orderRepository.findById(orderId).orElseThrow();
+                PaymentEntity payment = paymentRepository.findByExternalPaymentId(paymentIntentId).orElseThrow();
+                payment.setStatus(PaymentStatus.SUCCEEDED);
+                order.setStatus(OrderStatus.PAID);
+
+                long start = System.nanoTime();
+                entityManager.flush();
+                return System.nanoTime() - start;
+            });
+
+            if (index >= WARMUP) {
+                flushNanos[index - WARMUP] = elapsed;
+            }
+        }
+
+        report("webhook path (2 managed entities)", flushNanos);
+        assertEquals(OrderStatus.PAID, orderRepository.findById(orderIds.get(PAYMENTS - 1)).orElseThrow().getStatus());
+    }
+
+    @Test
+    void wideContext_FlushTime() {
+        int warmup = 20;
+        int rounds = 100;
+        long[] flushNanos = new long[rounds];
+
+        for (int round = 0; round < warmup + rounds; round++) {
+            int index = round;
+            long elapsed = transactionTemplate.execute(status -> {
+                // Muchas entidades gestionadas y un solo cambio: sin enhancement se comparan todos los snapshots
+                List<PaymentEntity> payments = paymentRepository.findAll();
+                payments.get(index).setStatus(PaymentStatus.CANCELED);
+
+                long start = System.nanoTime();
+                entityManager.flush();
+                return System.nanoTime() - start;
+            });
+
+            if (index >= warmup) {
+                flushNanos[index - warmup] = elapsed;
+            }
+        }
+
+        report("wide context (" + PAYMENTS + " managed payments)", flushNanos);
+    }
+
+    private void report(String scenario, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double avgMicros = Arrays.stream(sorted).average().orElse(0) / 1_000d;
+        double p50Micros = sorted[sorted.length / 2] / 1_000d;
+        double p99Micros = sorted[(int) (sorted.length * 0.99)] / 1_000d;
+        boolean enhanced = ManagedEntity.class.isAssignableFrom(PaymentEntity.class);
+
+        logger.info("Flush benchmark - Scenario: {}, Enhanced: {}, Samples: {}, Avg: {} us, P50: {} us, P99: {} us",
+                    scenario, enhanced, sorted.length,
+                    String.format("%.1f", avgMicros), String.format("%.1f", p50Micros), String.format("%.1f", p99Micros));
+    }
+}
@@ -0,0 +1,115 @@
+package Portfolio.Checkout_api_sandbox.exception;
+
+import Portfolio.Checkout_api_sandbox.dto.response.ErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para GlobalExceptionHandler y las excepciones de resultados esperados.
+ */
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void expectedOutcomeExceptions_ShouldNotCaptureStackTrace() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+
+        // Act
+        OrderNotFoundException notFound = new OrderNotFoundException(orderId);
+        IdempotencyConflictException conflict = new IdempotencyConflictException("key-1");
+        InvalidOrderStateException invalidState = new InvalidOrderStateException("La orden ya fue pagada");
+
+        // Assert
+        assertEquals(0, notFound.getStackTrace().length);
+        assertEquals(0, conflict.getStackTrace().length);
+        assertEquals(0, invalidState.getStackTrace().length);
+    }
+
+    @Test
+    void expectedOutcomeExceptions_ShouldKeepMessages() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+
+        // Act
+        OrderNotFoundException notFound = new OrderNotFoundException(orderId);
+        IdempotencyConflictException conflict = new IdempotencyConflictException("key-1");
+
+        // Assert
+        assertEquals("Orden no encontrada con ID: " + orderId, notFound.getMessage());
+        assertEquals(orderId, notFound.getOrderId());
+        assertEquals("Ya existe una solicitud procesada con la clave de idempotencia: key-1", conflict.getMessage());
+        assertEquals("Otro mensaje", new OrderNotFoundException("Otro mensaje").getMessage());
+    }
+
+    @Test
+    void idempotencyConflictWithCause_ShouldKeepCause() {
+        // Arrange
+        IllegalStateException cause = new IllegalStateException("duplicada");
+
+        // Act
+        IdempotencyConflictException conflict = new IdempotencyConflictException("Clave duplicada", cause);
+
+        // Assert
+        assertSame(cause, conflict.getCause());
+        assertEquals("Clave duplicada", conflict.getMessage());
+        assertEquals(0, conflict.getStackTrace().length);
+    }
+
+    @Test
+    void handleOrderNotFound_ShouldReturn404WithMessageAndPath() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/" + orderId);
+
+        // Act
+        ResponseEntity<ErrorResponse> response = handler.handleOrderNotFound(new OrderNotFoundException(orderId), request);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(404, response.getBody().getStatus());
+        assertEquals("Orden no encontrada con ID: " + orderId, response.getBody().getMessage());
+        assertEquals("/api/orders/" + orderId, response.getBody().getPath());
+        assertNotNull(response.getBody().getTimestamp());
+    }
+
+    @Test
+    void handleOrderBusy_ShouldReturn409WithRetryAfter() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/checkout");
+        OrderBusyException busy = new OrderBusyException("La orden tiene otra operación en curso, reintente más tarde", 1L);
+
+        // Act
+        ResponseEntity<ErrorResponse> response = handler.handleOrderBusy(busy, request);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNotNull(response.getBody());
+        assertEquals(409, response.getBody().getStatus());
+        assertEquals(0, busy.getStackTrace().length);
+    }
+
+    @Test
+    void handleGenericError_ShouldHideDetails() {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+
+        // Act
+        ResponseEntity<ErrorResponse> response = handler.handleGenericError(new IllegalStateException("boom"), request);
+
+        // Assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Error interno del servidor", response.getBody().getMessage());
+    }
+}
@@ -0,0 +1,94 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import Portfolio.Checkout_api_sandbox.web.AdmissionControlFilter;
+import Portfolio.Checkout_api_sandbox.web.PriorityAdmissionScheduler;
+import Portfolio.Checkout_api_sandbox.web.TrafficClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para AdmissionHealthIndicator.
+ */
+@ExtendWith(MockitoExtension.class)
+class AdmissionHealthIndicatorTest {
+
+    @Mock
+    private AdmissionControlFilter admissionControlFilter;
+
+    @Mock
+    private PriorityAdmissionScheduler scheduler;
+
+    @InjectMocks
+    private AdmissionHealthIndicator indicator;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(indicator, "saturationWaiting", 1);
+        lenient().when(admissionControlFilter.getScheduler()).thenReturn(scheduler);
+        lenient().when(scheduler.getCapacity()).thenReturn(100);
+        lenient().when(scheduler.handles(any(TrafficClass.class))).thenReturn(true);
+    }
+
+    @Test
+    void health_ShouldBeUpWithFreeCapacity() {
+        // Arrange
+        when(scheduler.getInUse()).thenReturn(60);
+        when(scheduler.getWaiting(any(TrafficClass.class))).thenReturn(0);
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(60, health.getDetails().get("inUse"));
+    }
+
+    @Test
+    void health_ShouldBeOutOfServiceWhenFullAndQueueing() {
+        // Arrange
+        when(scheduler.getInUse()).thenReturn(100);
+        when(scheduler.getWaiting(any(TrafficClass.class))).thenReturn(0);
+        when(scheduler.getWaiting(TrafficClass.ORDER_READ)).thenReturn(7);
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(7, health.getDetails().get("waiting"));
+    }
+
+    @Test
+    void health_ShouldBeUpWhenFullButNothingWaits() {
+        // Arrange
+        when(scheduler.getInUse()).thenReturn(100);
+        when(scheduler.getWaiting(any(TrafficClass.class))).thenReturn(0);
+
+        // Act & Assert
+        assertEquals(Status.UP, indicator.health().getStatus());
+    }
+
+    @Test
+    void health_ShouldBeUpWhenAdmissionIsDisabled() {
+        // Arrange
+        when(admissionControlFilter.getScheduler()).thenReturn(null);
+
+        // Act
+        Health health = indicator.health();
+
+        // Assert
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(false, health.getDetails().get("enabled"));
+    }
+}
@@ -0,0 +1,163 @@
+package Portfolio.Checkout_api_sandbox.health;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.CircuitBreaker;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para HealthSnapshotRefresher.
+ * Verifica que la foto refleja la base y el circuito de Stripe, y que con el pool agotado
+ * no se pide una conexión.
+ */
+@ExtendWith(MockitoExtension.class)
+class HealthSnapshotRefresherTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private StripePaymentClient stripePaymentClient;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private HikariDataSource hikariDataSource;
+
+    @Mock
+    private HikariPoolMXBean pool;
+
+    @InjectMocks
+    private HealthSnapshotRefresher refresher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(refresher, "validationTimeoutSeconds", 2);
+        ReflectionTestUtils.setField(refresher, "refreshIntervalMs", 5_000L);
+        ReflectionTestUtils.setField(refresher, "staleAfterIntervals", 3);
+        lenient().when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        lenient().when(dataSource.unwrap(HikariDataSource.class)).thenReturn(hikariDataSource);
+        lenient().when(hikariDataSource.getHikariPoolMXBean()).thenReturn(pool);
+        lenient().when(stripePaymentClient.getCircuitState()).thenReturn(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void refresh_ShouldReportUpWhenConnectionIsValid() throws Exception {
+        // Arrange
+        when(pool.getIdleConnections()).thenReturn(5);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.isValid(2)).thenReturn(true);
+
+        // Act
+        refresher.refresh();
+
+        // Assert
+        Health database = refresher.getDatabase();
+        assertEquals(Status.UP, database.getStatus());
+        assertEquals(5, database.getDetails().get("idle"));
+        verify(connection).close();
+    }
+
+    @Test
+    void refresh_ShouldReportDownWhenConnectionFails() throws Exception {
+        // Arrange
+        when(dataSource.getConnection()).thenThrow(new SQLTransientConnectionException("Connection refused"));
+
+        // Act
+        refresher.refresh();
+
+        // Assert
+        assertEquals(Status.DOWN, refresher.getDatabase().getStatus());
+    }
+
+    @Test
+    void refresh_ShouldKeepLastResultWithoutConnectionWhenPoolIsExhausted() throws Exception {
+        // Arrange
+        when(pool.getIdleConnections()).thenReturn(5);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.isValid(2)).thenReturn(true);
+        refresher.refresh();
+
+        when(pool.getIdleConnections()).thenReturn(0);
+        when(pool.getThreadsAwaitingConnection()).thenReturn(12);
+
+        // Act
+        refresher.refresh();
+
+        // Assert
+        Health database = refresher.getDatabase();
+        assertEquals(Status.UP, database.getStatus());
+        assertEquals(12, database.getDetails().get("awaiting"));
+        verify(dataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void refresh_ShouldReportStripeDegradedWhenCircuitIsOpen() throws Exception {
+        // Arrange
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(stripePaymentClient.getCircuitState()).thenReturn(CircuitBreaker.State.OPEN);
+
+        // Act
+        refresher.refresh();
+
+        // Assert
+        Health stripe = refresher.getStripe();
+        assertEquals(HealthSnapshotRefresher.DEGRADED, stripe.getStatus());
+        assertEquals("OPEN", stripe.getDetails().get("circuit"));
+    }
+
+    @Test
+    void getters_ShouldReportStaleSnapshotInsteadOfLastResult() throws Exception {
+        // Arrange - el último refresco exitoso fue hace más de tres intervalos
+        when(pool.getIdleConnections()).thenReturn(5);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.isValid(2)).thenReturn(true);
+        refresher.refresh();
+        long longAgo = System.currentTimeMillis() - 20_000;
+        ReflectionTestUtils.setField(refresher, "databaseCheckedAt", longAgo);
+        ReflectionTestUtils.setField(refresher, "stripeCheckedAt", longAgo);
+
+        // Act
+        Health database = refresher.getDatabase();
+        Health stripe = refresher.getStripe();
+
+        // Assert
+        assertEquals(Status.DOWN, database.getStatus());
+        assertEquals(longAgo, database.getDetails().get("checkedAt"));
+        assertEquals(Status.UNKNOWN, stripe.getStatus());
+    }
+
+    @Test
+    void getters_ShouldKeepUnknownBeforeFirstRefresh() {
+        // Act & Assert
+        assertEquals(Status.UNKNOWN, refresher.getDatabase().getStatus());
+        assertEquals(Status.UNKNOWN, refresher.getStripe().getStatus());
+    }
+
+    @Test
+    void getters_ShouldServeSnapshotWithoutTouchingDependencies() {
+        // Act
+        refresher.getDatabase();
+        refresher.getStripe();
+
+        // Assert
+        verifyNoInteractions(dataSource, stripePaymentClient);
+    }
+}
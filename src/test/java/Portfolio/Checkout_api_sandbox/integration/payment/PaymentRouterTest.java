@@ -0,0 +1,304 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para PaymentRouter con dos pasarelas locales de reemplazo.
+ * Verifica la preferencia del cliente, el failover según el tipo de error y el orden por salud
+ * (errores y latencia p95).
+ */
+class PaymentRouterTest {
+
+    private static final UUID ORDER_ID = UUID.randomUUID();
+
+    private StandInGateway primary;
+    private StandInGateway secondary;
+    private PaymentRouter router;
+
+    @BeforeEach
+    void setUp() {
+        primary = new StandInGateway("PRIMARY");
+        secondary = new StandInGateway("SECONDARY");
+        router = newRouter(true);
+    }
+
+    private PaymentRouter newRouter(boolean failover) {
+        PaymentRouter paymentRouter = new PaymentRouter();
+        ReflectionTestUtils.setField(paymentRouter, "gateways", List.of(primary, secondary));
+        ReflectionTestUtils.setField(paymentRouter, "failover", failover);
+        ReflectionTestUtils.setField(paymentRouter, "windowSize", 20);
+        ReflectionTestUtils.setField(paymentRouter, "minimumCalls", 5);
+        ReflectionTestUtils.setField(paymentRouter, "maxErrorRate", 0.5);
+        ReflectionTestUtils.setField(paymentRouter, "maxP95Millis", 1_000L);
+        paymentRouter.start();
+        return paymentRouter;
+    }
+
+    @Test
+    void create_ShouldUseRequestedGatewayWhenHealthy() {
+        // Act
+        PaymentResult result = router.create("secondary", "default", 1999L, "USD", ORDER_ID, "key-1");
+
+        // Assert
+        assertEquals("SECONDARY", result.gateway());
+        assertEquals(0, primary.calls.get());
+        assertEquals(1, router.getHealth("SECONDARY").getCalls());
+    }
+
+    @Test
+    void create_ShouldFailOverWhenRequestedGatewayFails() {
+        // Arrange
+        primary.failing = true;
+
+        // Act
+        PaymentResult result = router.create("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1");
+
+        // Assert
+        assertEquals("SECONDARY", result.gateway());
+        assertEquals(1, primary.calls.get());
+        assertEquals(1.0, router.getHealth("PRIMARY").getErrorRate());
+    }
+
+    @Test
+    void create_ShouldRethrowLastErrorWhenAllGatewaysFail() {
+        // Arrange
+        primary.failing = true;
+        secondary.failing = true;
+
+        // Act & Assert
+        StripeApiException e = assertThrows(
+            StripeApiException.class,
+            () -> router.create(PaymentRouter.AUTO, "default", 1999L, "USD", ORDER_ID, "key-1")
+        );
+        assertTrue(e.getMessage().contains("SECONDARY"));
+    }
+
+    @Test
+    void create_ShouldNotFailOverWhenDisabled() {
+        // Arrange
+        router = newRouter(false);
+        primary.failing = true;
+
+        // Act & Assert
+        assertThrows(StripeApiException.class,
+                () -> router.create("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1"));
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    void create_ShouldPropagateRejectedRequestWithoutFailOver() {
+        // Arrange - un 4xx: la otra pasarela rechazaría la misma request
+        primary.failing = true;
+        primary.failure = GatewayFailure.REJECTED;
+
+        // Act & Assert
+        assertThrows(StripeApiException.class,
+                () -> router.create("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1"));
+        assertEquals(0, secondary.calls.get());
+        assertEquals(0.0, router.getHealth("PRIMARY").getErrorRate());
+    }
+
+    @Test
+    void create_ShouldPropagateThrottlingWithoutFailOver() {
+        // Arrange
+        primary.failing = true;
+        primary.failure = GatewayFailure.THROTTLED;
+
+        // Act & Assert
+        assertThrows(StripeApiException.class,
+                () -> router.create("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1"));
+        assertEquals(0, secondary.calls.get());
+        assertEquals(1.0, router.getHealth("PRIMARY").getErrorRate());
+    }
+
+    @Test
+    void create_ShouldFailOverWithoutLatencySampleWhenRequestWasNotSent() {
+        // Arrange - circuito abierto: falla al instante sin llamar a la pasarela
+        for (int i = 0; i < 10; i++) {
+            router.getHealth("PRIMARY").record(400, true);
+        }
+        primary.failing = true;
+        primary.failure = GatewayFailure.NOT_SENT;
+
+        // Act
+        PaymentResult result = router.create("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1");
+
+        // Assert - el fallo cuenta, pero no baja la latencia p95
+        assertEquals("SECONDARY", result.gateway());
+        assertEquals(11, router.getHealth("PRIMARY").getCalls());
+        assertEquals(400, router.getHealth("PRIMARY").getLatencyPercentile(0.05));
+    }
+
+    @Test
+    void create_ShouldRejectUnknownGateway() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> router.create("PAYPAL", "default", 1999L, "USD", ORDER_ID, "key-1"));
+    }
+
+    @Test
+    void candidates_ShouldSkipDegradedRequestedGateway() {
+        // Arrange - PRIMARY falla en la mayoría de las llamadas recientes
+        ProviderHealth health = router.getHealth("PRIMARY");
+        for (int i = 0; i < 10; i++) {
+            health.record(50, i % 4 == 0);
+        }
+
+        // Act
+        List<PaymentRouter.RoutedGateway> candidates = router.candidates("PRIMARY");
+
+        // Assert - se sigue probando como último recurso
+        assertEquals(List.of("SECONDARY", "PRIMARY"),
+                candidates.stream().map(PaymentRouter.RoutedGateway::name).toList());
+    }
+
+    @Test
+    void candidates_ShouldPreferLowerLatencyWithoutHint() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            router.getHealth("PRIMARY").record(400, true);
+            router.getHealth("SECONDARY").record(80, true);
+        }
+
+        // Act
+        List<PaymentRouter.RoutedGateway> candidates = router.candidates(PaymentRouter.AUTO);
+
+        // Assert
+        assertEquals("SECONDARY", candidates.get(0).name());
+    }
+
+    @Test
+    void candidates_ShouldTreatSlowGatewayAsDegraded() {
+        // Arrange - p95 de PRIMARY por encima del umbral de 1 s
+        for (int i = 0; i < 10; i++) {
+            router.getHealth("PRIMARY").record(2_000, true);
+        }
+
+        // Act
+        List<PaymentRouter.RoutedGateway> candidates = router.candidates("PRIMARY");
+
+        // Assert
+        assertEquals("SECONDARY", candidates.get(0).name());
+    }
+
+    @Test
+    void createAsync_ShouldFailOverAsynchronously() {
+        // Arrange
+        primary.failing = true;
+
+        // Act
+        PaymentResult result = router.createAsync("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1").join();
+
+        // Assert
+        assertEquals("SECONDARY", result.gateway());
+        assertEquals(1.0, router.getHealth("PRIMARY").getErrorRate());
+        assertEquals(0.0, router.getHealth("SECONDARY").getErrorRate());
+    }
+
+    @Test
+    void createAsync_ShouldFailWithLastErrorWhenAllGatewaysFail() {
+        // Arrange
+        primary.failing = true;
+        secondary.failing = true;
+
+        // Act
+        CompletableFuture<PaymentResult> result = router.createAsync("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1");
+
+        // Assert
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(StripeApiException.class, e.getCause());
+    }
+
+    @Test
+    void createAsync_ShouldNotFailOverOnTimeout() {
+        // Arrange - el pago pudo haberse creado en PRIMARY
+        primary.failing = true;
+        primary.failure = GatewayFailure.TIMED_OUT;
+
+        // Act
+        CompletableFuture<PaymentResult> result = router.createAsync("PRIMARY", "default", 1999L, "USD", ORDER_ID, "key-1");
+
+        // Assert
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(StripeApiException.class, e.getCause());
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    void cancelAsync_ShouldCancelInTheGatewayThatCreatedThePayment() {
+        // Act
+        router.cancelAsync("secondary", "default", "pay_1").join();
+
+        // Assert
+        assertEquals(List.of("pay_1"), secondary.canceled);
+        assertTrue(primary.canceled.isEmpty());
+    }
+
+    /**
+     * Pasarela local de reemplazo: responde al instante o falla según se configure.
+     */
+    private static final class StandInGateway implements PaymentGateway {
+
+        private final String name;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final List<String> canceled = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile GatewayFailure failure = GatewayFailure.UNAVAILABLE;
+
+        private StandInGateway(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public PaymentProvider getProvider() {
+            return PaymentProvider.STRIPE;
+        }
+
+        @Override
+        public PaymentResult create(String tenantId, Long amountMinor, String currency, UUID orderId,
+                                    String idempotencyKey) {
+            int call = calls.incrementAndGet();
+            if (failing) {
+                throw new StripeApiException(name + " no disponible");
+            }
+            return new PaymentResult(name, PaymentProvider.STRIPE, name.toLowerCase() + "_" + call,
+                    "secret_" + call, "requires_payment_method");
+        }
+
+        @Override
+        public CompletableFuture<PaymentResult> createAsync(String tenantId, Long amountMinor, String currency,
+                                                            UUID orderId, String idempotencyKey) {
+            return CompletableFuture.supplyAsync(() -> create(tenantId, amountMinor, currency, orderId,
+                    idempotencyKey));
+        }
+
+        @Override
+        public CompletableFuture<Void> cancelAsync(String tenantId, String externalPaymentId) {
+            canceled.add(externalPaymentId);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public GatewayFailure classify(Throwable error) {
+            return failure;
+        }
+    }
+}
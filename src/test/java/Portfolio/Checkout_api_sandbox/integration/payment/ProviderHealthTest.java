@@ -0,0 +1,76 @@
+package Portfolio.Checkout_api_sandbox.integration.payment;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para ProviderHealth.
+ * Verifica la ventana de las últimas llamadas, los percentiles y los umbrales de salud.
+ */
+class ProviderHealthTest {
+
+    @Test
+    void getLatencyPercentile_ShouldUseOnlyTheLastCalls() {
+        // Arrange - 10 llamadas lentas que luego salen de la ventana de 5
+        ProviderHealth health = new ProviderHealth(5, 1);
+        for (int i = 0; i < 10; i++) {
+            health.record(1_000, true);
+        }
+        for (int i = 1; i <= 5; i++) {
+            health.record(i * 10, true);
+        }
+
+        // Act & Assert
+        assertEquals(5, health.getCalls());
+        assertEquals(30, health.getLatencyPercentile(0.5));
+        assertEquals(50, health.getLatencyPercentile(0.95));
+    }
+
+    @Test
+    void recordNotSent_ShouldCountFailureWithoutLatencySample() {
+        // Arrange
+        ProviderHealth health = new ProviderHealth(5, 1);
+        health.record(200, true);
+
+        // Act
+        health.recordNotSent();
+        health.recordNotSent();
+
+        // Assert
+        assertEquals(3, health.getCalls());
+        assertEquals(2.0 / 3, health.getErrorRate(), 1e-9);
+        assertEquals(200, health.getLatencyPercentile(0.05));
+    }
+
+    @Test
+    void getErrorRate_ShouldForgetFailuresThatLeftTheWindow() {
+        // Arrange
+        ProviderHealth health = new ProviderHealth(4, 1);
+        health.record(10, false);
+        health.record(10, false);
+
+        // Act
+        double before = health.getErrorRate();
+        for (int i = 0; i < 4; i++) {
+            health.record(10, true);
+        }
+
+        // Assert
+        assertEquals(1.0, before);
+        assertEquals(0.0, health.getErrorRate());
+    }
+
+    @Test
+    void isHealthy_ShouldIgnoreThresholdsUntilMinimumCalls() {
+        // Arrange
+        ProviderHealth health = new ProviderHealth(10, 3);
+        health.record(10, false);
+        health.record(10, false);
+
+        // Act & Assert
+        assertTrue(health.isHealthy(0.5, 1_000));
+        health.record(10, false);
+        assertFalse(health.isHealthy(0.5, 1_000));
+    }
+}
@@ -0,0 +1,68 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para AdaptiveConcurrencyLimiter.
+ * Verifica el rechazo al alcanzar el límite, el aumento aditivo y la disminución multiplicativa.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5_000);
+
+    @Test
+    void tryAcquire_ShouldRejectWhenLimitReached() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1_000, 0.5);
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void onSuccess_ShouldIncreaseLimitWhenFastAndSaturated() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 1_000, 0.5);
+
+        // Act - dos rondas con el límite lleno y respuestas rápidas
+        for (int round = 0; round < 2; round++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.onSuccess(FAST);
+            limiter.onSuccess(FAST);
+        }
+
+        // Assert - sube de 1 en 1 sin pasar del máximo
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void onSuccessAndFailure_ShouldDecreaseLimitWhenSlowOrFailing() {
+        // Arrange
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, 1_000, 0.5);
+
+        // Act & Assert
+        limiter.tryAcquire();
+        limiter.onSuccess(SLOW);
+        assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.onFailure();
+        assertEquals(2, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.onFailure();
+        assertEquals(2, limiter.getLimit());
+    }
+}
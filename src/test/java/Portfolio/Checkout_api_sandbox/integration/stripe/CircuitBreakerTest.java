@@ -0,0 +1,72 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para CircuitBreaker.
+ * Verifica la apertura por tasa de fallos, el rechazo mientras está abierto y las pruebas en HALF_OPEN.
+ */
+class CircuitBreakerTest {
+
+    @Test
+    void onFailure_ShouldOpenWhenFailureRateExceedsThreshold() {
+        // Arrange - ventana de 4 llamadas, abre con 50 % de fallos
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 60_000, 1);
+
+        // Act
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onSuccess(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onFailure(breaker.tryAcquire());
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isRejecting());
+        assertEquals(-1, breaker.tryAcquire());
+        assertTrue(breaker.getRetryAfterSeconds() >= 59);
+    }
+
+    @Test
+    void tryAcquire_ShouldCloseAfterSuccessfulProbes() throws Exception {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 50, 2);
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(80);
+
+        // Act - solo deja pasar 2 pruebas
+        long firstProbe = breaker.tryAcquire();
+        long secondProbe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(-1, breaker.tryAcquire());
+        breaker.onSuccess(firstProbe);
+        breaker.onSuccess(secondProbe);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire() >= 0);
+    }
+
+    @Test
+    void onFailure_ShouldReopenWhenProbeFailsAndIgnoreStaleResults() throws Exception {
+        // Arrange
+        CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 50, 1);
+        long stale = breaker.tryAcquire();
+        breaker.onFailure(breaker.tryAcquire());
+        breaker.onFailure(breaker.tryAcquire());
+        Thread.sleep(80);
+
+        // Act
+        long probe = breaker.tryAcquire();
+        breaker.onSuccess(stale);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(probe);
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,733 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.StripeResponseGetterOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stripe simulado para tests y benchmarks, sin salir a la red.
+ *
+ * Implementa create, retrieve, cancel y list de /v1/payment_intents con el JSON que devuelve Stripe
+ * (errores incluidos), así que el cliente real (StripeClient + StripeHttpTransport) recorre el camino
+ * HTTP completo: serialización, timeouts y manejo de 429. La latencia sigue una distribución
+ * configurable y se pueden inyectar 500 y 429 con una probabilidad dada.
+ *
+ * Si se configura la URL del webhook, los cambios de estado (succeed, fail, cancel) se notifican con
+ * eventos firmados con el webhook secret, igual que Stripe, para poder probar StripeWebhookController
+ * de punta a punta.
+ */
+public class FakeStripeServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeStripeServer.class);
+
+    private static final String PATH = "/v1/payment_intents";
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HttpClient webhookClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    private final Map<String, StoredIntent> intents = new ConcurrentHashMap<>();
+    private final Map<String, String> idempotencyKeys = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong injectedRateLimits = new AtomicLong();
+    private final AtomicLong webhooksDelivered = new AtomicLong();
+    private final AtomicLong webhooksFailed = new AtomicLong();
+
+    private volatile LatencyModel latency = LatencyModel.none();
+    private volatile double errorRate;
+    private volatile double rateLimitRate;
+    private volatile long retryAfterSeconds = 1;
+    private volatile String webhookUrl;
+    private volatile String webhookSecret = "whsec_fake";
+    private volatile long autoSucceedAfterMs = -1;
+
+    public FakeStripeServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param port Puerto local (0 = uno libre)
+     */
+    public FakeStripeServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1_000);
+        server.setExecutor(handlers);
+        server.createContext(PATH, this::handle);
+    }
+
+    public FakeStripeServer start() {
+        server.start();
+        logger.info("Fake Stripe listening on {}", getApiBase());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    public String getApiBase() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * StripeClient apuntando a este servidor, sin reintentos de red.
+     *
+     * @param transport Transporte HTTP a usar (normalmente StripeHttpTransport)
+     */
+    public StripeClient newStripeClient(com.stripe.net.HttpClient transport) {
+        return new StripeClient(new LiveStripeResponseGetter(new LocalOptions(getApiBase()), transport));
+    }
+
+    // ---- Configuración ----
+
+    public FakeStripeServer withLatency(LatencyModel latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param errorRate Probabilidad (0..1) de responder 500 api_error
+     */
+    public FakeStripeServer withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param rateLimitRate Probabilidad (0..1) de responder 429 rate_limit
+     * @param retryAfterSeconds Valor del header Retry-After
+     */
+    public FakeStripeServer withRateLimitRate(double rateLimitRate, long retryAfterSeconds) {
+        this.rateLimitRate = rateLimitRate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    /**
+     * @param webhookUrl Endpoint que recibe los eventos (ej: http://localhost:8080/api/webhooks/stripe)
+     * @param webhookSecret Secret con el que se firman (stripe.webhookSecret de la app)
+     */
+    public FakeStripeServer withWebhooks(String webhookUrl, String webhookSecret) {
+        this.webhookUrl = webhookUrl;
+        this.webhookSecret = webhookSecret;
+        return this;
+    }
+
+    /**
+     * Simula que el cliente confirma el pago: cada Payment Intent creado pasa a succeeded
+     * (y emite su webhook) tras el retardo indicado. -1 lo desactiva.
+     */
+    public FakeStripeServer withAutoSucceedAfter(long delayMs) {
+        this.autoSucceedAfterMs = delayMs;
+        return this;
+    }
+
+    // ---- Cambios de estado iniciados "por Stripe" ----
+
+    public void succeed(String paymentIntentId) {
+        transition(paymentIntentId, "succeeded", "payment_intent.succeeded");
+    }
+
+    public void fail(String paymentIntentId) {
+        transition(paymentIntentId, "requires_payment_method", "payment_intent.payment_failed");
+    }
+
+    /**
+     * Crea un Payment Intent directamente en el servidor (sin pasar por HTTP), para preparar
+     * escenarios de retrieve/list/conciliación.
+     *
+     * @param created Epoch seconds de creación
+     */
+    public String seed(long amount, String currency, String orderId, String status, long created) {
+        Map<String, String> metadata = orderId == null ? Map.of() : Map.of("orderId", orderId);
+        StoredIntent intent = newIntent(amount, currency, metadata, created);
+        synchronized (intent) {
+            intent.status = status;
+        }
+        return intent.id;
+    }
+
+    // ---- Webhooks ----
+
+    /**
+     * Construye un evento firmado como lo haría Stripe, para enviarlo a mano (ej: con MockMvc).
+     *
+     * @param type Tipo de evento (payment_intent.succeeded, ...)
+     * @param paymentIntentId Payment Intent que va en data.object
+     */
+    public SignedEvent signedEvent(String type, String paymentIntentId) {
+        StoredIntent intent = find(paymentIntentId);
+        if (intent == null) {
+            throw new IllegalArgumentException("Unknown Payment Intent: " + paymentIntentId);
+        }
+        String payload = eventJson(type, intent);
+        return new SignedEvent(payload, signatureHeader(payload, webhookSecret, nowSeconds()));
+    }
+
+    /**
+     * Header Stripe-Signature para un payload: t=timestamp,v1=HMAC-SHA256(secret, "timestamp.payload").
+     */
+    public static String signatureHeader(String payload, String secret, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] signature = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    // ---- Métricas ----
+
+    public long getRequestCount(String operation) {
+        AtomicLong count = requests.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getInjectedRateLimits() {
+        return injectedRateLimits.get();
+    }
+
+    public long getWebhooksDelivered() {
+        return webhooksDelivered.get();
+    }
+
+    public long getWebhooksFailed() {
+        return webhooksFailed.get();
+    }
+
+    public String getStatus(String paymentIntentId) {
+        StoredIntent intent = find(paymentIntentId);
+        return intent == null ? null : intent.status;
+    }
+
+    // ---- HTTP ----
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] segments = exchange.getRequestURI().getPath().substring(PATH.length()).split("/");
+            String id = segments.length > 1 ? segments[1] : null;
+            String action = segments.length > 2 ? segments[2] : null;
+            Map<String, String> form = parseForm("GET".equals(method)
+                    ? exchange.getRequestURI().getRawQuery()
+                    : new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+
+            String operation;
+            if ("POST".equals(method) && id == null) {
+                operation = "create";
+            } else if ("GET".equals(method) && id == null) {
+                operation = "list";
+            } else if ("GET".equals(method) && action == null) {
+                operation = "retrieve";
+            } else if ("POST".equals(method) && "cancel".equals(action)) {
+                operation = "cancel";
+            } else {
+                send(exchange, 404, error("invalid_request_error", "resource_missing",
+                        "Unrecognized request URL (" + method + ": " + exchange.getRequestURI().getPath() + ")"));
+                return;
+            }
+            requests.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+
+            sleep(latency.nextMillis());
+
+            // Fallos inyectados: se deciden antes de tocar el estado, como un error real de Stripe
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < rateLimitRate) {
+                injectedRateLimits.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                send(exchange, 429, error("invalid_request_error", "rate_limit",
+                        "Too many requests hit the API too quickly."));
+                return;
+            }
+            if (roll < rateLimitRate + errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 500, error("api_error", null, "An unknown error occurred"));
+                return;
+            }
+
+            switch (operation) {
+                case "create" -> create(exchange, form);
+                case "list" -> list(exchange, form);
+                case "retrieve" -> retrieve(exchange, id);
+                default -> cancel(exchange, id, form);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Fake Stripe failed to handle {} {}: {}",
+                         exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage(), e);
+            if (exchange.getResponseCode() == -1) {
+                send(exchange, 500, error("api_error", null, e.getMessage()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void create(HttpExchange exchange, Map<String, String> form) throws IOException {
+        if (!form.containsKey("amount") || !form.containsKey("currency")) {
+            send(exchange, 400, error("invalid_request_error", "parameter_missing",
+                    "Missing required param: " + (form.containsKey("amount") ? "currency" : "amount") + "."));
+            return;
+        }
+
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (idempotencyKey != null && idempotencyKey.length() > 255) {
+            send(exchange, 400, error("invalid_request_error", null,
+                    "Keys for idempotent requests can only be up to 255 characters long."));
+            return;
+        }
+        if (idempotencyKey != null) {
+            String existing = idempotencyKeys.get(idempotencyKey);
+            if (existing != null) {
+                exchange.getResponseHeaders().add("Idempotent-Replayed", "true");
+                send(exchange, 200, toJson(intents.get(existing)));
+                return;
+            }
+        }
+
+        Map<String, String> metadata = new HashMap<>();
+        form.forEach((key, value) -> {
+            if (key.startsWith("metadata[") && key.endsWith("]")) {
+                metadata.put(key.substring("metadata[".length(), key.length() - 1), value);
+            }
+        });
+
+        StoredIntent intent = newIntent(Long.parseLong(form.get("amount")),
+                form.get("currency").toLowerCase(), metadata, nowSeconds());
+        if (idempotencyKey != null) {
+            String winner = idempotencyKeys.putIfAbsent(idempotencyKey, intent.id);
+            if (winner != null) {
+                intents.remove(intent.id);
+                intent = intents.get(winner);
+            }
+        }
+
+        long delay = autoSucceedAfterMs;
+        if (delay >= 0) {
+            String id = intent.id;
+            scheduler.schedule(() -> succeed(id), delay, TimeUnit.MILLISECONDS);
+        }
+
+        send(exchange, 200, toJson(intent));
+    }
+
+    private void retrieve(HttpExchange exchange, String id) throws IOException {
+        StoredIntent intent = find(id);
+        if (intent == null) {
+            send(exchange, 404, missing(id));
+            return;
+        }
+        send(exchange, 200, toJson(intent));
+    }
+
+    private void cancel(HttpExchange exchange, String id, Map<String, String> form) throws IOException {
+        StoredIntent intent = find(id);
+        if (intent == null) {
+            send(exchange, 404, missing(id));
+            return;
+        }
+
+        synchronized (intent) {
+            if ("succeeded".equals(intent.status) || "canceled".equals(intent.status)) {
+                JsonObject body = error("invalid_request_error", "payment_intent_unexpected_state",
+                        "You cannot cancel this PaymentIntent because it has a status of " + intent.status + ".");
+                body.getAsJsonObject("error").add("payment_intent", toJson(intent));
+                send(exchange, 400, body);
+                return;
+            }
+            intent.status = "canceled";
+            intent.canceledAt = nowSeconds();
+            intent.cancellationReason = form.get("cancellation_reason");
+        }
+
+        deliver("payment_intent.canceled", intent);
+        send(exchange, 200, toJson(intent));
+    }
+
+    private void list(HttpExchange exchange, Map<String, String> query) throws IOException {
+        long gte = Long.parseLong(query.getOrDefault("created[gte]", "0"));
+        long lt = Long.parseLong(query.getOrDefault("created[lt]", String.valueOf(Long.MAX_VALUE)));
+        int limit = Math.max(1, Math.min(100, Integer.parseInt(query.getOrDefault("limit", "10"))));
+        String startingAfter = query.get("starting_after");
+
+        // Igual que Stripe: más recientes primero
+        List<StoredIntent> matching = new ArrayList<>();
+        for (StoredIntent intent : intents.values()) {
+            if (intent.created >= gte && intent.created < lt) {
+                matching.add(intent);
+            }
+        }
+        matching.sort(Comparator.comparingLong((StoredIntent intent) -> intent.created)
+                .thenComparingLong(intent -> intent.sequence)
+                .reversed());
+
+        int from = 0;
+        if (startingAfter != null) {
+            for (int i = 0; i < matching.size(); i++) {
+                if (matching.get(i).id.equals(startingAfter)) {
+                    from = i + 1;
+                    break;
+                }
+            }
+        }
+        int to = Math.min(matching.size(), from + limit);
+
+        JsonArray data = new JsonArray();
+        for (StoredIntent intent : matching.subList(from, to)) {
+            data.add(toJson(intent));
+        }
+        JsonObject body = new JsonObject();
+        body.addProperty("object", "list");
+        body.add("data", data);
+        body.addProperty("has_more", to < matching.size());
+        body.addProperty("url", PATH);
+        send(exchange, 200, body);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonObject body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Request-Id", "req_" + randomSuffix());
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // ---- Estado ----
+
+    private StoredIntent newIntent(long amount, String currency, Map<String, String> metadata, long created) {
+        StoredIntent intent = new StoredIntent("pi_" + randomSuffix(), sequence.incrementAndGet(),
+                amount, currency, Map.copyOf(metadata), created);
+        intents.put(intent.id, intent);
+        return intent;
+    }
+
+    private StoredIntent find(String id) {
+        return id == null ? null : intents.get(id);
+    }
+
+    private void transition(String paymentIntentId, String status, String eventType) {
+        StoredIntent intent = find(paymentIntentId);
+        if (intent == null) {
+            throw new IllegalArgumentException("Unknown Payment Intent: " + paymentIntentId);
+        }
+        synchronized (intent) {
+            if ("canceled".equals(intent.status) || "succeeded".equals(intent.status)) {
+                return;
+            }
+            intent.status = status;
+            if ("succeeded".equals(status)) {
+                intent.amountReceived = intent.amount;
+            }
+        }
+        deliver(eventType, intent);
+    }
+
+    private void deliver(String type, StoredIntent intent) {
+        String url = webhookUrl;
+        if (url == null) {
+            return;
+        }
+
+        String payload = eventJson(type, intent);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json; charset=utf-8")
+                .header("Stripe-Signature", signatureHeader(payload, webhookSecret, nowSeconds()))
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofString(payload, StandardCharsets.UTF_8))
+                .build();
+
+        CompletableFuture<HttpResponse<Void>> response =
+                webhookClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        response.whenComplete((result, error) -> {
+            if (error == null && result.statusCode() / 100 == 2) {
+                webhooksDelivered.incrementAndGet();
+            } else {
+                webhooksFailed.incrementAndGet();
+                logger.warn("Fake Stripe webhook {} for {} not accepted: {}", type, intent.id,
+                            error != null ? error.getMessage() : "HTTP " + result.statusCode());
+            }
+        });
+    }
+
+    private String eventJson(String type, StoredIntent intent) {
+        JsonObject data = new JsonObject();
+        data.add("object", toJson(intent));
+
+        JsonObject request = new JsonObject();
+        request.add("id", null);
+        request.add("idempotency_key", null);
+
+        JsonObject event = new JsonObject();
+        event.addProperty("id", "evt_" + randomSuffix());
+        event.addProperty("object", "event");
+        event.addProperty("api_version", Stripe.API_VERSION);
+        event.addProperty("created", nowSeconds());
+        event.add("data", data);
+        event.addProperty("livemode", false);
+        event.addProperty("pending_webhooks", 1);
+        event.add("request", request);
+        event.addProperty("type", type);
+        return event.toString();
+    }
+
+    private JsonObject toJson(StoredIntent intent) {
+        synchronized (intent) {
+            JsonObject json = new JsonObject();
+            json.addProperty("id", intent.id);
+            json.addProperty("object", "payment_intent");
+            json.addProperty("amount", intent.amount);
+            json.addProperty("amount_capturable", 0);
+            json.addProperty("amount_received", intent.amountReceived);
+            JsonObject automaticPaymentMethods = new JsonObject();
+            automaticPaymentMethods.addProperty("enabled", true);
+            json.add("automatic_payment_methods", automaticPaymentMethods);
+            json.addProperty("canceled_at", intent.canceledAt);
+            json.addProperty("cancellation_reason", intent.cancellationReason);
+            json.addProperty("capture_method", "automatic");
+            json.addProperty("client_secret", intent.clientSecret);
+            json.addProperty("confirmation_method", "automatic");
+            json.addProperty("created", intent.created);
+            json.addProperty("currency", intent.currency);
+            json.addProperty("livemode", false);
+            JsonObject metadata = new JsonObject();
+            intent.metadata.forEach(metadata::addProperty);
+            json.add("metadata", metadata);
+            JsonArray paymentMethodTypes = new JsonArray();
+            paymentMethodTypes.add("card");
+            json.add("payment_method_types", paymentMethodTypes);
+            json.addProperty("status", intent.status);
+            return json;
+        }
+    }
+
+    private static JsonObject error(String type, String code, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("type", type);
+        if (code != null) {
+            error.addProperty("code", code);
+        }
+        error.addProperty("message", message);
+        JsonObject body = new JsonObject();
+        body.add("error", error);
+        return body;
+    }
+
+    private static JsonObject missing(String id) {
+        JsonObject body = error("invalid_request_error", "resource_missing",
+                "No such payment_intent: '" + id + "'");
+        body.getAsJsonObject("error").addProperty("param", "intent");
+        return body;
+    }
+
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> values = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return values;
+        }
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            values.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static String randomSuffix() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 24);
+    }
+
+    /**
+     * Payment Intent guardado en memoria. Los campos mutables se leen y escriben bajo su monitor.
+     */
+    private static class StoredIntent {
+
+        final String id;
+        final long sequence;
+        final long amount;
+        final String currency;
+        final Map<String, String> metadata;
+        final long created;
+        final String clientSecret;
+
+        String status = "requires_payment_method";
+        long amountReceived;
+        Long canceledAt;
+        String cancellationReason;
+
+        StoredIntent(String id, long sequence, long amount, String currency, Map<String, String> metadata, long created) {
+            this.id = id;
+            this.sequence = sequence;
+            this.amount = amount;
+            this.currency = currency;
+            this.metadata = metadata;
+            this.created = created;
+            this.clientSecret = id + "_secret_" + randomSuffix();
+        }
+    }
+
+    /**
+     * Evento listo para enviar: body raw y header Stripe-Signature.
+     */
+    public record SignedEvent(String payload, String signatureHeader) {
+    }
+
+    /**
+     * Distribución de la latencia que se añade a cada respuesta.
+     */
+    @FunctionalInterface
+    public interface LatencyModel {
+
+        long nextMillis();
+
+        static LatencyModel none() {
+            return () -> 0;
+        }
+
+        static LatencyModel fixed(long millis) {
+            return () -> millis;
+        }
+
+        static LatencyModel uniform(long minMillis, long maxMillis) {
+            return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+        }
+
+        /**
+         * Log-normal: la forma habitual de la latencia de una API remota (mediana baja, cola larga).
+         *
+         * @param medianMillis Mediana (p50)
+         * @param sigma Dispersión del logaritmo; 0.5 da un p99 de ~3,2 veces la mediana
+         */
+        static LatencyModel logNormal(long medianMillis, double sigma) {
+            double mu = Math.log(medianMillis);
+            return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    /**
+     * Opciones apuntando al servidor local, sin reintentos.
+     */
+    private static class LocalOptions extends StripeResponseGetterOptions {
+
+        private final String apiBase;
+
+        LocalOptions(String apiBase) {
+            this.apiBase = apiBase;
+        }
+
+        @Override
+        public String getApiKey() {
+            return "sk_test_fake";
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return 2_000;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return 0;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return apiBase;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return 15_000;
+        }
+    }
+}
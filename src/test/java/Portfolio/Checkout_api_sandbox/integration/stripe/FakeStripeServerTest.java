@@ -0,0 +1,235 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.Webhook;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.PaymentIntentListParams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para FakeStripeServer usando el cliente real (StripeClient + StripeHttpTransport).
+ * Verifica que el JSON que devuelve lo entiende stripe-java y que los webhooks salen bien firmados.
+ */
+class FakeStripeServerTest {
+
+    private static final String WEBHOOK_SECRET = "whsec_test";
+
+    private FakeStripeServer fakeStripe;
+    private StripeClient stripeClient;
+    private StripeHttpTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeStripe = new FakeStripeServer().start();
+        transport = new StripeHttpTransport(Duration.ofSeconds(1));
+        stripeClient = fakeStripe.newStripeClient(transport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fakeStripe.close();
+    }
+
+    private PaymentIntent create(String orderId) throws Exception {
+        return stripeClient.paymentIntents().create(PaymentIntentCreateParams.builder()
+                .setAmount(1999L)
+                .setCurrency("usd")
+                .putMetadata("orderId", orderId)
+                .build());
+    }
+
+    @Test
+    void create_ShouldReturnPaymentIntentWithMetadataAndClientSecret() throws Exception {
+        // Act
+        PaymentIntent intent = create("order-1");
+
+        // Assert
+        assertTrue(intent.getId().startsWith("pi_"));
+        assertEquals(1999L, intent.getAmount());
+        assertEquals("usd", intent.getCurrency());
+        assertEquals("requires_payment_method", intent.getStatus());
+        assertEquals("order-1", intent.getMetadata().get("orderId"));
+        assertTrue(intent.getClientSecret().startsWith(intent.getId() + "_secret_"));
+        assertEquals(1, fakeStripe.getRequestCount("create"));
+    }
+
+    @Test
+    void retrieveAndCancel_ShouldReflectStoredState() throws Exception {
+        // Arrange
+        PaymentIntent created = create("order-1");
+
+        // Act
+        PaymentIntent canceled = stripeClient.paymentIntents().cancel(created.getId());
+        PaymentIntent retrieved = stripeClient.paymentIntents().retrieve(created.getId());
+
+        // Assert
+        assertEquals("canceled", canceled.getStatus());
+        assertEquals("canceled", retrieved.getStatus());
+        assertNotNull(retrieved.getCanceledAt());
+    }
+
+    @Test
+    void cancel_ShouldRejectSucceededIntentWithUnexpectedState() throws Exception {
+        // Arrange
+        PaymentIntent created = create("order-1");
+        fakeStripe.succeed(created.getId());
+
+        // Act & Assert
+        InvalidRequestException e = assertThrows(
+            InvalidRequestException.class,
+            () -> stripeClient.paymentIntents().cancel(created.getId())
+        );
+        assertEquals("payment_intent_unexpected_state", e.getCode());
+        assertEquals("succeeded", e.getStripeError().getPaymentIntent().getStatus());
+    }
+
+    @Test
+    void retrieve_ShouldReturnResourceMissingForUnknownIntent() {
+        // Act & Assert
+        InvalidRequestException e = assertThrows(
+            InvalidRequestException.class,
+            () -> stripeClient.paymentIntents().retrieve("pi_unknown")
+        );
+        assertEquals(404, e.getStatusCode());
+        assertEquals("resource_missing", e.getCode());
+    }
+
+    @Test
+    void list_ShouldPageNewestFirstWithinCreatedRange() throws Exception {
+        // Arrange - 5 en el rango y 1 fuera
+        for (int i = 0; i < 5; i++) {
+            fakeStripe.seed(1000L, "usd", "order-" + i, "requires_payment_method", 1_000 + i);
+        }
+        fakeStripe.seed(1000L, "usd", "other", "succeeded", 5_000);
+        PaymentIntentListParams.Created range = PaymentIntentListParams.Created.builder()
+                .setGte(1_000L)
+                .setLt(2_000L)
+                .build();
+
+        // Act
+        StripeCollection<PaymentIntent> first = stripeClient.paymentIntents().list(
+                PaymentIntentListParams.builder().setCreated(range).setLimit(3L).build());
+        StripeCollection<PaymentIntent> second = stripeClient.paymentIntents().list(
+                PaymentIntentListParams.builder().setCreated(range).setLimit(3L)
+                        .setStartingAfter(first.getData().get(2).getId()).build());
+
+        // Assert
+        assertEquals(3, first.getData().size());
+        assertTrue(first.getHasMore());
+        assertEquals("order-4", first.getData().get(0).getMetadata().get("orderId"));
+        assertEquals(2, second.getData().size());
+        assertFalse(second.getHasMore());
+        assertEquals("order-0", second.getData().get(1).getMetadata().get("orderId"));
+    }
+
+    @Test
+    void rateLimitRate_ShouldReturn429WithRetryAfter() {
+        // Arrange
+        fakeStripe.withRateLimitRate(1.0, 2);
+        AtomicLong notified = new AtomicLong();
+        transport.setRateLimitListener((apiKey, retryAfterMillis) -> notified.set(retryAfterMillis));
+
+        // Act & Assert
+        assertThrows(RateLimitException.class, () -> create("order-1"));
+        assertEquals(2_000, notified.get());
+        assertEquals(1, fakeStripe.getInjectedRateLimits());
+    }
+
+    @Test
+    void errorRate_ShouldReturnApiError() {
+        // Arrange
+        fakeStripe.withErrorRate(1.0);
+
+        // Act & Assert
+        ApiException e = assertThrows(ApiException.class, () -> create("order-1"));
+        assertEquals(500, e.getStatusCode());
+        assertEquals(1, fakeStripe.getInjectedErrors());
+    }
+
+    @Test
+    void latency_ShouldTriggerClientReadTimeout() {
+        // Arrange
+        fakeStripe.withLatency(FakeStripeServer.LatencyModel.fixed(500));
+
+        // Act & Assert
+        assertThrows(
+            ApiConnectionException.class,
+            () -> stripeClient.paymentIntents().retrieve("pi_any",
+                    RequestOptions.builder().setReadTimeout(100).build())
+        );
+    }
+
+    @Test
+    void signedEvent_ShouldPassStripeSignatureVerification() throws Exception {
+        // Arrange
+        PaymentIntent created = create("order-1");
+        fakeStripe.withWebhooks("http://localhost:1/unused", WEBHOOK_SECRET);
+
+        // Act
+        FakeStripeServer.SignedEvent signed = fakeStripe.signedEvent("payment_intent.succeeded", created.getId());
+        Event event = Webhook.constructEvent(signed.payload(), signed.signatureHeader(), WEBHOOK_SECRET);
+
+        // Assert
+        assertEquals("payment_intent.succeeded", event.getType());
+        PaymentIntent payload = (PaymentIntent) event.getDataObjectDeserializer().getObject().orElseThrow();
+        assertEquals(created.getId(), payload.getId());
+        assertEquals("order-1", payload.getMetadata().get("orderId"));
+    }
+
+    @Test
+    void succeed_ShouldDeliverSignedWebhook() throws Exception {
+        // Arrange - receptor local que verifica la firma como StripeWebhookValidator
+        CompletableFuture<Event> received = new CompletableFuture<>();
+        HttpServer receiver = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        receiver.createContext("/api/webhooks/stripe", exchange -> {
+            String payload = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                received.complete(Webhook.constructEvent(payload,
+                        exchange.getRequestHeaders().getFirst("Stripe-Signature"), WEBHOOK_SECRET));
+                exchange.sendResponseHeaders(200, -1);
+            } catch (Exception e) {
+                received.completeExceptionally(e);
+                exchange.sendResponseHeaders(400, -1);
+            }
+            exchange.close();
+        });
+        receiver.start();
+        fakeStripe.withWebhooks("http://localhost:" + receiver.getAddress().getPort() + "/api/webhooks/stripe",
+                WEBHOOK_SECRET);
+
+        try {
+            PaymentIntent created = create("order-1");
+
+            // Act
+            fakeStripe.succeed(created.getId());
+
+            // Assert
+            Event event = received.get(5, TimeUnit.SECONDS);
+            assertEquals("payment_intent.succeeded", event.getType());
+            assertEquals("succeeded", fakeStripe.getStatus(created.getId()));
+        } finally {
+            receiver.stop(0);
+        }
+    }
+}
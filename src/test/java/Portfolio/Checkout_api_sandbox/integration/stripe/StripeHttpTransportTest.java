@@ -0,0 +1,217 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetterOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para StripeHttpTransport contra un servidor HTTP local.
+ * Verifica el envío de headers y body, la lectura de la respuesta, el timeout por request
+ * y el aviso de Retry-After en respuestas 429.
+ */
+class StripeHttpTransportTest {
+
+    private HttpServer server;
+    private StripeClient stripeClient;
+    private StripeHttpTransport transport;
+    private final Map<String, String> received = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/payment_intents", this::handle);
+        server.start();
+
+        String apiBase = "http://localhost:" + server.getAddress().getPort();
+        transport = new StripeHttpTransport(Duration.ofSeconds(1));
+        stripeClient = new StripeClient(new LiveStripeResponseGetter(new TestOptions(apiBase), transport));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        received.put("method", exchange.getRequestMethod());
+        received.put("path", exchange.getRequestURI().getPath());
+        received.put("authorization", String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+        received.put("contentType", String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type")));
+        received.put("body", new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+
+        if (exchange.getRequestURI().getPath().endsWith("pi_slow")) {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (exchange.getRequestURI().getPath().endsWith("pi_limited")) {
+            byte[] error = "{\"error\":{\"type\":\"invalid_request_error\",\"code\":\"rate_limit\"}}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Retry-After", "3");
+            exchange.sendResponseHeaders(429, error.length);
+            exchange.getResponseBody().write(error);
+            exchange.close();
+            return;
+        }
+
+        String id = exchange.getRequestURI().getPath().replace("/v1/payment_intents", "").replace("/", "");
+        byte[] body = ("{\"id\":\"" + (id.isEmpty() ? "pi_new" : id) + "\",\"object\":\"payment_intent\","
+                + "\"status\":\"requires_payment_method\",\"client_secret\":\"pi_secret\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Request-Id", "req_test");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    @Test
+    void request_ShouldSendFormBodyAndAuthorizationAndParseResponse() throws Exception {
+        // Act
+        PaymentIntent intent = stripeClient.paymentIntents().create(PaymentIntentCreateParams.builder()
+                .setAmount(1999L)
+                .setCurrency("usd")
+                .build());
+
+        // Assert
+        assertEquals("pi_new", intent.getId());
+        assertEquals("pi_secret", intent.getClientSecret());
+        assertEquals("POST", received.get("method"));
+        assertEquals("Bearer sk_test_123", received.get("authorization"));
+        assertTrue(received.get("contentType").startsWith("application/x-www-form-urlencoded"));
+        assertTrue(received.get("body").contains("amount=1999"));
+    }
+
+    @Test
+    void request_ShouldRetrieveWithGet() throws Exception {
+        // Act
+        PaymentIntent intent = stripeClient.paymentIntents().retrieve("pi_123");
+
+        // Assert
+        assertEquals("pi_123", intent.getId());
+        assertEquals("GET", received.get("method"));
+        assertEquals("/v1/payment_intents/pi_123", received.get("path"));
+    }
+
+    @Test
+    void request_ShouldApplyPerRequestReadTimeout() {
+        // Arrange
+        RequestOptions options = RequestOptions.builder().setReadTimeout(100).build();
+
+        // Act & Assert - el servidor tarda 1 s y el timeout es de 100 ms
+        assertThrows(
+            ApiConnectionException.class,
+            () -> stripeClient.paymentIntents().retrieve("pi_slow", options)
+        );
+    }
+
+    @Test
+    void request_ShouldNotifyRetryAfterOn429() {
+        // Arrange
+        AtomicLong notified = new AtomicLong();
+        AtomicReference<String> notifiedApiKey = new AtomicReference<>();
+        transport.setRateLimitListener((apiKey, retryAfterMillis) -> {
+            notifiedApiKey.set(apiKey);
+            notified.set(retryAfterMillis);
+        });
+        RequestOptions options = RequestOptions.builder().setApiKey("sk_acme").build();
+
+        // Act & Assert - el aviso lleva la clave que recibió el 429, para pausar solo esa cuenta
+        assertThrows(
+            RateLimitException.class,
+            () -> stripeClient.paymentIntents().retrieve("pi_limited", options)
+        );
+        assertEquals(3_000, notified.get());
+        assertEquals("sk_acme", notifiedApiKey.get());
+    }
+
+    /**
+     * Opciones mínimas apuntando al servidor local, sin reintentos.
+     */
+    private static class TestOptions extends StripeResponseGetterOptions {
+
+        private final String apiBase;
+
+        TestOptions(String apiBase) {
+            this.apiBase = apiBase;
+        }
+
+        @Override
+        public String getApiKey() {
+            return "sk_test_123";
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return 1_000;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return 0;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return apiBase;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return apiBase;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return 5_000;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import com.stripe.StripeClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.service.PaymentIntentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para las variantes asíncronas de StripePaymentClient.
+ * Verifica que la llamada corre fuera del hilo que la invoca y el deadline por llamada,
+ * que el circuit breaker corta las llamadas cuando Stripe falla y que las consultas
+ * del mismo Payment Intent se agrupan y se cachean, y que un create vencido cancela su intent.
+ */
+@ExtendWith(MockitoExtension.class)
+class StripePaymentClientTest {
+
+    @Mock
+    private StripeClient stripeClient;
+
+    @Mock
+    private PaymentIntentService paymentIntentService;
+
+    @Mock
+    private StripeRateLimitScheduler rateLimitScheduler;
+
+    @InjectMocks
+    private StripePaymentClient stripePaymentClient;
+
+    private PaymentIntent paymentIntent;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stripePaymentClient, "tenantRegistry",
+                new StripeTenantRegistry("sk_test", "whsec_test", null));
+        ReflectionTestUtils.setField(stripePaymentClient, "retrieveTimeoutMs", 5000);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncMaxConcurrency", 2);
+        ReflectionTestUtils.setField(stripePaymentClient, "asyncQueueCapacity", 10);
+        ReflectionTestUtils.setField(stripePaymentClient, "deadlineMs", 100L);
+        stripePaymentClient.start();
+
+        paymentIntent = new PaymentIntent();
+        paymentIntent.setId("pi_test_123");
+        when(stripeClient.paymentIntents()).thenReturn(paymentIntentService);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stripePaymentClient.stop();
+    }
+
+    @Test
+    void retrievePaymentIntentAsync_ShouldRunOnStripeExecutor() throws Exception {
+        // Arrange
+        String caller = Thread.currentThread().getName();
+        StringBuilder executedOn = new StringBuilder();
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class))).thenAnswer(invocation -> {
+            executedOn.append(Thread.currentThread().getName());
+            return paymentIntent;
+        });
+
+        // Act
+        PaymentIntent result = stripePaymentClient.retrievePaymentIntentAsync("pi_test_123").join();
+
+        // Assert
+        assertSame(paymentIntent, result);
+        assertNotEquals(caller, executedOn.toString());
+        assertTrue(executedOn.toString().startsWith("stripe-call-"));
+    }
+
+    @Test
+    void retrievePaymentIntentAsync_ShouldFailWithStripeApiExceptionAfterDeadline() throws Exception {
+        // Arrange - Stripe tarda más que el deadline de 100 ms
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class))).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return paymentIntent;
+        });
+
+        // Act & Assert
+        CompletionException exception = assertThrows(
+            CompletionException.class,
+            () -> stripePaymentClient.retrievePaymentIntentAsync("pi_test_123").join()
+        );
+        assertInstanceOf(StripeApiException.class, exception.getCause());
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldFailFastWithRetryAfterWhenCircuitOpens() throws Exception {
+        // Arrange - el circuito abre tras 2 fallos de conexión
+        enableGuard();
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class)))
+            .thenThrow(new ApiConnectionException("Read timed out"));
+
+        // Act
+        assertThrows(StripeApiException.class, () -> stripePaymentClient.retrievePaymentIntent("pi_test_123"));
+        assertThrows(StripeApiException.class, () -> stripePaymentClient.retrievePaymentIntent("pi_test_123"));
+        StripeApiException rejected = assertThrows(
+            StripeApiException.class,
+            () -> stripePaymentClient.retrievePaymentIntent("pi_test_123")
+        );
+
+        // Assert - la tercera llamada no llega a Stripe
+        assertEquals(CircuitBreaker.State.OPEN, stripePaymentClient.getCircuitState());
+        assertNotNull(rejected.getRetryAfterSeconds());
+        verify(paymentIntentService, times(2)).retrieve(eq("pi_test_123"), any(RequestOptions.class));
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldKeepCircuitPerTenant(@TempDir Path dir) throws Exception {
+        // Arrange - la cuenta de acme falla; la del tenant por defecto responde
+        Path tenantsFile = dir.resolve("stripe-tenants.properties");
+        Files.writeString(tenantsFile, "acme.api-key=sk_acme\nacme.webhook-secret=whsec_acme\n");
+        ReflectionTestUtils.setField(stripePaymentClient, "tenantRegistry",
+                new StripeTenantRegistry("sk_test", "whsec_test", tenantsFile));
+        enableGuard();
+        when(paymentIntentService.retrieve(eq("pi_acme"), any(RequestOptions.class)))
+            .thenThrow(new ApiConnectionException("Read timed out"));
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class))).thenReturn(paymentIntent);
+
+        // Act - el circuito de acme abre tras 2 fallos
+        assertThrows(StripeApiException.class, () -> stripePaymentClient.retrievePaymentIntent("acme", "pi_acme"));
+        assertThrows(StripeApiException.class, () -> stripePaymentClient.retrievePaymentIntent("acme", "pi_acme"));
+        PaymentIntent result = stripePaymentClient.retrievePaymentIntent("default", "pi_test_123");
+
+        // Assert - el tenant por defecto sigue llegando a Stripe
+        assertSame(paymentIntent, result);
+        assertEquals(CircuitBreaker.State.OPEN, stripePaymentClient.getCircuitState("acme"));
+        assertEquals(CircuitBreaker.State.CLOSED, stripePaymentClient.getCircuitState("default"));
+        assertEquals(CircuitBreaker.State.OPEN, stripePaymentClient.getCircuitState());
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldNotOpenCircuitOnRequestErrors() throws Exception {
+        // Arrange - un 404 es una respuesta válida de Stripe, no un fallo del proveedor
+        enableGuard();
+        when(paymentIntentService.retrieve(eq("pi_missing"), any(RequestOptions.class)))
+            .thenThrow(new InvalidRequestException("No such payment_intent", "id", "req_1", "resource_missing", 404, null));
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            StripeApiException exception = assertThrows(
+                StripeApiException.class,
+                () -> stripePaymentClient.retrievePaymentIntent("pi_missing")
+            );
+            assertNull(exception.getRetryAfterSeconds());
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, stripePaymentClient.getCircuitState());
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldMapStripe429ToRetryAfter() throws Exception {
+        // Arrange
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class)))
+            .thenThrow(new RateLimitException("Too many requests", null, "req_1", "rate_limit", 429, null));
+        when(rateLimitScheduler.getRetryAfterSeconds("default", "retrieve")).thenReturn(2L);
+
+        // Act
+        StripeApiException exception = assertThrows(
+            StripeApiException.class,
+            () -> stripePaymentClient.retrievePaymentIntent("pi_test_123")
+        );
+
+        // Assert - pasó por el planificador y el rechazo trae Retry-After en lugar de un 502
+        verify(rateLimitScheduler).acquire("default", "retrieve");
+        assertEquals(2L, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldCoalesceConcurrentRetrievals() throws Exception {
+        // Arrange - Stripe no responde hasta que se libera el latch
+        CountDownLatch stripeCalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class))).thenAnswer(invocation -> {
+            stripeCalled.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return paymentIntent;
+        });
+
+        // Act - dos consultas concurrentes del mismo ID
+        CompletableFuture<PaymentIntent> first = CompletableFuture.supplyAsync(
+            () -> stripePaymentClient.retrievePaymentIntent("pi_test_123"));
+        assertTrue(stripeCalled.await(5, TimeUnit.SECONDS));
+        CompletableFuture<PaymentIntent> second = CompletableFuture.supplyAsync(
+            () -> stripePaymentClient.retrievePaymentIntent("pi_test_123"));
+        Thread.sleep(100);
+        release.countDown();
+
+        // Assert
+        assertSame(paymentIntent, first.get(5, TimeUnit.SECONDS));
+        assertSame(paymentIntent, second.get(5, TimeUnit.SECONDS));
+        verify(paymentIntentService, times(1)).retrieve(eq("pi_test_123"), any(RequestOptions.class));
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldCacheByStatus() throws Exception {
+        // Arrange - estados no finales sin caché, estados finales cacheados
+        ReflectionTestUtils.setField(stripePaymentClient, "retrieveCacheTtlMs", 0L);
+        ReflectionTestUtils.setField(stripePaymentClient, "retrieveCacheTerminalTtlMs", 60_000L);
+        paymentIntent.setStatus("processing");
+        PaymentIntent succeeded = new PaymentIntent();
+        succeeded.setId("pi_test_123");
+        succeeded.setStatus("succeeded");
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class)))
+            .thenReturn(paymentIntent, succeeded);
+
+        // Act
+        assertEquals("processing", stripePaymentClient.retrievePaymentIntent("pi_test_123").getStatus());
+        assertEquals("succeeded", stripePaymentClient.retrievePaymentIntent("pi_test_123").getStatus());
+        assertEquals("succeeded", stripePaymentClient.retrievePaymentIntent("pi_test_123").getStatus());
+
+        // Assert - la tercera consulta sale de la caché
+        verify(paymentIntentService, times(2)).retrieve(eq("pi_test_123"), any(RequestOptions.class));
+    }
+
+    @Test
+    void retrievePaymentIntent_ShouldNotShareCacheBetweenTenants(@TempDir Path dir) throws Exception {
+        // Arrange - un Payment Intent final, cacheado para el tenant que lo leyó
+        Path tenantsFile = dir.resolve("stripe-tenants.properties");
+        Files.writeString(tenantsFile, "acme.api-key=sk_acme\nacme.webhook-secret=whsec_acme\n");
+        ReflectionTestUtils.setField(stripePaymentClient, "tenantRegistry",
+                new StripeTenantRegistry("sk_test", "whsec_test", tenantsFile));
+        ReflectionTestUtils.setField(stripePaymentClient, "retrieveCacheTerminalTtlMs", 60_000L);
+        paymentIntent.setStatus("succeeded");
+        when(paymentIntentService.retrieve(eq("pi_test_123"), any(RequestOptions.class))).thenReturn(paymentIntent);
+
+        // Act
+        stripePaymentClient.retrievePaymentIntent("default", "pi_test_123");
+        stripePaymentClient.retrievePaymentIntent("acme", "pi_test_123");
+        stripePaymentClient.retrievePaymentIntent("acme", "pi_test_123");
+
+        // Assert - cada tenant consulta con sus credenciales; la tercera sale de la caché
+        verify(paymentIntentService, times(2)).retrieve(eq("pi_test_123"), any(RequestOptions.class));
+    }
+
+    @Test
+    void createPaymentIntent_ShouldSendOrderScopedIdempotencyKey() throws Exception {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        when(paymentIntentService.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+            .thenReturn(paymentIntent);
+
+        // Act
+        stripePaymentClient.createPaymentIntent(1999L, "usd", orderId, "key-1");
+
+        // Assert
+        verify(paymentIntentService).create(any(PaymentIntentCreateParams.class), argThat((RequestOptions options) ->
+                StripeIdempotencyKeys.forCheckout(orderId, "key-1").equals(options.getIdempotencyKey())));
+    }
+
+    @Test
+    void createPaymentIntent_ShouldKeepIdempotencyKeyWithinStripeLimit() throws Exception {
+        // Arrange - la clave del cliente ya usa los 255 caracteres que Stripe admite
+        UUID orderId = UUID.randomUUID();
+        String longKey = "k".repeat(255);
+        when(paymentIntentService.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+            .thenReturn(paymentIntent);
+
+        // Act
+        stripePaymentClient.createPaymentIntent(1999L, "usd", orderId, longKey);
+
+        // Assert - se envía un hash estable por orden y clave
+        verify(paymentIntentService).create(any(PaymentIntentCreateParams.class),
+                argThat((RequestOptions options) -> options.getIdempotencyKey().length() == 64));
+        assertEquals(StripeIdempotencyKeys.forCheckout(orderId, longKey),
+                StripeIdempotencyKeys.forCheckout(orderId, longKey));
+        assertNotEquals(StripeIdempotencyKeys.forCheckout(orderId, longKey),
+                StripeIdempotencyKeys.forCheckout(UUID.randomUUID(), longKey));
+    }
+
+    @Test
+    void createPaymentIntentAsync_ShouldCancelIntentCreatedAfterDeadline() throws Exception {
+        // Arrange - Stripe crea el intent después del deadline de 100 ms
+        ReflectionTestUtils.setField(stripePaymentClient, "createDeadlineMs", 100L);
+        UUID orderId = UUID.randomUUID();
+        CountDownLatch canceled = new CountDownLatch(1);
+        when(paymentIntentService.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+            .thenAnswer(invocation -> {
+                Thread.sleep(300);
+                return paymentIntent;
+            });
+        when(paymentIntentService.cancel(eq("pi_test_123"), any(RequestOptions.class))).thenAnswer(invocation -> {
+            canceled.countDown();
+            return paymentIntent;
+        });
+
+        // Act
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> stripePaymentClient.createPaymentIntentAsync(1999L, "usd", orderId, "key-1").join());
+
+        // Assert - el intent tardío se cancela y un reintento con la misma clave no lo reutiliza
+        assertInstanceOf(StripeApiException.class, exception.getCause());
+        assertTrue(canceled.await(2, TimeUnit.SECONDS));
+        assertThrows(IdempotencyConflictException.class,
+                () -> stripePaymentClient.createPaymentIntent(1999L, "usd", orderId, "key-1"));
+    }
+
+    private void enableGuard() throws InterruptedException {
+        stripePaymentClient.stop();
+        ReflectionTestUtils.setField(stripePaymentClient, "guardEnabled", true);
+        ReflectionTestUtils.setField(stripePaymentClient, "circuitWindowSize", 2);
+        ReflectionTestUtils.setField(stripePaymentClient, "circuitMinimumCalls", 2);
+        ReflectionTestUtils.setField(stripePaymentClient, "circuitFailureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(stripePaymentClient, "circuitOpenDurationMs", 60_000L);
+        ReflectionTestUtils.setField(stripePaymentClient, "circuitHalfOpenProbes", 1);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterInitialLimit", 10);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterMinLimit", 1);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterMaxLimit", 10);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterLatencyThresholdMs", 1_000L);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterBackoffRatio", 0.9);
+        ReflectionTestUtils.setField(stripePaymentClient, "limiterRetryAfterSeconds", 1L);
+        stripePaymentClient.start();
+    }
+}
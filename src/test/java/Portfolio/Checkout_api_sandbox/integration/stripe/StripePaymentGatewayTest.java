@@ -0,0 +1,49 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.payment.GatewayFailure;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.RateLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para StripePaymentGateway.
+ * Verifica la clasificación de los errores de create que decide el failover del router.
+ */
+class StripePaymentGatewayTest {
+
+    private final StripePaymentGateway gateway = new StripePaymentGateway();
+
+    @Test
+    void classify_ShouldFailOverOnlyWhenNoIntentWasCreated() {
+        // Act & Assert - circuito abierto o límite local: la request no salió
+        assertEquals(GatewayFailure.NOT_SENT, gateway.classify(
+                new StripeApiException("El proveedor de pagos está fallando, se pausaron las llamadas", 30L)));
+        assertEquals(GatewayFailure.UNAVAILABLE, gateway.classify(new StripeApiException("Error al crear",
+                new ApiConnectionException("Connection refused", new ConnectException("Connection refused")))));
+        assertEquals(GatewayFailure.UNAVAILABLE, gateway.classify(new StripeApiException("Error al crear",
+                new ApiException("Internal error", "req_1", "api_error", 500, null))));
+    }
+
+    @Test
+    void classify_ShouldPropagateRejectionsThrottlingAndTimeouts() {
+        // Act & Assert
+        assertEquals(GatewayFailure.REJECTED, gateway.classify(new StripeApiException("Error al crear",
+                new InvalidRequestException("Invalid currency", "currency", "req_1", "parameter_invalid", 400, null))));
+        assertEquals(GatewayFailure.THROTTLED, gateway.classify(new StripeApiException("Limitando",
+                new RateLimitException("Too many requests", null, "req_1", "rate_limit", 429, null), 2L)));
+        assertEquals(GatewayFailure.TIMED_OUT, gateway.classify(new StripeApiException(
+                "El proveedor de pagos no respondió a tiempo", new TimeoutException())));
+        assertEquals(GatewayFailure.TIMED_OUT, gateway.classify(new StripeApiException("Error al crear",
+                new ApiConnectionException("Read timed out", new SocketTimeoutException("Read timed out")))));
+        assertEquals(GatewayFailure.REJECTED, gateway.classify(new IllegalArgumentException("Tenant desconocido")));
+    }
+}
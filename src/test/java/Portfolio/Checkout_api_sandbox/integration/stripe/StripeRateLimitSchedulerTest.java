@@ -0,0 +1,59 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para StripeRateLimitScheduler.
+ * Verifica que cada tenant tiene sus propios buckets y que un 429 pausa solo al tenant que lo recibió.
+ */
+class StripeRateLimitSchedulerTest {
+
+    private StripeRateLimitScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new StripeRateLimitScheduler();
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "maxWaitMs", 0L);
+        ReflectionTestUtils.setField(scheduler, "defaultPauseMs", 1_000L);
+        ReflectionTestUtils.setField(scheduler, "createRatePerSecond", 1d);
+        ReflectionTestUtils.setField(scheduler, "createBurst", 1);
+        ReflectionTestUtils.setField(scheduler, "retrieveRatePerSecond", 1d);
+        ReflectionTestUtils.setField(scheduler, "retrieveBurst", 1);
+        ReflectionTestUtils.setField(scheduler, "cancelRatePerSecond", 1d);
+        ReflectionTestUtils.setField(scheduler, "cancelBurst", 1);
+        ReflectionTestUtils.setField(scheduler, "listRatePerSecond", 1d);
+        ReflectionTestUtils.setField(scheduler, "listBurst", 1);
+        scheduler.init();
+    }
+
+    @Test
+    void acquire_ShouldKeepBudgetPerTenant() {
+        // Arrange - acme gasta su único token
+        scheduler.acquire("acme", "create");
+
+        // Act & Assert - acme espera; el tenant por defecto conserva el suyo
+        assertThrows(StripeApiException.class, () -> scheduler.acquire("acme", "create"));
+        assertDoesNotThrow(() -> scheduler.acquire(StripeTenantRegistry.DEFAULT_TENANT, "create"));
+    }
+
+    @Test
+    void onRateLimited_ShouldPauseOnlyThatTenant() {
+        // Act - Stripe respondió 429 a acme con Retry-After de 5 s
+        scheduler.onRateLimited("acme", 5_000);
+
+        // Assert
+        StripeApiException exception = assertThrows(
+            StripeApiException.class,
+            () -> scheduler.acquire("acme", "retrieve")
+        );
+        assertTrue(exception.getRetryAfterSeconds() >= 4);
+        assertDoesNotThrow(() -> scheduler.acquire(null, "retrieve"));
+        assertEquals(1, scheduler.getRetryAfterSeconds(StripeTenantRegistry.DEFAULT_TENANT, "create"));
+    }
+}
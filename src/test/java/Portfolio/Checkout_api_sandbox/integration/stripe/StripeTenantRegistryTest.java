@@ -0,0 +1,134 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import com.stripe.net.RequestOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para StripeTenantRegistry.
+ * Verifica la carga del archivo de tenants, la recarga en caliente, la caché de RequestOptions
+ * y el tenant dueño de cada clave.
+ */
+class StripeTenantRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeTenants(String content, Instant modified) throws IOException {
+        Path file = tempDir.resolve("stripe-tenants.properties");
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        return file;
+    }
+
+    @Test
+    void get_ShouldReturnDefaultTenantForNullAndRejectUnknownTenant() {
+        // Arrange
+        StripeTenantRegistry registry = new StripeTenantRegistry("sk_default", "whsec_default", null);
+
+        // Act & Assert
+        assertEquals("whsec_default", registry.get(null).getWebhookSecret());
+        assertEquals("whsec_default", registry.get(StripeTenantRegistry.DEFAULT_TENANT).getWebhookSecret());
+        assertFalse(registry.contains("acme"));
+        assertThrows(StripeApiException.class, () -> registry.get("acme"));
+    }
+
+    @Test
+    void requireKnown_ShouldRejectUnknownTenantWithIllegalArgument() {
+        // Arrange
+        StripeTenantRegistry registry = new StripeTenantRegistry("sk_default", "whsec_default", null);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> registry.requireKnown(null));
+        assertDoesNotThrow(() -> registry.requireKnown(StripeTenantRegistry.DEFAULT_TENANT));
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> registry.requireKnown("acme")
+        );
+        assertEquals("Tenant desconocido: acme", exception.getMessage());
+    }
+
+    @Test
+    void tenantForApiKey_ShouldMapKeyToItsTenant() throws IOException {
+        // Arrange
+        Path file = writeTenants("acme.api-key=sk_acme\nacme.webhook-secret=whsec_acme\n", Instant.now());
+        StripeTenantRegistry registry = new StripeTenantRegistry("sk_default", "whsec_default", file);
+
+        // Act & Assert - la clave compartida, una desconocida o ninguna son del tenant por defecto
+        assertEquals("acme", registry.tenantForApiKey("sk_acme"));
+        assertEquals(StripeTenantRegistry.DEFAULT_TENANT, registry.tenantForApiKey("sk_default"));
+        assertEquals(StripeTenantRegistry.DEFAULT_TENANT, registry.tenantForApiKey("sk_other"));
+        assertEquals(StripeTenantRegistry.DEFAULT_TENANT, registry.tenantForApiKey(null));
+    }
+
+    @Test
+    void reload_ShouldPickUpChangedFileAndKeepUnchangedTenants() throws IOException {
+        // Arrange
+        Instant now = Instant.now();
+        Path file = writeTenants("""
+                acme.api-key=sk_acme
+                acme.webhook-secret=whsec_acme
+                """, now.minusSeconds(60));
+        StripeTenantRegistry registry = new StripeTenantRegistry("sk_default", "whsec_default", file);
+        StripeTenantRegistry.TenantCredentials acme = registry.get("acme");
+
+        // Act
+        writeTenants("""
+                acme.api-key=sk_acme
+                acme.webhook-secret=whsec_acme
+                globex.api-key=sk_globex
+                globex.webhook-secret=whsec_globex
+                """, now);
+        registry.reload();
+
+        // Assert
+        assertSame(acme, registry.get("acme"));
+        assertEquals("whsec_globex", registry.get("globex").getWebhookSecret());
+        assertTrue(registry.contains(StripeTenantRegistry.DEFAULT_TENANT));
+    }
+
+    @Test
+    void reload_ShouldKeepCurrentTenantsWhenFileIsInvalid() throws IOException {
+        // Arrange
+        Instant now = Instant.now();
+        Path file = writeTenants("""
+                acme.api-key=sk_acme
+                acme.webhook-secret=whsec_acme
+                """, now.minusSeconds(60));
+        StripeTenantRegistry registry = new StripeTenantRegistry("sk_default", "whsec_default", file);
+
+        // Act - falta el webhook secret
+        writeTenants("acme.api-key=sk_acme_rotated\n", now);
+        registry.reload();
+
+        // Assert
+        assertEquals("whsec_acme", registry.get("acme").getWebhookSecret());
+    }
+
+    @Test
+    void requestOptions_ShouldBeCachedPerReadTimeout() {
+        // Arrange
+        StripeTenantRegistry.TenantCredentials tenant =
+                new StripeTenantRegistry("sk_default", "whsec_default", null).get(null);
+
+        // Act
+        RequestOptions first = tenant.requestOptions(5_000);
+        RequestOptions second = tenant.requestOptions(5_000);
+        RequestOptions other = tenant.requestOptions(1_000);
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals("sk_default", first.getApiKey());
+        assertEquals(1_000, (int) other.getReadTimeout());
+    }
+}
@@ -0,0 +1,62 @@
+package Portfolio.Checkout_api_sandbox.integration.stripe;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios para TokenBucket.
+ * Verifica la ráfaga inicial, la espera por turno, el rechazo por espera máxima y la pausa.
+ */
+class TokenBucketTest {
+
+    private static final long MAX_WAIT = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void reserve_ShouldAllowBurstThenQueueAtSustainedRate() {
+        // Arrange - 10 tokens/s (uno cada 100 ms), ráfaga de 3
+        TokenBucket bucket = new TokenBucket(10, 3);
+
+        // Act & Assert - la ráfaga sale sin espera
+        assertEquals(0, bucket.reserve(MAX_WAIT));
+        assertEquals(0, bucket.reserve(MAX_WAIT));
+        assertEquals(0, bucket.reserve(MAX_WAIT));
+
+        // Los siguientes hacen fila, cada uno un intervalo más tarde
+        long fourth = bucket.reserve(MAX_WAIT);
+        long fifth = bucket.reserve(MAX_WAIT);
+        assertTrue(fourth > TimeUnit.MILLISECONDS.toNanos(50) && fourth <= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(fifth - fourth > TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void reserve_ShouldRejectWithoutReservingWhenWaitTooLong() {
+        // Arrange - 1 token/s sin ráfaga
+        TokenBucket bucket = new TokenBucket(1, 1);
+        assertEquals(0, bucket.reserve(MAX_WAIT));
+        long available = bucket.nanosUntilAvailable();
+
+        // Act
+        long result = bucket.reserve(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Assert - el rechazo no consume turno
+        assertEquals(-1, result);
+        assertTrue(bucket.nanosUntilAvailable() <= available);
+    }
+
+    @Test
+    void pauseUntil_ShouldHoldTokensUntilPauseEnds() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(100, 10);
+
+        // Act - Stripe pide 500 ms de pausa
+        bucket.pauseUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500));
+
+        // Assert
+        assertTrue(bucket.nanosUntilAvailable() > TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(-1, bucket.reserve(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(bucket.reserve(MAX_WAIT) > TimeUnit.MILLISECONDS.toNanos(400));
+    }
+}
@@ -115,5 +115,20 @@ class OrderMapperTest {
         assertEquals(300L, result.getItems().get(2).getSubtotalMinor()); // 150 * 2
         assertEquals(1400L, result.getTotalAmountMinor()); // 500 + 600 + 300
     }
-}
 
+    @Test
+    void toEntity_ShouldAssignLineNumbersInRequestOrder() {
+        // Arrange
+        OrderItemRequest item1 = new OrderItemRequest("Item A", 100L, 1);
+        OrderItemRequest item2 = new OrderItemRequest("Item B", 200L, 1);
+        CreateOrderRequest request = new CreateOrderRequest("USD", List.of(item1, item2));
+
+        // Act
+        OrderEntity result = orderMapper.toEntity(request);
+
+        // Assert
+        assertEquals(1, result.getItems().get(0).getLineNumber());
+        assertEquals(2, result.getItems().get(1).getLineNumber());
+        assertEquals(2, orderMapper.toResponse(result).getItems().get(1).getLineNumber());
+    }
+}
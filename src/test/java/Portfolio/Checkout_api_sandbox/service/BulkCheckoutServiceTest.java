@@ -0,0 +1,291 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.BulkCheckoutItem;
+import Portfolio.Checkout_api_sandbox.dto.request.BulkCheckoutRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.BulkCheckoutResult;
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentResult;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentRouter;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentProvider;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository.CheckoutOrderView;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para BulkCheckoutService.
+ * Verifica las consultas agrupadas, el resultado por orden y el registro de todos los pagos en una transacción
+ * (orden por orden si el lote falla).
+ */
+@ExtendWith(MockitoExtension.class)
+class BulkCheckoutServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentRouter paymentRouter;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
+    @InjectMocks
+    private BulkCheckoutService bulkCheckoutService;
+
+    private final List<CheckoutOrderView> views = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        OrderLockManager orderLockManager = new OrderLockManager();
+        ReflectionTestUtils.setField(orderLockManager, "waitTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(bulkCheckoutService, "orderLockManager", orderLockManager);
+        ReflectionTestUtils.setField(bulkCheckoutService, "maxOrders", 10);
+        ReflectionTestUtils.setField(bulkCheckoutService, "parallelism", 2);
+
+        lenient().when(orderRepository.findCheckoutViews(any())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return views.stream().filter(view -> ids.contains(view.getId())).toList();
+        });
+        lenient().when(orderRepository.getReferenceById(any(UUID.class))).thenAnswer(invocation -> {
+            OrderEntity order = new OrderEntity();
+            order.setId(invocation.getArgument(0));
+            return order;
+        });
+        lenient().when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<PaymentEntity> payments = invocation.getArgument(0);
+            payments.forEach(payment -> payment.setId(UUID.randomUUID()));
+            return payments;
+        });
+    }
+
+    @Test
+    void initiateCheckouts_ShouldReturnOneResultPerOrderInRequestOrder() {
+        // Arrange
+        UUID valid = order(OrderStatus.CREATED, 1);
+        UUID paid = order(OrderStatus.PAID, 1);
+        UUID missing = UUID.randomUUID();
+        UUID usedKey = order(OrderStatus.CREATED, 1);
+        when(paymentRepository.findUsedIdempotencyKeys(anyList())).thenReturn(List.of("key-used"));
+        when(paymentRouter.createAsync("STRIPE", "default", 1999L, "USD", valid, "key-1"))
+            .thenReturn(CompletableFuture.completedFuture(payment("pi_1")));
+
+        BulkCheckoutRequest request = new BulkCheckoutRequest("STRIPE", List.of(
+                new BulkCheckoutItem(valid, "key-1"),
+                new BulkCheckoutItem(paid, "key-2"),
+                new BulkCheckoutItem(missing, "key-3"),
+                new BulkCheckoutItem(usedKey, "key-used"),
+                new BulkCheckoutItem(valid, "key-5")));
+
+        // Act
+        List<BulkCheckoutResult> results = bulkCheckoutService.initiateCheckouts(request);
+
+        // Assert
+        assertEquals(List.of(BulkCheckoutResult.Status.INITIATED, BulkCheckoutResult.Status.REJECTED,
+                        BulkCheckoutResult.Status.REJECTED, BulkCheckoutResult.Status.REJECTED,
+                        BulkCheckoutResult.Status.REJECTED),
+                results.stream().map(BulkCheckoutResult::getStatus).toList());
+        assertEquals("pi_1_secret", results.get(0).getCheckout().getClientSecret());
+        assertTrue(results.get(1).getMessage().contains("ya fue pagada"));
+        assertTrue(results.get(2).getMessage().contains("no encontrada"));
+        assertTrue(results.get(3).getMessage().contains("key-used"));
+        assertTrue(results.get(4).getMessage().contains("repetida"));
+
+        verify(paymentRepository, times(1)).findUsedIdempotencyKeys(anyList());
+        verify(paymentRouter, times(1)).createAsync(anyString(), anyString(), anyLong(), anyString(), any(), any());
+        verify(orderRepository).updateStatus(eq(List.of(valid)), eq(OrderStatus.CREATED),
+                eq(OrderStatus.PAYMENT_PENDING), any());
+    }
+
+    @Test
+    void initiateCheckouts_ShouldRecordAllPaymentsInOneBatch() {
+        // Arrange
+        UUID first = order(OrderStatus.CREATED, 2);
+        UUID second = order(OrderStatus.CREATED, 1);
+        when(paymentRepository.findUsedIdempotencyKeys(anyList())).thenReturn(List.of());
+        when(paymentRouter.createAsync(eq("STRIPE"), eq("default"), eq(1999L), eq("USD"), any(UUID.class), anyString()))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                    payment("pi_" + invocation.getArgument(4))));
+
+        // Act
+        List<BulkCheckoutResult> results = bulkCheckoutService.initiateCheckouts(new BulkCheckoutRequest("STRIPE",
+                List.of(new BulkCheckoutItem(first, "key-1"), new BulkCheckoutItem(second, "key-2"))));
+
+        // Assert
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == BulkCheckoutResult.Status.INITIATED));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentEntity>> saved = ArgumentCaptor.forClass(List.class);
+        verify(paymentRepository, times(1)).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertEquals("key-1", saved.getValue().get(0).getIdempotencyKey());
+        assertEquals(PaymentStatus.INITIATED, saved.getValue().get(0).getStatus());
+        verify(orderRepository).updateStatus(eq(List.of(first, second)), eq(OrderStatus.CREATED),
+                eq(OrderStatus.PAYMENT_PENDING), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void initiateCheckouts_ShouldReportGatewayFailureOnlyForThatOrder() {
+        // Arrange
+        UUID ok = order(OrderStatus.CREATED, 1);
+        UUID failing = order(OrderStatus.CREATED, 1);
+        when(paymentRepository.findUsedIdempotencyKeys(anyList())).thenReturn(List.of());
+        when(paymentRouter.createAsync("STRIPE", "default", 1999L, "USD", ok, "key-1"))
+            .thenReturn(CompletableFuture.completedFuture(payment("pi_ok")));
+        when(paymentRouter.createAsync("STRIPE", "default", 1999L, "USD", failing, "key-2"))
+            .thenReturn(CompletableFuture.failedFuture(new StripeApiException("Stripe no disponible")));
+
+        // Act
+        List<BulkCheckoutResult> results = bulkCheckoutService.initiateCheckouts(new BulkCheckoutRequest("STRIPE",
+                List.of(new BulkCheckoutItem(ok, "key-1"), new BulkCheckoutItem(failing, "key-2"))));
+
+        // Assert
+        assertEquals(BulkCheckoutResult.Status.INITIATED, results.get(0).getStatus());
+        assertEquals(BulkCheckoutResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals("Stripe no disponible", results.get(1).getMessage());
+        verify(orderRepository).updateStatus(eq(List.of(ok)), eq(OrderStatus.CREATED),
+                eq(OrderStatus.PAYMENT_PENDING), any());
+    }
+
+    @Test
+    void initiateCheckouts_ShouldCancelCreatedPaymentsWhenBatchCannotBeRecorded() {
+        // Arrange
+        UUID orderId = order(OrderStatus.CREATED, 1);
+        when(paymentRepository.findUsedIdempotencyKeys(anyList())).thenReturn(List.of());
+        when(paymentRouter.createAsync("STRIPE", "default", 1999L, "USD", orderId, "key-1"))
+            .thenReturn(CompletableFuture.completedFuture(payment("pi_1")));
+        when(paymentRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // Act
+        List<BulkCheckoutResult> results = bulkCheckoutService.initiateCheckouts(
+                new BulkCheckoutRequest("STRIPE", List.of(new BulkCheckoutItem(orderId, "key-1"))));
+
+        // Assert
+        assertEquals(BulkCheckoutResult.Status.FAILED, results.get(0).getStatus());
+        verify(paymentRouter).cancelAsync("STRIPE", "default", "pi_1");
+    }
+
+    @Test
+    void initiateCheckouts_ShouldRecordOrderByOrderWhenBatchConflicts() {
+        // Arrange - la clave de la segunda orden ya se usó en otro nodo: falla el lote completo
+        UUID first = order(OrderStatus.CREATED, 1);
+        UUID conflicting = order(OrderStatus.CREATED, 1);
+        UUID third = order(OrderStatus.CREATED, 1);
+        when(paymentRepository.findUsedIdempotencyKeys(anyList())).thenReturn(List.of());
+        when(paymentRouter.createAsync(eq("STRIPE"), eq("default"), eq(1999L), eq("USD"), any(UUID.class), anyString()))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(
+                    payment("pi_" + invocation.getArgument(4))));
+        when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<PaymentEntity> payments = invocation.getArgument(0);
+            if (payments.stream().anyMatch(payment -> "key-2".equals(payment.getIdempotencyKey()))) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            payments.forEach(payment -> payment.setId(UUID.randomUUID()));
+            return payments;
+        });
+
+        // Act
+        List<BulkCheckoutResult> results = bulkCheckoutService.initiateCheckouts(new BulkCheckoutRequest("STRIPE",
+                List.of(new BulkCheckoutItem(first, "key-1"), new BulkCheckoutItem(conflicting, "key-2"),
+                        new BulkCheckoutItem(third, "key-3"))));
+
+        // Assert - solo falla la orden en conflicto
+        assertEquals(List.of(BulkCheckoutResult.Status.INITIATED, BulkCheckoutResult.Status.FAILED,
+                        BulkCheckoutResult.Status.INITIATED),
+                results.stream().map(BulkCheckoutResult::getStatus).toList());
+        verify(paymentRouter).cancelAsync("STRIPE", "default", "pi_" + conflicting);
+        verify(paymentRouter, never()).cancelAsync(anyString(), anyString(), eq("pi_" + first));
+        verify(paymentRouter, never()).cancelAsync(anyString(), anyString(), eq("pi_" + third));
+        verify(orderRepository).updateStatus(eq(List.of(first)), eq(OrderStatus.CREATED),
+                eq(OrderStatus.PAYMENT_PENDING), any());
+        verify(orderRepository).updateStatus(eq(List.of(third)), eq(OrderStatus.CREATED),
+                eq(OrderStatus.PAYMENT_PENDING), any());
+    }
+
+    @Test
+    void initiateCheckouts_ShouldRejectBatchOverLimit() {
+        // Arrange
+        List<BulkCheckoutItem> items = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            items.add(new BulkCheckoutItem(UUID.randomUUID(), "key-" + i));
+        }
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> bulkCheckoutService.initiateCheckouts(new BulkCheckoutRequest("STRIPE", items)));
+        verifyNoInteractions(paymentRouter, paymentRepository);
+    }
+
+    private UUID order(OrderStatus status, int itemCount) {
+        UUID id = UUID.randomUUID();
+        views.add(new CheckoutOrderView() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTenantId() {
+                return "default";
+            }
+
+            @Override
+            public OrderStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getTotalAmountMinor() {
+                return 1999L;
+            }
+
+            @Override
+            public String getCurrency() {
+                return "USD";
+            }
+
+            @Override
+            public Integer getItemCount() {
+                return itemCount;
+            }
+        });
+        return id;
+    }
+
+    private PaymentResult payment(String paymentIntentId) {
+        return new PaymentResult("STRIPE", PaymentProvider.STRIPE, paymentIntentId, paymentIntentId + "_secret",
+                "requires_payment_method");
+    }
+}
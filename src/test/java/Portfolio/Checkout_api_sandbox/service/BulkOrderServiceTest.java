@@ -0,0 +1,171 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para BulkOrderService.
+ * Verifica la validación por línea, el procesamiento en bloques y el orden de los resultados.
+ */
+@ExtendWith(MockitoExtension.class)
+class BulkOrderServiceTest {
+
+    @Spy
+    private OrderMapper orderMapper = new OrderMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Spy
+    private StripeTenantRegistry tenantRegistry = new StripeTenantRegistry("sk_test", "whsec_test", null);
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private BulkOrderService bulkOrderService;
+
+    private static final String VALID_LINE =
+            "{\"currency\":\"USD\",\"items\":[{\"name\":\"T-shirt\",\"unitPriceMinor\":1999,\"quantity\":2}]}";
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bulkOrderService, "chunkSize", 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void transactionsSucceed() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        doAnswer(invocation -> {
+            OrderEntity order = invocation.getArgument(0);
+            order.setId(UUID.randomUUID());
+            return null;
+        }).when(entityManager).persist(any(OrderEntity.class));
+    }
+
+    private String[] run(String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bulkOrderService.importOrders(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return output.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    @Test
+    void importOrders_ShouldPersistInChunksAndReportEachLine() throws Exception {
+        // Arrange
+        transactionsSucceed();
+        String input = String.join("\n", VALID_LINE, VALID_LINE, VALID_LINE);
+
+        // Act
+        String[] lines = run(input);
+
+        // Assert
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode result = objectMapper.readTree(lines[i]);
+            assertEquals(i + 1, result.get("line").asInt());
+            assertEquals("CREATED", result.get("status").asString());
+            assertEquals(3998L, result.get("totalAmountMinor").asLong());
+            assertNotNull(result.get("orderId"));
+        }
+        // 3 órdenes con bloques de 2 → 2 transacciones
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(entityManager, times(3)).persist(any(OrderEntity.class));
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void importOrders_ShouldReportInvalidLinesWithoutPersistingThem() throws Exception {
+        // Arrange
+        transactionsSucceed();
+        String invalidCurrency = "{\"currency\":\"us\",\"items\":[{\"name\":\"Cap\",\"unitPriceMinor\":1299,\"quantity\":1}]}";
+        String input = String.join("\n", "{not json", invalidCurrency, "", VALID_LINE);
+
+        // Act
+        String[] lines = run(input);
+
+        // Assert
+        assertEquals(3, lines.length);
+        JsonNode malformed = objectMapper.readTree(lines[0]);
+        assertEquals("INVALID", malformed.get("status").asString());
+        assertEquals(1, malformed.get("line").asInt());
+
+        JsonNode validation = objectMapper.readTree(lines[1]);
+        assertEquals("INVALID", validation.get("status").asString());
+        assertTrue(validation.get("errors").has("currency"));
+
+        // La línea vacía se ignora pero cuenta para la numeración
+        JsonNode created = objectMapper.readTree(lines[2]);
+        assertEquals(4, created.get("line").asInt());
+        assertEquals("CREATED", created.get("status").asString());
+        verify(entityManager, times(1)).persist(any(OrderEntity.class));
+    }
+
+    @Test
+    void importOrders_ShouldMarkChunkAsFailedWhenTransactionFails() throws Exception {
+        // Arrange
+        when(transactionTemplate.execute(any())).thenThrow(new IllegalStateException("DB down"));
+
+        // Act
+        String[] lines = run(VALID_LINE + "\n" + VALID_LINE);
+
+        // Assert
+        assertEquals(2, lines.length);
+        for (String line : lines) {
+            JsonNode result = objectMapper.readTree(line);
+            assertEquals("FAILED", result.get("status").asString());
+            assertNull(result.get("orderId"));
+        }
+    }
+
+    @Test
+    void importOrders_ShouldReportUnknownTenantAsInvalid() throws Exception {
+        // Arrange
+        transactionsSucceed();
+        String unknownTenant = "{\"currency\":\"USD\",\"tenantId\":\"acme\","
+                + "\"items\":[{\"name\":\"Cap\",\"unitPriceMinor\":1299,\"quantity\":1}]}";
+
+        // Act
+        String[] lines = run(unknownTenant + "\n" + VALID_LINE);
+
+        // Assert
+        JsonNode invalid = objectMapper.readTree(lines[0]);
+        assertEquals("INVALID", invalid.get("status").asString());
+        assertEquals("Tenant desconocido: acme", invalid.get("errors").get("tenantId").asString());
+        assertEquals("CREATED", objectMapper.readTree(lines[1]).get("status").asString());
+        verify(entityManager, times(1)).persist(any(OrderEntity.class));
+    }
+}
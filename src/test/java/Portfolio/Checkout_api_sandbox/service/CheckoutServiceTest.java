@@ -5,22 +5,27 @@ import Portfolio.Checkout_api_sandbox.dto.response.CheckoutResponse;
 import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
 import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
 import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
-import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentResult;
+import Portfolio.Checkout_api_sandbox.integration.payment.PaymentRouter;
 import Portfolio.Checkout_api_sandbox.mapper.PaymentMapper;
 import Portfolio.Checkout_api_sandbox.model.*;
 import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
 import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
-import com.stripe.model.PaymentIntent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,11 +45,17 @@ class CheckoutServiceTest {
     private PaymentRepository paymentRepository;
 
     @Mock
-    private StripePaymentClient stripePaymentClient;
+    private PaymentRouter paymentRouter;
 
     @Mock
     private PaymentMapper paymentMapper;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
     @InjectMocks
     private CheckoutService checkoutService;
 
@@ -52,12 +63,21 @@ class CheckoutServiceTest {
     private String idempotencyKey;
     private CheckoutRequest checkoutRequest;
     private OrderEntity order;
-    private PaymentIntent paymentIntent;
+    private PaymentResult gatewayPayment;
     private PaymentEntity paymentEntity;
     private CheckoutResponse checkoutResponse;
 
+    private OrderLockManager orderLockManager;
+
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        orderLockManager = new OrderLockManager();
+        ReflectionTestUtils.setField(orderLockManager, "waitTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(checkoutService, "orderLockManager", orderLockManager);
+
         orderId = UUID.randomUUID();
         idempotencyKey = UUID.randomUUID().toString();
 
@@ -77,10 +97,8 @@ class CheckoutServiceTest {
         item.setSubtotalMinor(5297L);
         order.getItems().add(item);
 
-        paymentIntent = new PaymentIntent();
-        paymentIntent.setId("pi_test_123");
-        paymentIntent.setClientSecret("pi_test_123_secret_456");
-        paymentIntent.setStatus("requires_payment_method");
+        gatewayPayment = new PaymentResult("STRIPE", PaymentProvider.STRIPE, "pi_test_123",
+                "pi_test_123_secret_456", "requires_payment_method");
 
         paymentEntity = new PaymentEntity();
         paymentEntity.setId(UUID.randomUUID());
@@ -100,8 +118,8 @@ class CheckoutServiceTest {
         // Arrange
         when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
         when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
-        when(stripePaymentClient.createPaymentIntent(anyLong(), anyString(), any(UUID.class)))
-            .thenReturn(paymentIntent);
+        when(paymentRouter.create(anyString(), anyString(), anyLong(), anyString(), any(UUID.class), anyString()))
+            .thenReturn(gatewayPayment);
         when(paymentRepository.save(any(PaymentEntity.class))).thenReturn(paymentEntity);
         when(orderRepository.save(any(OrderEntity.class))).thenReturn(order);
         when(paymentMapper.toCheckoutResponse(any(PaymentEntity.class))).thenReturn(checkoutResponse);
@@ -116,7 +134,7 @@ class CheckoutServiceTest {
 
         verify(paymentRepository).findByIdempotencyKey(idempotencyKey);
         verify(orderRepository).findById(orderId);
-        verify(stripePaymentClient).createPaymentIntent(5297L, "USD", orderId);
+        verify(paymentRouter).create("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey);
         verify(paymentRepository).save(any(PaymentEntity.class));
         verify(orderRepository).save(order);
     }
@@ -136,7 +154,7 @@ class CheckoutServiceTest {
         assertTrue(exception.getMessage().contains(idempotencyKey));
         verify(paymentRepository).findByIdempotencyKey(idempotencyKey);
         verify(orderRepository, never()).findById(any());
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -152,7 +170,7 @@ class CheckoutServiceTest {
         );
 
         verify(orderRepository).findById(orderId);
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -169,7 +187,7 @@ class CheckoutServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("ya fue pagada"));
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -186,7 +204,7 @@ class CheckoutServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("pago en proceso"));
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -203,7 +221,7 @@ class CheckoutServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("pago fallido"));
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -220,7 +238,7 @@ class CheckoutServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("no tiene items"));
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -237,7 +255,7 @@ class CheckoutServiceTest {
         );
 
         assertTrue(exception.getMessage().contains("mayor a cero"));
-        verify(stripePaymentClient, never()).createPaymentIntent(anyLong(), anyString(), any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
     }
 
     @Test
@@ -267,5 +285,155 @@ class CheckoutServiceTest {
         assertFalse(result);
         verify(paymentRepository).findByIdempotencyKey(idempotencyKey);
     }
-}
 
+    @Test
+    void initiateCheckoutAsync_ShouldRecordPaymentWhenStripeCompletes() {
+        // Arrange
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRouter.createAsync("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey))
+            .thenReturn(CompletableFuture.completedFuture(gatewayPayment));
+        when(paymentRepository.save(any(PaymentEntity.class))).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CheckoutResponse result = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey).join();
+
+        // Assert
+        assertSame(checkoutResponse, result);
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(paymentRouter, never()).create(anyString(), anyString(), anyLong(), anyString(), any(), any());
+    }
+
+    @Test
+    void initiateCheckoutAsync_ShouldCancelIntentWhenOrderChangedWhileWaiting() {
+        // Arrange - la orden pasa a CANCELED mientras se espera a Stripe
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRouter.createAsync("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey)).thenAnswer(invocation -> {
+            order.setStatus(OrderStatus.CANCELED);
+            return CompletableFuture.completedFuture(gatewayPayment);
+        });
+
+        // Act
+        CompletableFuture<CheckoutResponse> result = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey);
+
+        // Assert
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(InvalidOrderStateException.class, exception.getCause());
+        verify(paymentRouter).cancelAsync("STRIPE", "default", "pi_test_123");
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    void initiateCheckout_ShouldClaimPrecreatedIntentWithoutCallingStripe() {
+        // Arrange
+        paymentEntity.setStatus(PaymentStatus.PRECREATED);
+        when(paymentIntentPrecreator.isEnabled()).thenReturn(true);
+        when(paymentIntentPrecreator.awaitInFlight(orderId)).thenReturn(CompletableFuture.completedFuture(null));
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentIntentPrecreator.claim(orderId, "STRIPE", idempotencyKey)).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CheckoutResponse result = checkoutService.initiateCheckout(checkoutRequest, idempotencyKey);
+
+        // Assert
+        assertSame(checkoutResponse, result);
+        assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
+        verify(orderRepository).save(order);
+        verify(paymentRepository, never()).save(any());
+        verify(paymentRouter, never()).create(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void initiateCheckout_ShouldCreateIntentWhenNothingToClaim() {
+        // Arrange
+        when(paymentIntentPrecreator.isEnabled()).thenReturn(true);
+        when(paymentIntentPrecreator.awaitInFlight(orderId)).thenReturn(CompletableFuture.completedFuture(null));
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentIntentPrecreator.claim(orderId, "STRIPE", idempotencyKey)).thenReturn(null);
+        when(paymentRouter.create("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey)).thenReturn(gatewayPayment);
+        when(paymentRepository.save(any(PaymentEntity.class))).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CheckoutResponse result = checkoutService.initiateCheckout(checkoutRequest, idempotencyKey);
+
+        // Assert
+        assertSame(checkoutResponse, result);
+        verify(paymentRouter).create("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey);
+    }
+
+    @Test
+    void initiateCheckoutAsync_ShouldWaitForInFlightPrecreationAndClaimIt() {
+        // Arrange - la pre-creación todavía no terminó cuando llega el checkout
+        CompletableFuture<Void> precreation = new CompletableFuture<>();
+        when(paymentIntentPrecreator.isEnabled()).thenReturn(true);
+        when(paymentIntentPrecreator.awaitInFlight(orderId)).thenReturn(precreation);
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentIntentPrecreator.claim(orderId, "STRIPE", idempotencyKey)).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CompletableFuture<CheckoutResponse> result = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey);
+        assertFalse(result.isDone());
+        precreation.complete(null);
+
+        // Assert
+        assertSame(checkoutResponse, result.join());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(paymentRouter, never()).createAsync(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void initiateCheckoutAsync_ShouldQueueSecondCheckoutOfSameOrderWithoutCallingGateway() {
+        // Arrange - doble click con dos claves distintas mientras Stripe responde al primero
+        CompletableFuture<PaymentResult> stripe = new CompletableFuture<>();
+        when(paymentRepository.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRouter.createAsync("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey)).thenReturn(stripe);
+        when(paymentRepository.save(any(PaymentEntity.class))).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CompletableFuture<CheckoutResponse> first = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey);
+        CompletableFuture<CheckoutResponse> second = checkoutService.initiateCheckoutAsync(checkoutRequest, "other-key");
+        assertFalse(second.isDone());
+        stripe.complete(gatewayPayment);
+
+        // Assert - el segundo ve la orden en PAYMENT_PENDING y no llega a la pasarela
+        assertSame(checkoutResponse, first.join());
+        CompletionException exception = assertThrows(CompletionException.class, second::join);
+        assertInstanceOf(InvalidOrderStateException.class, exception.getCause());
+        verify(paymentRouter, times(1)).createAsync(anyString(), anyString(), anyLong(), anyString(), any(), any());
+        assertEquals(0, orderLockManager.getActiveCount());
+    }
+
+    @Test
+    void initiateCheckoutAsync_ShouldCoalesceDuplicateRequestWithSameKey() {
+        // Arrange
+        CompletableFuture<PaymentResult> stripe = new CompletableFuture<>();
+        when(paymentRepository.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRouter.createAsync("STRIPE", "default", 5297L, "USD", orderId, idempotencyKey)).thenReturn(stripe);
+        when(paymentRepository.save(any(PaymentEntity.class))).thenReturn(paymentEntity);
+        when(paymentMapper.toCheckoutResponse(paymentEntity)).thenReturn(checkoutResponse);
+
+        // Act
+        CompletableFuture<CheckoutResponse> first = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey);
+        CompletableFuture<CheckoutResponse> duplicate = checkoutService.initiateCheckoutAsync(checkoutRequest, idempotencyKey);
+        stripe.complete(gatewayPayment);
+
+        // Assert - ambos reciben el mismo client_secret, sin 409 ni segundo intent
+        assertSame(checkoutResponse, first.join());
+        assertSame(checkoutResponse, duplicate.join());
+        verify(paymentRouter, times(1)).createAsync(anyString(), anyString(), anyLong(), anyString(), any(), any());
+        verify(paymentRepository, times(1)).findByIdempotencyKey(idempotencyKey);
+        assertEquals(1, orderLockManager.getCoalescedCount());
+    }
+}
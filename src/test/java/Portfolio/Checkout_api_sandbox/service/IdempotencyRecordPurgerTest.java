@@ -0,0 +1,71 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para IdempotencyRecordPurger.
+ * Verifica el borrado por lotes de las claves vencidas y el tope por ejecución.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdempotencyRecordPurgerTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private IdempotencyRecordPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(purger, "retentionHours", 24L);
+        ReflectionTestUtils.setField(purger, "batchSize", 2);
+        ReflectionTestUtils.setField(purger, "maxPerRun", 100);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void purge_ShouldDeleteInBatchesUntilLastPartialBatch() {
+        // Arrange
+        when(idempotencyRecordRepository.purgeExpired(any(LocalDateTime.class), eq(2))).thenReturn(2, 2, 1);
+
+        // Act
+        int purged = purger.purge();
+
+        // Assert
+        assertEquals(5, purged);
+        verify(idempotencyRecordRepository, times(3)).purgeExpired(any(LocalDateTime.class), eq(2));
+    }
+
+    @Test
+    void purge_ShouldStopAtMaxPerRun() {
+        // Arrange - siempre hay más claves vencidas
+        ReflectionTestUtils.setField(purger, "maxPerRun", 4);
+        when(idempotencyRecordRepository.purgeExpired(any(LocalDateTime.class), eq(2))).thenReturn(2);
+
+        // Act
+        int purged = purger.purge();
+
+        // Assert
+        assertEquals(4, purged);
+        verify(idempotencyRecordRepository, times(2)).purgeExpired(any(LocalDateTime.class), eq(2));
+    }
+}
@@ -0,0 +1,130 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderItemEntity;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para LargeOrderService.
+ * Verifica la lectura en streaming, la persistencia por bloques y la validación de items.
+ */
+@ExtendWith(MockitoExtension.class)
+class LargeOrderServiceTest {
+
+    @Spy
+    private OrderMapper orderMapper = new OrderMapper();
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Spy
+    private StripeTenantRegistry tenantRegistry = new StripeTenantRegistry("sk_test", "whsec_test", null);
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private LargeOrderService largeOrderService;
+
+    private final UUID orderId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(largeOrderService, "chunkSize", 2);
+        ReflectionTestUtils.setField(largeOrderService, "maxItems", 10);
+    }
+
+    private InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void persistAssignsOrderId() {
+        doAnswer(invocation -> {
+            OrderEntity order = invocation.getArgument(0);
+            order.setId(orderId);
+            return null;
+        }).when(entityManager).persist(any(OrderEntity.class));
+    }
+
+    @Test
+    void createLargeOrder_ShouldPersistItemsInChunksAndReturnSummary() {
+        // Arrange
+        persistAssignsOrderId();
+        when(entityManager.getReference(OrderEntity.class, orderId)).thenReturn(new OrderEntity());
+        String body = "{\"currency\":\"USD\",\"items\":["
+                + "{\"name\":\"A\",\"unitPriceMinor\":100,\"quantity\":1},"
+                + "{\"name\":\"B\",\"unitPriceMinor\":200,\"quantity\":2},"
+                + "{\"name\":\"C\",\"unitPriceMinor\":300,\"quantity\":3}]}";
+
+        // Act
+        OrderResponse result = largeOrderService.createLargeOrder(json(body));
+
+        // Assert - 3 items, bloques de 2: un flush intermedio y uno final
+        assertEquals(orderId, result.getOrderId());
+        assertEquals(3, result.getItemCount());
+        assertNull(result.getItems());
+        assertEquals(1400L, result.getTotalAmountMinor()); // 100 + 400 + 900
+        verify(entityManager, times(3)).persist(any(OrderItemEntity.class));
+        verify(entityManager, times(2)).flush();
+        verify(orderRepository).updateTotalAmount(orderId, 1400L);
+    }
+
+    @Test
+    void createLargeOrder_ShouldRejectItemsBeforeCurrency() {
+        // Arrange
+        String body = "{\"items\":[{\"name\":\"A\",\"unitPriceMinor\":100,\"quantity\":1}],\"currency\":\"USD\"}";
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> largeOrderService.createLargeOrder(json(body)));
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void createLargeOrder_ShouldRejectInvalidItemWithItsLineNumber() {
+        // Arrange
+        persistAssignsOrderId();
+        String body = "{\"currency\":\"USD\",\"items\":["
+                + "{\"name\":\"A\",\"unitPriceMinor\":100,\"quantity\":1},"
+                + "{\"name\":\"B\",\"unitPriceMinor\":-5,\"quantity\":1}]}";
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> largeOrderService.createLargeOrder(json(body))
+        );
+        assertTrue(exception.getMessage().startsWith("Item 2"));
+        verify(orderRepository, never()).updateTotalAmount(eq(orderId), any());
+    }
+}
@@ -0,0 +1,68 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.repository.OrderItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para OrderItemLineBackfill.
+ * Verifica que se numera por lotes hasta que no quedan items sin lineNumber.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderItemLineBackfillTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OrderItemLineBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(backfill, "enabled", true);
+        ReflectionTestUtils.setField(backfill, "batchOrders", 2);
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void backfill_ShouldNumberBatchesUntilNoneLeft() {
+        // Arrange
+        when(orderItemRepository.backfillLineNumbers(2)).thenReturn(7, 3, 0);
+
+        // Act
+        long total = backfill.backfill();
+
+        // Assert
+        assertEquals(10, total);
+        verify(orderItemRepository, times(3)).backfillLineNumbers(2);
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    void backfill_ShouldDoNothingWhenDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(backfill, "enabled", false);
+
+        // Act
+        long total = backfill.backfill();
+
+        // Assert
+        assertEquals(0, total);
+        verifyNoInteractions(orderItemRepository, transactionTemplate);
+    }
+}
@@ -0,0 +1,245 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.exception.InvalidOrderStateException;
+import Portfolio.Checkout_api_sandbox.exception.OrderBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para OrderLockManager.
+ * Verifica que las operaciones de una misma orden se serialicen, que otras órdenes no esperen
+ * y que los pedidos idénticos en curso se agrupen.
+ */
+class OrderLockManagerTest {
+
+    private OrderLockManager lockManager;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        lockManager = new OrderLockManager();
+        ReflectionTestUtils.setField(lockManager, "waitTimeoutMs", 2_000L);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void withOrderLock_ShouldSerializeOperationsOfSameOrder() throws Exception {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> lockManager.withOrderLock(orderId, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(20);
+                running.decrementAndGet();
+                return 1;
+            })));
+        }
+        for (Future<Integer> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, lockManager.getActiveCount());
+        assertTrue(lockManager.getWaitedCount() > 0);
+    }
+
+    @Test
+    void withOrderLock_ShouldNotBlockOtherOrders() throws Exception {
+        // Arrange - la primera orden queda ocupada hasta que termine el test
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        executor.submit(() -> lockManager.withOrderLock(UUID.randomUUID(), () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(holding.await(2, TimeUnit.SECONDS));
+
+        // Act
+        String result = lockManager.withOrderLock(UUID.randomUUID(), () -> "done");
+
+        // Assert
+        assertEquals("done", result);
+        release.countDown();
+    }
+
+    @Test
+    void withOrderLock_ShouldRejectWhenOrderStaysBusy() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(lockManager, "waitTimeoutMs", 50L);
+        UUID orderId = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> lockManager.withOrderLock(orderId, () -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }));
+        assertTrue(holding.await(2, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(OrderBusyException.class, () -> lockManager.withOrderLock(orderId, () -> "late"));
+        assertEquals(1, lockManager.getTimeoutCount());
+
+        // El turno abandonado no deja la orden tomada
+        release.countDown();
+        holder.get(2, TimeUnit.SECONDS);
+        assertEquals("next", lockManager.withOrderLock(orderId, () -> "next"));
+        assertEquals(0, lockManager.getActiveCount());
+    }
+
+    @Test
+    void withOrderLocks_ShouldWaitForEveryOrderOfTheBatch() throws Exception {
+        // Arrange - un checkout individual tiene tomada una de las órdenes del lote
+        UUID busy = UUID.randomUUID();
+        UUID free = UUID.randomUUID();
+        CompletableFuture<String> single = new CompletableFuture<>();
+        lockManager.withOrderLockAsync(busy, () -> single);
+
+        // Act
+        Future<String> batch = executor.submit(() -> lockManager.withOrderLocks(List.of(free, busy), () -> "batch"));
+
+        // Assert
+        Thread.sleep(50);
+        assertFalse(batch.isDone());
+        single.complete("single");
+        assertEquals("batch", batch.get(2, TimeUnit.SECONDS));
+        assertEquals(0, lockManager.getActiveCount());
+    }
+
+    @Test
+    void withOrderLocks_ShouldBoundTotalWaitOfTheBatch() {
+        // Arrange - cada orden se libera antes del timeout, pero la suma de esperas lo supera
+        ReflectionTestUtils.setField(lockManager, "waitTimeoutMs", 300L);
+        List<UUID> orderIds = new ArrayList<>(List.of(UUID.randomUUID(), UUID.randomUUID()));
+        orderIds.sort(null);
+        for (UUID orderId : orderIds) {
+            CompletableFuture<String> single = new CompletableFuture<>();
+            lockManager.withOrderLockAsync(orderId, () -> single);
+            executor.submit(() -> {
+                sleep(orderId.equals(orderIds.get(0)) ? 200 : 450);
+                single.complete("single");
+            });
+        }
+
+        // Act & Assert
+        long start = System.nanoTime();
+        assertThrows(OrderBusyException.class,
+                () -> lockManager.withOrderLocks(orderIds, () -> "batch"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 420);
+    }
+
+    @Test
+    void withOrderLockAsync_ShouldHoldTurnUntilFutureCompletes() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        CompletableFuture<String> stripe = new CompletableFuture<>();
+        CompletableFuture<String> first = lockManager.withOrderLockAsync(orderId, () -> stripe);
+
+        // Act
+        CompletableFuture<String> second = lockManager.withOrderLockAsync(orderId,
+                () -> CompletableFuture.completedFuture("second"));
+
+        // Assert
+        assertFalse(second.isDone());
+        stripe.complete("first");
+        assertEquals("first", first.join());
+        assertEquals("second", second.join());
+        assertEquals(0, lockManager.getActiveCount());
+    }
+
+    @Test
+    void withOrderLockAsync_ShouldReleaseTurnWhenActionFails() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+
+        // Act
+        CompletableFuture<String> failed = lockManager.withOrderLockAsync(orderId, () -> {
+            throw new InvalidOrderStateException("La orden ya fue pagada");
+        });
+        CompletableFuture<String> next = lockManager.withOrderLockAsync(orderId,
+                () -> CompletableFuture.completedFuture("next"));
+
+        // Assert
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(InvalidOrderStateException.class, e.getCause());
+        assertEquals("next", next.join());
+    }
+
+    @Test
+    void coalesce_ShouldShareResultAndExceptionWithDuplicates() throws Exception {
+        // Arrange
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Future<String> leader = executor.submit(() -> lockManager.<String>coalesce("order:key", () -> {
+            executions.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            throw new InvalidOrderStateException("La orden ya tiene un pago en proceso");
+        }));
+        assertTrue(leaderStarted.await(2, TimeUnit.SECONDS));
+
+        // Act
+        Future<String> duplicate = executor.submit(() -> lockManager.<String>coalesce("order:key", () -> {
+            executions.incrementAndGet();
+            return "duplicate";
+        }));
+        while (lockManager.getCoalescedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // Assert - el repetido recibe la misma excepción sin ejecutarse
+        Exception e = assertThrows(Exception.class, () -> duplicate.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(InvalidOrderStateException.class, e.getCause());
+        assertThrows(Exception.class, () -> leader.get(2, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+
+        // Terminado el primero, la clave queda libre
+        assertEquals("again", lockManager.coalesce("order:key", () -> "again"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package Portfolio.Checkout_api_sandbox.service;
 
+import Portfolio.Checkout_api_sandbox.cache.TtlCache;
 import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
 import Portfolio.Checkout_api_sandbox.dto.request.OrderItemRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemPageResponse;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderItemResponse;
 import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.exception.IdempotencyConflictException;
 import Portfolio.Checkout_api_sandbox.exception.OrderNotFoundException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
 import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.IdempotencyRecordEntity;
 import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderItemEntity;
 import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.repository.IdempotencyRecordRepository;
+import Portfolio.Checkout_api_sandbox.repository.OrderItemRepository;
 import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.data.domain.Limit;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
 
 import java.util.List;
 import java.util.Optional;
@@ -33,9 +48,27 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private OrderWriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private PaymentIntentPrecreator paymentIntentPrecreator;
+
+    @Spy
+    private StripeTenantRegistry tenantRegistry = new StripeTenantRegistry("sk_test", "whsec_test", null);
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().build();
+
     @InjectMocks
     private OrderService orderService;
 
@@ -88,6 +121,21 @@ class OrderServiceTest {
         verify(orderMapper).toEntity(createOrderRequest);
         verify(orderRepository).save(orderEntity);
         verify(orderMapper).toResponse(orderEntity);
+        verify(paymentIntentPrecreator).precreateAfterCommit(orderEntity);
+    }
+
+    @Test
+    void createOrder_ShouldRejectUnknownTenant() {
+        // Arrange
+        createOrderRequest.setTenantId("acme");
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> orderService.createOrder(createOrderRequest)
+        );
+        assertEquals("Tenant desconocido: acme", exception.getMessage());
+        verify(orderRepository, never()).save(any());
     }
 
     @Test
@@ -195,5 +243,152 @@ class OrderServiceTest {
             () -> orderService.findOrderById(orderId)
         );
     }
-}
 
+    @Test
+    void createOrderWithIdempotencyKey_ShouldReserveKeyAndLinkOrder() {
+        // Arrange
+        String key = "key-123";
+        when(idempotencyRecordRepository.reserve(any(), eq("ORDER_CREATE"), eq(key), anyString(), anyLong())).thenReturn(1);
+        when(orderMapper.toEntity(createOrderRequest)).thenReturn(orderEntity);
+        when(orderRepository.save(orderEntity)).thenReturn(orderEntity);
+        when(orderMapper.toResponse(orderEntity)).thenReturn(orderResponse);
+
+        // Act
+        OrderResponse result = orderService.createOrder(createOrderRequest, key);
+
+        // Assert
+        assertEquals(orderId, result.getOrderId());
+        verify(orderRepository).save(orderEntity);
+        verify(idempotencyRecordRepository).complete(eq("ORDER_CREATE"), eq(key), eq(orderId), anyString());
+    }
+
+    @Test
+    void createOrderWithIdempotencyKey_ShouldReplayOriginalOrderOnRetry() {
+        // Arrange - primera llamada para obtener el hash del payload
+        String key = "key-123";
+        ArgumentCaptor<String> hashCaptor = ArgumentCaptor.forClass(String.class);
+        when(idempotencyRecordRepository.reserve(any(), eq("ORDER_CREATE"), eq(key), hashCaptor.capture(), anyLong()))
+                .thenReturn(1, 0);
+        when(orderMapper.toEntity(createOrderRequest)).thenReturn(orderEntity);
+        when(orderRepository.save(orderEntity)).thenReturn(orderEntity);
+        when(orderMapper.toResponse(orderEntity)).thenReturn(orderResponse);
+        orderService.createOrder(createOrderRequest, key);
+
+        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).complete(eq("ORDER_CREATE"), eq(key), eq(orderId), bodyCaptor.capture());
+        IdempotencyRecordEntity record = new IdempotencyRecordEntity();
+        record.setRequestHash(hashCaptor.getValue());
+        record.setResourceId(orderId);
+        record.setResponseBody(bodyCaptor.getValue());
+        when(idempotencyRecordRepository.findByScopeAndIdempotencyKey("ORDER_CREATE", key))
+                .thenReturn(Optional.of(record));
+
+        // Act - la orden cambió de estado y el reintento llega a otro nodo (sin la caché)
+        orderEntity.setStatus(OrderStatus.PAID);
+        ReflectionTestUtils.setField(orderService, "idempotencyCache", new TtlCache<>(10));
+        OrderResponse result = orderService.createOrder(createOrderRequest, key);
+
+        // Assert - la orden solo se escribe una vez y el reintento ve la misma respuesta que la caché
+        assertEquals(orderId, result.getOrderId());
+        assertEquals(orderResponse.getStatus(), result.getStatus());
+        assertEquals(orderResponse.getTotalAmountMinor(), result.getTotalAmountMinor());
+        verify(orderRepository, times(1)).save(any());
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void createOrderWithIdempotencyKey_ShouldThrowConflictWhenPayloadDiffers() {
+        // Arrange
+        String key = "key-123";
+        IdempotencyRecordEntity record = new IdempotencyRecordEntity();
+        record.setRequestHash("hash-de-otro-payload");
+        record.setResourceId(orderId);
+        when(idempotencyRecordRepository.reserve(any(), eq("ORDER_CREATE"), eq(key), anyString(), anyLong())).thenReturn(0);
+        when(idempotencyRecordRepository.findByScopeAndIdempotencyKey("ORDER_CREATE", key))
+                .thenReturn(Optional.of(record));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(orderEntity));
+        when(orderMapper.toResponse(orderEntity)).thenReturn(orderResponse);
+
+        // Act & Assert
+        assertThrows(
+            IdempotencyConflictException.class,
+            () -> orderService.createOrder(createOrderRequest, key)
+        );
+        verify(orderRepository, never()).save(any());
+    }
+
+    @Test
+    void getOrder_ShouldServeOrdersStillInWriteBehindBuffer() {
+        // Arrange
+        when(writeBehindBuffer.find(orderId)).thenReturn(orderResponse);
+
+        // Act
+        OrderResponse result = orderService.getOrder(orderId);
+
+        // Assert
+        assertSame(orderResponse, result);
+        verify(orderRepository, never()).findById(any());
+    }
+
+    @Test
+    void getOrderSummary_ShouldCountItemsWithoutLoadingThem() {
+        // Arrange
+        OrderResponse summary = new OrderResponse(orderId, OrderStatus.CREATED, "USD", 5297L, null, null);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(orderEntity));
+        when(orderItemRepository.countByOrderId(orderId)).thenReturn(2L);
+        when(orderMapper.toSummaryResponse(orderEntity, 2L)).thenReturn(summary);
+
+        // Act
+        OrderResponse result = orderService.getOrderSummary(orderId);
+
+        // Assert
+        assertSame(summary, result);
+        verify(orderMapper, never()).toResponse(any());
+    }
+
+    @Test
+    void getOrderItems_ShouldReturnNextCursorWhenMoreItemsRemain() {
+        // Arrange - se piden 2 items; el repositorio devuelve 3 (uno extra)
+        when(orderRepository.existsById(orderId)).thenReturn(true);
+        OrderItemEntity item1 = new OrderItemEntity();
+        OrderItemEntity item2 = new OrderItemEntity();
+        OrderItemEntity item3 = new OrderItemEntity();
+        when(orderItemRepository.findPage(orderId, 10, Limit.of(3))).thenReturn(List.of(item1, item2, item3));
+        when(orderMapper.toItemResponse(item1)).thenReturn(new OrderItemResponse(11, "A", 100L, 1, 100L));
+        when(orderMapper.toItemResponse(item2)).thenReturn(new OrderItemResponse(12, "B", 100L, 1, 100L));
+        when(orderMapper.toItemResponse(item3)).thenReturn(new OrderItemResponse(13, "C", 100L, 1, 100L));
+
+        // Act
+        OrderItemPageResponse page = orderService.getOrderItems(orderId, 10, 2);
+
+        // Assert
+        assertEquals(2, page.getItems().size());
+        assertEquals(12, page.getNextCursor());
+    }
+
+    @Test
+    void getOrderItems_ShouldReturnNullCursorOnLastPage() {
+        // Arrange
+        when(orderRepository.existsById(orderId)).thenReturn(true);
+        OrderItemEntity item = new OrderItemEntity();
+        when(orderItemRepository.findPage(orderId, 0, Limit.of(101))).thenReturn(List.of(item));
+        when(orderMapper.toItemResponse(item)).thenReturn(new OrderItemResponse(1, "A", 100L, 1, 100L));
+
+        // Act
+        OrderItemPageResponse page = orderService.getOrderItems(orderId, 0, 100);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getOrderItems_ShouldThrowExceptionWhenOrderNotFound() {
+        // Arrange
+        when(orderRepository.existsById(orderId)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(OrderNotFoundException.class, () -> orderService.getOrderItems(orderId, 0, 100));
+        verify(orderItemRepository, never()).findPage(any(), anyInt(), any());
+    }
+}
@@ -0,0 +1,246 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.dto.request.CreateOrderRequest;
+import Portfolio.Checkout_api_sandbox.dto.request.OrderItemRequest;
+import Portfolio.Checkout_api_sandbox.dto.response.OrderResponse;
+import Portfolio.Checkout_api_sandbox.exception.OrderBufferFullException;
+import Portfolio.Checkout_api_sandbox.mapper.OrderMapper;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para OrderWriteBehindBuffer.
+ * Verifica la lectura desde el buffer, el commit en lote, el derrame a disco, el dead-letter, el backpressure
+ * y la espera entre reprocesos del journal con la base caída.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OrderWriteBehindBufferTest {
+
+    @Spy
+    private OrderMapper orderMapper = new OrderMapper();
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private OrderWriteBehindBuffer buffer;
+
+    @TempDir
+    Path spillDir;
+
+    private final CountDownLatch writerGate = new CountDownLatch(1);
+    private CreateOrderRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new CreateOrderRequest("USD", List.of(new OrderItemRequest("T-shirt", 1999L, 2)));
+
+        ReflectionTestUtils.setField(buffer, "enabled", true);
+        ReflectionTestUtils.setField(buffer, "queueCapacity", 1);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        ReflectionTestUtils.setField(buffer, "maxBatchDelayMs", 5L);
+        ReflectionTestUtils.setField(buffer, "offerTimeoutMs", 1L);
+        ReflectionTestUtils.setField(buffer, "spillDir", spillDir.toString());
+        ReflectionTestUtils.setField(buffer, "spillMaxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(buffer, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(buffer, "replayBackoffInitialMs", 1_000L);
+        ReflectionTestUtils.setField(buffer, "replayBackoffMaxMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writerGate.countDown();
+        buffer.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void transactionsWaitForGate() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            writerGate.await(5, TimeUnit.SECONDS);
+            return ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null);
+        });
+    }
+
+    private void awaitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void accept_ShouldServeReadsFromBufferUntilCommitted() throws Exception {
+        // Arrange
+        transactionsWaitForGate();
+        buffer.start();
+
+        // Act
+        OrderResponse accepted = buffer.accept(request);
+
+        // Assert - mientras no se confirma, se lee desde el buffer
+        assertNotNull(accepted.getOrderId());
+        assertEquals(7, accepted.getOrderId().version());
+        assertEquals(3998L, accepted.getTotalAmountMinor());
+        assertSame(accepted, buffer.find(accepted.getOrderId()));
+
+        writerGate.countDown();
+        awaitUntil(() -> buffer.find(accepted.getOrderId()) == null);
+        verify(entityManager).persist(argThat((OrderEntity order) -> order.getId().equals(accepted.getOrderId())));
+    }
+
+    @Test
+    void accept_ShouldSpillToDiskWhenQueueIsFullAndReplayLater() throws Exception {
+        // Arrange - el escritor queda bloqueado en el primer lote
+        transactionsWaitForGate();
+        buffer.start();
+        buffer.accept(request);
+        awaitUntil(() -> buffer.getQueueSize() == 0);
+        buffer.accept(request);
+
+        // Act - la cola (capacidad 1) está llena: se derrama a disco
+        OrderResponse spilled = buffer.accept(request);
+
+        // Assert
+        assertTrue(Files.size(spillDir.resolve("orders.spill.ndjson")) > 0);
+        assertSame(spilled, buffer.find(spilled.getOrderId()));
+
+        writerGate.countDown();
+        awaitUntil(() -> buffer.find(spilled.getOrderId()) == null);
+        awaitUntil(() -> !Files.exists(spillDir.resolve("orders.replay.ndjson")));
+        verify(entityManager, times(3)).persist(any(OrderEntity.class));
+    }
+
+    @Test
+    void accept_ShouldRejectWhenQueueAndSpillAreFull() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(buffer, "spillMaxBytes", 0L);
+        transactionsWaitForGate();
+        buffer.start();
+        buffer.accept(request);
+        awaitUntil(() -> buffer.getQueueSize() == 0);
+        buffer.accept(request);
+
+        // Act & Assert
+        OrderBufferFullException exception = assertThrows(
+            OrderBufferFullException.class,
+            () -> buffer.accept(request)
+        );
+        assertEquals(2L, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    void write_ShouldRetryOneByOneAndDeadLetterOrdersThatStillFail() throws Exception {
+        // Arrange - la segunda y la tercera orden se confirman en el mismo lote
+        ReflectionTestUtils.setField(buffer, "queueCapacity", 2);
+        transactionsWaitForGate();
+        buffer.start();
+        OrderResponse first = buffer.accept(request);
+        awaitUntil(() -> buffer.getQueueSize() == 0);
+        OrderResponse valid = buffer.accept(request);
+        OrderResponse invalid = buffer.accept(request);
+        doThrow(new DataIntegrityViolationException("value too long"))
+                .when(entityManager).persist(argThat((OrderEntity order) ->
+                        order != null && order.getId().equals(invalid.getOrderId())));
+
+        // Act
+        writerGate.countDown();
+        awaitUntil(() -> buffer.find(invalid.getOrderId()) == null);
+
+        // Assert - la orden válida se confirma sola, la inválida va al dead-letter y no al journal
+        assertNull(buffer.find(first.getOrderId()));
+        assertNull(buffer.find(valid.getOrderId()));
+        verify(entityManager, times(2)).persist(argThat((OrderEntity order) ->
+                order != null && order.getId().equals(valid.getOrderId())));
+        String deadLetters = Files.readString(spillDir.resolve("orders.dead-letter.ndjson"));
+        assertTrue(deadLetters.contains(invalid.getOrderId().toString()));
+        assertTrue(deadLetters.contains("value too long"));
+        assertFalse(deadLetters.contains(valid.getOrderId().toString()));
+        assertFalse(Files.exists(spillDir.resolve("orders.spill.ndjson")));
+    }
+
+    @Test
+    void write_ShouldSpillInsteadOfDeadLetteringWhenDatabaseIsUnavailable() throws Exception {
+        // Arrange
+        when(transactionTemplate.execute(any())).thenThrow(new CannotCreateTransactionException("Connection refused"));
+        buffer.start();
+
+        // Act
+        OrderResponse accepted = buffer.accept(request);
+
+        // Assert - la orden sigue pendiente en el journal
+        awaitUntil(() -> Files.exists(spillDir.resolve("orders.spill.ndjson"))
+                || Files.exists(spillDir.resolve("orders.replay.ndjson")));
+        assertSame(accepted, buffer.find(accepted.getOrderId()));
+        assertFalse(Files.exists(spillDir.resolve("orders.dead-letter.ndjson")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaySpill_ShouldBackOffWhileDatabaseIsUnavailable() throws Exception {
+        // Arrange - la base está caída; el escritor vuelve a la cola cada 5 ms
+        ReflectionTestUtils.setField(buffer, "replayBackoffInitialMs", 200L);
+        AtomicBoolean databaseUp = new AtomicBoolean(false);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            if (!databaseUp.get()) {
+                throw new CannotCreateTransactionException("Connection refused");
+            }
+            return ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null);
+        });
+        buffer.start();
+        OrderResponse accepted = buffer.accept(request);
+
+        // Act
+        Thread.sleep(500);
+
+        // Assert - el lote original y unos pocos reprocesos (0, 200 y 600 ms), no uno cada 5 ms
+        verify(transactionTemplate, atMost(4)).execute(any());
+        assertSame(accepted, buffer.find(accepted.getOrderId()));
+        assertTrue(Files.exists(spillDir.resolve("orders.replay.ndjson")));
+
+        // La base vuelve: el siguiente reproceso confirma la orden
+        databaseUp.set(true);
+        awaitUntil(() -> buffer.find(accepted.getOrderId()) == null);
+        awaitUntil(() -> !Files.exists(spillDir.resolve("orders.replay.ndjson")));
+    }
+}
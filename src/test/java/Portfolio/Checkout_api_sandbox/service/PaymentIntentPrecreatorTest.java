@@ -0,0 +1,355 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.model.OrderEntity;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentEntity;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import com.stripe.model.PaymentIntent;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.ConstraintViolationException.ConstraintKind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para PaymentIntentPrecreator.
+ * Verifica el guardado del intent pre-creado, el descarte cuando ya no sirve, el reclamo y el vencimiento por TTL
+ * (el registro se borra solo cuando Stripe confirma la cancelación).
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentIntentPrecreatorTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private StripePaymentClient stripePaymentClient;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private PaymentIntentPrecreator precreator;
+
+    private UUID orderId;
+    private OrderEntity order;
+    private PaymentIntent paymentIntent;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(precreator, "enabled", true);
+        ReflectionTestUtils.setField(precreator, "ttlMinutes", 30L);
+        ReflectionTestUtils.setField(precreator, "expireBatchSize", 2);
+
+        orderId = UUID.randomUUID();
+        order = new OrderEntity();
+        order.setId(orderId);
+        order.setStatus(OrderStatus.CREATED);
+        order.setCurrency("USD");
+        order.setTotalAmountMinor(5297L);
+
+        paymentIntent = new PaymentIntent();
+        paymentIntent.setId("pi_pre_1");
+        paymentIntent.setClientSecret("pi_pre_1_secret_1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void transactionsRunInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldStorePrecreatedPaymentWhenOrderStillCreated() {
+        // Arrange
+        transactionsRunInline();
+        CompletableFuture<PaymentIntent> stripe = new CompletableFuture<>();
+        when(stripePaymentClient.createPaymentIntentAsync("default", 5297L, "USD", orderId, "precreate")).thenReturn(stripe);
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        // Act
+        precreator.precreateAfterCommit(order);
+        CompletableFuture<Void> inFlight = precreator.awaitInFlight(orderId);
+        assertFalse(inFlight.isDone());
+        stripe.complete(paymentIntent);
+
+        // Assert - el pago ya está guardado cuando el checkout deja de esperar
+        assertTrue(inFlight.isDone());
+        ArgumentCaptor<PaymentEntity> payment = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(paymentRepository).save(payment.capture());
+        assertEquals(PaymentStatus.PRECREATED, payment.getValue().getStatus());
+        assertEquals("pi_pre_1", payment.getValue().getExternalPaymentId());
+        assertNull(payment.getValue().getIdempotencyKey());
+        assertTrue(precreator.awaitInFlight(orderId).isDone());
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldCancelIntentWhenOrderAlreadyCheckedOut() {
+        // Arrange - el checkout ganó la carrera con su propio intent
+        transactionsRunInline();
+        order.setStatus(OrderStatus.PAYMENT_PENDING);
+        when(stripePaymentClient.createPaymentIntentAsync("default", 5297L, "USD", orderId, "precreate"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.findByOrderId(orderId)).thenReturn(Optional.of(new PaymentEntity()));
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_pre_1"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+
+        // Act
+        precreator.precreateAfterCommit(order);
+
+        // Assert
+        verify(paymentRepository, never()).save(any());
+        verify(stripePaymentClient).cancelPaymentIntentAsync("default", "pi_pre_1");
+        assertEquals(1, precreator.getWastedCount());
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldTreatOrderUniqueViolationAsConflict() {
+        // Arrange - otro checkout registró su pago entre la consulta y el insert
+        transactionsRunInline();
+        when(stripePaymentClient.createPaymentIntentAsync("default", 5297L, "USD", orderId, "precreate"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.findByOrderId(orderId))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(new PaymentEntity()));
+        when(paymentRepository.save(any())).thenThrow(violation(ConstraintKind.UNIQUE, "23505"));
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_pre_1"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+
+        // Act
+        precreator.precreateAfterCommit(order);
+
+        // Assert
+        verify(stripePaymentClient).cancelPaymentIntentAsync("default", "pi_pre_1");
+        assertEquals(1, precreator.getWastedCount());
+        assertEquals(0, precreator.getFailedCount());
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldReportOtherIntegrityErrorsAsFailures() {
+        // Arrange - un CHECK de payments.status sin PRECREATED (esquema viejo)
+        transactionsRunInline();
+        when(stripePaymentClient.createPaymentIntentAsync("default", 5297L, "USD", orderId, "precreate"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(paymentRepository.save(any())).thenThrow(violation(ConstraintKind.CHECK, "23514"));
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_pre_1"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+
+        // Act
+        precreator.precreateAfterCommit(order);
+
+        // Assert - se cancela el intent, pero no cuenta como conflicto con un checkout
+        verify(stripePaymentClient).cancelPaymentIntentAsync("default", "pi_pre_1");
+        assertEquals(1, precreator.getFailedCount());
+        assertEquals(0, precreator.getWastedCount());
+    }
+
+    private static DataIntegrityViolationException violation(ConstraintKind kind, String sqlState) {
+        return new DataIntegrityViolationException("could not execute statement", new ConstraintViolationException(
+                "could not execute statement", new SQLException("violation", sqlState), kind, "constraint"));
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldStoreExpiringPaymentWhenOrderNoLongerWaitsWithoutPayment() {
+        // Arrange - la orden se canceló antes de que Stripe respondiera
+        transactionsRunInline();
+        order.setStatus(OrderStatus.CANCELED);
+        when(stripePaymentClient.createPaymentIntentAsync("default", 5297L, "USD", orderId, "precreate"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        // Act
+        precreator.precreateAfterCommit(order);
+
+        // Assert - queda registrado para que la expiración lo cancele
+        ArgumentCaptor<PaymentEntity> payment = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(paymentRepository).save(payment.capture());
+        assertEquals(PaymentStatus.EXPIRING, payment.getValue().getStatus());
+        verify(stripePaymentClient, never()).cancelPaymentIntentAsync(anyString(), anyString());
+        assertEquals(1, precreator.getWastedCount());
+    }
+
+    @Test
+    void precreateAfterCommit_ShouldDoNothingWhenDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(precreator, "enabled", false);
+
+        // Act
+        precreator.precreateAfterCommit(order);
+
+        // Assert
+        verifyNoInteractions(stripePaymentClient, paymentRepository);
+    }
+
+    @Test
+    void claim_ShouldReturnClaimedPaymentAndTrackClaimRatio() {
+        // Arrange - dos intents pre-creados, uno reclamado
+        transactionsRunInline();
+        PaymentIntent second = new PaymentIntent();
+        second.setId("pi_pre_2");
+        OrderEntity otherOrder = new OrderEntity();
+        otherOrder.setId(UUID.randomUUID());
+        otherOrder.setStatus(OrderStatus.CREATED);
+        otherOrder.setCurrency("USD");
+        otherOrder.setTotalAmountMinor(100L);
+        when(stripePaymentClient.createPaymentIntentAsync(anyString(), anyLong(), anyString(), any(UUID.class), anyString()))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent))
+            .thenReturn(CompletableFuture.completedFuture(second));
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+        when(orderRepository.findById(otherOrder.getId())).thenReturn(Optional.of(otherOrder));
+        precreator.precreateAfterCommit(order);
+        precreator.precreateAfterCommit(otherOrder);
+
+        PaymentEntity payment = new PaymentEntity();
+        when(paymentRepository.claim(eq(orderId), eq(PaymentStatus.PRECREATED), eq(PaymentStatus.INITIATED),
+                eq("key-1"), any())).thenReturn(1);
+        when(paymentRepository.findByOrderId(orderId)).thenReturn(Optional.of(payment));
+
+        // Act
+        PaymentEntity claimed = precreator.claim(orderId, "AUTO", "key-1");
+        PaymentEntity missing = precreator.claim(UUID.randomUUID(), null, "key-2");
+
+        // Assert
+        assertSame(payment, claimed);
+        assertNull(missing);
+        assertEquals(1, precreator.getClaimedCount());
+        assertEquals(1, precreator.getMissedCount());
+        assertEquals(0.5, precreator.getClaimRatio());
+    }
+
+    @Test
+    void claim_ShouldDiscardPrecreatedPaymentWhenCheckoutUsesAnotherProvider() {
+        // Arrange
+        PaymentEntity precreated = new PaymentEntity();
+        precreated.setId(UUID.randomUUID());
+        precreated.setOrder(order);
+        precreated.setExternalPaymentId("pi_pre_1");
+        precreated.setStatus(PaymentStatus.PRECREATED);
+        when(paymentRepository.findByOrderId(orderId)).thenReturn(Optional.of(precreated));
+        when(paymentRepository.deleteByIdAndStatus(precreated.getId(), PaymentStatus.PRECREATED)).thenReturn(1);
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_pre_1"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+
+        // Act
+        PaymentEntity claimed = precreator.claim(orderId, "PAYPAL", "key-1");
+
+        // Assert - no se reclama y se libera la orden para el pago de la otra pasarela
+        assertNull(claimed);
+        verify(paymentRepository, never()).claim(any(), any(), any(), any(), any());
+        verify(stripePaymentClient).cancelPaymentIntentAsync("default", "pi_pre_1");
+        assertEquals(1, precreator.getWastedCount());
+    }
+
+    @Test
+    void expire_ShouldMarkUnclaimedPaymentsExpiringAndDeleteThemOnceCanceled() {
+        // Arrange - el segundo lo reclamó un checkout entre la consulta y el marcado
+        transactionsRunInline();
+        StalePaymentView unclaimed = precreatedPayment("pi_old_1");
+        StalePaymentView claimedMeanwhile = precreatedPayment("pi_old_2");
+        when(paymentRepository.findCreatedBefore(eq(PaymentStatus.PRECREATED), any(), any(Limit.class)))
+            .thenReturn(List.of(unclaimed, claimedMeanwhile))
+            .thenReturn(List.of());
+        when(paymentRepository.updateStatus(eq(List.of(unclaimed.getPaymentId())), eq(PaymentStatus.PRECREATED),
+                eq(PaymentStatus.EXPIRING), any())).thenReturn(1);
+        when(paymentRepository.updateStatus(eq(List.of(claimedMeanwhile.getPaymentId())),
+                eq(PaymentStatus.PRECREATED), eq(PaymentStatus.EXPIRING), any())).thenReturn(0);
+        when(paymentRepository.findUpdatedBefore(eq(PaymentStatus.EXPIRING), any(), any(Limit.class)))
+            .thenReturn(List.of(unclaimed));
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_old_1"))
+            .thenReturn(CompletableFuture.completedFuture(paymentIntent));
+        when(paymentRepository.deleteByIdAndStatus(unclaimed.getPaymentId(), PaymentStatus.EXPIRING)).thenReturn(1);
+
+        // Act
+        int expired = precreator.expire();
+
+        // Assert
+        assertEquals(1, expired);
+        verify(paymentRepository).deleteByIdAndStatus(unclaimed.getPaymentId(), PaymentStatus.EXPIRING);
+        verify(stripePaymentClient, never()).cancelPaymentIntentAsync(anyString(), eq("pi_old_2"));
+        assertEquals(1, precreator.getWastedCount());
+    }
+
+    @Test
+    void expire_ShouldKeepExpiringPaymentWhenCancelFails() {
+        // Arrange - un EXPIRING de una ejecución anterior y Stripe sigue fallando
+        transactionsRunInline();
+        StalePaymentView expiring = precreatedPayment("pi_old_1");
+        when(paymentRepository.findCreatedBefore(eq(PaymentStatus.PRECREATED), any(), any(Limit.class)))
+            .thenReturn(List.of());
+        when(paymentRepository.findUpdatedBefore(eq(PaymentStatus.EXPIRING), any(), any(Limit.class)))
+            .thenReturn(List.of(expiring));
+        when(stripePaymentClient.cancelPaymentIntentAsync("default", "pi_old_1"))
+            .thenReturn(CompletableFuture.failedFuture(new StripeApiException("Error al cancelar Payment Intent")));
+
+        // Act
+        precreator.expire();
+
+        // Assert - el registro no se borra: queda al final para reintentarlo
+        verify(paymentRepository, never()).deleteByIdAndStatus(any(), any());
+        verify(paymentRepository).updateStatus(eq(List.of(expiring.getPaymentId())), eq(PaymentStatus.EXPIRING),
+                eq(PaymentStatus.EXPIRING), any());
+    }
+
+    private StalePaymentView precreatedPayment(String paymentIntentId) {
+        UUID paymentId = UUID.randomUUID();
+        UUID paymentOrderId = UUID.randomUUID();
+        LocalDateTime updatedAt = LocalDateTime.now().minusHours(1);
+        return new StalePaymentView() {
+            @Override
+            public UUID getPaymentId() {
+                return paymentId;
+            }
+
+            @Override
+            public UUID getOrderId() {
+                return paymentOrderId;
+            }
+
+            @Override
+            public String getTenantId() {
+                return "default";
+            }
+
+            @Override
+            public String getExternalPaymentId() {
+                return paymentIntentId;
+            }
+
+            @Override
+            public LocalDateTime getOrderUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
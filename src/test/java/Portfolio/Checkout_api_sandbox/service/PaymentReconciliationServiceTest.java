@@ -0,0 +1,303 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripeTenantRegistry;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.model.ReconciliationCheckpointEntity;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import Portfolio.Checkout_api_sandbox.repository.ReconciliationCheckpointRepository;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeCollection;
+import com.stripe.model.StripeError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para PaymentReconciliationService.
+ * Verifica el cruce con la lista de Stripe, las correcciones por lote y la reanudación por checkpoint.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentReconciliationServiceTest {
+
+    // Un único tramo de 5 minutos alineado
+    private static final Instant FROM = Instant.ofEpochSecond(1_700_000_100L);
+    private static final Instant TO = FROM.plusSeconds(300);
+    private static final String TENANT = StripeTenantRegistry.DEFAULT_TENANT;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Mock
+    private StripePaymentClient stripePaymentClient;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private JobLeaseManager leaseManager;
+
+    @InjectMocks
+    private PaymentReconciliationService reconciliationService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reconciliationService, "sliceMinutes", 5L);
+        ReflectionTestUtils.setField(reconciliationService, "parallelism", 2);
+        ReflectionTestUtils.setField(reconciliationService, "chunkSize", 2);
+        ReflectionTestUtils.setField(reconciliationService, "pageSize", 2);
+        ReflectionTestUtils.setField(reconciliationService, "tenantRegistry",
+                new StripeTenantRegistry("sk_test", "whsec_test", null));
+        reconciliationService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        reconciliationService.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void reconcile_ShouldCorrectMissedWebhooksInBatchesPerPage() {
+        // Arrange - tres pendientes cargados en dos chunks; Stripe devuelve dos páginas
+        StalePaymentView paid = pendingPayment("pi_paid");
+        StalePaymentView canceled = pendingPayment("pi_canceled");
+        StalePaymentView failed = pendingPayment("pi_failed");
+        when(paymentRepository.findPendingChunk(eq(PaymentStatus.INITIATED), eq(OrderStatus.PAYMENT_PENDING),
+                eq(TENANT), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(paid, canceled))
+            .thenReturn(List.of(failed));
+        when(checkpointRepository.findByTenantIdAndSliceStartAndSliceEnd(anyString(), anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(stripePaymentClient.listPaymentIntents(eq(TENANT), anyLong(), anyLong(), isNull(), anyLong()))
+            .thenReturn(page(true, intent("pi_paid", "succeeded"), intent("pi_other", "succeeded")));
+        when(stripePaymentClient.listPaymentIntents(eq(TENANT), anyLong(), anyLong(), eq("pi_other"), anyLong()))
+            .thenReturn(page(true, intent("pi_canceled", "canceled"), failedIntent("pi_failed")));
+        when(orderRepository.updateStatus(anyCollection(), eq(OrderStatus.PAYMENT_PENDING), any(), any()))
+            .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+        runTransactionsInline();
+
+        // Act
+        PaymentReconciliationService.ReconciliationResult result = reconciliationService.reconcile(FROM, TO);
+
+        // Assert - se deja de paginar al encontrar todos los pendientes aunque Stripe tenga más
+        assertEquals(1, result.slices());
+        assertEquals(4, result.examined());
+        assertEquals(3, result.corrected());
+        verify(stripePaymentClient, times(2)).listPaymentIntents(anyString(), anyLong(), anyLong(), any(), anyLong());
+        verify(orderRepository).updateStatus(eq(List.of(paid.getOrderId())), eq(OrderStatus.PAYMENT_PENDING),
+                eq(OrderStatus.PAID), any());
+        verify(orderRepository).updateStatus(eq(List.of(canceled.getOrderId())), eq(OrderStatus.PAYMENT_PENDING),
+                eq(OrderStatus.CANCELED), any());
+        verify(paymentRepository).updateStatus(eq(List.of(failed.getPaymentId())), eq(PaymentStatus.INITIATED),
+                eq(PaymentStatus.FAILED), any());
+
+        ArgumentCaptor<ReconciliationCheckpointEntity> checkpoint =
+                ArgumentCaptor.forClass(ReconciliationCheckpointEntity.class);
+        // Se guarda al empezar el tramo y después de cada página
+        verify(checkpointRepository, times(3)).save(checkpoint.capture());
+        assertTrue(checkpoint.getValue().isCompleted());
+        assertEquals("pi_failed", checkpoint.getValue().getLastPaymentIntentId());
+    }
+
+    @Test
+    void reconcile_ShouldResumeFromCheckpointCursor() {
+        // Arrange - una ejecución anterior se cortó tras la página que terminó en pi_9
+        ReconciliationCheckpointEntity checkpoint = new ReconciliationCheckpointEntity();
+        checkpoint.setId(UUID.randomUUID());
+        checkpoint.setTenantId(TENANT);
+        checkpoint.setSliceStart(FROM.getEpochSecond());
+        checkpoint.setSliceEnd(TO.getEpochSecond());
+        checkpoint.setLastPaymentIntentId("pi_9");
+        when(checkpointRepository.findByCompletedFalse()).thenReturn(List.of(checkpoint));
+        when(checkpointRepository.findByTenantIdAndSliceStartAndSliceEnd(TENANT, FROM.getEpochSecond(), TO.getEpochSecond()))
+            .thenReturn(Optional.of(checkpoint));
+        StalePaymentView pending = pendingPayment("pi_10");
+        when(paymentRepository.findPendingChunk(any(), any(), any(), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(pending));
+        when(stripePaymentClient.listPaymentIntents(TENANT, FROM.getEpochSecond(), TO.getEpochSecond(), "pi_9", 2))
+            .thenReturn(page(false, intent("pi_10", "processing")));
+        runTransactionsInline();
+
+        // Act
+        PaymentReconciliationService.ReconciliationResult result = reconciliationService.reconcile(FROM, TO);
+
+        // Assert - el tramo del checkpoint no se duplica y el intent abierto no se corrige
+        assertEquals(1, result.slices());
+        assertEquals(0, result.corrected());
+        verify(orderRepository, never()).updateStatus(anyCollection(), any(), any(), any());
+        assertTrue(checkpoint.isCompleted());
+    }
+
+    @Test
+    void reconcile_ShouldSkipStripeWhenSliceHasNoPendingPayments() {
+        // Arrange
+        when(checkpointRepository.findByTenantIdAndSliceStartAndSliceEnd(anyString(), anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(paymentRepository.findPendingChunk(any(), any(), any(), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        PaymentReconciliationService.ReconciliationResult result = reconciliationService.reconcile(FROM, TO);
+
+        // Assert
+        assertEquals(0, result.examined());
+        verifyNoInteractions(stripePaymentClient);
+        ArgumentCaptor<ReconciliationCheckpointEntity> checkpoint =
+                ArgumentCaptor.forClass(ReconciliationCheckpointEntity.class);
+        verify(checkpointRepository, times(2)).save(checkpoint.capture());
+        assertTrue(checkpoint.getValue().isCompleted());
+    }
+
+    @Test
+    void reconcile_ShouldResumeSliceThatFailedBeforeItsFirstPage() {
+        // Arrange - el tramo falla al cargar pendientes, después de guardar su checkpoint
+        when(checkpointRepository.findByTenantIdAndSliceStartAndSliceEnd(anyString(), anyLong(), anyLong()))
+            .thenReturn(Optional.empty());
+        when(checkpointRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.findPendingChunk(any(), any(), any(), any(), any(), any(), any(Limit.class)))
+            .thenThrow(new IllegalStateException("Connection refused"));
+
+        // Act
+        PaymentReconciliationService.ReconciliationResult result = reconciliationService.reconcile(FROM, TO);
+
+        // Assert - queda un checkpoint incompleto que findByCompletedFalse devuelve en la siguiente ejecución
+        assertEquals(1, result.failedSlices());
+        verify(checkpointRepository).save(argThat(checkpoint -> !checkpoint.isCompleted()
+                && checkpoint.getSliceStart() == FROM.getEpochSecond()));
+    }
+
+    @Test
+    void scheduledReconciliation_ShouldCatchUpFromHighWaterMark() {
+        // Arrange - la última conciliación terminó hace 4 horas (alineado a tramos de 5 minutos)
+        ReflectionTestUtils.setField(reconciliationService, "enabled", true);
+        ReflectionTestUtils.setField(reconciliationService, "windowMinutes", 60L);
+        ReflectionTestUtils.setField(reconciliationService, "maxCatchUpHours", 24L);
+        Instant to = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        long highWaterMark = to.minusSeconds(4 * 3600).getEpochSecond();
+        when(leaseManager.tryAcquire(eq("payment-reconciliation"), any())).thenReturn(true);
+        when(checkpointRepository.findMaxSliceEnd(TENANT)).thenReturn(highWaterMark);
+        when(checkpointRepository.findByTenantIdAndSliceStartAndSliceEnd(anyString(), anyLong(), anyLong()))
+            .thenAnswer(invocation -> Optional.of(completedCheckpoint(invocation.getArgument(1))));
+
+        // Act
+        reconciliationService.scheduledReconciliation();
+
+        // Assert - se recorren los tramos de las 4 horas (48 de 5 minutos), no solo los de la última
+        verify(checkpointRepository).findByTenantIdAndSliceStartAndSliceEnd(TENANT, highWaterMark,
+                highWaterMark + 300);
+        verify(checkpointRepository, times(48)).findByTenantIdAndSliceStartAndSliceEnd(anyString(), anyLong(),
+                anyLong());
+        verify(leaseManager).release("payment-reconciliation");
+    }
+
+    @Test
+    void scheduledReconciliation_ShouldSkipWhenAnotherInstanceHoldsTheLease() {
+        // Arrange
+        ReflectionTestUtils.setField(reconciliationService, "enabled", true);
+        when(leaseManager.tryAcquire(eq("payment-reconciliation"), any())).thenReturn(false);
+
+        // Act
+        reconciliationService.scheduledReconciliation();
+
+        // Assert
+        verifyNoInteractions(checkpointRepository, paymentRepository, stripePaymentClient);
+        verify(leaseManager, never()).release(any());
+    }
+
+    private ReconciliationCheckpointEntity completedCheckpoint(long sliceStart) {
+        ReconciliationCheckpointEntity checkpoint = new ReconciliationCheckpointEntity();
+        checkpoint.setTenantId(TENANT);
+        checkpoint.setSliceStart(sliceStart);
+        checkpoint.setSliceEnd(sliceStart + 300);
+        checkpoint.setCompleted(true);
+        return checkpoint;
+    }
+
+    private StripeCollection<PaymentIntent> page(boolean hasMore, PaymentIntent... intents) {
+        StripeCollection<PaymentIntent> page = new StripeCollection<>();
+        page.setData(List.of(intents));
+        page.setHasMore(hasMore);
+        return page;
+    }
+
+    private PaymentIntent intent(String id, String status) {
+        PaymentIntent intent = new PaymentIntent();
+        intent.setId(id);
+        intent.setStatus(status);
+        return intent;
+    }
+
+    private PaymentIntent failedIntent(String id) {
+        PaymentIntent intent = intent(id, "requires_payment_method");
+        intent.setLastPaymentError(new StripeError());
+        return intent;
+    }
+
+    private StalePaymentView pendingPayment(String paymentIntentId) {
+        UUID paymentId = UUID.randomUUID();
+        UUID orderId = UUID.randomUUID();
+        LocalDateTime updatedAt = LocalDateTime.now().minusHours(2);
+        return new StalePaymentView() {
+            @Override
+            public UUID getPaymentId() {
+                return paymentId;
+            }
+
+            @Override
+            public UUID getOrderId() {
+                return orderId;
+            }
+
+            @Override
+            public String getTenantId() {
+                return TENANT;
+            }
+
+            @Override
+            public String getExternalPaymentId() {
+                return paymentIntentId;
+            }
+
+            @Override
+            public LocalDateTime getOrderUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
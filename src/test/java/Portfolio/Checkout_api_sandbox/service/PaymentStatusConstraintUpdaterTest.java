@@ -0,0 +1,83 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para PaymentStatusConstraintUpdater.
+ * Verifica que el CHECK de payments.status se reemplaza solo cuando le faltan valores del enum.
+ */
+@ExtendWith(MockitoExtension.class)
+class PaymentStatusConstraintUpdaterTest {
+
+    private static final String OLD_CHECK = "CHECK (((status)::text = ANY ((ARRAY['INITIATED'::character varying, " +
+            "'SUCCEEDED'::character varying, 'FAILED'::character varying, 'CANCELED'::character varying])::text[])))";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private PaymentStatusConstraintUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any()))
+                .thenReturn("PostgreSQL");
+    }
+
+    @Test
+    void update_ShouldWidenCheckMissingNewStatuses() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(PaymentStatusConstraintUpdater.CONSTRAINT)))
+                .thenReturn(List.of(OLD_CHECK));
+
+        // Act
+        List<String> added = updater.update();
+
+        // Assert
+        assertEquals(List.of("PRECREATED", "EXPIRING"), added);
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).execute(ddl.capture());
+        assertTrue(ddl.getValue().contains("'PRECREATED'"));
+        assertTrue(ddl.getValue().contains("'EXPIRING'"));
+        assertTrue(ddl.getValue().contains("'INITIATED'"));
+    }
+
+    @Test
+    void update_ShouldDoNothingWhenCheckIsCurrent() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(PaymentStatusConstraintUpdater.CONSTRAINT)))
+                .thenReturn(List.of(OLD_CHECK.replace("'CANCELED'::character varying",
+                        "'CANCELED'::character varying, 'PRECREATED'::character varying, " +
+                        "'EXPIRING'::character varying")));
+
+        // Act & Assert
+        assertTrue(updater.update().isEmpty());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void update_ShouldSkipOtherDatabases() {
+        // Arrange
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn("H2");
+
+        // Act & Assert
+        assertTrue(updater.update().isEmpty());
+        verify(jdbcTemplate, only()).execute(ArgumentMatchers.<ConnectionCallback<String>>any());
+    }
+}
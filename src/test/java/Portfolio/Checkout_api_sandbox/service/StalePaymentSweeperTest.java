@@ -0,0 +1,216 @@
+package Portfolio.Checkout_api_sandbox.service;
+
+import Portfolio.Checkout_api_sandbox.exception.StripeApiException;
+import Portfolio.Checkout_api_sandbox.integration.stripe.StripePaymentClient;
+import Portfolio.Checkout_api_sandbox.model.OrderStatus;
+import Portfolio.Checkout_api_sandbox.model.PaymentStatus;
+import Portfolio.Checkout_api_sandbox.repository.OrderRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository;
+import Portfolio.Checkout_api_sandbox.repository.PaymentRepository.StalePaymentView;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios para StalePaymentSweeper.
+ * Verifica la cancelación de intents abandonados, la actualización por lote y el avance del keyset.
+ */
+@ExtendWith(MockitoExtension.class)
+class StalePaymentSweeperTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private StripePaymentClient stripePaymentClient;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private JobLeaseManager leaseManager;
+
+    @InjectMocks
+    private StalePaymentSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweeper, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        ReflectionTestUtils.setField(sweeper, "parallelism", 2);
+        ReflectionTestUtils.setField(sweeper, "maxPerRun", 100);
+        sweeper.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sweeper.stop();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    void sweep_ShouldCancelIntentsAndUpdateInBatchesAcrossPages() {
+        // Arrange - dos páginas: una llena y otra con un solo pago
+        StalePaymentView first = stalePayment("pi_1", LocalDateTime.now().minusHours(5));
+        StalePaymentView second = stalePayment("pi_2", LocalDateTime.now().minusHours(4));
+        StalePaymentView third = stalePayment("pi_3", LocalDateTime.now().minusHours(3));
+        when(paymentRepository.findStalePage(eq(OrderStatus.PAYMENT_PENDING), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(first, second))
+            .thenReturn(List.of(third))
+            .thenReturn(List.of());
+        when(orderRepository.updateStatus(anyCollection(), eq(OrderStatus.PAYMENT_PENDING), eq(OrderStatus.CANCELED), any()))
+            .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+        runTransactionsInline();
+
+        // Act
+        int canceled = sweeper.sweep();
+
+        // Assert
+        assertEquals(3, canceled);
+        verify(stripePaymentClient).cancelPaymentIntent("default", "pi_1");
+        verify(stripePaymentClient).cancelPaymentIntent("default", "pi_2");
+        verify(stripePaymentClient).cancelPaymentIntent("default", "pi_3");
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(paymentRepository, times(2)).updateStatus(anyCollection(), eq(PaymentStatus.INITIATED),
+                eq(PaymentStatus.CANCELED), any());
+
+        // La segunda página continúa desde el último pago de la primera
+        ArgumentCaptor<UUID> afterOrderId = ArgumentCaptor.forClass(UUID.class);
+        verify(paymentRepository, times(3)).findStalePage(any(), any(), any(), afterOrderId.capture(), any(Limit.class));
+        assertEquals(second.getOrderId(), afterOrderId.getAllValues().get(1));
+        assertEquals(third.getOrderId(), afterOrderId.getAllValues().get(2));
+    }
+
+    @Test
+    void sweep_ShouldSkipIntentsThatCouldNotBeCanceled() {
+        // Arrange - pi_paid ya se cobró en Stripe, pi_down falla por red
+        StalePaymentView paid = stalePayment("pi_paid", LocalDateTime.now().minusHours(5));
+        StalePaymentView down = stalePayment("pi_down", LocalDateTime.now().minusHours(4));
+        when(paymentRepository.findStalePage(any(), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(paid, down))
+            .thenReturn(List.of());
+        when(stripePaymentClient.cancelPaymentIntent("default", "pi_paid")).thenThrow(new StripeApiException("unexpected state",
+            new InvalidRequestException("already succeeded", null, "req_1", "payment_intent_unexpected_state", 400, null)));
+        when(stripePaymentClient.cancelPaymentIntent("default", "pi_down")).thenThrow(new StripeApiException("timeout"));
+        PaymentIntent succeeded = new PaymentIntent();
+        succeeded.setStatus("succeeded");
+        when(stripePaymentClient.retrievePaymentIntent("default", "pi_paid")).thenReturn(succeeded);
+
+        // Act
+        int canceled = sweeper.sweep();
+
+        // Assert - no se toca ninguna orden
+        assertEquals(0, canceled);
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void sweep_ShouldMarkOrderCanceledWhenIntentAlreadyCanceledInStripe() {
+        // Arrange
+        StalePaymentView payment = stalePayment("pi_canceled", LocalDateTime.now().minusHours(5));
+        when(paymentRepository.findStalePage(any(), any(), any(), any(), any(Limit.class)))
+            .thenReturn(List.of(payment))
+            .thenReturn(List.of());
+        when(stripePaymentClient.cancelPaymentIntent("default", "pi_canceled")).thenThrow(new StripeApiException("unexpected state",
+            new InvalidRequestException("already canceled", null, "req_1", "payment_intent_unexpected_state", 400, null)));
+        PaymentIntent canceledIntent = new PaymentIntent();
+        canceledIntent.setStatus("canceled");
+        when(stripePaymentClient.retrievePaymentIntent("default", "pi_canceled")).thenReturn(canceledIntent);
+        when(orderRepository.updateStatus(eq(List.of(payment.getOrderId())), any(), any(), any())).thenReturn(1);
+        runTransactionsInline();
+
+        // Act
+        int canceled = sweeper.sweep();
+
+        // Assert
+        assertEquals(1, canceled);
+    }
+
+    @Test
+    void scheduledSweep_ShouldRunOnlyWithTheLease() {
+        // Arrange - otra instancia tiene el lease
+        ReflectionTestUtils.setField(sweeper, "enabled", true);
+        when(leaseManager.tryAcquire(eq("stale-payment-sweeper"), any())).thenReturn(false);
+
+        // Act
+        sweeper.scheduledSweep();
+
+        // Assert
+        verifyNoInteractions(paymentRepository, stripePaymentClient);
+        verify(leaseManager, never()).release(any());
+    }
+
+    @Test
+    void scheduledSweep_ShouldReleaseTheLeaseAfterSweeping() {
+        // Arrange
+        ReflectionTestUtils.setField(sweeper, "enabled", true);
+        when(leaseManager.tryAcquire(eq("stale-payment-sweeper"), any())).thenReturn(true);
+        when(paymentRepository.findStalePage(any(), any(), any(), any(), any(Limit.class))).thenReturn(List.of());
+
+        // Act
+        sweeper.scheduledSweep();
+
+        // Assert
+        verify(paymentRepository).findStalePage(any(), any(), any(), any(), any(Limit.class));
+        verify(leaseManager).release("stale-payment-sweeper");
+    }
+
+    private StalePaymentView stalePayment(String paymentIntentId, LocalDateTime orderUpdatedAt) {
+        UUID paymentId = UUID.randomUUID();
+        UUID orderId = UUID.randomUUID();
+        return new StalePaymentView() {
+            @Override
+            public UUID getPaymentId() {
+                return paymentId;
+            }
+
+            @Override
+            public UUID getOrderId() {
+                return orderId;
+            }
+
+            @Override
+            public String getTenantId() {
+                return "default";
+            }
+
+            @Override
+            public String getExternalPaymentId() {
+                return paymentIntentId;
+            }
+
+            @Override
+            public LocalDateTime getOrderUpdatedAt() {
+                return orderUpdatedAt;
+            }
+        };
+    }
+}
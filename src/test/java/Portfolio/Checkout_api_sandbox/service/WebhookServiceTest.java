@@ -13,6 +13,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -37,6 +40,11 @@ class WebhookServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private static final String TENANT = OrderEntity.DEFAULT_TENANT_ID;
+
     @InjectMocks
     private WebhookService webhookService;
 
@@ -51,7 +59,14 @@ class WebhookServiceTest {
     private PaymentEntity payment;
 
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void setUp() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        OrderLockManager orderLockManager = new OrderLockManager();
+        ReflectionTestUtils.setField(orderLockManager, "waitTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(webhookService, "orderLockManager", orderLockManager);
+
         orderId = UUID.randomUUID();
         paymentIntentId = "pi_test_123";
         payload = "{\"type\":\"payment_intent.succeeded\"}";
@@ -73,7 +88,7 @@ class WebhookServiceTest {
     @Test
     void processStripeWebhook_ShouldHandlePaymentSucceeded() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(true);
         when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
         when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
@@ -81,12 +96,12 @@ class WebhookServiceTest {
         when(paymentRepository.findByExternalPaymentId(paymentIntentId)).thenReturn(Optional.of(payment));
 
         // Act
-        webhookService.processStripeWebhook(payload, signature);
+        webhookService.processStripeWebhook(TENANT, payload, signature);
 
         // Assert
         assertEquals(OrderStatus.PAID, order.getStatus());
         assertEquals(PaymentStatus.SUCCEEDED, payment.getStatus());
-        verify(webhookValidator).validateAndConstructEvent(payload, signature);
+        verify(webhookValidator).validateAndConstructEvent(TENANT, payload, signature);
         verify(orderRepository).save(order);
         verify(paymentRepository).save(payment);
     }
@@ -94,7 +109,7 @@ class WebhookServiceTest {
     @Test
     void processStripeWebhook_ShouldHandlePaymentFailed() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(false);
         when(webhookValidator.isPaymentFailed(event)).thenReturn(true);
         when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
@@ -103,12 +118,12 @@ class WebhookServiceTest {
         when(paymentRepository.findByExternalPaymentId(paymentIntentId)).thenReturn(Optional.of(payment));
 
         // Act
-        webhookService.processStripeWebhook(payload, signature);
+        webhookService.processStripeWebhook(TENANT, payload, signature);
 
         // Assert
         assertEquals(OrderStatus.FAILED, order.getStatus());
         assertEquals(PaymentStatus.FAILED, payment.getStatus());
-        verify(webhookValidator).validateAndConstructEvent(payload, signature);
+        verify(webhookValidator).validateAndConstructEvent(TENANT, payload, signature);
         verify(orderRepository).save(order);
         verify(paymentRepository).save(payment);
     }
@@ -116,7 +131,7 @@ class WebhookServiceTest {
     @Test
     void processStripeWebhook_ShouldHandlePaymentCanceled() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(false);
         when(webhookValidator.isPaymentFailed(event)).thenReturn(false);
         when(webhookValidator.isPaymentCanceled(event)).thenReturn(true);
@@ -126,21 +141,42 @@ class WebhookServiceTest {
         when(paymentRepository.findByExternalPaymentId(paymentIntentId)).thenReturn(Optional.of(payment));
 
         // Act
-        webhookService.processStripeWebhook(payload, signature);
+        webhookService.processStripeWebhook(TENANT, payload, signature);
 
         // Assert
         assertEquals(OrderStatus.CANCELED, order.getStatus());
         assertEquals(PaymentStatus.CANCELED, payment.getStatus());
-        verify(webhookValidator).validateAndConstructEvent(payload, signature);
+        verify(webhookValidator).validateAndConstructEvent(TENANT, payload, signature);
         verify(orderRepository).save(order);
         verify(paymentRepository).save(payment);
     }
 
+    @Test
+    void processStripeWebhook_ShouldIgnoreCancellationOfUnclaimedPrecreatedIntent() {
+        // Arrange - intent pre-creado que venció: la orden nunca pasó por checkout
+        order.setStatus(OrderStatus.CREATED);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
+        when(webhookValidator.isPaymentSucceeded(event)).thenReturn(false);
+        when(webhookValidator.isPaymentFailed(event)).thenReturn(false);
+        when(webhookValidator.isPaymentCanceled(event)).thenReturn(true);
+        when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
+        when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        // Act
+        webhookService.processStripeWebhook(TENANT, payload, signature);
+
+        // Assert
+        assertEquals(OrderStatus.CREATED, order.getStatus());
+        verify(paymentRepository, never()).findByExternalPaymentId(any());
+        verify(orderRepository, never()).save(any());
+    }
+
     @Test
     void processStripeWebhook_ShouldSkipWhenOrderAlreadyPaid() {
         // Arrange
         order.setStatus(OrderStatus.PAID);
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(true);
         when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
         when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
@@ -148,7 +184,7 @@ class WebhookServiceTest {
         when(paymentRepository.findByExternalPaymentId(paymentIntentId)).thenReturn(Optional.of(payment));
 
         // Act
-        webhookService.processStripeWebhook(payload, signature);
+        webhookService.processStripeWebhook(TENANT, payload, signature);
 
         // Assert
         assertEquals(OrderStatus.PAID, order.getStatus()); // No cambió
@@ -159,7 +195,7 @@ class WebhookServiceTest {
     @Test
     void processStripeWebhook_ShouldThrowExceptionWhenOrderNotFound() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(true);
         when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
         when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
@@ -168,17 +204,36 @@ class WebhookServiceTest {
         // Act & Assert
         assertThrows(
             OrderNotFoundException.class,
-            () -> webhookService.processStripeWebhook(payload, signature)
+            () -> webhookService.processStripeWebhook(TENANT, payload, signature)
         );
 
         verify(orderRepository).findById(orderId);
         verify(orderRepository, never()).save(any());
     }
 
+    @Test
+    void processStripeWebhook_ShouldRejectOrderOfAnotherTenant() {
+        // Arrange - el webhook viene firmado por otro tenant
+        when(webhookValidator.validateAndConstructEvent("acme", payload, signature)).thenReturn(event);
+        when(webhookValidator.isPaymentSucceeded(event)).thenReturn(true);
+        when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
+        when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
+        when(orderRepository.findById(orderId)).thenReturn(Optional.of(order));
+
+        // Act & Assert
+        assertThrows(
+            OrderNotFoundException.class,
+            () -> webhookService.processStripeWebhook("acme", payload, signature)
+        );
+
+        verify(paymentRepository, never()).findByExternalPaymentId(any());
+        verify(orderRepository, never()).save(any());
+    }
+
     @Test
     void processStripeWebhook_ShouldThrowExceptionWhenPaymentNotFound() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(true);
         when(webhookValidator.extractPaymentIntentId(event)).thenReturn(paymentIntentId);
         when(webhookValidator.extractOrderIdFromMetadata(event)).thenReturn(orderId.toString());
@@ -188,7 +243,7 @@ class WebhookServiceTest {
         // Act & Assert
         assertThrows(
             PaymentNotFoundException.class,
-            () -> webhookService.processStripeWebhook(payload, signature)
+            () -> webhookService.processStripeWebhook(TENANT, payload, signature)
         );
 
         verify(paymentRepository).findByExternalPaymentId(paymentIntentId);
@@ -198,16 +253,16 @@ class WebhookServiceTest {
     @Test
     void processStripeWebhook_ShouldIgnoreUnhandledEventTypes() {
         // Arrange
-        when(webhookValidator.validateAndConstructEvent(payload, signature)).thenReturn(event);
+        when(webhookValidator.validateAndConstructEvent(TENANT, payload, signature)).thenReturn(event);
         when(webhookValidator.isPaymentSucceeded(event)).thenReturn(false);
         when(webhookValidator.isPaymentFailed(event)).thenReturn(false);
         when(webhookValidator.isPaymentCanceled(event)).thenReturn(false);
 
         // Act
-        webhookService.processStripeWebhook(payload, signature);
+        webhookService.processStripeWebhook(TENANT, payload, signature);
 
         // Assert
-        verify(webhookValidator).validateAndConstructEvent(payload, signature);
+        verify(webhookValidator).validateAndConstructEvent(TENANT, payload, signature);
         verify(orderRepository, never()).findById(any());
         verify(paymentRepository, never()).findByExternalPaymentId(anyString());
     }
@@ -0,0 +1,102 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para AdmissionControlFilter.
+ * Verifica la clasificación de requests, el 503 con Retry-After y la liberación de permisos asíncronos.
+ */
+class AdmissionControlFilterTest {
+
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AdmissionControlFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(filter, "totalConcurrent", 10);
+        for (String prefix : new String[]{"orderCreate", "checkout", "orderRead", "webhook"}) {
+            ReflectionTestUtils.setField(filter, prefix + "Weight", 1);
+            ReflectionTestUtils.setField(filter, prefix + "MaxConcurrent", 1);
+            ReflectionTestUtils.setField(filter, prefix + "MaxQueue", 0);
+            ReflectionTestUtils.setField(filter, prefix + "MaxQueueWaitMs", 0L);
+        }
+        filter.init();
+    }
+
+    @Test
+    void classify_ShouldMapRoutesToTrafficClasses() {
+        assertEquals(TrafficClass.ORDER_CREATE, TrafficClass.classify("POST", "/api/orders"));
+        assertEquals(TrafficClass.ORDER_CREATE, TrafficClass.classify("POST", "/api/orders/bulk"));
+        assertEquals(TrafficClass.CHECKOUT, TrafficClass.classify("POST", "/api/checkout/batch"));
+        assertEquals(TrafficClass.ORDER_READ, TrafficClass.classify("GET", "/api/orders/123/items"));
+        assertEquals(TrafficClass.WEBHOOK, TrafficClass.classify("POST", "/api/webhooks/stripe/acme"));
+        assertNull(TrafficClass.classify("GET", "/actuator/health"));
+        assertNull(TrafficClass.classify("POST", "/api/ordersx"));
+    }
+
+    @Test
+    void doFilter_ShouldRejectWith503WhenClassIsSaturated() throws Exception {
+        // Arrange - un checkout ocupa el único permiso de su clase
+        filter.getScheduler().acquire(TrafficClass.CHECKOUT);
+        AtomicInteger reachedController = new AtomicInteger();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/checkout"), response,
+                (req, res) -> reachedController.incrementAndGet());
+
+        // Assert
+        assertEquals(503, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("saturado"));
+        assertEquals(0, reachedController.get());
+    }
+
+    @Test
+    void doFilter_ShouldNotLimitOtherClassesOrUnclassifiedRequests() throws Exception {
+        // Arrange
+        filter.getScheduler().acquire(TrafficClass.CHECKOUT);
+        AtomicInteger reachedController = new AtomicInteger();
+
+        // Act
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/orders/123"), read,
+                (req, res) -> reachedController.incrementAndGet());
+        MockHttpServletResponse health = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), health,
+                (req, res) -> reachedController.incrementAndGet());
+
+        // Assert
+        assertEquals(200, read.getStatus());
+        assertEquals(200, health.getStatus());
+        assertEquals(2, reachedController.get());
+        assertEquals(0, filter.getScheduler().getInFlight(TrafficClass.ORDER_READ));
+    }
+
+    @Test
+    void doFilter_ShouldKeepPermitUntilAsyncResponseCompletes() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/checkout");
+        request.setAsyncSupported(true);
+        PriorityAdmissionScheduler scheduler = filter.getScheduler();
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        // Assert
+        assertEquals(1, scheduler.getInFlight(TrafficClass.CHECKOUT));
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(0, scheduler.getInFlight(TrafficClass.CHECKOUT));
+    }
+}
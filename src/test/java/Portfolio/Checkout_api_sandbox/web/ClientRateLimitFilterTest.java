@@ -0,0 +1,108 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para ClientRateLimitFilter.
+ * Verifica el 429 con Retry-After, los headers RateLimit-* y la identificación del cliente.
+ */
+class ClientRateLimitFilterTest {
+
+    private ClientRateLimitFilter filter;
+    private final AtomicInteger reachedController = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        filter = new ClientRateLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "apiKeyHeader", "X-API-Key");
+        ReflectionTestUtils.setField(filter, "apiKeys", "key-a, key-b");
+        ReflectionTestUtils.setField(filter, "tableSize", 1024);
+        for (String prefix : new String[]{"orderRead", "orderCreate", "checkout"}) {
+            ReflectionTestUtils.setField(filter, prefix + "RatePerSecond", 1.0 / 60);
+            ReflectionTestUtils.setField(filter, prefix + "Burst", 2);
+        }
+        filter.init();
+    }
+
+    @Test
+    void doFilter_ShouldRejectWith429WhenClientExceedsLimit() throws Exception {
+        // Act
+        MockHttpServletResponse first = get("/api/orders/123", "10.0.0.1", null);
+        MockHttpServletResponse second = get("/api/orders/123", "10.0.0.1", null);
+        MockHttpServletResponse third = get("/api/orders/123", "10.0.0.1", null);
+
+        // Assert
+        assertEquals("2", first.getHeader("RateLimit-Limit"));
+        assertEquals("1", first.getHeader("RateLimit-Remaining"));
+        assertEquals("0", second.getHeader("RateLimit-Remaining"));
+        assertEquals(429, third.getStatus());
+        assertNotNull(third.getHeader("Retry-After"));
+        assertTrue(third.getContentAsString().contains("Demasiadas solicitudes"));
+        assertEquals(2, reachedController.get());
+        assertEquals(1, filter.getRejectedCount(TrafficClass.ORDER_READ));
+    }
+
+    @Test
+    void doFilter_ShouldLimitByKnownApiKeyBeforeIp() throws Exception {
+        // Arrange - la misma IP con dos API keys conocidas
+        get("/api/orders/123", "10.0.0.1", "key-a");
+        get("/api/orders/123", "10.0.0.1", "key-a");
+
+        // Act
+        MockHttpServletResponse otherKey = get("/api/orders/123", "10.0.0.1", "key-b");
+        MockHttpServletResponse sameKey = get("/api/orders/123", "10.0.0.2", "key-a");
+
+        // Assert
+        assertEquals(200, otherKey.getStatus());
+        assertEquals(429, sameKey.getStatus());
+    }
+
+    @Test
+    void doFilter_ShouldLimitUnknownApiKeysByIp() throws Exception {
+        // Arrange - una clave inventada en cada request no abre un bucket nuevo
+        get("/api/orders/123", "10.0.0.1", "random-1");
+        get("/api/orders/123", "10.0.0.1", "random-2");
+
+        // Act
+        MockHttpServletResponse third = get("/api/orders/123", "10.0.0.1", "random-3");
+        MockHttpServletResponse otherIp = get("/api/orders/123", "10.0.0.2", "random-4");
+
+        // Assert
+        assertEquals(429, third.getStatus());
+        assertEquals(200, otherIp.getStatus());
+    }
+
+    @Test
+    void doFilter_ShouldNotLimitWebhooksOrOtherEndpoints() throws Exception {
+        // Act
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest webhook = new MockHttpServletRequest("POST", "/api/webhooks/stripe");
+            filter.doFilter(webhook, new MockHttpServletResponse(), (req, res) -> reachedController.incrementAndGet());
+            MockHttpServletResponse health = get("/actuator/health", "10.0.0.1", null);
+            assertNull(health.getHeader("RateLimit-Limit"));
+        }
+
+        // Assert
+        assertEquals(10, reachedController.get());
+    }
+
+    private MockHttpServletResponse get(String path, String ip, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(ip);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> reachedController.incrementAndGet());
+        return response;
+    }
+}
@@ -0,0 +1,58 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para ClientRateLimiter.
+ * Verifica la ráfaga por cliente, los tokens restantes y que cada cliente tenga su propio bucket.
+ */
+class ClientRateLimiterTest {
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReject() {
+        // Arrange - 1 token por minuto, ráfaga de 3
+        ClientRateLimiter limiter = new ClientRateLimiter(1.0 / 60, 3, 1024);
+
+        // Act
+        ClientRateLimiter.Result first = limiter.tryAcquire("ip:10.0.0.1");
+        ClientRateLimiter.Result second = limiter.tryAcquire("ip:10.0.0.1");
+        ClientRateLimiter.Result third = limiter.tryAcquire("ip:10.0.0.1");
+        ClientRateLimiter.Result fourth = limiter.tryAcquire("ip:10.0.0.1");
+
+        // Assert
+        assertTrue(first.allowed());
+        assertEquals(2, first.remaining());
+        assertEquals(1, second.remaining());
+        assertTrue(third.allowed());
+        assertEquals(0, third.remaining());
+        assertFalse(fourth.allowed());
+        assertTrue(fourth.retryAfterNanos() > 50_000_000_000L);
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepSeparateBucketsPerClient() {
+        // Arrange
+        ClientRateLimiter limiter = new ClientRateLimiter(1.0 / 60, 1, 1024);
+        limiter.tryAcquire("key:noisy");
+
+        // Act & Assert
+        assertFalse(limiter.tryAcquire("key:noisy").allowed());
+        assertTrue(limiter.tryAcquire("key:quiet").allowed());
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOverTime() throws Exception {
+        // Arrange - 1 token cada 20 ms
+        ClientRateLimiter limiter = new ClientRateLimiter(50, 1, 16);
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1").allowed());
+        assertFalse(limiter.tryAcquire("ip:10.0.0.1").allowed());
+
+        // Act
+        Thread.sleep(40);
+
+        // Assert
+        assertTrue(limiter.tryAcquire("ip:10.0.0.1").allowed());
+    }
+}
@@ -0,0 +1,154 @@
+package Portfolio.Checkout_api_sandbox.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para PriorityAdmissionScheduler.
+ * Verifica los límites por clase, la cola acotada, las reservas por peso y la prioridad al liberar capacidad.
+ */
+class PriorityAdmissionSchedulerTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void acquire_ShouldAdmitUpToClassLimit() {
+        // Arrange
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(10);
+        scheduler.register(TrafficClass.CHECKOUT, 1, 2, 0, 0);
+
+        // Act & Assert
+        assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, scheduler.acquire(TrafficClass.CHECKOUT));
+        assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, scheduler.acquire(TrafficClass.CHECKOUT));
+        assertEquals(PriorityAdmissionScheduler.Decision.QUEUE_FULL, scheduler.acquire(TrafficClass.CHECKOUT));
+        assertEquals(2, scheduler.getInFlight(TrafficClass.CHECKOUT));
+        assertEquals(1, scheduler.getRejectedQueueFullCount(TrafficClass.CHECKOUT));
+    }
+
+    @Test
+    void acquire_ShouldWaitInQueueUntilCapacityIsReleased() throws Exception {
+        // Arrange
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(10);
+        scheduler.register(TrafficClass.CHECKOUT, 1, 1, 1, 2_000);
+        scheduler.acquire(TrafficClass.CHECKOUT);
+
+        // Act
+        Future<PriorityAdmissionScheduler.Decision> queued =
+                executor.submit(() -> scheduler.acquire(TrafficClass.CHECKOUT));
+        awaitWaiting(scheduler, TrafficClass.CHECKOUT, 1);
+        PriorityAdmissionScheduler.Decision overflow = scheduler.acquire(TrafficClass.CHECKOUT);
+        scheduler.release(TrafficClass.CHECKOUT);
+
+        // Assert
+        assertEquals(PriorityAdmissionScheduler.Decision.QUEUE_FULL, overflow);
+        assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, queued.get(2, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getQueuedCount(TrafficClass.CHECKOUT));
+        assertEquals(1, scheduler.getInFlight(TrafficClass.CHECKOUT));
+    }
+
+    @Test
+    void acquire_ShouldRejectWhenQueueWaitExceedsLimit() {
+        // Arrange
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(10);
+        scheduler.register(TrafficClass.CHECKOUT, 1, 1, 5, 20);
+        scheduler.acquire(TrafficClass.CHECKOUT);
+
+        // Act
+        PriorityAdmissionScheduler.Decision decision = scheduler.acquire(TrafficClass.CHECKOUT);
+
+        // Assert
+        assertEquals(PriorityAdmissionScheduler.Decision.QUEUE_TIMEOUT, decision);
+        assertEquals(1, scheduler.getRejectedQueueTimeoutCount(TrafficClass.CHECKOUT));
+        assertEquals(0, scheduler.getWaiting(TrafficClass.CHECKOUT));
+        assertEquals(1, scheduler.getInUse());
+    }
+
+    @Test
+    void acquire_ShouldKeepHigherWeightReservationForItsClass() {
+        // Arrange - webhooks reservan 7 de 10, lecturas 2
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(10);
+        scheduler.register(TrafficClass.WEBHOOK, 3, 10, 0, 0);
+        scheduler.register(TrafficClass.ORDER_READ, 1, 10, 0, 0);
+        assertEquals(7, scheduler.getReserved(TrafficClass.WEBHOOK));
+        assertEquals(2, scheduler.getReserved(TrafficClass.ORDER_READ));
+
+        // Act - las lecturas toman su reserva y el único lugar que no reservó nadie
+        int admittedReads = 0;
+        while (scheduler.acquire(TrafficClass.ORDER_READ) == PriorityAdmissionScheduler.Decision.ADMITTED) {
+            admittedReads++;
+        }
+
+        // Assert - los webhooks siguen teniendo toda su reserva
+        assertEquals(3, admittedReads);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, scheduler.acquire(TrafficClass.WEBHOOK));
+        }
+        assertEquals(10, scheduler.getInUse());
+    }
+
+    @Test
+    void acquire_ShouldLetHigherWeightClassBorrowIdleCapacity() {
+        // Arrange
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(10);
+        scheduler.register(TrafficClass.WEBHOOK, 3, 10, 0, 0);
+        scheduler.register(TrafficClass.ORDER_READ, 1, 10, 0, 0);
+
+        // Act
+        int admittedWebhooks = 0;
+        while (scheduler.acquire(TrafficClass.WEBHOOK) == PriorityAdmissionScheduler.Decision.ADMITTED) {
+            admittedWebhooks++;
+        }
+
+        // Assert
+        assertEquals(10, admittedWebhooks);
+    }
+
+    @Test
+    void release_ShouldServeHigherWeightQueueFirst() throws Exception {
+        // Arrange - capacidad llena y un request de cada clase esperando
+        PriorityAdmissionScheduler scheduler = new PriorityAdmissionScheduler(2);
+        scheduler.register(TrafficClass.WEBHOOK, 3, 2, 5, 2_000);
+        scheduler.register(TrafficClass.ORDER_READ, 1, 2, 5, 2_000);
+        scheduler.acquire(TrafficClass.ORDER_READ);
+        scheduler.acquire(TrafficClass.WEBHOOK);
+        Future<PriorityAdmissionScheduler.Decision> read =
+                executor.submit(() -> scheduler.acquire(TrafficClass.ORDER_READ));
+        awaitWaiting(scheduler, TrafficClass.ORDER_READ, 1);
+        Future<PriorityAdmissionScheduler.Decision> webhook =
+                executor.submit(() -> scheduler.acquire(TrafficClass.WEBHOOK));
+        awaitWaiting(scheduler, TrafficClass.WEBHOOK, 1);
+
+        // Act
+        scheduler.release(TrafficClass.ORDER_READ);
+
+        // Assert - el webhook entra primero aunque la lectura llegó antes
+        assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, webhook.get(2, TimeUnit.SECONDS));
+        assertFalse(read.isDone());
+        scheduler.release(TrafficClass.WEBHOOK);
+        assertEquals(PriorityAdmissionScheduler.Decision.ADMITTED, read.get(2, TimeUnit.SECONDS));
+    }
+
+    private static void awaitWaiting(PriorityAdmissionScheduler scheduler, TrafficClass trafficClass, int count) {
+        while (scheduler.getWaiting(trafficClass) < count) {
+            Thread.onSpinWait();
+        }
+    }
+}